@@ -1,3 +1,5 @@
+import com.jianan.parkwhere.build.GenerateCarParkCatalogueTask
+
 plugins {
     alias(libs.plugins.androidApplication)
     alias(libs.plugins.googleAndroidLibrariesMapsplatformSecretsGradlePlugin)
@@ -32,6 +34,23 @@ android {
         dataBinding = true
         viewBinding = true
     }
+    androidResources {
+        // The car park catalogue is memory mapped straight from the APK, which requires it to be stored uncompressed
+        noCompress += "bin"
+    }
+}
+
+// Converts the car park CSV into the binary catalogue asset that seeds the database on first launch
+val generateCarParkCatalogue = tasks.register<GenerateCarParkCatalogueTask>("generateCarParkCatalogue") {
+    sourceCsv.set(layout.projectDirectory.file("catalogue/HDBCarParkInformationLatLng.csv"))
+    outputDirectory.set(layout.buildDirectory.dir("generated/catalogue"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(
+            generateCarParkCatalogue, GenerateCarParkCatalogueTask::getOutputDirectory)
+    }
 }
 
 dependencies {
@@ -43,7 +62,6 @@ dependencies {
     implementation(libs.converter.gson)
     implementation(libs.logging.interceptor)
     implementation(libs.room.runtime)
-    implementation(libs.opencsv)
     implementation(libs.core.splashscreen)
     implementation(libs.legacy.support.v4)
     implementation(libs.lifecycle.viewmodel.ktx)
@@ -0,0 +1,95 @@
+package com.jianan.parkwhere;
+
+import android.app.Application;
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.libraries.places.api.Places;
+import com.jianan.parkwhere.data.preferences.SettingsManager;
+import com.jianan.parkwhere.data.repository.BookmarkStore;
+import com.jianan.parkwhere.data.repository.CarParkRepository;
+import com.jianan.parkwhere.data.repository.LocationRepository;
+import com.jianan.parkwhere.data.repository.ParkingRateStore;
+import com.jianan.parkwhere.data.repository.PublicHolidayStore;
+import com.jianan.parkwhere.util.StartupOrchestrator;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application entry point, starts initialising the data layer in the background before the first activity is created
+ *
+ * Start up stages (see {@link StartupOrchestrator}):
+ * - settings: loads the preferences
+ * - database: builds the repository and opens Room, seeding it from the car park catalogue on first launch
+ * - bookmarks: loads the bookmark table and imports legacy bookmarks from the settings, after both
+ * - location: creates the fused location client, independent of the others
+ * - holidays: reads the bundled public holiday table used by parking rules, independent of the others
+ * - rates: reads the bundled parking rate table for cost estimates, after holidays
+ * - places: initialises the Places SDK, deferred until a screen with a search bar needs it
+ *
+ * The singletons keep their own lazy initialisation, so the main thread can still ask for any of them at any time. It
+ * simply waits for a stage that is already running instead of repeating the work
+ */
+public class ParkWhereApplication extends Application {
+    private static final String TAG = "Startup";
+
+    public static final String STAGE_SETTINGS = "settings";
+    public static final String STAGE_DATABASE = "database";
+    public static final String STAGE_BOOKMARKS = "bookmarks";
+    public static final String STAGE_LOCATION = "location";
+    public static final String STAGE_HOLIDAYS = "holidays";
+    public static final String STAGE_RATES = "rates";
+    public static final String STAGE_PLACES = "places";
+
+    // Milestone recorded by the launcher activity once its first frame is drawn
+    public static final String MILESTONE_FIRST_FRAME = "first_frame";
+
+    private static final int STARTUP_THREADS = 3;
+
+    private StartupOrchestrator startup;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(STARTUP_THREADS, STARTUP_THREADS, 1L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "startup-" + count.incrementAndGet()));
+        // Threads are only needed during start up and the first use of deferred stages
+        executor.allowCoreThreadTimeOut(true);
+
+        startup = new StartupOrchestrator(executor)
+                .addStage(STAGE_SETTINGS, () -> SettingsManager.getSettingsManager(this))
+                .addStage(STAGE_DATABASE, () -> CarParkRepository.getCarParkRepo(this).openDatabase())
+                .addStage(STAGE_BOOKMARKS, () -> BookmarkStore.getBookmarkStore(this), STAGE_SETTINGS, STAGE_DATABASE)
+                .addStage(STAGE_LOCATION, () -> LocationRepository.getLocationRepo(this))
+                .addStage(STAGE_HOLIDAYS, () -> PublicHolidayStore.getPublicHolidayStore(this))
+                .addStage(STAGE_RATES, () -> ParkingRateStore.getParkingRateStore(this), STAGE_HOLIDAYS)
+                .addDeferredStage(STAGE_PLACES, () -> {
+                    if (!Places.isInitialized()) {
+                        Places.initialize(this, BuildConfig.MAPS_API_KEY);
+                    }
+                });
+        startup.start();
+    }
+
+    /**
+     * Returns the start up orchestrator of the application
+     *
+     * @param context any valid {@link Context}
+     * @return the {@link StartupOrchestrator} started in {@link #onCreate()}
+     */
+    public static StartupOrchestrator getStartup(Context context) {
+        return ((ParkWhereApplication) context.getApplicationContext()).startup;
+    }
+
+    /**
+     * Log the stage timings and milestones recorded so far, called once the first frame is drawn
+     */
+    public void logStartupTimings() {
+        Log.i(TAG, startup.describeTimings());
+    }
+}
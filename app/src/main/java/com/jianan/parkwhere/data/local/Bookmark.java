@@ -0,0 +1,75 @@
+package com.jianan.parkwhere.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entity class representing a bookmarked car park in the local Room database
+ *
+ * One row per bookmark, so adding or removing a bookmark only writes a single row
+ */
+@Entity(tableName = "bookmark")
+public class Bookmark {
+    @PrimaryKey
+    @NonNull
+    private final String carParkNumber;
+    private final long createdAt;
+    private final int sortOrder;
+    @Nullable
+    private final String label;
+
+    /**
+     * Construct a bookmark
+     *
+     * @param carParkNumber the bookmarked car park number
+     * @param createdAt     epoch milliseconds when the bookmark was added
+     * @param sortOrder     position of the bookmark in the bookmarks list, lower values come first
+     * @param label         optional user label, or null
+     */
+    public Bookmark(@NonNull String carParkNumber, long createdAt, int sortOrder, @Nullable String label) {
+        this.carParkNumber = carParkNumber;
+        this.createdAt = createdAt;
+        this.sortOrder = sortOrder;
+        this.label = label;
+    }
+
+    /**
+     * Returns the bookmarked car park number
+     *
+     * @return the car park number
+     */
+    @NonNull
+    public String getCarParkNumber() {
+        return carParkNumber;
+    }
+
+    /**
+     * Returns when the bookmark was added
+     *
+     * @return epoch milliseconds
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Returns the position of the bookmark in the bookmarks list
+     *
+     * @return the sort order, lower values come first
+     */
+    public int getSortOrder() {
+        return sortOrder;
+    }
+
+    /**
+     * Returns the user label of the bookmark
+     *
+     * @return the label, or null if none was set
+     */
+    @Nullable
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,57 @@
+package com.jianan.parkwhere.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface BookmarkDao {
+    /**
+     * Appends a bookmark to the end of the bookmark order in a single statement.
+     * An existing bookmark of the same car park is kept as is.
+     *
+     * @param carParkNumber The unique ID of the car park.
+     * @param createdAt     Epoch milliseconds when the bookmark was added.
+     */
+    @Query("INSERT OR IGNORE INTO bookmark (carParkNumber, createdAt, sortOrder, label) "
+            + "SELECT :carParkNumber, :createdAt, COALESCE(MAX(sortOrder), -1) + 1, NULL FROM bookmark")
+    void appendBookmark(String carParkNumber, long createdAt);
+
+    /**
+     * Inserts several bookmarks at once, used when importing bookmarks from preferences.
+     *
+     * @param bookmarks The bookmarks to insert.
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertBookmarks(List<Bookmark> bookmarks);
+
+    /**
+     * Removes the bookmark of the given car park.
+     *
+     * @param carParkNumber The unique ID of the car park.
+     * @return The number of removed rows, 0 if the car park was not bookmarked.
+     */
+    @Query("DELETE FROM bookmark WHERE carParkNumber = :carParkNumber")
+    int deleteBookmark(String carParkNumber);
+
+    /**
+     * Retrieves the numbers of all bookmarked car parks.
+     *
+     * @return List of bookmarked car park numbers.
+     */
+    @Query("SELECT carParkNumber FROM bookmark")
+    List<String> getBookmarkedCarParkNumbers();
+
+    /**
+     * Retrieves the bookmarked car parks in bookmark order with a single join.
+     * Bookmarks whose car park no longer exists are left out.
+     *
+     * @return List of bookmarked car parks.
+     */
+    @Query("SELECT car_park.* FROM bookmark INNER JOIN car_park ON car_park.carParkNumber = bookmark.carParkNumber "
+            + "ORDER BY bookmark.sortOrder, bookmark.carParkNumber")
+    List<CarPark> getBookmarkedCarParks();
+}
@@ -1,25 +1,53 @@
 package com.jianan.parkwhere.data.local;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import com.jianan.parkwhere.util.CarParkDictionary;
+
 import java.util.Objects;
 
 /**
  * Entity class representing a car park record in the local Room database
+ *
+ * Categorical attributes (car park type, parking system, short-term, free and night parking, basement) are stored as
+ * {@link CarParkDictionary} codes both in the table and in memory. The string getters decode them to the shared
+ * dictionary values, filters should compare the codes
+ *
+ * The SVY21 coordinates are indexed, so the projected bounding box queries of nearby searches seek on the easting
+ * range instead of scanning the table
  */
-@Entity(tableName = "car_park")
+@Entity(tableName = "car_park", indices = {@Index(value = {"xCoord", "yCoord"})})
 public class CarPark {
+    // The HDB data set lists a gantry height of 0 for car parks whose height is not known
+    public static final double GANTRY_HEIGHT_UNKNOWN = 0;
+
     @PrimaryKey
     @NonNull
     private String carParkNumber;
     private String address;
     private double latitude, longitude;
-    private String carParkType, parkingSystemType, shortTermParking, freeParking, nightParking;
+    @ColumnInfo(defaultValue = "0")
+    private float xCoord;
+    @ColumnInfo(defaultValue = "0")
+    private float yCoord;
+    @ColumnInfo(name = "carParkType")
+    private int carParkTypeCode = CarParkDictionary.UNKNOWN;
+    @ColumnInfo(name = "parkingSystemType")
+    private int parkingSystemTypeCode = CarParkDictionary.UNKNOWN;
+    @ColumnInfo(name = "shortTermParking")
+    private int shortTermParkingCode = CarParkDictionary.UNKNOWN;
+    @ColumnInfo(name = "freeParking")
+    private int freeParkingCode = CarParkDictionary.UNKNOWN;
+    @ColumnInfo(name = "nightParking")
+    private int nightParkingCode = CarParkDictionary.UNKNOWN;
     private int carParkDecks;
     private double gantryHeight;
-    private String carParkBasement;
+    @ColumnInfo(name = "carParkBasement")
+    private int carParkBasementCode = CarParkDictionary.UNKNOWN;
 
     /**
      * Returns the unique identifier for this car park
@@ -58,6 +86,24 @@ public class CarPark {
         return longitude;
     }
 
+    /**
+     * Returns the SVY21 easting of the car park location
+     *
+     * @return x coordinate in metres
+     */
+    public float getXCoord() {
+        return xCoord;
+    }
+
+    /**
+     * Returns the SVY21 northing of the car park location
+     *
+     * @return y coordinate in metres
+     */
+    public float getYCoord() {
+        return yCoord;
+    }
+
     /**
      * Returns the type of car park (basement, multi-storey, surface, mechanised,
      * covered, mechanised and surface or surface/multi-storey)
@@ -65,7 +111,16 @@ public class CarPark {
      * @return car park type
      */
     public String getCarParkType() {
-        return carParkType;
+        return CarParkDictionary.decode(CarParkDictionary.COLUMN_CAR_PARK_TYPE, carParkTypeCode);
+    }
+
+    /**
+     * Returns the {@link CarParkDictionary} code of the car park type
+     *
+     * @return the code, {@link CarParkDictionary#UNKNOWN} if the value is not in the dictionary
+     */
+    public int getCarParkTypeCode() {
+        return carParkTypeCode;
     }
 
     /**
@@ -74,7 +129,16 @@ public class CarPark {
      * @return parking system type
      */
     public String getParkingSystemType() {
-        return parkingSystemType;
+        return CarParkDictionary.decode(CarParkDictionary.COLUMN_PARKING_SYSTEM_TYPE, parkingSystemTypeCode);
+    }
+
+    /**
+     * Returns the {@link CarParkDictionary} code of the parking system type
+     *
+     * @return the code, {@link CarParkDictionary#UNKNOWN} if the value is not in the dictionary
+     */
+    public int getParkingSystemTypeCode() {
+        return parkingSystemTypeCode;
     }
 
     /**
@@ -85,7 +149,16 @@ public class CarPark {
      * @return allowed short-term parking period
      */
     public String getShortTermParking() {
-        return shortTermParking;
+        return CarParkDictionary.decode(CarParkDictionary.COLUMN_SHORT_TERM_PARKING, shortTermParkingCode);
+    }
+
+    /**
+     * Returns the {@link CarParkDictionary} code of the short-term parking period
+     *
+     * @return the code, {@link CarParkDictionary#UNKNOWN} if the value is not in the dictionary
+     */
+    public int getShortTermParkingCode() {
+        return shortTermParkingCode;
     }
 
     /**
@@ -94,7 +167,16 @@ public class CarPark {
      * @return free parking availability period
      */
     public String getFreeParking() {
-        return freeParking;
+        return CarParkDictionary.decode(CarParkDictionary.COLUMN_FREE_PARKING, freeParkingCode);
+    }
+
+    /**
+     * Returns the {@link CarParkDictionary} code of the free parking period
+     *
+     * @return the code, {@link CarParkDictionary#UNKNOWN} if the value is not in the dictionary
+     */
+    public int getFreeParkingCode() {
+        return freeParkingCode;
     }
 
     /**
@@ -103,7 +185,16 @@ public class CarPark {
      * @return night parking type
      */
     public String getNightParking() {
-        return nightParking;
+        return CarParkDictionary.decode(CarParkDictionary.COLUMN_NIGHT_PARKING, nightParkingCode);
+    }
+
+    /**
+     * Returns the {@link CarParkDictionary} code of the night parking availability
+     *
+     * @return the code, {@link CarParkDictionary#UNKNOWN} if the value is not in the dictionary
+     */
+    public int getNightParkingCode() {
+        return nightParkingCode;
     }
 
     /**
@@ -118,12 +209,21 @@ public class CarPark {
     /**
      * Returns the gantry height for this car park
      *
-     * @return gantry height in meters
+     * @return gantry height in meters, {@link #GANTRY_HEIGHT_UNKNOWN} if not known
      */
     public double getGantryHeight() {
         return gantryHeight;
     }
 
+    /**
+     * Returns whether the gantry height of this car park is known
+     *
+     * @return true if {@link #getGantryHeight()} is a real height
+     */
+    public boolean hasGantryHeight() {
+        return gantryHeight > GANTRY_HEIGHT_UNKNOWN;
+    }
+
     /**
      * Returns whether a basement is available for this car park
      * "Y" indicates the presence of a basement while "N" indicates that there
@@ -132,7 +232,16 @@ public class CarPark {
      * @return "Y" or "N" indicating basement availability
      */
     public String getCarParkBasement() {
-        return carParkBasement;
+        return CarParkDictionary.decode(CarParkDictionary.COLUMN_CAR_PARK_BASEMENT, carParkBasementCode);
+    }
+
+    /**
+     * Returns the {@link CarParkDictionary} code of the basement indicator
+     *
+     * @return the code, {@link CarParkDictionary#UNKNOWN} if the value is not in the dictionary
+     */
+    public int getCarParkBasementCode() {
+        return carParkBasementCode;
     }
 
     /**
@@ -171,51 +280,66 @@ public class CarPark {
     }
 
     /**
-     * Sets the type of car park (basement, multi-storey, surface, mechanised,
-     * covered, mechanised and surface or surface/multi-storey)
+     * Sets the SVY21 easting of the car park location
      *
-     * @param carParkType type of car park
+     * @param xCoord x coordinate in metres
      */
-    public void setCarParkType(String carParkType) {
-        this.carParkType = carParkType;
+    public void setXCoord(float xCoord) {
+        this.xCoord = xCoord;
     }
 
     /**
-     * Sets the parking system type (electronic parking or coupon parking)
+     * Sets the SVY21 northing of the car park location
      *
-     * @param parkingSystemType  parking system type
+     * @param yCoord y coordinate in metres
      */
-    public void setParkingSystemType(String parkingSystemType) {
-        this.parkingSystemType = parkingSystemType;
+    public void setYCoord(float yCoord) {
+        this.yCoord = yCoord;
     }
 
     /**
-     * Sets the short-term parking type for this car park
-     * The returned value indicates when short-term (casual) parking is allowed
-     * (whole day, 7AM - 10.30PM, 7AM - 7PM or no short term parking)
+     * Sets the type of car park as a {@link CarParkDictionary} code
+     *
+     * @param carParkTypeCode one of the {@code CarParkDictionary.CAR_PARK_TYPE_*} codes or {@link CarParkDictionary#UNKNOWN}
+     */
+    public void setCarParkTypeCode(int carParkTypeCode) {
+        this.carParkTypeCode = carParkTypeCode;
+    }
+
+    /**
+     * Sets the parking system type as a {@link CarParkDictionary} code
+     *
+     * @param parkingSystemTypeCode one of the {@code CarParkDictionary.PARKING_SYSTEM_*} codes or {@link CarParkDictionary#UNKNOWN}
+     */
+    public void setParkingSystemTypeCode(int parkingSystemTypeCode) {
+        this.parkingSystemTypeCode = parkingSystemTypeCode;
+    }
+
+    /**
+     * Sets the short-term parking period as a {@link CarParkDictionary} code
      *
-     * @param shortTermParking allowed short-term parking period
+     * @param shortTermParkingCode one of the {@code CarParkDictionary.SHORT_TERM_PARKING_*} codes or {@link CarParkDictionary#UNKNOWN}
      */
-    public void setShortTermParking(String shortTermParking) {
-        this.shortTermParking = shortTermParking;
+    public void setShortTermParkingCode(int shortTermParkingCode) {
+        this.shortTermParkingCode = shortTermParkingCode;
     }
 
     /**
-     * Sets the period during which free parking is available
+     * Sets the free parking period as a {@link CarParkDictionary} code
      *
-     * @param freeParking free parking availability period
+     * @param freeParkingCode one of the {@code CarParkDictionary.FREE_PARKING_*} codes or {@link CarParkDictionary#UNKNOWN}
      */
-    public void setFreeParking(String freeParking) {
-        this.freeParking = freeParking;
+    public void setFreeParkingCode(int freeParkingCode) {
+        this.freeParkingCode = freeParkingCode;
     }
 
     /**
-     * Sets night parking availability
+     * Sets the night parking availability as a {@link CarParkDictionary} code
      *
-     * @param nightParking  night parking type
+     * @param nightParkingCode one of the {@code CarParkDictionary.NIGHT_PARKING_*} codes or {@link CarParkDictionary#UNKNOWN}
      */
-    public void setNightParking(String nightParking) {
-        this.nightParking = nightParking;
+    public void setNightParkingCode(int nightParkingCode) {
+        this.nightParkingCode = nightParkingCode;
     }
 
     /**
@@ -237,20 +361,19 @@ public class CarPark {
     }
 
     /**
-     * Sets whether a basement is available for this car park.
-     * "Y" indicates the presence of a basement while "N" indicates that there is no basement
+     * Sets the basement indicator as a {@link CarParkDictionary} code
      *
-     * @param carParkBasement  "Y" or "N" indicating basement availability
+     * @param carParkBasementCode one of the {@code CarParkDictionary.BASEMENT_*} codes or {@link CarParkDictionary#UNKNOWN}
      */
-    public void setCarParkBasement(String carParkBasement) {
-        this.carParkBasement = carParkBasement;
+    public void setCarParkBasementCode(int carParkBasementCode) {
+        this.carParkBasementCode = carParkBasementCode;
     }
 
     /**
      * Indicates whether some other object is "equal to" this one
      *
      * Two {@code CarPark} objects are considered equal if they have the same
-     * car park number, address, latitude, longitude, car park type,
+     * car park number, address, latitude, longitude, SVY21 coordinates, car park type,
      * parking system type, short-term parking, free parking, night parking,
      * number of decks, gantry height and basement indicator
      *
@@ -274,14 +397,16 @@ public class CarPark {
                 Objects.equals(address, carPark.address) &&
                 Double.compare(carPark.latitude, latitude) == 0 &&
                 Double.compare(carPark.longitude, longitude) == 0 &&
-                Objects.equals(carParkType, carPark.carParkType) &&
-                Objects.equals(parkingSystemType, carPark.parkingSystemType) &&
-                Objects.equals(shortTermParking, carPark.shortTermParking) &&
-                Objects.equals(freeParking, carPark.freeParking) &&
-                Objects.equals(nightParking, carPark.nightParking) &&
+                Float.compare(carPark.xCoord, xCoord) == 0 &&
+                Float.compare(carPark.yCoord, yCoord) == 0 &&
+                carParkTypeCode == carPark.carParkTypeCode &&
+                parkingSystemTypeCode == carPark.parkingSystemTypeCode &&
+                shortTermParkingCode == carPark.shortTermParkingCode &&
+                freeParkingCode == carPark.freeParkingCode &&
+                nightParkingCode == carPark.nightParkingCode &&
                 carParkDecks == carPark.carParkDecks &&
                 Double.compare(carPark.gantryHeight, gantryHeight) == 0 &&
-                Objects.equals(carParkBasement, carPark.carParkBasement);
+                carParkBasementCode == carPark.carParkBasementCode;
     }
 
     /**
@@ -290,8 +415,8 @@ public class CarPark {
     @Override
     public int hashCode() {
         return Objects.hash(carParkNumber, address, latitude, longitude,
-                carParkType, parkingSystemType, shortTermParking,
-                freeParking, nightParking, carParkDecks,
-                gantryHeight, carParkBasement);
+                xCoord, yCoord, carParkTypeCode, parkingSystemTypeCode, shortTermParkingCode,
+                freeParkingCode, nightParkingCode, carParkDecks,
+                gantryHeight, carParkBasementCode);
     }
 }
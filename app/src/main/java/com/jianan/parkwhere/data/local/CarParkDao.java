@@ -9,15 +9,6 @@ import java.util.List;
 
 @Dao
 public interface CarParkDao {
-    /**
-     * Retrieves the car park entry that matches the given car park number.
-     *
-     * @param carParkNumber The unique ID of the car park.
-     * @return The matching CarPark entity, or null if not found.
-     */
-    @Query("SELECT * FROM car_park WHERE carParkNumber = :carParkNumber LIMIT 1")
-    CarPark getCarParkByNumber(String carParkNumber);
-
     /**
      * Retrieves car parks within the specified bounding box coordinates.
      * Used as the first filter for nearby car park searches.
@@ -31,6 +22,40 @@ public interface CarParkDao {
     @Query("SELECT * FROM car_park WHERE latitude BETWEEN :minLat AND :maxLat AND longitude BETWEEN :minLon AND :maxLon")
     List<CarPark> getCarParksInBoundingBox(double minLat, double maxLat, double minLon, double maxLon);
 
+    /**
+     * Retrieves car parks within the specified SVY21 bounding box.
+     * Used as the first filter for nearby car park searches on projected coordinates.
+     * The {@code (xCoord, yCoord)} index narrows the scan to the easting range of the box.
+     *
+     * @param minX Minimum easting of the bounding box in metres
+     * @param maxX Maximum easting of the bounding box in metres
+     * @param minY Minimum northing of the bounding box in metres
+     * @param maxY Maximum northing of the bounding box in metres
+     * @return List of car parks within the bounding box
+     */
+    @Query("SELECT * FROM car_park WHERE xCoord BETWEEN :minX AND :maxX AND yCoord BETWEEN :minY AND :maxY")
+    List<CarPark> getCarParksInProjectedBoundingBox(float minX, float maxX, float minY, float maxY);
+
+    /**
+     * Retrieves car parks within the specified SVY21 bounding box but outside a smaller inner box.
+     * Used when the search radius grows around the same centre, the inner box lies within the previous radius
+     * so its car parks are already known.
+     *
+     * @param minX      Minimum easting of the outer bounding box in metres
+     * @param maxX      Maximum easting of the outer bounding box in metres
+     * @param minY      Minimum northing of the outer bounding box in metres
+     * @param maxY      Maximum northing of the outer bounding box in metres
+     * @param innerMinX Minimum easting of the excluded inner box in metres
+     * @param innerMaxX Maximum easting of the excluded inner box in metres
+     * @param innerMinY Minimum northing of the excluded inner box in metres
+     * @param innerMaxY Maximum northing of the excluded inner box in metres
+     * @return List of car parks between the two boxes
+     */
+    @Query("SELECT * FROM car_park WHERE xCoord BETWEEN :minX AND :maxX AND yCoord BETWEEN :minY AND :maxY "
+            + "AND NOT (xCoord BETWEEN :innerMinX AND :innerMaxX AND yCoord BETWEEN :innerMinY AND :innerMaxY)")
+    List<CarPark> getCarParksInProjectedRing(float minX, float maxX, float minY, float maxY,
+                                             float innerMinX, float innerMaxX, float innerMinY, float innerMaxY);
+
     @Query ("SELECT * FROM car_park")
     List<CarPark> getAllCarParks();
 }
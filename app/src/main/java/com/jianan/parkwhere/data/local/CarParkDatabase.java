@@ -2,44 +2,186 @@ package com.jianan.parkwhere.data.local;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
 import com.jianan.parkwhere.data.preferences.SettingsManager;
+import com.jianan.parkwhere.util.CarParkCatalogue;
+import com.jianan.parkwhere.util.CarParkDictionary;
+import com.jianan.parkwhere.util.Svy21Projection;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /**
  * Singleton Room database for storing {@link CarPark} entities.
  *
  * This database ensures only one instance exists throughout the application's
- * lifecycle. On fresh installation, the database is pre-populated from the bundled
- * {@code carpark.db} asset and persists between application restarts.
+ * lifecycle. On fresh installation, the {@code car_park} table is filled from the bundled
+ * {@link CarParkCatalogue} asset and persists between application restarts.
  *
  * The database provides an access point to the {@link CarParkDao}.
+ *
+ * Schema history
+ * - Version 1: initial {@code car_park} table, shipped as a prebuilt database asset by earlier versions of the app
+ * - Version 2: adds SVY21 {@code xCoord} and {@code yCoord} columns, see {@link #MIGRATION_1_2}
+ * - Version 3: adds the {@code bookmark} table, see {@link #MIGRATION_2_3}
+ * - Version 4: stores the categorical {@code car_park} columns as {@link CarParkDictionary} codes, see {@link #MIGRATION_3_4}
+ * - Version 5: indexes the SVY21 {@code xCoord} and {@code yCoord} columns, see {@link #MIGRATION_4_5}
  */
-@Database(entities = {CarPark.class}, version = 1)
+@Database(entities = {CarPark.class, Bookmark.class}, version = 5)
 public abstract class CarParkDatabase extends RoomDatabase {
     public abstract CarParkDao carParkDao();
+    public abstract BookmarkDao bookmarkDao();
     private static final String DB_NAME = "carpark.db";
     private static volatile CarParkDatabase instance;
 
+    /**
+     * Adds the SVY21 projected coordinates to {@code car_park} and fills them from the stored latitude longitude.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `car_park` ADD COLUMN `xCoord` REAL NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `car_park` ADD COLUMN `yCoord` REAL NOT NULL DEFAULT 0");
+
+            try (Cursor cursor = db.query("SELECT `carParkNumber`, `latitude`, `longitude` FROM `car_park`")) {
+                while (cursor.moveToNext()) {
+                    Svy21Projection.Point point = Svy21Projection.fromLatLng(cursor.getDouble(1), cursor.getDouble(2));
+                    db.execSQL("UPDATE `car_park` SET `xCoord` = ?, `yCoord` = ? WHERE `carParkNumber` = ?",
+                            new Object[]{point.getX(), point.getY(), cursor.getString(0)});
+                }
+            }
+        }
+    };
+
+    /**
+     * Adds the {@code bookmark} table.
+     *
+     * Bookmarks previously kept in preferences are imported by the bookmark store once the database is open.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `bookmark` (`carParkNumber` TEXT NOT NULL, `createdAt` INTEGER NOT NULL, "
+                    + "`sortOrder` INTEGER NOT NULL, `label` TEXT, PRIMARY KEY(`carParkNumber`))");
+        }
+    };
+
+    /**
+     * Replaces the text of the categorical {@code car_park} columns with their {@link CarParkDictionary} codes.
+     *
+     * SQLite cannot change the type of a column, so the table is rebuilt and every value is encoded while copying.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE `car_park_new` (`carParkNumber` TEXT NOT NULL, `address` TEXT, "
+                    + "`latitude` REAL NOT NULL, `longitude` REAL NOT NULL, `xCoord` REAL NOT NULL DEFAULT 0, "
+                    + "`yCoord` REAL NOT NULL DEFAULT 0, `carParkType` INTEGER NOT NULL, "
+                    + "`parkingSystemType` INTEGER NOT NULL, `shortTermParking` INTEGER NOT NULL, "
+                    + "`freeParking` INTEGER NOT NULL, `nightParking` INTEGER NOT NULL, `carParkDecks` INTEGER NOT NULL, "
+                    + "`gantryHeight` REAL NOT NULL, `carParkBasement` INTEGER NOT NULL, PRIMARY KEY(`carParkNumber`))");
+            db.execSQL("INSERT INTO `car_park_new` SELECT `carParkNumber`, `address`, `latitude`, `longitude`, "
+                    + "`xCoord`, `yCoord`, "
+                    + encodeSql(CarParkDictionary.COLUMN_CAR_PARK_TYPE, "carParkType") + ", "
+                    + encodeSql(CarParkDictionary.COLUMN_PARKING_SYSTEM_TYPE, "parkingSystemType") + ", "
+                    + encodeSql(CarParkDictionary.COLUMN_SHORT_TERM_PARKING, "shortTermParking") + ", "
+                    + encodeSql(CarParkDictionary.COLUMN_FREE_PARKING, "freeParking") + ", "
+                    + encodeSql(CarParkDictionary.COLUMN_NIGHT_PARKING, "nightParking") + ", "
+                    + "`carParkDecks`, `gantryHeight`, "
+                    + encodeSql(CarParkDictionary.COLUMN_CAR_PARK_BASEMENT, "carParkBasement") + " FROM `car_park`");
+            db.execSQL("DROP TABLE `car_park`");
+            db.execSQL("ALTER TABLE `car_park_new` RENAME TO `car_park`");
+        }
+    };
+
+    /**
+     * Adds the composite index on the SVY21 coordinates used by the nearby bounding box queries.
+     *
+     * The index name is the one Room derives for the {@link CarPark} entity, so the schema validates after migrating.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_car_park_xCoord_yCoord` ON `car_park` (`xCoord`, `yCoord`)");
+        }
+    };
+
+    /**
+     * Builds a {@code CASE} expression mapping the text of a column to its dictionary code, unknown text maps to
+     * {@link CarParkDictionary#UNKNOWN}.
+     */
+    private static String encodeSql(int column, String columnName) {
+        StringBuilder sql = new StringBuilder("CASE `").append(columnName).append('`');
+        for (int code = 0; code < CarParkDictionary.size(column); code++) {
+            String value = CarParkDictionary.decode(column, code).replace("'", "''");
+            sql.append(" WHEN '").append(value).append("' THEN ").append(code);
+        }
+        return sql.append(" ELSE ").append(CarParkDictionary.UNKNOWN).append(" END").toString();
+    }
+
+    /**
+     * Fills {@code car_park} from the memory mapped catalogue asset, within the transaction that creates the tables.
+     *
+     * Every value is read in place from the mapped asset, only the strings are decoded. The catalogue stores the
+     * categorical columns with the same {@link CarParkDictionary} codes as the table, so they are copied as is.
+     */
+    private static void insertCatalogue(Context context, SupportSQLiteDatabase db) {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(CarParkCatalogue.ASSET_NAME);
+             FileInputStream inputStream = descriptor.createInputStream()) {
+            CarParkCatalogue catalogue = CarParkCatalogue.map(inputStream.getChannel(),
+                    descriptor.getStartOffset(), descriptor.getLength());
+
+            SupportSQLiteStatement insert = db.compileStatement("INSERT INTO `car_park` (`carParkNumber`, `address`, "
+                    + "`latitude`, `longitude`, `xCoord`, `yCoord`, `carParkType`, `parkingSystemType`, "
+                    + "`shortTermParking`, `freeParking`, `nightParking`, `carParkDecks`, `gantryHeight`, "
+                    + "`carParkBasement`) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            for (int i = 0; i < catalogue.size(); i++) {
+                insert.bindString(1, catalogue.getCarParkNumber(i));
+                insert.bindString(2, catalogue.getAddress(i));
+                insert.bindDouble(3, catalogue.getLatitude(i));
+                insert.bindDouble(4, catalogue.getLongitude(i));
+                insert.bindDouble(5, catalogue.getXCoord(i));
+                insert.bindDouble(6, catalogue.getYCoord(i));
+                insert.bindLong(7, catalogue.getCode(CarParkDictionary.COLUMN_CAR_PARK_TYPE, i));
+                insert.bindLong(8, catalogue.getCode(CarParkDictionary.COLUMN_PARKING_SYSTEM_TYPE, i));
+                insert.bindLong(9, catalogue.getCode(CarParkDictionary.COLUMN_SHORT_TERM_PARKING, i));
+                insert.bindLong(10, catalogue.getCode(CarParkDictionary.COLUMN_FREE_PARKING, i));
+                insert.bindLong(11, catalogue.getCode(CarParkDictionary.COLUMN_NIGHT_PARKING, i));
+                insert.bindLong(12, catalogue.getCarParkDecks(i));
+                insert.bindDouble(13, catalogue.getGantryHeight(i));
+                insert.bindLong(14, catalogue.getCode(CarParkDictionary.COLUMN_CAR_PARK_BASEMENT, i));
+                insert.executeInsert();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + CarParkCatalogue.ASSET_NAME, e);
+        }
+    }
+
     /**
      * Returns the singleton instance of {@link CarParkDatabase}.
      *
      * @param context the application context
      * @return the singleton {@link CarParkDatabase} instance
      */
-    public static CarParkDatabase getDatabase(Context context, boolean shouldCreateFromAsset){
+    public static CarParkDatabase getDatabase(Context context){
         if  (instance == null){
             // Synchronised prevents race conditions in multi-threaded environments by ensuring only one thread can create the INSTANCE at any point in time
             synchronized (CarParkDatabase.class) {
                 if (instance == null) {
                     // Room database persist between application restarts after it is created from the fresh installation
-                    // This check ensures that createFromAsset() is called only if the DB does not exist avoiding unnecessary access to the asset directory which may leak resources
+                    // The catalogue is only read when Room creates the database, i.e. on a fresh installation
 
                     Context appContext = context.getApplicationContext();
                     // SettingsManager settingsManager = new SettingsManager(appContext);
@@ -54,13 +196,17 @@ public abstract class CarParkDatabase extends RoomDatabase {
                             DB_NAME
                     );
 
-                    // Only use createFromAsset() if this is the first time the application is run
-                    if (shouldCreateFromAsset) {
-                        builder = builder.createFromAsset(DB_NAME);
-                    }
-
                     instance = builder
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5)
+                            // Readers on the DatabaseExecutors pool run concurrently with the writer
+                            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
                             .addCallback(new Callback() {
+                                @Override
+                                public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                                    super.onCreate(db);
+                                    insertCatalogue(appContext, db);
+                                }
+
                                 @Override
                                 public void onOpen(@NonNull SupportSQLiteDatabase db) {
                                     super.onOpen(db);
@@ -1,6 +1,7 @@
 package com.jianan.parkwhere.data.model;
 
 import com.google.gson.annotations.SerializedName;
+import com.jianan.parkwhere.util.RelativeTimeFormatter;
 
 import java.util.List;
 
@@ -17,6 +18,9 @@ public class CarParkApiData {
     @SerializedName("carpark_info")
     private List<CarParkInfo> carParkInfo;
 
+    // update_datetime parsed once at ingest, transient so that Gson leaves it alone
+    private transient long updateTimeMillis = RelativeTimeFormatter.UNKNOWN_TIME;
+
     public String getCarParkNumber() {
         return carParkNumber;
     }
@@ -28,4 +32,17 @@ public class CarParkApiData {
     public List<CarParkInfo> getCarParkInfo() {
         return carParkInfo;
     }
+
+    /**
+     * Returns the update time in epoch milliseconds
+     *
+     * @return epoch milliseconds, or {@link RelativeTimeFormatter#UNKNOWN_TIME} if it was not parsed
+     */
+    public long getUpdateTimeMillis() {
+        return updateTimeMillis;
+    }
+
+    public void setUpdateTimeMillis(long updateTimeMillis) {
+        this.updateTimeMillis = updateTimeMillis;
+    }
 }
@@ -2,54 +2,114 @@ package com.jianan.parkwhere.data.preferences;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Centralised manager for application settings stored in {@link android.content.SharedPreferences}.
  *
  * This class provides convenient accessors and mutators for various application preferences
- * (radius, vehicle type, bookmarks, theme, etc). It uses a thread-safe lazy singleton pattern
- * (double-checked locking) and caches bookmarked car park numbers in memory for quick access.
+ * (radius, vehicle type, theme, etc). It uses a thread-safe lazy singleton pattern
+ * (double-checked locking). Bookmarks are kept in the database by
+ * {@link com.jianan.parkwhere.data.repository.BookmarkStore}.
+ *
+ * Preferences are read from disk once when the manager is created and kept as typed values in memory, so getters
+ * never touch {@link android.content.SharedPreferences}. Setters update the in-memory value and its LiveData right
+ * away, the disk write is debounced and runs on a background thread with all values changed in the meantime
+ * (e.g. every step of a radius slider drag results in a single write once the slider settles).
+ *
+ * Setters of values with a LiveData must be called on the main thread.
  **/
 public class SettingsManager {
     private static final String PREF_NAME = "park_where_preferences";
-    private static final String KEY_DATABASE_INITIALISED = "database_initialised";
     private static final String KEY_FIRST_LAUNCH = "first_launch";
     private static final String KEY_RADIUS = "radius_value";
     private static final String KEY_VEHICLE_TYPE = "vehicle_type";
-    private static final String KEY_BOOKMARKS = "bookmarked_car_parks";
+    private static final String KEY_LEGACY_BOOKMARKS = "bookmarked_car_parks";
     private static final String KEY_THEME_MODE = "theme_mode";
+    private static final String KEY_VEHICLE_CLEARANCE = "vehicle_clearance";
+    private static final String KEY_INCLUDE_UNKNOWN_GANTRY = "include_unknown_gantry";
+    private static final String KEY_RANKING = "ranking";
 
     // Vehicle Type Constants
     public static final int VEHICLE_BOTH = 0;
     public static final int VEHICLE_CAR = 1;
     public static final int VEHICLE_MOTORCYCLE = 2;
 
+    // Vehicle Clearance Constants
+    public static final float CLEARANCE_NONE = 0f;
+
+    // Nearby Ranking Constants
+    public static final int RANKING_CLOSEST = 0;
+    public static final int RANKING_MOST_AVAILABLE = 1;
+    public static final int RANKING_CHEAPEST = 2;
+
     // Theme Mode Constants
     public static final int THEME_SYSTEM = 0;
     public static final int THEME_LIGHT = 1;
     public static final int THEME_DARK = 2;
 
+    // Default Values
+    private static final float DEFAULT_RADIUS = 1000.0f;
+
+    // Wait for changes to settle for this long before writing them to disk
+    private static final long WRITE_DELAY_MS = 300;
+
     private final SharedPreferences sharedPreferences;
     private static volatile SettingsManager instance;
 
-    // In-memory cache for bookmarked car park numbers
-    private Set<String> bookmarkedCarParkNumbers = null;
-
-    // To observe vehicle type changes
-    private final MutableLiveData <Integer> vehicleTypeLiveData = new MutableLiveData<>();
+    // In-memory values, loaded once from preferences
+    private volatile boolean isFirstLaunch;
+    private volatile float radius;
+    private volatile int vehicleType;
+    private volatile int themeMode;
+    private volatile float vehicleClearance;
+    private volatile boolean isUnknownGantryIncluded;
+    private volatile int ranking;
+
+    // To observe setting changes
+    private final MutableLiveData<Float> radiusLiveData;
+    private final MutableLiveData <Integer> vehicleTypeLiveData;
+    private final MutableLiveData<Integer> themeModeLiveData;
+    private final MutableLiveData<Float> vehicleClearanceLiveData;
+    private final MutableLiveData<Boolean> unknownGantryIncludedLiveData;
+    private final MutableLiveData<Integer> rankingLiveData;
+
+    // Values waiting to be written, keyed by preference key. Guarded by itself
+    private final Map<String, Object> pendingWrites = new HashMap<>();
+    private final ScheduledExecutorService writeExecutor = Executors.newSingleThreadScheduledExecutor();
+    private ScheduledFuture<?> pendingFlush;
 
     private SettingsManager(Context context) {
         sharedPreferences = context.getSharedPreferences(PREF_NAME, context.MODE_PRIVATE);
-        vehicleTypeLiveData.setValue(getVehicleType());
+
+        isFirstLaunch = sharedPreferences.getBoolean(KEY_FIRST_LAUNCH, true);
+        radius = sharedPreferences.getFloat(KEY_RADIUS, DEFAULT_RADIUS);
+        vehicleType = sharedPreferences.getInt(KEY_VEHICLE_TYPE, VEHICLE_BOTH);
+        themeMode = sharedPreferences.getInt(KEY_THEME_MODE, THEME_SYSTEM);
+        vehicleClearance = sharedPreferences.getFloat(KEY_VEHICLE_CLEARANCE, CLEARANCE_NONE);
+        isUnknownGantryIncluded = sharedPreferences.getBoolean(KEY_INCLUDE_UNKNOWN_GANTRY, true);
+        ranking = sharedPreferences.getInt(KEY_RANKING, RANKING_CLOSEST);
+
+        radiusLiveData = new MutableLiveData<>(radius);
+        vehicleTypeLiveData = new MutableLiveData<>(vehicleType);
+        themeModeLiveData = new MutableLiveData<>(themeMode);
+        vehicleClearanceLiveData = new MutableLiveData<>(vehicleClearance);
+        unknownGantryIncludedLiveData = new MutableLiveData<>(isUnknownGantryIncluded);
+        rankingLiveData = new MutableLiveData<>(ranking);
     }
 
     /**
@@ -73,28 +133,6 @@ public class SettingsManager {
         return instance;
     }
 
-    // -------------------------
-    // Database Methods
-    // -------------------------
-
-    /**
-     * Checks whether the application's database has been initialised.
-     *
-     * @return {@code true} if the database has been initialise, {@code false} otherwise
-     */
-    public boolean isDatabaseInitialised() {
-        return sharedPreferences.getBoolean(KEY_DATABASE_INITIALISED, false);
-    }
-
-    /**
-     * Sets the database initialisation flag in preferences.
-     *
-     * @param isInitialised {@code true} if the database is initialised, {@code false} otherwise
-     */
-    public void setDatabaseInitialised(boolean isInitialised) {
-        sharedPreferences.edit().putBoolean(KEY_DATABASE_INITIALISED, isInitialised).apply();
-    }
-
     // -------------------------
     // Location Methods
     // -------------------------
@@ -105,8 +143,8 @@ public class SettingsManager {
      * @return {@code true} if this is the first launch (default), {@code false} otherwise
      */
     public boolean isFirstLaunch() {
-        // Check to see if this is the first launch of the application, default to false if not set
-        return sharedPreferences.getBoolean(KEY_FIRST_LAUNCH, true);
+        // Check to see if this is the first launch of the application, default to true if not set
+        return isFirstLaunch;
     }
 
     /**
@@ -116,7 +154,8 @@ public class SettingsManager {
      */
     public void setFirstLaunch(boolean isFirstLaunch) {
         // Set the first launch status of the application
-        sharedPreferences.edit().putBoolean(KEY_FIRST_LAUNCH, isFirstLaunch).apply();
+        this.isFirstLaunch = isFirstLaunch;
+        scheduleWrite(KEY_FIRST_LAUNCH, isFirstLaunch);
     }
 
     // -------------------------
@@ -129,22 +168,30 @@ public class SettingsManager {
      * @return the radius value (default {@code 1000.0f} metres if not set)
      */
     public float getRadiusValue() {
-        float radius = sharedPreferences.getFloat(KEY_RADIUS, 1000.0f);
-        Log.d("SharedPreferences", "KEY_RADIUS value is: " + radius);
         return radius;
     }
 
     /**
-     * Stores the search radius value.
+     * Stores the search radius value and notifies observers if the value changed.
      *
      * @param radius radius in metres to store
      */
     public void setRadiusValue(float radius) {
-        sharedPreferences.edit().putFloat(KEY_RADIUS, radius).apply();
+        if (this.radius != radius) {
+            this.radius = radius;
+            radiusLiveData.setValue(radius);
+            scheduleWrite(KEY_RADIUS, radius);
+        }
+    }
 
-        // Check the value to confirm, to delete later
-        float savedValue = sharedPreferences.getFloat(KEY_RADIUS, 1000.0f);
-        Log.d("SharedPreferences", "KEY_RADIUS value is set to: " + savedValue);
+    /**
+     * Returns a {@link androidx.lifecycle.LiveData} stream that observers can use to react to
+     * radius changes.
+     *
+     * @return a LiveData of {@link Float} representing the current radius in metres
+     */
+    public LiveData<Float> getRadiusLiveData() {
+        return radiusLiveData;
     }
 
     // -------------------------
@@ -157,7 +204,7 @@ public class SettingsManager {
      * @return one of {@link #VEHICLE_BOTH}, {@link #VEHICLE_CAR}, or {@link #VEHICLE_MOTORCYCLE}
      */
     public int getVehicleType() {
-        return sharedPreferences.getInt(KEY_VEHICLE_TYPE, VEHICLE_BOTH);
+        return vehicleType;
     }
 
     /**
@@ -166,10 +213,10 @@ public class SettingsManager {
      * @param vehicleType one of {@link #VEHICLE_BOTH}, {@link #VEHICLE_CAR}, or {@link #VEHICLE_MOTORCYCLE}
      */
     public void setVehicleType(int vehicleType) {
-        int currentValue = getVehicleType();
-        if (currentValue != vehicleType) {
-            sharedPreferences.edit().putInt(KEY_VEHICLE_TYPE, vehicleType).apply();
+        if (this.vehicleType != vehicleType) {
+            this.vehicleType = vehicleType;
             vehicleTypeLiveData.setValue(vehicleType);
+            scheduleWrite(KEY_VEHICLE_TYPE, vehicleType);
         }
     }
 
@@ -184,60 +231,130 @@ public class SettingsManager {
     }
 
     // -------------------------
-    // Bookmark Methods
+    // Vehicle Clearance Methods
     // -------------------------
 
     /**
-     * Returns the set of bookmarked car park numbers.
-     * This method initialises an in-memory cache on first call and returns a defensive copy
-     * so callers cannot mutate the internal cache directly.
+     * Returns the minimum gantry height the vehicle needs, car parks with a lower gantry are left out of searches.
+     *
+     * @return clearance in metres, {@link #CLEARANCE_NONE} (default) if any car park will do
+     */
+    public float getVehicleClearance() {
+        return vehicleClearance;
+    }
+
+    /**
+     * Stores the vehicle clearance and notifies observers if the value changed.
+     *
+     * @param vehicleClearance clearance in metres, {@link #CLEARANCE_NONE} to not filter by gantry height
+     */
+    public void setVehicleClearance(float vehicleClearance) {
+        if (this.vehicleClearance != vehicleClearance) {
+            this.vehicleClearance = vehicleClearance;
+            vehicleClearanceLiveData.setValue(vehicleClearance);
+            scheduleWrite(KEY_VEHICLE_CLEARANCE, vehicleClearance);
+        }
+    }
+
+    /**
+     * Returns a {@link androidx.lifecycle.LiveData} stream that observers can use to react to
+     * vehicle clearance changes.
+     *
+     * @return a LiveData of {@link Float} representing the current clearance in metres
+     */
+    public LiveData<Float> getVehicleClearanceLiveData() {
+        return vehicleClearanceLiveData;
+    }
+
+    /**
+     * Returns whether car parks of unknown gantry height are kept when a vehicle clearance is set.
+     * The HDB data set does not list a height for about a fifth of the car parks.
+     *
+     * @return {@code true} (default) to keep them, {@code false} to leave them out
+     */
+    public boolean isUnknownGantryIncluded() {
+        return isUnknownGantryIncluded;
+    }
+
+    /**
+     * Stores whether car parks of unknown gantry height are kept and notifies observers if the value changed.
      *
-     * @return a new {@link java.util.Set} containing the bookmarked car park numbers
+     * @param isUnknownGantryIncluded {@code true} to keep them, {@code false} to leave them out
      */
-    public Set<String> getBookmarkedCarParkNumbers() {
-        if (bookmarkedCarParkNumbers == null) {
-            bookmarkedCarParkNumbers = new HashSet<>(sharedPreferences.getStringSet(KEY_BOOKMARKS, new HashSet<>()));
+    public void setUnknownGantryIncluded(boolean isUnknownGantryIncluded) {
+        if (this.isUnknownGantryIncluded != isUnknownGantryIncluded) {
+            this.isUnknownGantryIncluded = isUnknownGantryIncluded;
+            unknownGantryIncludedLiveData.setValue(isUnknownGantryIncluded);
+            scheduleWrite(KEY_INCLUDE_UNKNOWN_GANTRY, isUnknownGantryIncluded);
         }
-        return new HashSet<>(bookmarkedCarParkNumbers);
     }
 
     /**
-     * Checks whether a car park is currently bookmarked.
+     * Returns a {@link androidx.lifecycle.LiveData} stream that observers can use to react to
+     * changes of whether car parks of unknown gantry height are kept.
      *
-     * @param carParkNumber the car park number to check
-     * @return {@code true} if the car park is bookmarked; {@code false} otherwise
+     * @return a LiveData of {@link Boolean}
      */
-    public boolean isBookmarked (String carParkNumber) {
-        return getBookmarkedCarParkNumbers().contains(carParkNumber);
+    public LiveData<Boolean> getUnknownGantryIncludedLiveData() {
+        return unknownGantryIncludedLiveData;
     }
 
+    // -------------------------
+    // Nearby Ranking Methods
+    // -------------------------
+
     /**
-     * Toggles the bookmark state for a given car park number.
+     * Returns how the nearby list is ranked.
      *
-     * If the car park is already bookmarked it will be removed, otherwise it will be added.
-     * The change is saved to both the in-memory cache and preferences.
+     * @return one of {@link #RANKING_CLOSEST} (default), {@link #RANKING_MOST_AVAILABLE}, or {@link #RANKING_CHEAPEST}
+     */
+    public int getRanking() {
+        return ranking;
+    }
+
+    /**
+     * Stores how the nearby list is ranked and notifies observers if the value changed.
      *
-     * @param carParkNumber the car park number to toggle
+     * @param ranking one of {@link #RANKING_CLOSEST}, {@link #RANKING_MOST_AVAILABLE}, or {@link #RANKING_CHEAPEST}
      */
-    public void toggleBookmark(String carParkNumber) {
-        Set<String> bookmarks = new HashSet<>(getBookmarkedCarParkNumbers());
-        if (bookmarks.contains(carParkNumber)) {
-            bookmarks.remove(carParkNumber);
-        } else {
-            bookmarks.add(carParkNumber);
+    public void setRanking(int ranking) {
+        if (this.ranking != ranking) {
+            this.ranking = ranking;
+            rankingLiveData.setValue(ranking);
+            scheduleWrite(KEY_RANKING, ranking);
         }
-        // Update in-memory cache and shared preferences
-        bookmarkedCarParkNumbers = bookmarks;
-        sharedPreferences.edit().putStringSet(KEY_BOOKMARKS, bookmarks).apply();
     }
 
     /**
-     * Returns the number of bookmarked car parks.
+     * Returns a {@link androidx.lifecycle.LiveData} stream that observers can use to react to
+     * ranking changes.
      *
-     * @return the count of bookmarks
+     * @return a LiveData of {@link Integer} representing the current ranking
      */
-    public int getBookmarkCount() {
-        return getBookmarkedCarParkNumbers().size();
+    public LiveData<Integer> getRankingLiveData() {
+        return rankingLiveData;
+    }
+
+    // -------------------------
+    // Bookmark Methods
+    // -------------------------
+
+    /**
+     * Returns the bookmarks saved by earlier versions of the app, which kept them in preferences.
+     * Bookmarks are now stored in the database, this is only used to import them once.
+     *
+     * @return an unmodifiable {@link java.util.Set} of car park numbers, empty if there is nothing to import
+     */
+    public Set<String> getLegacyBookmarks() {
+        Set<String> bookmarks = sharedPreferences.getStringSet(KEY_LEGACY_BOOKMARKS, null);
+        return bookmarks == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(bookmarks));
+    }
+
+    /**
+     * Removes the bookmarks saved by earlier versions of the app once they have been imported.
+     */
+    public void clearLegacyBookmarks() {
+        sharedPreferences.edit().remove(KEY_LEGACY_BOOKMARKS).apply();
     }
 
     // -------------------------
@@ -250,15 +367,78 @@ public class SettingsManager {
      * @return one of {@link #THEME_SYSTEM}, {@link #THEME_LIGHT}, or {@link #THEME_DARK}
      */
     public int getThemeMode() {
-        return sharedPreferences.getInt(KEY_THEME_MODE, THEME_SYSTEM);
+        return themeMode;
     }
 
     /**
-     * Stores the selected theme mode.
+     * Stores the selected theme mode and notifies observers if the value changed.
      *
      * @param themeMode one of {@link #THEME_SYSTEM}, {@link #THEME_LIGHT}, or {@link #THEME_DARK}
      */
     public void setThemeMode(int themeMode) {
-        sharedPreferences.edit().putInt(KEY_THEME_MODE, themeMode).apply();
+        if (this.themeMode != themeMode) {
+            this.themeMode = themeMode;
+            themeModeLiveData.setValue(themeMode);
+            scheduleWrite(KEY_THEME_MODE, themeMode);
+        }
+    }
+
+    /**
+     * Returns a {@link androidx.lifecycle.LiveData} stream that observers can use to react to
+     * theme mode changes.
+     *
+     * @return a LiveData of {@link Integer} representing the current theme mode
+     */
+    public LiveData<Integer> getThemeModeLiveData() {
+        return themeModeLiveData;
+    }
+
+    // -------------------------
+    // Persistence
+    // -------------------------
+
+    /**
+     * Queue a value to be written and restart the write delay, later values of the same key replace earlier ones.
+     *
+     * @param key   preference key
+     * @param value a {@link Boolean}, {@link Integer} or {@link Float} value
+     */
+    private void scheduleWrite(String key, Object value) {
+        synchronized (pendingWrites) {
+            pendingWrites.put(key, value);
+            if (pendingFlush != null) {
+                pendingFlush.cancel(false);
+            }
+            pendingFlush = writeExecutor.schedule(this::flushWrites, WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write all queued values in a single commit, runs on the write executor.
+     */
+    private void flushWrites() {
+        Map<String, Object> writes;
+        synchronized (pendingWrites) {
+            if (pendingWrites.isEmpty()) {
+                return;
+            }
+            writes = new HashMap<>(pendingWrites);
+            pendingWrites.clear();
+            pendingFlush = null;
+        }
+
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        for (Map.Entry<String, Object> write : writes.entrySet()) {
+            Object value = write.getValue();
+            if (value instanceof Boolean) {
+                editor.putBoolean(write.getKey(), (Boolean) value);
+            } else if (value instanceof Integer) {
+                editor.putInt(write.getKey(), (Integer) value);
+            } else if (value instanceof Float) {
+                editor.putFloat(write.getKey(), (Float) value);
+            }
+        }
+        // Already on a background thread, commit so that writes reach disk in order
+        editor.commit();
     }
 }
@@ -0,0 +1,263 @@
+package com.jianan.parkwhere.data.repository;
+
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.jianan.parkwhere.data.local.Bookmark;
+import com.jianan.parkwhere.data.local.BookmarkDao;
+import com.jianan.parkwhere.data.local.CarPark;
+import com.jianan.parkwhere.data.preferences.SettingsManager;
+import com.jianan.parkwhere.util.DatabaseExecutors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Store for bookmarked car parks, backed by the {@code bookmark} table
+ *
+ * The bookmarked car park numbers are mirrored in an immutable snapshot that is replaced as a whole on every change
+ * (copy-on-write)
+ * - Reads ({@link #contains(String)}, {@link #getSnapshot()}) only dereference a volatile field, so they are
+ *   lock-free, O(1) and never copy, which matters as the adapters check every row they build
+ * - A toggle swaps in a new snapshot, publishes it to {@link #getBookmarksLiveData()} and writes a single row
+ * - All database work runs on the shared serial writer of {@link DatabaseExecutors} in submission order, so a query
+ *   issued after a toggle always sees it
+ *
+ * The table is read when the store is created. Until then the snapshot is empty, observers of
+ * {@link #getBookmarksLiveData()} receive the loaded bookmarks once they are available
+ *
+ * Uses the same thread-safe lazy singleton pattern as {@link CarParkRepository}, tests build their own instance over a
+ * fake {@link BookmarkDao}
+ */
+public class BookmarkStore {
+    private static volatile BookmarkStore instance;
+
+    private final BookmarkDao bookmarkDao;
+    private final LegacyBookmarks legacyBookmarks;
+    // Reads share the serial writer with toggles so that they always see earlier toggles
+    private final Executor executor;
+    private final MutableLiveData<Set<String>> bookmarksLiveData;
+
+    // Current bookmarks, never mutated after being published
+    private volatile Set<String> snapshot = Collections.emptySet();
+
+    // Toggles made before the table has been read, replayed over the loaded bookmarks. Null once loaded
+    private Map<String, Boolean> pendingChanges = new LinkedHashMap<>();
+
+    /**
+     * Bookmarks kept in preferences by earlier versions of the app
+     */
+    interface LegacyBookmarks {
+        Set<String> get();
+
+        void clear();
+    }
+
+    private BookmarkStore(Context context) {
+        this(CarParkRepository.getCarParkRepo(context).getBookmarkDao(),
+                settingsLegacyBookmarks(SettingsManager.getSettingsManager(context)),
+                DatabaseExecutors.getInstance().writes());
+    }
+
+    /**
+     * Construct a store and queue loading the table on {@code executor}
+     *
+     * @param bookmarkDao     DAO of the {@code bookmark} table
+     * @param legacyBookmarks bookmarks to import from earlier versions of the app
+     * @param executor        serial executor running all database work in submission order
+     */
+    BookmarkStore(BookmarkDao bookmarkDao, LegacyBookmarks legacyBookmarks, Executor executor) {
+        this.bookmarkDao = bookmarkDao;
+        this.legacyBookmarks = legacyBookmarks;
+        this.executor = executor;
+        bookmarksLiveData = new MutableLiveData<>(snapshot);
+
+        executor.execute(this::loadBookmarks);
+    }
+
+    private static LegacyBookmarks settingsLegacyBookmarks(SettingsManager settingsManager) {
+        return new LegacyBookmarks() {
+            @Override
+            public Set<String> get() {
+                return settingsManager.getLegacyBookmarks();
+            }
+
+            @Override
+            public void clear() {
+                settingsManager.clearLegacyBookmarks();
+            }
+        };
+    }
+
+    /**
+     * Returns the singleton {@code BookmarkStore} instance
+     *
+     * @param context any valid {@link android.content.Context}, the application context will be used
+     * @return the singleton {@link BookmarkStore} instance
+     */
+    public static BookmarkStore getBookmarkStore(Context context) {
+        if (instance == null) {
+            synchronized (BookmarkStore.class) {
+                if (instance == null) {
+                    instance = new BookmarkStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    // -------------------------
+    // Loading
+    // -------------------------
+
+    private void loadBookmarks() {
+        importLegacyBookmarks();
+
+        Set<String> loaded = new HashSet<>(bookmarkDao.getBookmarkedCarParkNumbers());
+        synchronized (this) {
+            for (Map.Entry<String, Boolean> change : pendingChanges.entrySet()) {
+                if (change.getValue()) {
+                    loaded.add(change.getKey());
+                } else {
+                    loaded.remove(change.getKey());
+                }
+            }
+            pendingChanges = null;
+            snapshot = Collections.unmodifiableSet(loaded);
+        }
+        publish(snapshot);
+    }
+
+    /**
+     * Move bookmarks kept in preferences by earlier versions of the app into the table
+     */
+    private void importLegacyBookmarks() {
+        Set<String> legacy = legacyBookmarks.get();
+        if (legacy.isEmpty()) {
+            return;
+        }
+
+        // Keep the alphabetical order the bookmarks screen used to show
+        List<String> carParkNumbers = new ArrayList<>(legacy);
+        Collections.sort(carParkNumbers);
+
+        long now = System.currentTimeMillis();
+        List<Bookmark> bookmarks = new ArrayList<>(carParkNumbers.size());
+        for (int i = 0; i < carParkNumbers.size(); i++) {
+            bookmarks.add(new Bookmark(carParkNumbers.get(i), now, i, null));
+        }
+        bookmarkDao.insertBookmarks(bookmarks);
+
+        // Only clear the preference once the rows are written
+        legacyBookmarks.clear();
+    }
+
+    // -------------------------
+    // Reads
+    // -------------------------
+
+    /**
+     * Checks whether a car park is currently bookmarked, safe to call from any thread
+     *
+     * @param carParkNumber the car park number to check
+     * @return {@code true} if the car park is bookmarked, {@code false} otherwise
+     */
+    public boolean contains(String carParkNumber) {
+        return snapshot.contains(carParkNumber);
+    }
+
+    /**
+     * Returns the current bookmarks without copying them
+     *
+     * @return an unmodifiable {@link Set} of bookmarked car park numbers that never changes
+     */
+    public Set<String> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the number of bookmarked car parks
+     *
+     * @return the count of bookmarks
+     */
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Returns a {@link LiveData} that emits a new snapshot whenever the bookmarks change
+     *
+     * @return LiveData of unmodifiable bookmark snapshots
+     */
+    public LiveData<Set<String>> getBookmarksLiveData() {
+        return bookmarksLiveData;
+    }
+
+    /**
+     * Asynchronously fetches the bookmarked {@link CarPark} entities in bookmark order with a single join
+     *
+     * @param callback a {@link Consumer} called on a background thread with the bookmarked car parks
+     */
+    public void getBookmarkedCarParks(Consumer<List<CarPark>> callback) {
+        executor.execute(() -> callback.accept(bookmarkDao.getBookmarkedCarParks()));
+    }
+
+    // -------------------------
+    // Writes
+    // -------------------------
+
+    /**
+     * Toggles the bookmark state for a given car park number, a new bookmark is added to the end of the list
+     *
+     * @param carParkNumber the car park number to toggle
+     * @return {@code true} if the car park is bookmarked after the toggle
+     */
+    public boolean toggle(String carParkNumber) {
+        boolean isNowBookmarked;
+        synchronized (this) {
+            Set<String> updated = new HashSet<>(snapshot);
+            isNowBookmarked = updated.add(carParkNumber);
+            if (!isNowBookmarked) {
+                updated.remove(carParkNumber);
+            }
+            snapshot = Collections.unmodifiableSet(updated);
+
+            if (pendingChanges != null) {
+                pendingChanges.put(carParkNumber, isNowBookmarked);
+            }
+        }
+
+        publish(snapshot);
+        executor.execute(() -> persistBookmark(carParkNumber));
+        return isNowBookmarked;
+    }
+
+    /**
+     * Publish a new snapshot to observers of {@link #getBookmarksLiveData()}, callable from any thread
+     *
+     * @param bookmarks the new snapshot
+     */
+    void publish(Set<String> bookmarks) {
+        bookmarksLiveData.postValue(bookmarks);
+    }
+
+    /**
+     * Write the latest state of a car park, so queued toggles of the same car park settle on the final one
+     */
+    private void persistBookmark(String carParkNumber) {
+        if (snapshot.contains(carParkNumber)) {
+            bookmarkDao.appendBookmark(carParkNumber, System.currentTimeMillis());
+        } else {
+            bookmarkDao.deleteBookmark(carParkNumber);
+        }
+    }
+}
@@ -7,31 +7,31 @@ import android.util.Log;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.function.Consumer;
+import java.util.function.BooleanSupplier;
 
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
-import com.google.android.gms.maps.model.LatLng;
-import com.google.maps.android.SphericalUtil;
+import com.jianan.parkwhere.data.local.BookmarkDao;
 import com.jianan.parkwhere.data.local.CarPark;
 import com.jianan.parkwhere.data.local.CarParkDao;
 import com.jianan.parkwhere.data.local.CarParkDatabase;
-import com.jianan.parkwhere.data.preferences.SettingsManager;
 import com.jianan.parkwhere.data.remote.CarParkApiClient;
 import com.jianan.parkwhere.data.remote.CarParkApiService;
 import com.jianan.parkwhere.data.model.CarParkApiData;
 import com.jianan.parkwhere.data.model.CarParkApiItem;
 import com.jianan.parkwhere.data.model.CarParkApiResponse;
-import com.jianan.parkwhere.util.CarParkDistance;
-import com.jianan.parkwhere.util.GeoUtils;
+import com.jianan.parkwhere.util.CarParkFilter;
+import com.jianan.parkwhere.util.CarParkFilterEngine;
+import com.jianan.parkwhere.util.CarParkFilterOptions;
+import com.jianan.parkwhere.util.DatabaseExecutors;
+import com.jianan.parkwhere.util.NearbyCarParkResult;
+import com.jianan.parkwhere.util.RelativeTimeFormatter;
+import com.jianan.parkwhere.util.Svy21Projection;
 
 /**
  * Repository responsible for coordinating data operations related to {@link CarPark} entities
@@ -40,8 +40,8 @@ import com.jianan.parkwhere.util.GeoUtils;
  * and the local persistence layer (via {@link CarParkDao}). It provides:
  * - A lazily-initialised, thread-safe singleton instance.
  * - An in-memory LiveData lookup map of the latest API availability data keyed by car park number
- * - Asynchronous database access utilities executed on a single background thread
- * - Helper methods to query nearby car parks using a bounding-box + Haversine filtering strategy
+ * - Asynchronous database access utilities executed on the shared {@link DatabaseExecutors} read pool
+ * - Helper methods to query nearby car parks using a bounding-box + squared distance filter on SVY21 projected coordinates
  *
  * All long-running operations (database queries, heavy calculations, API fetch callbacks)
  * are executed off the main thread. The repository posts results to {@link androidx.lifecycle.LiveData}
@@ -51,32 +51,29 @@ import com.jianan.parkwhere.util.GeoUtils;
  * @see CarParkDao
  */
 public class CarParkRepository {
-    // private static final String TAG = "CarParkRepository";
+    private static final String TAG = "CarParkRepository";
     private final CarParkApiService apiService;
+    private final CarParkDatabase database;
     private final CarParkDao carParkDao;
-    private final Executor executor = Executors.newSingleThreadExecutor();
+    private final BookmarkDao bookmarkDao;
+    private final DatabaseExecutors databaseExecutors = DatabaseExecutors.getInstance();
     private final MutableLiveData<Map<String, CarParkApiData>> carParkApiLookupLive = new MutableLiveData<>(new HashMap<>()); // In-memory lookup table where the key is the car park number (String) and the value is CarParkApiData
-    private final SettingsManager settingsManager;
+    private final MutableLiveData<CarParkFilterEngine> filterEngineLive = new MutableLiveData<>(); // Set once the attribute bitsets of every car park are built
+    private volatile CarParkFilterEngine filterEngine;
+    private final MutableLiveData<Integer> filterOptionsLive = new MutableLiveData<>(CarParkFilterOptions.NONE); // Filter chips selected by the user, shared by the list and the map
+    private boolean isFilterEngineRequested = false; // Guarded by filterEngineLive
     private static volatile CarParkRepository instance;
 
     private CarParkRepository(Context context) {
         // Obtain the Retrofit service instance
         this.apiService = CarParkApiClient.getService();
-        this.settingsManager = SettingsManager.getSettingsManager(context);
 
-        // If this is the first application launch, create the database from asset
-        boolean shouldCreateFromAsset = !settingsManager.isDatabaseInitialised();
-
-        // Obtain database instance
+        // Obtain database instance, it is seeded from the bundled car park catalogue when it is first created
         // Typically ApplicationContext (which ties to the app lifecycle) will be used instead of Context to avoid leaking references tied to short-lived components like activities
         // getDatabase will obtain the application context, hence it is fine to provide context here
-        CarParkDatabase database = CarParkDatabase.getDatabase(context, shouldCreateFromAsset);
+        this.database = CarParkDatabase.getDatabase(context);
         this.carParkDao = database.carParkDao();
-
-        // Mark database as initialised if it is created from asset
-        if (shouldCreateFromAsset) {
-            settingsManager.setDatabaseInitialised(true);
-        }
+        this.bookmarkDao = database.bookmarkDao();
     }
 
     /**
@@ -99,6 +96,25 @@ public class CarParkRepository {
         return instance;
     }
 
+    /**
+     * Returns the DAO of the bookmark table, bookmarks are accessed through {@link BookmarkStore}
+     *
+     * @return the {@link BookmarkDao}
+     */
+    BookmarkDao getBookmarkDao() {
+        return bookmarkDao;
+    }
+
+    /**
+     * Opens the database, copying it from the asset or running migrations if needed.
+     *
+     * Room only opens the database on the first query, calling this on a background thread during start up keeps that
+     * cost off the first query of a screen. Must not be called on the main thread.
+     */
+    public void openDatabase() {
+        database.getOpenHelper().getWritableDatabase();
+    }
+
     // -------------------------
     // API Methods
     // -------------------------
@@ -121,11 +137,23 @@ public class CarParkRepository {
                         List<CarParkApiData> apiData = apiItems.get(0).getCarParkApiData();
 
                         // Updates the in-memory lookup map with the latest car park data from the API
+                        // Update times are parsed once here, consecutive entries with the same timestamp reuse the parsed value
                         Map<String, CarParkApiData> newLookup = new HashMap<>();
+                        String lastTimestamp = null;
+                        long lastTimeMillis = RelativeTimeFormatter.UNKNOWN_TIME;
                         for (CarParkApiData data : apiData) {
+                            String timestamp = data.getUpdateDateTime();
+                            if (timestamp == null || !timestamp.equals(lastTimestamp)) {
+                                lastTimestamp = timestamp;
+                                lastTimeMillis = RelativeTimeFormatter.parseApiTimestamp(timestamp);
+                            }
+                            data.setUpdateTimeMillis(lastTimeMillis);
                             newLookup.put(data.getCarParkNumber(), data);
                         }
 
+                        // Fresh data should not be labelled against a clock read up to a minute ago
+                        RelativeTimeFormatter.getInstance().refreshClock();
+
                         // Inform observers that the value of carParkApiLookup has been updated
                         carParkApiLookupLive.postValue(newLookup);
                     }
@@ -174,81 +202,228 @@ public class CarParkRepository {
     // DB Methods
     // -------------------------
     /**
-     * Asynchronously fetches a {@link CarPark} entity by its car park number using a background thread
+     * Creates a latest-wins nearby car park search for one screen, see {@link NearbyCarParkQuery}
      *
-     * Since this method does not run on the main thread, it does not return the result directly
-     * Instead, it accepts a {@link Consumer} callback that will be invoked exactly once with the query result when available
+     * Computations run on the shared read pool ahead of background reads, the user is waiting on them
      *
-     * @param number    the car park number to query (e.g., "BE28")
-     * @param callback  a {@link Consumer} that will be called with the resulting {@link CarPark}, or null if not found
+     * @return a new {@link NearbyCarParkQuery}
      */
-    public void getCarParkByNumber(String number, Consumer<CarPark> callback) {
-        executor.execute(() -> {
-            CarPark cp = carParkDao.getCarParkByNumber(number);
-            callback.accept(cp);
-        });
+    public NearbyCarParkQuery createNearbyQuery() {
+        return new NearbyCarParkQuery(this, databaseExecutors.reads(DatabaseExecutors.PRIORITY_USER));
+    }
+
+    /**
+     * Returns a LiveData of the {@link CarParkFilterEngine} over every car park
+     *
+     * The engine is built on the first call by loading the whole table once on the read pool, behind searches and
+     * lookups. Car parks do not change at runtime, so the engine is shared by every screen for the life of the process
+     *
+     * @return LiveData whose value is the engine, null until it is built
+     */
+    public LiveData<CarParkFilterEngine> getFilterEngineLive() {
+        synchronized (filterEngineLive) {
+            if (!isFilterEngineRequested) {
+                isFilterEngineRequested = true;
+                databaseExecutors.executeRead(DatabaseExecutors.PRIORITY_BACKGROUND, this::getFilterEngine);
+            }
+        }
+        return filterEngineLive;
+    }
+
+    /**
+     * Returns the {@link CarParkFilterEngine}, building it on the calling thread if no other thread has yet
+     *
+     * Must be called on a background thread.
+     *
+     * @return the engine
+     */
+    CarParkFilterEngine getFilterEngine() {
+        CarParkFilterEngine engine = filterEngine;
+        if (engine == null) {
+            synchronized (this) {
+                engine = filterEngine;
+                if (engine == null) {
+                    engine = new CarParkFilterEngine(carParkDao.getAllCarParks());
+                    filterEngine = engine;
+                    filterEngineLive.postValue(engine);
+
+                    // The startup reads are done, report how long database work waited for a thread
+                    Log.d(TAG, "Database reads: " + databaseExecutors.getReadMetrics()
+                            + ", writes: " + databaseExecutors.getWriteMetrics());
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Returns a LiveData of the filter options selected by the user, the list and the map share one selection
+     *
+     * @return LiveData of a bitmask of {@link CarParkFilterOptions} constants
+     */
+    public LiveData<Integer> getFilterOptionsLive() {
+        return filterOptionsLive;
+    }
+
+    /**
+     * Set the filter options selected by the user, must be called on the main thread
+     *
+     * @param options bitmask of {@link CarParkFilterOptions} constants
+     */
+    public void setFilterOptions(int options) {
+        Integer current = filterOptionsLive.getValue();
+        if (current == null || current != options) {
+            filterOptionsLive.setValue(options);
+        }
+    }
+
+    /**
+     * Keep the car parks of a nearby result matching a filter, through the bitsets once they are built
+     *
+     * @param filter the filter
+     * @param result the nearby result
+     * @return the filtered result in the same distance order, {@code result} itself if the filter is empty
+     */
+    public NearbyCarParkResult applyFilter(CarParkFilter filter, NearbyCarParkResult result) {
+        if (filter.isEmpty()) {
+            return result;
+        }
+        CarParkFilterEngine engine = filterEngine;
+        if (engine != null) {
+            return engine.apply(filter, result);
+        }
+        // Until the bitsets are built each car park is checked directly, with the same outcome
+        return result.filter(filter::matches);
+    }
+
+    /**
+     * Count the car parks of a nearby result matching a filter, e.g. to label a filter option before it is applied
+     *
+     * @param filter the filter
+     * @param result the nearby result
+     * @return number of car parks of {@code result} matching {@code filter}
+     */
+    public int countMatching(CarParkFilter filter, NearbyCarParkResult result) {
+        CarParkFilterEngine engine = filterEngine;
+        if (engine != null) {
+            return engine.countWithin(filter, result);
+        }
+        int count = 0;
+        for (CarPark carPark : result.getUnsorted()) {
+            if (filter.matches(carPark)) {
+                count++;
+            }
+        }
+        return count;
     }
 
     /**
-     * Returns a {@link androidx.lifecycle.LiveData} containing a list of nearby {@link CarPark}
-     * entities within the specified circular radius (in metres) from the provided {@link android.location.Location}
+     * Computes the {@link NearbyCarParkResult} of the {@link CarPark} entities within the specified circular radius
+     * (in metres) from the provided {@link android.location.Location}, must be called on a background thread
      *
      * Implementation notes:
-     *   - A square bounding box is computed first using {@link com.google.maps.android.SphericalUtil} to perform a fast DB query
-     *   - Results from the bounding box are filtered using the Haversine distance (via {@link GeoUtils}) to ensure the returned set lies within the exact circular radius
-     *   - Returned list is sorted by ascending distance (closest first) and posted to the LiveData
+     *   - The location is projected once into SVY21 (via {@link Svy21Projection}), the same projected metres as the stored car park coordinates
+     *   - A square bounding box of side {@code 2 * radiusMeters} is queried on the projected columns for a fast DB query
+     *   - Results from the bounding box are filtered by squared Euclidean distance, so there is no trigonometry on the hot path
+     *   - Kept car parks go into primitive arrays without a full sort, callers pull the closest car parks page by page
+     *     through {@link NearbyCarParkResult#getSortedPrefix(int)} or take all of them unordered
+     *   - With the same centre as the cached result, a smaller radius is answered from the cache without a DB query
+     *     and a larger radius only queries the ring between the cached radius and the new one
+     *   - Cancellation is checked before each DB query and before filtering, a cancelled computation returns null
+     *   - The filter, e.g. the vehicle clearance, is applied last through the {@link CarParkFilterEngine} bitsets. The
+     *     cache holds unfiltered results, so changing the filter alone never queries the DB
      *
      * @param location     the central location to search from
      * @param radiusMeters the radius in metres to search within
-     * @return LiveData whose value will be the sorted {@link java.util.List} of {@link CarPark} within the specified radius
+     * @param filter       car parks to keep, {@link CarParkFilter#NONE} to keep all of them
+     * @param cache        largest result computed so far by the caller, updated when a larger radius is computed
+     * @param isCancelled  returns true once the result is no longer wanted
+     * @return the {@link NearbyCarParkResult} of car parks within the specified radius, or null if cancelled
      */
-    public LiveData<List<CarPark>> getNearbyCarParks(Location location, float radiusMeters) {
-        MutableLiveData<List<CarPark>> nearbyCarParkLiveData = new MutableLiveData<>();
-
-        executor.execute(() -> {
-            LatLng latLng = new LatLng(location.getLatitude(), location.getLongitude());
-
-            // Calculate bounding box using SphericalUtil
-            LatLng north = SphericalUtil.computeOffset(latLng, radiusMeters, 0);
-            LatLng south = SphericalUtil.computeOffset(latLng, radiusMeters, 180);
-            LatLng east = SphericalUtil.computeOffset(latLng, radiusMeters, 90);
-            LatLng west = SphericalUtil.computeOffset(latLng, radiusMeters, 270);
-
-            // Latitude is Y-Axis, Longitude is X-Axis
-            double maxLat = north.latitude;
-            double minLat = south.latitude;
-            double maxLon = east.longitude;
-            double minLon = west.longitude;
-
-            // Query car parks within square bounding box
-            List<CarPark> boundingBoxResults = carParkDao.getCarParksInBoundingBox(minLat, maxLat, minLon, maxLon);
-
-            // Apply Haversine formula and ensure it is within the circular radius
-            List<CarParkDistance> carParkDistance = new ArrayList<>();
-
-            for (CarPark carPark : boundingBoxResults) {
-                double distance = GeoUtils.calculateHaversineDistance(
-                        location.getLatitude(), location.getLongitude(),
-                        carPark.getLatitude(), carPark.getLongitude()
-                );
-
-                // Only include car parks within the exact radius
-                if (distance <= radiusMeters) {
-                    carParkDistance.add(new CarParkDistance(carPark, distance));
+    NearbyCarParkResult queryNearbyCarParks(Location location, float radiusMeters, CarParkFilter filter,
+                                            NearbyResultCache cache, BooleanSupplier isCancelled) {
+        NearbyCarParkResult result = queryNearbyCarParks(location, radiusMeters, cache, isCancelled);
+        if (result == null || filter.isEmpty() || isCancelled.getAsBoolean()) {
+            return result;
+        }
+        return getFilterEngine().apply(filter, result);
+    }
+
+    private NearbyCarParkResult queryNearbyCarParks(Location location, float radiusMeters, NearbyResultCache cache,
+                                                    BooleanSupplier isCancelled) {
+        if (isCancelled.getAsBoolean()) {
+            return null;
+        }
+
+        Svy21Projection.Point centre = Svy21Projection.fromLatLng(location.getLatitude(), location.getLongitude());
+        float centreX = centre.getX();
+        float centreY = centre.getY();
+        float radiusSquared = radiusMeters * radiusMeters;
+
+        if (cache.hasCentre(centreX, centreY)) {
+            float cachedRadius = cache.getRadiusMeters();
+            if (radiusMeters <= cachedRadius) {
+                // Shrinking, the answer is a prefix of the cached result
+                return cache.getResult().withinRadius(radiusMeters);
+            }
+
+            // Growing, skip the square inscribed in the cached circle (shrunk slightly so rounding cannot drop a
+            // car park on its edge), car parks already in the cached result are filtered out by distance below
+            float innerHalfSide = cachedRadius * 0.7071f * 0.999f;
+            List<CarPark> ringResults = carParkDao.getCarParksInProjectedRing(
+                    centreX - radiusMeters, centreX + radiusMeters,
+                    centreY - radiusMeters, centreY + radiusMeters,
+                    centreX - innerHalfSide, centreX + innerHalfSide,
+                    centreY - innerHalfSide, centreY + innerHalfSide);
+
+            if (isCancelled.getAsBoolean()) {
+                return null;
+            }
+
+            float cachedRadiusSquared = cachedRadius * cachedRadius;
+            NearbyCarParkResult.Builder builder = new NearbyCarParkResult.Builder(cache.getResult(), ringResults.size());
+
+            for (CarPark carPark : ringResults) {
+                float dx = carPark.getXCoord() - centreX;
+                float dy = carPark.getYCoord() - centreY;
+                float squaredDistance = dx * dx + dy * dy;
+
+                // Only include car parks between the cached radius and the new radius
+                if (squaredDistance > cachedRadiusSquared && squaredDistance <= radiusSquared) {
+                    builder.add(carPark, squaredDistance);
                 }
             }
 
-            // Sort by distance (closest to furthest)
-            carParkDistance.sort((a, b) -> Double.compare(a.getDistanceMeters(), b.getDistanceMeters()));
+            NearbyCarParkResult result = builder.build();
+            cache.set(centreX, centreY, radiusMeters, result);
+            return result;
+        }
+
+        // Query car parks within square bounding box
+        List<CarPark> boundingBoxResults = carParkDao.getCarParksInProjectedBoundingBox(
+                centreX - radiusMeters, centreX + radiusMeters,
+                centreY - radiusMeters, centreY + radiusMeters);
+
+        if (isCancelled.getAsBoolean()) {
+            return null;
+        }
+
+        // Compare squared distances and ensure it is within the circular radius
+        NearbyCarParkResult.Builder builder = new NearbyCarParkResult.Builder(boundingBoxResults.size());
+
+        for (CarPark carPark : boundingBoxResults) {
+            float dx = carPark.getXCoord() - centreX;
+            float dy = carPark.getYCoord() - centreY;
+            float squaredDistance = dx * dx + dy * dy;
 
-            // Extract CarPark entities from CarParkDistance wrapper
-            List<CarPark> sortedResults = new ArrayList<>();
-            for (CarParkDistance carPark : carParkDistance) {
-                sortedResults.add(carPark.getCarPark());
+            // Only include car parks within the exact radius
+            if (squaredDistance <= radiusSquared) {
+                builder.add(carPark, squaredDistance);
             }
+        }
 
-            nearbyCarParkLiveData.postValue(sortedResults);
-        });
-        return nearbyCarParkLiveData;
+        NearbyCarParkResult result = builder.build();
+        cache.set(centreX, centreY, radiusMeters, result);
+        return result;
     }
 }
@@ -4,9 +4,13 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.location.Location;
 import android.location.LocationManager;
+import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
@@ -16,6 +20,9 @@ import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
+import com.jianan.parkwhere.util.LingeringRefCount;
+import com.jianan.parkwhere.util.LocationSmoother;
+import com.jianan.parkwhere.util.LocationUpdatePolicy;
 import com.jianan.parkwhere.util.PermissionUtils;
 
 /**
@@ -24,9 +31,13 @@ import com.jianan.parkwhere.util.PermissionUtils;
  * This class is a thread-safe, lazily-initialised singleton that wraps a {@link com.google.android.gms.location.FusedLocationProviderClient} and exposes location updates via {@link androidx.lifecycle.LiveData}{@code <Location>} (`getLocationLiveData()`)
  *
  * Important behavior notes:
- * - Call {@link #startLocationUpdates(long, float)} to begin receiving updates, the method will return {@code false} if the application does not have the required location permission
+ * - Call {@link #startLocationUpdates()} to begin receiving updates, the method will return {@code false} if the application does not have the required location permission
+ * - Screens hold updates with {@link #holdLocationUpdates(LifecycleOwner)} rather than starting and stopping them. Updates run while any holder is started and only stop {@link #LINGER_MS} after the last one stops, so switching tabs never restarts the provider from a cold fix
+ * - How often and how precisely updates are requested follows a {@link LocationUpdatePolicy}, driven by the speed of the fixes and the screen set with {@link #setScreen(int)}
  * - Location updates are delivered to observers of the returned LiveData. Calling @link #getLocationLiveData()} does not start location updates by itself
  * - The repository uses the application context internally to avoid leaking activity contexts
+ * - Fixes are smoothed and weighted by accuracy by a {@link LocationSmoother}, jitter within the accuracy radius of a
+ *   fix is not posted, so observers only recompute on real movement
  *
  * This class depends on:
  * - {@link PermissionUtils} for permission checks
@@ -35,16 +46,83 @@ import com.jianan.parkwhere.util.PermissionUtils;
  */
 public class LocationRepository {
     // private static final String TAG = "LocationRepository";
+
+    // Movement below this distance is never posted, however accurate the fixes are
+    private static final float MIN_DISTANCE_METERS = 10f;
+
+    // How long updates keep running after the last holder stops, long enough to cover a tab switch or a rotation
+    private static final long LINGER_MS = 5_000L;
+
+    /**
+     * Delivers location fixes on the main thread, the fused location provider outside of tests
+     */
+    interface Provider {
+        /**
+         * Request updates for a callback, replacing its previous request
+         *
+         * @param priority          a {@link Priority} constant
+         * @param intervalMs        desired interval between fixes
+         * @param minDistanceMeters minimum movement between fixes
+         * @param callback          receives the fixes
+         */
+        void requestLocationUpdates(int priority, long intervalMs, float minDistanceMeters, LocationCallback callback);
+
+        void removeLocationUpdates(LocationCallback callback);
+    }
+
     private final Context appContext;
-    private final FusedLocationProviderClient fusedLocationProviderClient;
+    private final Provider provider;
     private final MutableLiveData<Location> liveLocation = new MutableLiveData<>();
+    private final LocationSmoother smoother = new LocationSmoother(MIN_DISTANCE_METERS);
+    private final LocationUpdatePolicy policy = new LocationUpdatePolicy(this::requestUpdates);
+    private final LingeringRefCount holders;
     private LocationCallback callback;
     private boolean isLocationServiceActive = false;
     private static volatile LocationRepository instance;
 
     private LocationRepository(Context context) {
-        this.appContext = context.getApplicationContext();
-        this.fusedLocationProviderClient = LocationServices.getFusedLocationProviderClient(context);
+        this(context.getApplicationContext(), fusedProvider(LocationServices.getFusedLocationProviderClient(context)),
+                mainLooperScheduler());
+    }
+
+    /**
+     * Construct a repository
+     *
+     * @param appContext the application context
+     * @param provider   delivers the fixes
+     * @param scheduler  runs the delayed stop of updates on the main thread
+     */
+    LocationRepository(Context appContext, Provider provider, LingeringRefCount.Scheduler scheduler) {
+        this.appContext = appContext;
+        this.provider = provider;
+        this.holders = new LingeringRefCount(LINGER_MS, scheduler, this::startHeldUpdates, this::stopUpdates);
+    }
+
+    private static Provider fusedProvider(FusedLocationProviderClient client) {
+        return new Provider() {
+            @SuppressLint("MissingPermission")
+            @Override
+            public void requestLocationUpdates(int priority, long intervalMs, float minDistanceMeters,
+                                               LocationCallback callback) {
+                LocationRequest locationRequest = new LocationRequest.Builder(priority, intervalMs)
+                        .setMinUpdateDistanceMeters(minDistanceMeters)
+                        .build();
+                client.requestLocationUpdates(locationRequest, callback, Looper.getMainLooper());
+            }
+
+            @Override
+            public void removeLocationUpdates(LocationCallback callback) {
+                client.removeLocationUpdates(callback);
+            }
+        };
+    }
+
+    private static LingeringRefCount.Scheduler mainLooperScheduler() {
+        Handler handler = new Handler(Looper.getMainLooper());
+        return (task, delayMs) -> {
+            handler.postDelayed(task, delayMs);
+            return () -> handler.removeCallbacks(task);
+        };
     }
 
     /**
@@ -71,20 +149,17 @@ public class LocationRepository {
      * Starts periodic location updates using the fused location provider
      *
      * This method:
-     *   - Verifies that the application has the required location permission via {@link PermissionUtils} and creates a {@link com.google.android.gms.location.LocationRequest} with the provided {@code intervalMs} and {@code minDistanceM}
+     *   - Verifies that the application has the required location permission via {@link PermissionUtils} and requests updates with the current {@link LocationUpdatePolicy.Request}
      *   - Registers a {@link com.google.android.gms.location.LocationCallback} that posts updates into the repository's LiveData
      *
      * Notes:
      *   - If the application lacks permission, the method posts {@code null} to the {@code liveLocation} LiveData and returns {@code false}
      *   - If updates are already active, this method does nothing and returns {@code true}
-     *   - Location callbacks are requested on the main looper and significant changes are filtered by {@link #shouldUpdateLocation(Location, Location)} before posting to LiveData
+     *   - Location callbacks are requested on the main looper and fixes are smoothed by {@link #smoothLocation(Location)} before posting to LiveData
      *
-     * @param intervalMs   desired update interval in milliseconds
-     * @param minDistanceM minimum distance in metres before an update is considered significant
      * @return {@code true} if updates were started (or already active); {@code false} if permission is missing
      */
-    @SuppressLint("MissingPermission")
-    public boolean startLocationUpdates(long intervalMs, float minDistanceM) {
+    public boolean startLocationUpdates() {
         if (!PermissionUtils.hasLocationPermission(appContext)) {
             // Log.d(TAG, "No location permission - cannot start updates");
             liveLocation.postValue(null);
@@ -97,11 +172,16 @@ public class LocationRepository {
         }
 
         // Log.d(TAG, "Permission granted - starting location updates");
-        stopUpdates();
+        startUpdates();
+        return true;
+    }
 
-        LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, intervalMs)
-                .setMinUpdateDistanceMeters(minDistanceM)
-                .build();
+    /**
+     * Registers a new callback and requests updates for it with the current policy request, once the permission is
+     * known to be granted
+     */
+    void startUpdates() {
+        stopUpdates();
 
         callback = new LocationCallback() {
             @Override
@@ -109,10 +189,13 @@ public class LocationRepository {
                 // Log.d(TAG, "onLocationResult callback triggered");
                 if (locationResult != null && locationResult.getLastLocation() != null) {
                     Location newLocation = locationResult.getLastLocation();
-                    Location currentLocation = liveLocation.getValue();
+                    policy.onFix(newLocation.getLatitude(), newLocation.getLongitude(),
+                            newLocation.hasAccuracy() ? newLocation.getAccuracy() : 0f,
+                            newLocation.hasSpeed() ? newLocation.getSpeed() : Float.NaN, newLocation.getTime());
 
-                    if (shouldUpdateLocation(currentLocation, newLocation)) {
-                        liveLocation.setValue(newLocation);
+                    Location smoothedLocation = smoothLocation(newLocation);
+                    if (smoothedLocation != null) {
+                        liveLocation.setValue(smoothedLocation);
                     }
 
                 } else {
@@ -121,29 +204,92 @@ public class LocationRepository {
             }
         };
 
-        // Log.d(TAG, "Requesting location updates from fusedLocationProviderClient");
-        fusedLocationProviderClient.requestLocationUpdates(locationRequest, callback, Looper.getMainLooper());
         isLocationServiceActive = true;
-        return true;
+        requestUpdates(policy.getRequest());
+    }
+
+    /**
+     * Holds location updates for as long as the lifecycle of {@code owner} is started
+     *
+     * Updates start with the first started holder if the location permission is granted, and stop {@link #LINGER_MS}
+     * after the last holder stops unless another holder starts in the meantime. Pass a fragment's view lifecycle owner,
+     * the hold ends with the view
+     *
+     * @param owner the lifecycle owner holding updates, must be used on the main thread
+     */
+    public void holdLocationUpdates(LifecycleOwner owner) {
+        owner.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStart(@NonNull LifecycleOwner owner) {
+                holders.acquire();
+            }
+
+            @Override
+            public void onStop(@NonNull LifecycleOwner owner) {
+                holders.release();
+            }
+        });
+    }
+
+    /**
+     * Starts updates for the first holder, without posting {@code null} while the permission has not been asked for yet
+     */
+    private void startHeldUpdates() {
+        if (PermissionUtils.hasLocationPermission(appContext)) {
+            startLocationUpdates();
+        }
+    }
+
+    /**
+     * Requests updates for the active callback, replacing the previous request of the same callback
+     *
+     * Called when updates start and whenever the {@link LocationUpdatePolicy} changes its request. Re-requesting with
+     * the same callback keeps the provider running, so a change of request does not lose the current fix
+     *
+     * @param request the request to use
+     */
+    private void requestUpdates(LocationUpdatePolicy.Request request) {
+        if (callback == null) {
+            return;
+        }
+        int priority = request.isHighAccuracy()
+                ? Priority.PRIORITY_HIGH_ACCURACY
+                : Priority.PRIORITY_BALANCED_POWER_ACCURACY;
+
+        // Log.d(TAG, "Requesting location updates from the provider: " + request);
+        provider.requestLocationUpdates(priority, request.getIntervalMs(), request.getMinDistanceMeters(), callback);
+    }
+
+    /**
+     * Sets the screen that shows the location, the map asks for tighter updates than the list while moving
+     *
+     * @param screen {@link LocationUpdatePolicy#SCREEN_MAP} or {@link LocationUpdatePolicy#SCREEN_LIST}
+     */
+    public void setScreen(int screen) {
+        policy.setScreen(screen);
     }
 
     /**
      * Stops location updates if they are active and clears the internal callback.
      *
-     * After calling this method, {@link #isLocationServiceActive()} will return {@code false}.
+     * After calling this method, {@link #isLocationServiceActive()} will return {@code false}. Holders are kept, so
+     * updates resume with {@link #startLocationUpdates()} or the next holder to start, e.g. once the permission is
+     * granted again.
      */
     public void stopUpdates() {
         if (callback != null) {
-            fusedLocationProviderClient.removeLocationUpdates(callback);
+            provider.removeLocationUpdates(callback);
             callback = null;
         }
+        smoother.reset();
+        policy.reset();
         isLocationServiceActive = false;
     }
 
     /**
      * Returns a {@link androidx.lifecycle.LiveData} that observers can use to receive the latest {@link android.location.Location} values posted by the repository
      *
-     * Calling this method does not start the location service, use {@link #startLocationUpdates(long, float) instead to begin updates
+     * Calling this method does not start the location service, use {@link #startLocationUpdates()} instead to begin updates
      *
      * @return LiveData stream of {@link android.location.Location}, may contain {@code null} when location is unavailable
      */
@@ -162,21 +308,25 @@ public class LocationRepository {
 
 
     /**
-     * Determines whether the new location is sufficiently different from the current one to warrant updating
+     * Adds a fix to the smoother and returns the smoothed location if it moved enough to be posted
      *
-     * Returns {@code true} if there is no current location (first update) or if the straight-line distance between {@code current} and {@code newLocation} exceeds 10 metres
+     * The first fix is always posted, later ones only once the smoothed position has moved by more than both
+     * {@link #MIN_DISTANCE_METERS} and the accuracy of the fix
      *
-     * @param current     the previously recorded {@link android.location.Location} or {@code null} if none
-     * @param newLocation the newly received {@link android.location.Location} to evaluate
-     * @return {@code true} if the repository should replace {@code current} with {@code newLocation}, {@code false} otherwise
+     * @param newLocation the newly received {@link android.location.Location}
+     * @return a copy of {@code newLocation} moved to the smoothed position, or {@code null} if nothing should be posted
      */
-    private boolean shouldUpdateLocation(Location current, Location newLocation){
-        if (current == null) {
-            return true;
+    private Location smoothLocation(Location newLocation) {
+        float accuracy = newLocation.hasAccuracy() ? newLocation.getAccuracy() : 0f;
+        if (!smoother.update(newLocation.getLatitude(), newLocation.getLongitude(), accuracy, newLocation.getTime())) {
+            return null;
         }
 
-        float distance = current.distanceTo(newLocation);
-        return distance > 10f;
+        Location smoothedLocation = new Location(newLocation);
+        smoothedLocation.setLatitude(smoother.getLatitude());
+        smoothedLocation.setLongitude(smoother.getLongitude());
+        smoothedLocation.setAccuracy(smoother.getAccuracyMeters());
+        return smoothedLocation;
     }
 
     /**
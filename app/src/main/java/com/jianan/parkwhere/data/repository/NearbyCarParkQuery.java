@@ -0,0 +1,218 @@
+package com.jianan.parkwhere.data.repository;
+
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.jianan.parkwhere.util.CarParkFilter;
+import com.jianan.parkwhere.util.NearbyCarParkResult;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Latest-wins nearby car park search owned by one screen, obtained from {@link CarParkRepository#createNearbyQuery()}
+ *
+ * Search parameters can change many times per second, for example while the radius slider is dragged
+ * - Only one computation runs at a time. Parameters submitted meanwhile replace each other, superseded parameters
+ *   are never queued
+ * - A submission lets the running computation finish, its result is still published if it arrives at most one frame
+ *   after the parameters changed, so results keep coming during a drag. Once it is more than a frame stale it stops at
+ *   its next check and has its result dropped. The latest parameters start as soon as it returns
+ * - Computations start at most once per frame
+ * - Once the parameters stop changing, the final parameters are computed exactly once
+ * - {@link #clear()} cancels the running computation the same way
+ * - The largest result around the current centre is cached, so resizing the radius around the same centre only
+ *   queries the car parks it adds, see {@link NearbyResultCache}
+ *
+ * All methods must be called on the main thread
+ */
+public class NearbyCarParkQuery {
+    // Minimum time between the start of two computations
+    private static final long FRAME_INTERVAL_MS = 16;
+
+    // Value of supersededUptime while the running computation has the latest parameters
+    private static final long NOT_SUPERSEDED = -1;
+
+    /**
+     * Computes a nearby result, see {@link CarParkRepository#queryNearbyCarParks}
+     */
+    interface Search {
+        NearbyCarParkResult query(Location location, float radiusMeters, CarParkFilter filter, NearbyResultCache cache,
+                                  BooleanSupplier isCancelled);
+    }
+
+    /**
+     * Runs tasks on the main thread, e.g. a {@link Handler} on the main looper
+     */
+    interface MainThread {
+        void postDelayed(Runnable task, long delayMs);
+
+        void removeCallbacks(Runnable task);
+
+        // May be called from any thread
+        long uptimeMillis();
+    }
+
+    private final Search search;
+    private final Executor executor;
+    private final MainThread mainThread;
+    private final MutableLiveData<NearbyCarParkResult> resultLiveData = new MutableLiveData<>();
+    private final Runnable dispatchRunnable = this::dispatch;
+    private final NearbyResultCache cache = new NearbyResultCache(); // Only used on the executor
+
+    // Incremented by clear(), computations started under an older generation are cancelled
+    private final AtomicLong generation = new AtomicLong();
+
+    // Uptime at which the parameters of the running computation were superseded, read by its cancellation check
+    private volatile long supersededUptime = NOT_SUPERSEDED;
+
+    private Location pendingLocation;
+    private float pendingRadiusMeters;
+    private CarParkFilter pendingFilter = CarParkFilter.NONE;
+    private boolean hasPending = false;
+    private boolean isRunning = false;
+    private boolean isDispatchScheduled = false;
+    private long lastDispatchUptime = 0;
+
+    NearbyCarParkQuery(CarParkRepository carParkRepo, Executor executor) {
+        this(carParkRepo::queryNearbyCarParks, executor, mainLooperThread());
+    }
+
+    /**
+     * Construct a query
+     *
+     * @param search     computes the results
+     * @param executor   runs the computations
+     * @param mainThread runs dispatches and delivers results, all other methods must be called on it too
+     */
+    NearbyCarParkQuery(Search search, Executor executor, MainThread mainThread) {
+        this.search = search;
+        this.executor = executor;
+        this.mainThread = mainThread;
+    }
+
+    private static MainThread mainLooperThread() {
+        Handler handler = new Handler(Looper.getMainLooper());
+        return new MainThread() {
+            @Override
+            public void postDelayed(Runnable task, long delayMs) {
+                handler.postDelayed(task, delayMs);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable task) {
+                handler.removeCallbacks(task);
+            }
+
+            @Override
+            public long uptimeMillis() {
+                return SystemClock.uptimeMillis();
+            }
+        };
+    }
+
+    /**
+     * Returns the LiveData that receives the result of each completed computation
+     *
+     * @return LiveData of {@link NearbyCarParkResult}
+     */
+    public LiveData<NearbyCarParkResult> getResultLiveData() {
+        return resultLiveData;
+    }
+
+    /**
+     * Request a search, replacing any request that has not started yet and superseding the running one
+     *
+     * @param location     the central location to search from
+     * @param radiusMeters the radius in metres to search within
+     * @param filter       car parks to keep, e.g. those tall enough for the vehicle
+     */
+    public void submit(Location location, float radiusMeters, CarParkFilter filter) {
+        pendingLocation = location;
+        pendingRadiusMeters = radiusMeters;
+        pendingFilter = filter;
+        hasPending = true;
+        if (isRunning && supersededUptime == NOT_SUPERSEDED) {
+            // The running computation is stale from now on, it is kept while it is at most a frame behind
+            supersededUptime = mainThread.uptimeMillis();
+        }
+        scheduleDispatch();
+    }
+
+    /**
+     * Drop the pending request and cancel the running computation
+     */
+    public void clear() {
+        hasPending = false;
+        pendingLocation = null;
+        generation.incrementAndGet();
+
+        mainThread.removeCallbacks(dispatchRunnable);
+        isDispatchScheduled = false;
+    }
+
+    private void scheduleDispatch() {
+        if (isRunning || isDispatchScheduled || !hasPending) {
+            return;
+        }
+        isDispatchScheduled = true;
+
+        long delay = Math.max(0, lastDispatchUptime + FRAME_INTERVAL_MS - mainThread.uptimeMillis());
+        mainThread.postDelayed(dispatchRunnable, delay);
+    }
+
+    private void dispatch() {
+        isDispatchScheduled = false;
+        if (!hasPending) {
+            return;
+        }
+
+        Location location = pendingLocation;
+        float radiusMeters = pendingRadiusMeters;
+        CarParkFilter filter = pendingFilter;
+        long startGeneration = generation.get();
+        hasPending = false;
+        isRunning = true;
+        supersededUptime = NOT_SUPERSEDED;
+        lastDispatchUptime = mainThread.uptimeMillis();
+
+        executor.execute(() -> {
+            NearbyCarParkResult result = search.query(location, radiusMeters, filter, cache,
+                    () -> generation.get() != startGeneration || isTooStale());
+
+            mainThread.postDelayed(() -> {
+                isRunning = false;
+                if (result != null && generation.get() == startGeneration && !isTooStale()) {
+                    publish(result);
+                }
+                // Run the latest parameters submitted while this computation was running
+                scheduleDispatch();
+            }, 0);
+        });
+    }
+
+    /**
+     * Whether the running computation was superseded more than a frame ago, its result would be dropped
+     *
+     * @return true if the running computation should stop
+     */
+    private boolean isTooStale() {
+        long superseded = supersededUptime;
+        return superseded != NOT_SUPERSEDED && mainThread.uptimeMillis() - superseded > FRAME_INTERVAL_MS;
+    }
+
+    /**
+     * Deliver a result to {@link #getResultLiveData()}, called on the main thread
+     *
+     * @param result the result of the latest parameters
+     */
+    void publish(NearbyCarParkResult result) {
+        resultLiveData.setValue(result);
+    }
+}
@@ -0,0 +1,51 @@
+package com.jianan.parkwhere.data.repository;
+
+import com.jianan.parkwhere.util.NearbyCarParkResult;
+
+/**
+ * Largest nearby result computed so far around one centre, kept per {@link NearbyCarParkQuery}
+ *
+ * While the centre stays the same, a smaller radius is answered from the cached result and a larger radius only
+ * needs the car parks between the cached radius and the new one, see
+ * {@link CarParkRepository#queryNearbyCarParks(android.location.Location, float,
+ * com.jianan.parkwhere.util.CarParkFilter, NearbyResultCache, java.util.function.BooleanSupplier)}. Results are
+ * cached before any filter is applied
+ *
+ * Only accessed on the repository's background thread
+ */
+class NearbyResultCache {
+    private float centreX;
+    private float centreY;
+    private float radiusMeters;
+    private NearbyCarParkResult result;
+
+    /**
+     * Return whether the cache holds a result around the given projected centre
+     */
+    boolean hasCentre(float x, float y) {
+        return result != null && centreX == x && centreY == y;
+    }
+
+    float getRadiusMeters() {
+        return radiusMeters;
+    }
+
+    NearbyCarParkResult getResult() {
+        return result;
+    }
+
+    /**
+     * Replace the cached result
+     *
+     * @param x            projected easting of the centre in metres
+     * @param y            projected northing of the centre in metres
+     * @param radiusMeters radius of the result in metres
+     * @param result       every car park within the radius
+     */
+    void set(float x, float y, float radiusMeters, NearbyCarParkResult result) {
+        this.centreX = x;
+        this.centreY = y;
+        this.radiusMeters = radiusMeters;
+        this.result = result;
+    }
+}
@@ -0,0 +1,72 @@
+package com.jianan.parkwhere.data.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.jianan.parkwhere.R;
+import com.jianan.parkwhere.util.ParkingCostEstimator;
+import com.jianan.parkwhere.util.ParkingRates;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Store for the HDB parking rate table bundled as {@code res/raw/hdb_parking_rates.txt}
+ *
+ * The table is read once when the store is created and combined with the public holiday calendar into a
+ * {@link ParkingCostEstimator}. A table that cannot be read leaves the store without an estimator, so costs are simply
+ * not shown
+ *
+ * Uses the same thread-safe lazy singleton pattern as {@link CarParkRepository}
+ */
+public class ParkingRateStore {
+    private static final String TAG = "ParkingRateStore";
+    private static volatile ParkingRateStore instance;
+
+    private final ParkingCostEstimator estimator;
+
+    private ParkingRateStore(Context context) {
+        ParkingRates rates = readRates(context);
+        estimator = rates != null
+                ? new ParkingCostEstimator(rates, PublicHolidayStore.getPublicHolidayStore(context).getCalendar())
+                : null;
+    }
+
+    /**
+     * Returns the singleton {@code ParkingRateStore} instance
+     *
+     * @param context any valid {@link android.content.Context}, the application context will be used
+     * @return the singleton {@link ParkingRateStore} instance
+     */
+    public static ParkingRateStore getParkingRateStore(Context context) {
+        if (instance == null) {
+            synchronized (ParkingRateStore.class) {
+                if (instance == null) {
+                    instance = new ParkingRateStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static ParkingRates readRates(Context context) {
+        try (Reader reader = new InputStreamReader(
+                context.getResources().openRawResource(R.raw.hdb_parking_rates), StandardCharsets.UTF_8)) {
+            return ParkingRates.read(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Failed to read the parking rate table", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the parking cost estimator
+     *
+     * @return the {@link ParkingCostEstimator}, null if the rate table could not be read
+     */
+    public ParkingCostEstimator getEstimator() {
+        return estimator;
+    }
+}
@@ -0,0 +1,78 @@
+package com.jianan.parkwhere.data.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.jianan.parkwhere.R;
+import com.jianan.parkwhere.util.ParkingTime;
+import com.jianan.parkwhere.util.PublicHolidayCalendar;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Store for the Singapore public holiday calendar bundled as {@code res/raw/sg_public_holidays.txt}
+ *
+ * The table is read once when the store is created, parking rules are then evaluated against it without any further
+ * I/O, see {@link PublicHolidayCalendar}. A table that cannot be read leaves the store with an empty calendar, so
+ * "PH" rules only apply on the days of the week they list
+ *
+ * Uses the same thread-safe lazy singleton pattern as {@link CarParkRepository}
+ */
+public class PublicHolidayStore {
+    private static final String TAG = "PublicHolidayStore";
+    private static volatile PublicHolidayStore instance;
+
+    private final PublicHolidayCalendar calendar;
+
+    private PublicHolidayStore(Context context) {
+        calendar = readCalendar(context);
+    }
+
+    /**
+     * Returns the singleton {@code PublicHolidayStore} instance
+     *
+     * @param context any valid {@link android.content.Context}, the application context will be used
+     * @return the singleton {@link PublicHolidayStore} instance
+     */
+    public static PublicHolidayStore getPublicHolidayStore(Context context) {
+        if (instance == null) {
+            synchronized (PublicHolidayStore.class) {
+                if (instance == null) {
+                    instance = new PublicHolidayStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static PublicHolidayCalendar readCalendar(Context context) {
+        try (Reader reader = new InputStreamReader(
+                context.getResources().openRawResource(R.raw.sg_public_holidays), StandardCharsets.UTF_8)) {
+            return PublicHolidayCalendar.read(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Failed to read the public holiday table", e);
+            return PublicHolidayCalendar.EMPTY;
+        }
+    }
+
+    /**
+     * Returns the public holiday calendar
+     *
+     * @return the {@link PublicHolidayCalendar}
+     */
+    public PublicHolidayCalendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * Returns the current time for evaluating parking rules, with its public holiday flags
+     *
+     * @return the {@link ParkingTime} of now
+     */
+    public ParkingTime getParkingTimeNow() {
+        return calendar.getParkingTime(System.currentTimeMillis());
+    }
+}
@@ -3,6 +3,8 @@ package com.jianan.parkwhere.ui;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
@@ -16,9 +18,8 @@ import androidx.navigation.Navigation;
 import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
 
-import com.google.android.libraries.places.api.Places;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
-import com.jianan.parkwhere.BuildConfig;
+import com.jianan.parkwhere.ParkWhereApplication;
 import com.jianan.parkwhere.R;
 import com.jianan.parkwhere.databinding.ActivityBottomNavHostBinding;
 import com.jianan.parkwhere.ui.map.MapViewModel;
@@ -67,14 +68,12 @@ public class BottomNavHostActivity extends AppCompatActivity {
         // For earlier versions, this enables edge-to-edge compatibility on older devices
         EdgeToEdge.enable(this);
 
-        // Initialise Places API
-        if (!Places.isInitialized()) {
-            Places.initialize(getApplicationContext(), BuildConfig.MAPS_API_KEY);
-        }
-
         binding = ActivityBottomNavHostBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
+        // Record when the first frame is about to be drawn and log the start up timings
+        recordFirstFrame(binding.getRoot());
+
         // Insets represents the area of the screen occupied by system UI
         // Setup window insets for edge-to-edge
         setupWindowInsets();
@@ -118,6 +117,22 @@ public class BottomNavHostActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Marks the first frame milestone of the start up timings on the first pre-draw pass of the content
+     */
+    private void recordFirstFrame(View root) {
+        root.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                root.getViewTreeObserver().removeOnPreDrawListener(this);
+                ParkWhereApplication application = (ParkWhereApplication) getApplication();
+                ParkWhereApplication.getStartup(application).mark(ParkWhereApplication.MILESTONE_FIRST_FRAME);
+                application.logStartupTimings();
+                return true;
+            }
+        });
+    }
+
     /**
      * Sets up window insets so that system UI (status bar, navigation bar) does not overlap application's content
      */
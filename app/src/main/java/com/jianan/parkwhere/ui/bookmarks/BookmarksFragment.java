@@ -175,14 +175,16 @@ public class BookmarksFragment extends CustomFragment implements CarParkAdapter.
             }
         });
 
+        // Observe bookmarked car park numbers, rows whose bookmark state changed are rebound
+        bookmarksViewModel.getBookmarkedNumbersLiveData().observe(getViewLifecycleOwner(), bookmarkedNumbers -> {
+            carParkAdapter.updateBookmarks(bookmarkedNumbers);
+        });
+
         // Observe bookmark changes
         bookmarksViewModel.getBookmarkLiveData().observe(getViewLifecycleOwner(), bookmarkEvent -> {
             if (bookmarkEvent != null) {
                 // Log.d(TAG, "Bookmark changed for car park: " + bookmarkEvent.getCarParkNumber() + ", isBookmarked: " + bookmarkEvent.isBookmarked());
 
-                // Update the specific item in the adapter
-                carParkAdapter.updateBookmarkStatus(bookmarkEvent.getCarParkNumber());
-
                 // Show message via snackbar
                 String message = bookmarkEvent.isBookmarked() ?
                         "Added " + bookmarkEvent.getCarParkNumber() + " to Bookmark" :
@@ -206,17 +208,6 @@ public class BookmarksFragment extends CustomFragment implements CarParkAdapter.
         bookmarksViewModel.toggleBookmark(carPark.getCarParkNumber());
     }
 
-    /**
-     * Checks whether a given car park is currently bookmarked
-     *
-     * @param carParkNumber The ID of the car park
-     * @return true if bookmarked otherwise false
-     */
-    @Override
-    public boolean isCarParkBookmarked(String carParkNumber) {
-        return bookmarksViewModel.isBookmarked(carParkNumber);
-    }
-
     // -------------------------
     // UI helpers
     // -------------------------
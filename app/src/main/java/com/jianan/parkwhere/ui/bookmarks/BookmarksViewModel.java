@@ -11,26 +11,20 @@ import androidx.lifecycle.ViewModel;
 
 import com.jianan.parkwhere.data.local.CarPark;
 import com.jianan.parkwhere.data.model.CarParkApiData;
-import com.jianan.parkwhere.data.preferences.SettingsManager;
+import com.jianan.parkwhere.data.repository.BookmarkStore;
 import com.jianan.parkwhere.data.repository.CarParkRepository;
 import com.jianan.parkwhere.ui.list.ListViewModel;
 import com.jianan.parkwhere.util.ApiScheduler;
 import com.jianan.parkwhere.util.SingleLiveEvent;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class BookmarksViewModel extends AndroidViewModel {
     private static final String TAG = "BookmarksViewModel";
     private final CarParkRepository carParkRepo;
-    private final SettingsManager settingsManager;
-    private final Executor executor = Executors.newSingleThreadExecutor();
+    private final BookmarkStore bookmarkStore;
     private final LiveData<Map<String, CarParkApiData>> carParkApiLookupLive;
 
     // LiveData for bookmarked car parks
@@ -43,7 +37,7 @@ public class BookmarksViewModel extends AndroidViewModel {
         super(application);
 
         carParkRepo = CarParkRepository.getCarParkRepo(application);
-        settingsManager = SettingsManager.getSettingsManager(application);
+        bookmarkStore = BookmarkStore.getBookmarkStore(application);
 
         carParkApiLookupLive = carParkRepo.getCarParkApiLookupLive();
 
@@ -60,47 +54,14 @@ public class BookmarksViewModel extends AndroidViewModel {
 
     /**
      * Loads all bookmarked car parks from the database and updates the LiveData.
-     * Car parks are sorted alphabetically by car park number.
+     * Car parks are in bookmark order, newly added bookmarks come last.
      */
     private void loadBookmarkedCarParks() {
         Log.d(TAG, "Loading bookmarked car parks");
 
-        executor.execute(() -> {
-            Set<String> bookmarkedNumbers = settingsManager.getBookmarkedCarParkNumbers();
-            Log.d(TAG, "Found " + bookmarkedNumbers.size() + " bookmarked car park numbers");
-
-            if (bookmarkedNumbers.isEmpty()) {
-                Log.d(TAG, "No bookmarked car parks, setting empty list");
-                bookmarkedCarParksLiveData.postValue(new ArrayList<>());
-                return;
-            }
-
-            List<CarPark> bookmarkedCarParks = new ArrayList<>();
-            int totalToFetch = bookmarkedNumbers.size();
-            AtomicInteger fetchedCount = new AtomicInteger(0);
-
-            for (String carParkNumber : bookmarkedNumbers) {
-                carParkRepo.getCarParkByNumber(carParkNumber, carPark -> {
-                    if (carPark != null) {
-                        synchronized (bookmarkedCarParks) {
-                            bookmarkedCarParks.add(carPark);
-                            Log.d(TAG, "Fetched bookmarked car park: " + carPark.getCarParkNumber());
-                        }
-                    } else {
-                        Log.w(TAG, "Bookmarked car park not found in database: " + carParkNumber);
-                    }
-
-                    // Check if all car parks have been processed
-                    if (fetchedCount.incrementAndGet() == totalToFetch) {
-                        // Sort alphabetically by car park number
-                        Collections.sort(bookmarkedCarParks, (cp1, cp2) ->
-                                cp1.getCarParkNumber().compareTo(cp2.getCarParkNumber()));
-
-                        Log.d(TAG, "All bookmarked car parks loaded and sorted. Total: " + bookmarkedCarParks.size());
-                        bookmarkedCarParksLiveData.postValue(bookmarkedCarParks);
-                    }
-                });
-            }
+        bookmarkStore.getBookmarkedCarParks(bookmarkedCarParks -> {
+            Log.d(TAG, "All bookmarked car parks loaded. Total: " + bookmarkedCarParks.size());
+            bookmarkedCarParksLiveData.postValue(bookmarkedCarParks);
         });
     }
 
@@ -118,7 +79,7 @@ public class BookmarksViewModel extends AndroidViewModel {
     // -------------------------
 
     /**
-     * @return LiveData containing the list of bookmarked car parks, sorted alphabetically by car park number
+     * @return LiveData containing the list of bookmarked car parks in bookmark order
      */
     public LiveData<List<CarPark>> getBookmarkedCarParksLiveData() {
         return bookmarkedCarParksLiveData;
@@ -131,6 +92,13 @@ public class BookmarksViewModel extends AndroidViewModel {
         return carParkApiLookupLive;
     }
 
+    /**
+     * @return LiveData of unmodifiable sets of bookmarked car park numbers, emitted when bookmarks are loaded and on every change
+     */
+    public LiveData<Set<String>> getBookmarkedNumbersLiveData() {
+        return bookmarkStore.getBookmarksLiveData();
+    }
+
     /**
      * @return LiveData for bookmark change events
      */
@@ -161,7 +129,7 @@ public class BookmarksViewModel extends AndroidViewModel {
      * @return true if bookmarked, false otherwise
      */
     public boolean isBookmarked(String carParkNumber) {
-        return settingsManager.isBookmarked(carParkNumber);
+        return bookmarkStore.contains(carParkNumber);
     }
 
     /**
@@ -171,8 +139,7 @@ public class BookmarksViewModel extends AndroidViewModel {
     public void toggleBookmark(String carParkNumber) {
         Log.d(TAG, "Toggling bookmark for car park: " + carParkNumber);
 
-        settingsManager.toggleBookmark(carParkNumber);
-        boolean isNowBookmarked = settingsManager.isBookmarked(carParkNumber);
+        boolean isNowBookmarked = bookmarkStore.toggle(carParkNumber);
 
         // Create event with both carParkNumber and bookmark status
         BookmarkChangeEvent event = new BookmarkChangeEvent(carParkNumber, isNowBookmarked);
@@ -186,7 +153,7 @@ public class BookmarksViewModel extends AndroidViewModel {
      * @return the total number of bookmarked car parks
      */
     public int getBookmarkCount() {
-        return settingsManager.getBookmarkCount();
+        return bookmarkStore.size();
     }
 
     // -------------------------
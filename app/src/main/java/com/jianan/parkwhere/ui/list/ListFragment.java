@@ -8,6 +8,7 @@ import android.os.Bundle;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import android.text.Editable;
@@ -16,18 +17,18 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.EditText;
+import android.widget.PopupMenu;
 import android.widget.TextView;
 
 import com.google.android.gms.common.api.Status;
 import com.google.android.gms.maps.model.LatLng;
-import com.google.android.libraries.places.api.Places;
 import com.google.android.libraries.places.api.model.Place;
-import com.google.android.libraries.places.api.net.PlacesClient;
 import com.google.android.libraries.places.widget.AutocompleteSupportFragment;
 import com.google.android.libraries.places.widget.listener.PlaceSelectionListener;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.slider.Slider;
 import com.google.android.material.snackbar.Snackbar;
+import com.jianan.parkwhere.ParkWhereApplication;
 import com.jianan.parkwhere.R;
 import com.jianan.parkwhere.data.local.CarPark;
 import com.jianan.parkwhere.data.model.CarParkApiData;
@@ -35,8 +36,10 @@ import com.jianan.parkwhere.databinding.FragmentListBinding;
 import com.jianan.parkwhere.ui.CustomFragment;
 import com.jianan.parkwhere.util.ApiScheduler;
 import com.jianan.parkwhere.util.CarParkAdapter;
+import com.jianan.parkwhere.util.CarParkFilterOptions;
+import com.jianan.parkwhere.util.FilterChips;
+import com.jianan.parkwhere.util.ParkingCostFormatter;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -47,6 +50,7 @@ import java.util.List;
  */
 public class ListFragment extends CustomFragment implements CarParkAdapter.OnCarParkClickListener {
     // private static final String TAG = "ListFragment";
+
     private FragmentListBinding binding;
     private ListViewModel listViewModel;
     private CarParkAdapter carParkAdapter;
@@ -58,9 +62,6 @@ public class ListFragment extends CustomFragment implements CarParkAdapter.OnCar
                              @Nullable Bundle savedInstanceState) {
         binding = FragmentListBinding.inflate(inflater, container, false);
 
-        // Initialise Places client
-        PlacesClient placesClient = Places.createClient(requireContext());
-
         return binding.getRoot();
     }
 
@@ -86,47 +87,31 @@ public class ListFragment extends CustomFragment implements CarParkAdapter.OnCar
         // Test Car Park API & DB implementation
         // carParkApiAndDbTest();
 
-        // Configure Places search bar
-        searchBarFragment = (AutocompleteSupportFragment) getChildFragmentManager().findFragmentById(R.id.search_bar);
-        searchBarFragment.setPlaceFields(Arrays.asList(Place.Field.LOCATION, Place.Field.DISPLAY_NAME));
-        searchBarFragment.setOnPlaceSelectedListener(new PlaceSelectionListener() {
-            @Override
-            public void onPlaceSelected(@NonNull Place place) {
-                LatLng searchedLocation = place.getLocation();
-
-                if (searchedLocation != null) {
-                    // searchedLocation here is just a label, there is no purpose for it
-                    Location location = new Location("searchedLocation");
-                    location.setLatitude(searchedLocation.latitude);
-                    location.setLongitude(searchedLocation.longitude);
-                    listViewModel.setSearchedLocation(location);
-
-                    // Show searched location on the search bar
-                    String displayText = place.getDisplayName() != null ? place.getDisplayName() : String.format("%.6f, %.6f", searchedLocation.latitude, searchedLocation.longitude);
-                    searchBarFragment.setText(displayText);
-                }
-            }
+        // The search bar is the only user of Places, it starts initialising Places in the background and is added once
+        // that finishes, without blocking the main thread
+        ParkWhereApplication.getStartup(requireContext()).whenFinished(ParkWhereApplication.STAGE_PLACES,
+                ContextCompat.getMainExecutor(requireContext()), () -> setupSearchBar(view));
 
-            @Override
-            public void onError(@NonNull Status status) {
-                // Log.d(TAG, "Autocomplete Error: " + status);
-            }
-        });
+        binding.buttonSearchRadius.setOnClickListener(v -> showRadiusBottomSheet());
 
-        searchBarFragment.getView().post(() -> setupSearchBarTextWatcher());
+        // Filter chips select the options shared with the map
+        FilterChips.setup(binding.chipGroupFilters, listViewModel::setFilterOptions);
 
-        binding.buttonSearchRadius.setOnClickListener(v -> showRadiusBottomSheet());
+        // Length of the stay parking costs are estimated for
+        bindCostDuration();
+        binding.chipCostDuration.setOnClickListener(this::showCostDurationMenu);
 
-        // If location permission is already given, start location update
-        if (listViewModel.hasLocationPermission()) {
-            startLocationService();
-        }
+        // Hold location updates while the view is started, they start right away if location permission is already given
+        listViewModel.holdLocationUpdates(getViewLifecycleOwner());
     }
 
     @Override
     public void onResume() {
         super.onResume();
 
+        // Location updates adapt to the screen showing them
+        listViewModel.setLocationScreen();
+
         boolean hasLocationPermission = listViewModel.hasLocationPermission();
         boolean isLocationUpdateCurrentlyActive = listViewModel.isLocationServiceActive();
 
@@ -152,7 +137,7 @@ public class ListFragment extends CustomFragment implements CarParkAdapter.OnCar
     public void onDestroyView() {
         super.onDestroyView();
 
-        stopLocationUpdates();
+        // The hold on location updates ends with the view, updates linger in case the map takes them over
         isObserversSetup = false;
         binding = null;
     }
@@ -209,13 +194,18 @@ public class ListFragment extends CustomFragment implements CarParkAdapter.OnCar
             Boolean hasPermission = listViewModel.hasLocationPermissionLiveData().getValue();
             updateUIState(hasPermission, nearbyCarParkList);
 
-            if (nearbyCarParkList != null && !nearbyCarParkList.isEmpty()){
-                carParkAdapter.submitList(nearbyCarParkList);
-            } else {
-                carParkAdapter.submitList(new ArrayList<>());
+            // Rows beyond the first page are loaded by the adapter as they are bound
+            if (nearbyCarParkList != null) {
+                carParkAdapter.submitPagedList(nearbyCarParkList);
             }
+
+            // Counts of the filter options follow the nearby car parks
+            bindFilterChips();
         });
 
+        // Observe the selected filter options, the selection may also change on the map
+        listViewModel.getFilterOptionsLiveData().observe(getViewLifecycleOwner(), options -> bindFilterChips());
+
         // Observe API data changes
         listViewModel.getCarParkApiLookupLive().observe(getViewLifecycleOwner(), carParkApiLookup -> {
 
@@ -234,6 +224,10 @@ public class ListFragment extends CustomFragment implements CarParkAdapter.OnCar
 
             if (currentNearbyCarParks != null && !currentNearbyCarParks.isEmpty()) {
                 for (CarPark carPark : currentNearbyCarParks) {
+                    // Skip placeholders of pages that are not loaded yet
+                    if (carPark == null) {
+                        continue;
+                    }
                     String carParkId = carPark.getCarParkNumber();
 
                     // carParkApiData will hold the information from the API
@@ -255,12 +249,19 @@ public class ListFragment extends CustomFragment implements CarParkAdapter.OnCar
             }
         });
 
+        // Observe cost estimates, rows show the estimated cost of the chosen stay
+        listViewModel.getCostEstimatesLiveData().observe(getViewLifecycleOwner(), estimates -> {
+            carParkAdapter.updateCostEstimates(estimates);
+        });
+
+        // Observe bookmarked car parks, rows are rebound once bookmarks are loaded and whenever they change
+        listViewModel.getBookmarkedNumbersLiveData().observe(getViewLifecycleOwner(), bookmarkedNumbers -> {
+            carParkAdapter.updateBookmarks(bookmarkedNumbers);
+        });
+
         // Observe bookmark changes
         listViewModel.getBookmarkLiveData().observe(getViewLifecycleOwner(), bookmarkEvent -> {
             if (bookmarkEvent != null) {
-                // Update the specific item in the adapter
-                carParkAdapter.updateBookmarkStatus(bookmarkEvent.getCarParkNumber());
-
                 // Show message via snackbar
                 String message = bookmarkEvent.isBookmarked() ? "Added " + bookmarkEvent.getCarParkNumber() + " to Bookmark" : "Removed " + bookmarkEvent.getCarParkNumber() + " from Bookmark";
                 showCustomSnackbar(message);
@@ -282,9 +283,97 @@ public class ListFragment extends CustomFragment implements CarParkAdapter.OnCar
         });
     }
 
+    /**
+     * Show the selected filter options and how many nearby car parks each of them keeps
+     */
+    private void bindFilterChips() {
+        if (binding == null) {
+            return;
+        }
+        Integer options = listViewModel.getFilterOptionsLiveData().getValue();
+        FilterChips.bind(binding.chipGroupFilters, options != null ? options : CarParkFilterOptions.NONE,
+                listViewModel::countMatching);
+    }
+
+    // -------------------------
+    // Parking Cost
+    // -------------------------
+
+    /**
+     * Show the length of the stay parking costs are estimated for
+     */
+    private void bindCostDuration() {
+        binding.chipCostDuration.setText(
+                "Stay " + ParkingCostFormatter.formatDuration(listViewModel.getCostDurationMinutes()));
+    }
+
+    /**
+     * Let the user pick the length of the stay parking costs are estimated for
+     *
+     * @param anchor the view the menu is shown at
+     */
+    private void showCostDurationMenu(View anchor) {
+        PopupMenu menu = new PopupMenu(requireContext(), anchor);
+        for (int minutes : ParkingCostFormatter.DURATIONS_MINUTES) {
+            menu.getMenu().add(0, minutes, 0, ParkingCostFormatter.formatDuration(minutes));
+        }
+        menu.setOnMenuItemClickListener(item -> {
+            listViewModel.setCostDurationMinutes(item.getItemId());
+            bindCostDuration();
+            return true;
+        });
+        menu.show();
+    }
+
     // -------------------------
     // Search
     // -------------------------
+    /**
+     * Add and configure the Places autocomplete search bar, called on the main thread once Places is initialised
+     *
+     * @param view root view the callback was registered for, nothing is done if it has been destroyed since
+     */
+    private void setupSearchBar(View view) {
+        if (getView() != view) {
+            return;
+        }
+
+        // A search bar restored with the child fragments is reused
+        searchBarFragment = (AutocompleteSupportFragment) getChildFragmentManager().findFragmentById(R.id.search_bar);
+        if (searchBarFragment == null) {
+            searchBarFragment = AutocompleteSupportFragment.newInstance();
+            getChildFragmentManager().beginTransaction()
+                    .replace(R.id.search_bar, searchBarFragment)
+                    .commitNowAllowingStateLoss();
+        }
+        searchBarFragment.setPlaceFields(Arrays.asList(Place.Field.LOCATION, Place.Field.DISPLAY_NAME));
+        searchBarFragment.setOnPlaceSelectedListener(new PlaceSelectionListener() {
+            @Override
+            public void onPlaceSelected(@NonNull Place place) {
+                LatLng searchedLocation = place.getLocation();
+
+                if (searchedLocation != null) {
+                    // searchedLocation here is just a label, there is no purpose for it
+                    Location location = new Location("searchedLocation");
+                    location.setLatitude(searchedLocation.latitude);
+                    location.setLongitude(searchedLocation.longitude);
+                    listViewModel.setSearchedLocation(location);
+
+                    // Show searched location on the search bar
+                    String displayText = place.getDisplayName() != null ? place.getDisplayName() : String.format("%.6f, %.6f", searchedLocation.latitude, searchedLocation.longitude);
+                    searchBarFragment.setText(displayText);
+                }
+            }
+
+            @Override
+            public void onError(@NonNull Status status) {
+                // Log.d(TAG, "Autocomplete Error: " + status);
+            }
+        });
+
+        view.post(() -> setupSearchBarTextWatcher());
+    }
+
     /**
      * Configure a text watcher on the Places autocomplete search input to clear searched location when emptied
      */
@@ -353,17 +442,6 @@ public class ListFragment extends CustomFragment implements CarParkAdapter.OnCar
         listViewModel.toggleBookmark(carPark.getCarParkNumber());
     }
 
-    /**
-     * Check if a car park is currently bookmarked
-     *
-     * @param carParkNumber car park identifier
-     * @return true if bookmarked false otherwise
-     */
-    @Override
-    public boolean isCarParkBookmarked(String carParkNumber) {
-        return listViewModel.isBookmarked(carParkNumber);
-    }
-
     // @Override
     // public void onCarParkClick(CarPark carPark) {
     // Might add a Bottom Sheet Dialog in the future to show more car park info.
@@ -2,29 +2,44 @@ package com.jianan.parkwhere.ui.list;
 
 import android.app.Application;
 import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
-import com.jianan.parkwhere.data.local.CarPark;
 import com.jianan.parkwhere.data.model.CarParkApiData;
+import com.jianan.parkwhere.data.repository.BookmarkStore;
 import com.jianan.parkwhere.data.preferences.SettingsManager;
 import com.jianan.parkwhere.data.repository.CarParkRepository;
 import com.jianan.parkwhere.data.repository.LocationRepository;
+import com.jianan.parkwhere.data.repository.NearbyCarParkQuery;
+import com.jianan.parkwhere.data.repository.ParkingRateStore;
+import com.jianan.parkwhere.data.repository.PublicHolidayStore;
 import com.jianan.parkwhere.util.ApiScheduler;
+import com.jianan.parkwhere.util.CarParkFilter;
+import com.jianan.parkwhere.util.CarParkFilterOptions;
+import com.jianan.parkwhere.util.CarParkRanker;
+import com.jianan.parkwhere.util.LocationUpdatePolicy;
+import com.jianan.parkwhere.util.NearbyCarParkResult;
+import com.jianan.parkwhere.util.NearbyPagedList;
 import com.jianan.parkwhere.util.NearbySearchParams;
+import com.jianan.parkwhere.util.ParkingCostEstimator;
+import com.jianan.parkwhere.util.ParkingTime;
 import com.jianan.parkwhere.util.PermissionUtils;
 import com.jianan.parkwhere.util.SingleLiveEvent;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.Map;
-import java.util.function.Consumer;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * ViewModel for the list fragment that provides nearby car parks and bookmark interactions
@@ -33,9 +48,21 @@ import java.util.function.Consumer;
  */
 public class ListViewModel extends AndroidViewModel {
     // private static final String TAG = "ListViewModel";
+
+    // Paging of the nearby list, a page is about two screens of rows and the next one is prefetched a screen ahead
+    // Placeholders are off so that the adapter only builds and diffs rows for loaded car parks
+    private static final NearbyPagedList.Config PAGING_CONFIG = new NearbyPagedList.Config(20, 10, 20, false);
+
+    // Length of the stay that parking costs are estimated for until the user picks one
+    public static final int DEFAULT_COST_DURATION_MINUTES = 120;
+
+    // Car parks ranked by the chosen ranking, about five pages, the rest follow by distance
+    private static final int RANKED_COUNT = 100;
+
     private final CarParkRepository carParkRepo;
     private final LocationRepository locationRepo;
     private final SettingsManager settingsManager;
+    private final BookmarkStore bookmarkStore;
     private final LiveData<Map<String, CarParkApiData>> carParkApiLookupLive;
 
     // MutableLiveData for location permission (data binding)
@@ -51,14 +78,49 @@ public class ListViewModel extends AndroidViewModel {
     private final MediatorLiveData<Location> activeLocationLiveData = new MediatorLiveData<>();
 
     // Track radius changes done by user
-    private final MutableLiveData<Float> radiusLiveData = new MutableLiveData<>();
+    private final LiveData<Float> radiusLiveData;
+
+    // Track the vehicle clearance, car parks with a lower gantry are left out of the search
+    private final LiveData<Float> vehicleClearanceLiveData;
+    private final LiveData<Boolean> unknownGantryIncludedLiveData;
 
     private final MediatorLiveData<NearbySearchParams> nearbySearchParamsLiveData = new MediatorLiveData<>();
 
-    private final MediatorLiveData<List<CarPark>> nearbyCarParksLiveData;
+    private final MediatorLiveData<NearbyPagedList> nearbyCarParksLiveData;
+
+    // Page loads and their adapter notifications run on the main thread
+    private final Executor mainThreadExecutor = new Handler(Looper.getMainLooper())::post;
+
+    // Latest-wins nearby search, superseded search parameters are skipped
+    private final NearbyCarParkQuery nearbyQuery;
+
+    // Filter options selected on the chips, shared with the map, and applied to the nearby results
+    private final LiveData<Integer> filterOptionsLiveData;
+    private final PublicHolidayStore publicHolidayStore; // Time of the "now" options, with its public holiday flags
+
+    // Latest unfiltered nearby result, kept so that a filter change does not need a new search
+    private NearbyCarParkResult nearbyResult = NearbyCarParkResult.empty();
+    private CarParkFilter appliedFilter = CarParkFilter.NONE;
 
-    // Used to pass information to nearbyCarParksLiveData be manually detaching and attaching
-    private LiveData<List<CarPark>> currentNearbyCarParksSource = null;
+    // Estimated cost of a stay at each car park of the published nearby list, null if there is no rate table
+    private final ParkingCostEstimator costEstimator;
+    private final MutableLiveData<ParkingCostEstimator.Estimates> costEstimatesLiveData =
+            new MutableLiveData<>(ParkingCostEstimator.Estimates.EMPTY);
+    private NearbyCarParkResult publishedResult = NearbyCarParkResult.empty();
+    private int costDurationMinutes = DEFAULT_COST_DURATION_MINUTES;
+
+    // Ranking of the published list, re-run on every availability poll when ranking by availability and on every new
+    // estimate when ranking by cost
+    private final LiveData<Integer> rankingLiveData;
+    private final CarParkRanker ranker = new CarParkRanker();
+    private Integer appliedRanking;
+
+    // Car parks put first by the ranking of the published list, and the filtered result they were ranked from. A
+    // re-run ranks into the spare buffer and the buffers are only swapped when the order changed
+    private int[] rankedFirst = new int[RANKED_COUNT];
+    private int[] rankedSpare = new int[RANKED_COUNT];
+    private int rankedCount;
+    private NearbyCarParkResult rankedSource;
 
     // Track bookmark changes
     private final SingleLiveEvent<BookmarkChangeEvent> bookmarkLiveData = new SingleLiveEvent<>();
@@ -67,8 +129,16 @@ public class ListViewModel extends AndroidViewModel {
         super(application);
 
         carParkRepo = CarParkRepository.getCarParkRepo(application);
+        nearbyQuery = carParkRepo.createNearbyQuery();
+        filterOptionsLiveData = carParkRepo.getFilterOptionsLive();
+        publicHolidayStore = PublicHolidayStore.getPublicHolidayStore(application);
+
+        // Build the filter bitsets in the background, so filtering and chip counts do not check car parks one by one
+        carParkRepo.getFilterEngineLive();
         locationRepo = LocationRepository.getLocationRepo(application);
         settingsManager = SettingsManager.getSettingsManager(application);
+        bookmarkStore = BookmarkStore.getBookmarkStore(application);
+        costEstimator = ParkingRateStore.getParkingRateStore(application).getEstimator();
 
         carParkApiLookupLive = carParkRepo.getCarParkApiLookupLive();
 
@@ -79,9 +149,11 @@ public class ListViewModel extends AndroidViewModel {
         // Obtain the location LiveData once
         locationLiveData = locationRepo.getLocationLiveData();
 
-        // Initialise radius from settings (default of 1000m)
-        float savedRadius = settingsManager.getRadiusValue();
-        radiusLiveData.setValue(savedRadius);
+        // Radius is shared with the other screens through settings (default of 1000m)
+        radiusLiveData = settingsManager.getRadiusLiveData();
+        vehicleClearanceLiveData = settingsManager.getVehicleClearanceLiveData();
+        unknownGantryIncludedLiveData = settingsManager.getUnknownGantryIncludedLiveData();
+        rankingLiveData = settingsManager.getRankingLiveData();
 
         // Initialise nearbyCarParks MediatorLiveData
         nearbyCarParksLiveData = new MediatorLiveData<>();
@@ -135,59 +207,197 @@ public class ListViewModel extends AndroidViewModel {
      */
     private void setupNearbyCarParksWithManualSwitching() {
 
-        nearbySearchParamsLiveData.addSource(activeLocationLiveData, location -> {
-            Float radius = radiusLiveData.getValue();
+        nearbySearchParamsLiveData.addSource(activeLocationLiveData, location -> updateNearbySearchParams());
+        nearbySearchParamsLiveData.addSource(radiusLiveData, radius -> updateNearbySearchParams());
 
-            if (location != null && radius != null) {
-                NearbySearchParams params = new NearbySearchParams(location, radius);
-                nearbySearchParamsLiveData.setValue(params);
-            } else {
-                nearbySearchParamsLiveData.setValue(null);
-            }
+        // Car parks too low for the vehicle are left out of the search itself
+        nearbySearchParamsLiveData.addSource(vehicleClearanceLiveData, clearance -> updateNearbySearchParams());
+        nearbySearchParamsLiveData.addSource(unknownGantryIncludedLiveData, isIncluded -> updateNearbySearchParams());
+
+        // Set up nearbyCarParksLiveData to observe nearbySearchParamsLiveData
+        nearbyCarParksLiveData.addSource(nearbySearchParamsLiveData, params -> {
+            submitNearbySearch(params);
         });
 
-        nearbySearchParamsLiveData.addSource(radiusLiveData, radius -> {
-            Location location = activeLocationLiveData.getValue();
+        // Results of the nearby search, only the first page is sorted until rows further down are bound
+        nearbyCarParksLiveData.addSource(nearbyQuery.getResultLiveData(), result -> {
+            nearbyResult = result != null ? result : NearbyCarParkResult.empty();
+            publishNearbyCarParks();
+        });
 
-            if (location != null && radius != null) {
-                NearbySearchParams params = new NearbySearchParams(location, radius);
-                nearbySearchParamsLiveData.setValue(params);
-            } else {
-                nearbySearchParamsLiveData.setValue(null);
+        // A filter change only re-filters the latest result
+        nearbyCarParksLiveData.addSource(filterOptionsLiveData, options -> {
+            if (!getFilter().equals(appliedFilter)) {
+                publishNearbyCarParks();
             }
         });
 
-        // Set up nearbyCarParksLiveData to observe nearbySearchParamsLiveData
-        nearbyCarParksLiveData.addSource(nearbySearchParamsLiveData, params -> {
-            switchToNewNearbyCarParksSource(params);
+        // A ranking change only reorders the published list, nothing is published before the first result
+        nearbyCarParksLiveData.addSource(rankingLiveData, ranking -> {
+            if (appliedRanking != null && !appliedRanking.equals(ranking)) {
+                publishRankedCarParks();
+            }
+        });
+
+        // New availability reorders the list when availability is part of the ranking
+        nearbyCarParksLiveData.addSource(carParkApiLookupLive, apiLookup -> {
+            if (appliedRanking != null && weightsOf(appliedRanking).getAvailability() > 0) {
+                publishRankedCarParks();
+            }
         });
     }
 
     /**
-     * Switch the LiveData source for nearby car parks based on parameters
+     * Publish the latest nearby result with the current attribute filter applied
+     */
+    private void publishNearbyCarParks() {
+        CarParkFilter filter = getFilter();
+        appliedFilter = filter;
+        publishedResult = carParkRepo.applyFilter(filter, nearbyResult);
+        publishCostEstimates();
+        publishRankedCarParks();
+    }
+
+    /**
+     * Publish the filtered nearby result in the order of the ranking chosen in settings
+     *
+     * Every ranking puts the best {@link #RANKED_COUNT} car parks of the {@link CarParkRanker} first with the weights
+     * of its preset, see {@link #weightsOf(int)}, the rest follow by distance. Without cost estimates the cheapest
+     * ranking falls back to distance
+     *
+     * A poll or estimate that leaves the ranking of the published list unchanged publishes nothing, the adapter
+     * updates the rows from the new availability on its own
+     */
+    private void publishRankedCarParks() {
+        int ranking = settingsManager.getRanking();
+        boolean isSameList = rankedSource == publishedResult && appliedRanking != null && appliedRanking == ranking;
+        appliedRanking = ranking;
+        rankedSource = publishedResult;
+        if (publishedResult.isEmpty()) {
+            rankedCount = 0;
+            nearbyCarParksLiveData.setValue(createPagedList(publishedResult));
+            return;
+        }
+
+        Map<String, CarParkApiData> apiLookup = carParkApiLookupLive.getValue();
+        int count = ranker.rank(weightsOf(ranking), publishedResult,
+                apiLookup != null ? apiLookup : Collections.emptyMap(),
+                settingsManager.getVehicleType() == SettingsManager.VEHICLE_MOTORCYCLE,
+                costEstimatesLiveData.getValue(), settingsManager.getVehicleClearance(), rankedSpare);
+        if (isSameList && isSameRanking(rankedSpare, count)) {
+            return;
+        }
+        int[] previous = rankedFirst;
+        rankedFirst = rankedSpare;
+        rankedSpare = previous;
+        rankedCount = count;
+        nearbyCarParksLiveData.setValue(createPagedList(publishedResult.reorder(rankedFirst, rankedCount)));
+    }
+
+    /**
+     * Return the ranker weights of a ranking chosen in settings
      *
-     * Detaches previous source and attaches new LiveData from repository
+     * @param ranking one of the {@code SettingsManager.RANKING_} constants
+     * @return the preset of the ranking, closest for unknown values
      */
-    private void switchToNewNearbyCarParksSource(NearbySearchParams params) {
+    private static CarParkRanker.Weights weightsOf(int ranking) {
+        switch (ranking) {
+            case SettingsManager.RANKING_MOST_AVAILABLE:
+                return CarParkRanker.MOST_AVAILABLE;
+            case SettingsManager.RANKING_CHEAPEST:
+                return CarParkRanker.CHEAPEST;
+            default:
+                return CarParkRanker.CLOSEST;
+        }
+    }
 
-        // Remove the previous source if it exists
-        if(currentNearbyCarParksSource != null) {
-            nearbyCarParksLiveData.removeSource(currentNearbyCarParksSource);
+    /**
+     * Return whether a new ranking puts the same car parks first in the same order as the published one
+     *
+     * @param first indices ranked first
+     * @param count number of indices ranked
+     * @return true if the published order is unchanged
+     */
+    private boolean isSameRanking(int[] first, int count) {
+        if (count != rankedCount) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (first[i] != rankedFirst[i]) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        if(params == null || params.getLocation() == null) {
-            nearbyCarParksLiveData.setValue(new ArrayList<>());
-            currentNearbyCarParksSource = null;
+    /**
+     * Estimate the cost of a stay from now at every car park of the published nearby list
+     *
+     * Estimates are computed per combination of rate tier and parking rules, so this stays cheap for a long list
+     */
+    private void publishCostEstimates() {
+        if (costEstimator == null || publishedResult.isEmpty()) {
+            costEstimatesLiveData.setValue(ParkingCostEstimator.Estimates.EMPTY);
             return;
         }
+        costEstimatesLiveData.setValue(costEstimator.estimate(publishedResult.getUnsorted(),
+                LocalDateTime.now(ParkingTime.ZONE), costDurationMinutes));
+    }
 
-        // Obtain new LiveData source from repository
-        currentNearbyCarParksSource = carParkRepo.getNearbyCarParks(params.getLocation(), params.getRadiusMeters());
+    /**
+     * Combine the active location, radius and vehicle clearance into the nearby search parameters
+     */
+    private void updateNearbySearchParams() {
+        Location location = activeLocationLiveData.getValue();
+        Float radius = radiusLiveData.getValue();
+
+        if (location != null && radius != null) {
+            NearbySearchParams params = new NearbySearchParams(location, radius, createClearanceFilter());
+            nearbySearchParamsLiveData.setValue(params);
+        } else {
+            nearbySearchParamsLiveData.setValue(null);
+        }
+    }
 
-        // Add the new source
-        nearbyCarParksLiveData.addSource(currentNearbyCarParksSource, carParks-> {
-            nearbyCarParksLiveData.setValue(carParks);
-        });
+    /**
+     * Build the filter of car parks whose gantry is high enough for the vehicle clearance in settings
+     *
+     * @return the clearance filter, {@link CarParkFilter#NONE} if no clearance is set
+     */
+    private CarParkFilter createClearanceFilter() {
+        Float clearance = vehicleClearanceLiveData.getValue();
+        Boolean isUnknownIncluded = unknownGantryIncludedLiveData.getValue();
+        if (clearance == null || clearance <= SettingsManager.CLEARANCE_NONE) {
+            return CarParkFilter.NONE;
+        }
+        return new CarParkFilter.Builder()
+                .minGantryHeight(clearance, isUnknownIncluded == null || isUnknownIncluded)
+                .build();
+    }
+
+    /**
+     * Submit a nearby search for the given parameters
+     *
+     * Searches are latest-wins, so rapid changes such as dragging the radius slider do not queue stale searches
+     */
+    private void submitNearbySearch(NearbySearchParams params) {
+        if (params == null || params.getLocation() == null) {
+            nearbyQuery.clear();
+            nearbyResult = NearbyCarParkResult.empty();
+            publishNearbyCarParks();
+            return;
+        }
+        nearbyQuery.submit(params.getLocation(), params.getRadiusMeters(), params.getFilter());
+    }
+
+    /**
+     * Wrap a nearby query result in a paged list using the list tab's paging configuration
+     *
+     * @param result the nearby query result
+     * @return a new {@link NearbyPagedList} with its first page loaded
+     */
+    private NearbyPagedList createPagedList(NearbyCarParkResult result) {
+        return new NearbyPagedList(result, PAGING_CONFIG, mainThreadExecutor);
     }
 
     // -------------------------
@@ -204,11 +414,11 @@ public class ListViewModel extends AndroidViewModel {
     }
 
     /**
-     * Expose the list of nearby car parks determined by mediators
+     * Expose the paged list of nearby car parks determined by mediators, sorted by ascending distance
      *
-     * @return LiveData list of {@link CarPark}
+     * @return LiveData of {@link NearbyPagedList}
      */
-    public LiveData<List<CarPark>> getNearbyCarParksLiveData() {
+    public LiveData<NearbyPagedList> getNearbyCarParksLiveData() {
         return nearbyCarParksLiveData;
     }
 
@@ -239,6 +449,15 @@ public class ListViewModel extends AndroidViewModel {
         return bookmarkLiveData;
     }
 
+    /**
+     * Expose the bookmarked car park numbers, emitted when bookmarks are loaded and on every change
+     *
+     * @return LiveData of unmodifiable sets of bookmarked car park numbers
+     */
+    public LiveData<Set<String>> getBookmarkedNumbersLiveData() {
+        return bookmarkStore.getBookmarksLiveData();
+    }
+
     // -------------------------
     // API
     // -------------------------
@@ -253,13 +472,6 @@ public class ListViewModel extends AndroidViewModel {
         return carParkRepo.getCarParkDataForId(carParkId);
     }
 
-    // -------------------------
-    // DB
-    // -------------------------
-    public void getCarParkByNumber(String carParkNumber, Consumer<CarPark> callback) {
-        carParkRepo.getCarParkByNumber(carParkNumber, callback);
-    }
-
     // -------------------------
     // Location Permission
     // -------------------------
@@ -325,16 +537,33 @@ public class ListViewModel extends AndroidViewModel {
     }
 
     /**
-     * Request the location repository to start updates with default interval and distance
+     * Hold location updates while the lifecycle of {@code owner} is started, they linger briefly after it stops so the
+     * other tab can take them over without a restart
+     *
+     * @param owner the fragment's view lifecycle owner
+     */
+    public void holdLocationUpdates(LifecycleOwner owner) {
+        locationRepo.holdLocationUpdates(owner);
+    }
+
+    /**
+     * Request the location repository to start updates, their interval follows the user's motion and the screen
      *
      * @return true if updates started or already active, false if permission not given
      */
     public boolean startLocationService() {
-        return locationRepo.startLocationUpdates(5000L, 10.0f);
+        return locationRepo.startLocationUpdates();
     }
 
     /**
-     * Stop location updates via location repository
+     * Tell the location repository that the list shows the location, so it adapts how often it asks for updates
+     */
+    public void setLocationScreen() {
+        locationRepo.setScreen(LocationUpdatePolicy.SCREEN_LIST);
+    }
+
+    /**
+     * Stop location updates via location repository right away, e.g. when the permission is revoked
      */
     public void stopLocationService() {
         locationRepo.stopUpdates();
@@ -362,6 +591,98 @@ public class ListViewModel extends AndroidViewModel {
         return settingsManager.getVehicleTypeLiveData();
     }
 
+    // -------------------------
+    // Attribute Filter
+    // -------------------------
+
+    /**
+     * Expose the filter options selected on the chips, the selection is shared with the map
+     *
+     * @return LiveData of a bitmask of {@link CarParkFilterOptions} constants
+     */
+    public LiveData<Integer> getFilterOptionsLiveData() {
+        return filterOptionsLiveData;
+    }
+
+    /**
+     * Return the attribute filter applied to the nearby list
+     *
+     * @return the filter of the selected options, {@link CarParkFilter#NONE} if nothing is filtered
+     */
+    public CarParkFilter getFilter() {
+        Integer options = filterOptionsLiveData.getValue();
+        return toFilter(options != null ? options : CarParkFilterOptions.NONE);
+    }
+
+    /**
+     * Select the filter options applied to the nearby list, the latest nearby result is filtered again without a new search
+     *
+     * @param options bitmask of {@link CarParkFilterOptions} constants, {@link CarParkFilterOptions#NONE} to show every car park
+     */
+    public void setFilterOptions(int options) {
+        carParkRepo.setFilterOptions(options);
+    }
+
+    /**
+     * Count the nearby car parks a selection of filter options would keep, e.g. to label an option before it is applied
+     *
+     * @param options bitmask of {@link CarParkFilterOptions} constants
+     * @return number of car parks of the latest nearby result matching the options
+     */
+    public int countMatching(int options) {
+        return carParkRepo.countMatching(toFilter(options), nearbyResult);
+    }
+
+    /**
+     * Build the filter of a selection, "now" options are checked at the current time
+     *
+     * @param options bitmask of {@link CarParkFilterOptions} constants
+     * @return the filter of the options
+     */
+    private CarParkFilter toFilter(int options) {
+        return CarParkFilterOptions.toFilter(options, publicHolidayStore.getParkingTimeNow());
+    }
+
+    // -------------------------
+    // Parking Cost
+    // -------------------------
+
+    /**
+     * Expose the estimated cost of a stay at each car park of the nearby list
+     *
+     * Costs are aligned with {@link NearbyCarParkResult#getUnsorted()} of the published result, rows look up their car
+     * park with {@link ParkingCostEstimator.Estimates#indexOf(String)}
+     *
+     * @return LiveData of the {@link ParkingCostEstimator.Estimates}, empty if no rate table could be read
+     */
+    public LiveData<ParkingCostEstimator.Estimates> getCostEstimatesLiveData() {
+        return costEstimatesLiveData;
+    }
+
+    /**
+     * Return the length of the stay that parking costs are estimated for
+     *
+     * @return length of the stay in minutes
+     */
+    public int getCostDurationMinutes() {
+        return costDurationMinutes;
+    }
+
+    /**
+     * Set the length of the stay that parking costs are estimated for, and estimate the nearby list again
+     *
+     * @param durationMinutes length of the stay in minutes
+     */
+    public void setCostDurationMinutes(int durationMinutes) {
+        if (durationMinutes != costDurationMinutes) {
+            costDurationMinutes = durationMinutes;
+            publishCostEstimates();
+            if (appliedRanking != null && weightsOf(appliedRanking).getCost() > 0) {
+                publishRankedCarParks();
+            }
+        }
+    }
+
     // -------------------------
     // Radius
     // -------------------------
@@ -381,7 +702,6 @@ public class ListViewModel extends AndroidViewModel {
      * @param radius radius in metres
      */
     public void setRadiusValue(float radius) {
-        radiusLiveData.setValue(radius);
         settingsManager.setRadiusValue(radius);
     }
 
@@ -451,7 +771,7 @@ public class ListViewModel extends AndroidViewModel {
      * @return true if bookmarked false otherwise
      */
     public boolean isBookmarked(String carParkNumber) {
-        return settingsManager.isBookmarked(carParkNumber);
+        return bookmarkStore.contains(carParkNumber);
     }
 
     /**
@@ -460,11 +780,17 @@ public class ListViewModel extends AndroidViewModel {
      * @param carParkNumber car park id to toggle
      */
     public void toggleBookmark(String carParkNumber) {
-        settingsManager.toggleBookmark(carParkNumber);
-        boolean isNowBookmarked = settingsManager.isBookmarked(carParkNumber);
+        boolean isNowBookmarked = bookmarkStore.toggle(carParkNumber);
 
         // Create event with both carParkNumber and bookmark status
         BookmarkChangeEvent event = new BookmarkChangeEvent(carParkNumber, isNowBookmarked);
         bookmarkLiveData.setValue(event);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        // Drop any nearby search still running for this screen
+        nearbyQuery.clear();
+    }
+}
@@ -42,15 +42,14 @@ import com.google.android.gms.maps.model.CircleOptions;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
-import com.google.android.libraries.places.api.Places;
 import com.google.android.libraries.places.api.model.Place;
-import com.google.android.libraries.places.api.net.PlacesClient;
 import com.google.android.libraries.places.widget.AutocompleteSupportFragment;
 import com.google.android.libraries.places.widget.listener.PlaceSelectionListener;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.slider.Slider;
 import com.google.android.material.snackbar.Snackbar;
 
+import com.jianan.parkwhere.ParkWhereApplication;
 import com.jianan.parkwhere.R;
 import com.jianan.parkwhere.data.local.CarPark;
 import com.jianan.parkwhere.data.model.CarParkApiData;
@@ -58,6 +57,8 @@ import com.jianan.parkwhere.data.model.CarParkInfo;
 import com.jianan.parkwhere.databinding.CustomLocationDialogBinding;
 import com.jianan.parkwhere.databinding.FragmentMapBinding;
 import com.jianan.parkwhere.util.ApiScheduler;
+import com.jianan.parkwhere.util.CarParkFilterOptions;
+import com.jianan.parkwhere.util.FilterChips;
 import com.jianan.parkwhere.util.PermissionUtils;
 
 import java.util.ArrayList;
@@ -119,9 +120,6 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         // Lifecycle owner is set for LiveData in XML
         binding.setLifecycleOwner(this);
 
-        // Initialise Places client
-        PlacesClient placesClient = Places.createClient(requireContext());
-
         return binding.getRoot();
     }
 
@@ -141,47 +139,24 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
             mapFragment.getMapAsync(this);
         }
 
-        // Configure Places search bar
-        searchBarFragment = (AutocompleteSupportFragment) getChildFragmentManager().findFragmentById(R.id.search_bar);
-        searchBarFragment.setPlaceFields(Arrays.asList(Place.Field.LOCATION, Place.Field.DISPLAY_NAME));
-        searchBarFragment.setOnPlaceSelectedListener(new PlaceSelectionListener() {
-            @Override
-            public void onPlaceSelected(@NonNull Place place) {
-                LatLng searchedLocation = place.getLocation();
-
-                if (searchedLocation != null) {
-                    // searchedLocation here is just a label, there is no purpose for it
-                    Location location = new Location("searchedLocation");
-                    location.setLatitude(searchedLocation.latitude);
-                    location.setLongitude(searchedLocation.longitude);
-                    mapViewModel.setSearchedLocation(location);
-
-                    // Show searched location on the search bar
-                    String displayText = place.getDisplayName() != null ? place.getDisplayName() : String.format("%.6f, %.6f", searchedLocation.latitude, searchedLocation.longitude);
-                    searchBarFragment.setText(displayText);
-                }
-            }
-
-            @Override
-            public void onError(@NonNull Status status) {
-                // Log.d(TAG, "Autocomplete Error: " + status);
-            }
-        });
-
-        searchBarFragment.getView().post(() -> setupSearchBarTextWatcher());
+        // The search bar is the only user of Places, it starts initialising Places in the background and is added once
+        // that finishes, without blocking the main thread
+        ParkWhereApplication.getStartup(requireContext()).whenFinished(ParkWhereApplication.STAGE_PLACES,
+                ContextCompat.getMainExecutor(requireContext()), () -> setupSearchBar(view));
 
         // Bind the button to the on click listener
         binding.buttonRecenterLocation.setOnClickListener(v -> handleLocationButtonClick());
         binding.buttonSearchRadius.setOnClickListener(v -> showRadiusBottomSheet());
 
+        // Filter chips select the options shared with the list
+        FilterChips.setup(binding.chipGroupFilters, mapViewModel::setFilterOptions);
+
         // Setup observers
         setupObservers();
 
-        // If first launch, call requestLocationPermission
-        // If location permission is already given (whereby the application is not running for the first time), start location update
-        if (!mapViewModel.getFirstLaunch() && mapViewModel.hasLocationPermission()) {
-            startLocationService();
-        }
+        // Hold location updates while the view is started, they start right away if location permission is already given
+        // On first launch they start once requestLocationPermission is answered
+        mapViewModel.holdLocationUpdates(getViewLifecycleOwner());
     }
 
     @Override
@@ -235,6 +210,9 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     public void onResume() {
         super.onResume();
 
+        // Location updates adapt to the screen showing them
+        mapViewModel.setLocationScreen();
+
         boolean hasLocationPermission = mapViewModel.hasLocationPermission();
         boolean isLocationUpdateCurrentlyActive = mapViewModel.isLocationServiceActive();
 
@@ -292,8 +270,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
                     currentPosition.zoom);
         }
 
-        mapViewModel.stopLocationService();
-
+        // The hold on location updates ends with the view, updates linger in case the list takes them over
         isObserversSetup = false;
         lastKnownLocation = null;
 
@@ -345,6 +322,22 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
                 showCustomSnackbar(message);
             }
         });
+
+        // Counts of the filter options follow the nearby car parks, the selection may also change on the list
+        mapViewModel.getNearbyCarParksLiveData().observe(getViewLifecycleOwner(), nearbyCarParkList -> bindFilterChips());
+        mapViewModel.getFilterOptionsLiveData().observe(getViewLifecycleOwner(), options -> bindFilterChips());
+    }
+
+    /**
+     * Show the selected filter options and how many nearby car parks each of them keeps
+     */
+    private void bindFilterChips() {
+        if (binding == null) {
+            return;
+        }
+        Integer options = mapViewModel.getFilterOptionsLiveData().getValue();
+        FilterChips.bind(binding.chipGroupFilters, options != null ? options : CarParkFilterOptions.NONE,
+                mapViewModel::countMatching);
     }
 
     /**
@@ -420,6 +413,52 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         });
     }
 
+    /**
+     * Add and configure the Places autocomplete search bar, called on the main thread once Places is initialised
+     *
+     * @param view root view the callback was registered for, nothing is done if it has been destroyed since
+     */
+    private void setupSearchBar(View view) {
+        if (getView() != view) {
+            return;
+        }
+
+        // A search bar restored with the child fragments is reused
+        searchBarFragment = (AutocompleteSupportFragment) getChildFragmentManager().findFragmentById(R.id.search_bar);
+        if (searchBarFragment == null) {
+            searchBarFragment = AutocompleteSupportFragment.newInstance();
+            getChildFragmentManager().beginTransaction()
+                    .replace(R.id.search_bar, searchBarFragment)
+                    .commitNowAllowingStateLoss();
+        }
+        searchBarFragment.setPlaceFields(Arrays.asList(Place.Field.LOCATION, Place.Field.DISPLAY_NAME));
+        searchBarFragment.setOnPlaceSelectedListener(new PlaceSelectionListener() {
+            @Override
+            public void onPlaceSelected(@NonNull Place place) {
+                LatLng searchedLocation = place.getLocation();
+
+                if (searchedLocation != null) {
+                    // searchedLocation here is just a label, there is no purpose for it
+                    Location location = new Location("searchedLocation");
+                    location.setLatitude(searchedLocation.latitude);
+                    location.setLongitude(searchedLocation.longitude);
+                    mapViewModel.setSearchedLocation(location);
+
+                    // Show searched location on the search bar
+                    String displayText = place.getDisplayName() != null ? place.getDisplayName() : String.format("%.6f, %.6f", searchedLocation.latitude, searchedLocation.longitude);
+                    searchBarFragment.setText(displayText);
+                }
+            }
+
+            @Override
+            public void onError(@NonNull Status status) {
+                // Log.d(TAG, "Autocomplete Error: " + status);
+            }
+        });
+
+        view.post(() -> setupSearchBarTextWatcher());
+    }
+
     /**
      * Configure a text watcher on the Places autocomplete search input to clear searched location when emptied
      */
@@ -779,7 +818,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
 
             // Format and set last updated time
             if (apiData.getUpdateDateTime() != null) {
-                String updateTime = mapViewModel.formatUpdateTime(apiData.getUpdateDateTime());
+                String updateTime = mapViewModel.formatUpdateTime(apiData.getUpdateTimeMillis());
                 textLastUpdated.setText(updateTime);
                 textLastUpdated.setVisibility(View.VISIBLE);
             } else {
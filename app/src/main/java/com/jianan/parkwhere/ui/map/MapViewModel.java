@@ -6,34 +6,36 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.jianan.parkwhere.data.local.CarPark;
 import com.jianan.parkwhere.data.model.CarParkApiData;
+import com.jianan.parkwhere.data.repository.BookmarkStore;
 import com.jianan.parkwhere.data.preferences.SettingsManager;
 import com.jianan.parkwhere.data.repository.CarParkRepository;
 import com.jianan.parkwhere.data.repository.LocationRepository;
+import com.jianan.parkwhere.data.repository.NearbyCarParkQuery;
+import com.jianan.parkwhere.data.repository.PublicHolidayStore;
 import com.jianan.parkwhere.ui.list.ListViewModel;
 import com.jianan.parkwhere.util.ApiScheduler;
+import com.jianan.parkwhere.util.CarParkFilter;
+import com.jianan.parkwhere.util.CarParkFilterOptions;
 import com.jianan.parkwhere.util.GeoUtils;
+import com.jianan.parkwhere.util.LocationUpdatePolicy;
+import com.jianan.parkwhere.util.NearbyCarParkResult;
 import com.jianan.parkwhere.util.NearbySearchParams;
 import com.jianan.parkwhere.util.PermissionUtils;
+import com.jianan.parkwhere.util.RelativeTimeFormatter;
 import com.jianan.parkwhere.util.SingleLiveEvent;
 
 import org.apache.commons.lang3.mutable.Mutable;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Consumer;
 
 /**
  * ViewModel for the map fragment that handles map state distances and UI events
@@ -47,6 +49,7 @@ public class MapViewModel extends AndroidViewModel {
     private final CarParkRepository carParkRepo;
     private final LocationRepository locationRepo;
     private final SettingsManager settingsManager;
+    private final BookmarkStore bookmarkStore;
 
     // API data
     private final LiveData<Map<String, CarParkApiData>> carParkApiLookupLive;
@@ -61,10 +64,19 @@ public class MapViewModel extends AndroidViewModel {
     private final MediatorLiveData<Location> activeLocationLiveData = new MediatorLiveData<>();
 
     // Search parameters
-    private final MutableLiveData<Float> radiusLiveData = new MutableLiveData<>();
+    private final LiveData<Float> radiusLiveData;
+
+    // Track the vehicle clearance, car parks with a lower gantry are left out of the search
+    private final LiveData<Float> vehicleClearanceLiveData;
+    private final LiveData<Boolean> unknownGantryIncludedLiveData;
     private final MediatorLiveData<NearbySearchParams> nearbySearchParamsLiveData = new MediatorLiveData<>();
     private final MediatorLiveData<List<CarPark>> nearbyCarParksLiveData;
-    private LiveData<List<CarPark>> currentNearbyCarParksSource = null; // Used to pass information to nearbyCarParksLiveData be manually detaching and attaching
+    private final NearbyCarParkQuery nearbyQuery; // Latest-wins nearby search, superseded search parameters are skipped
+
+    // Filter options selected on the chips, shared with the list, and the latest unfiltered nearby result they apply to
+    private final LiveData<Integer> filterOptionsLiveData;
+    private final PublicHolidayStore publicHolidayStore; // Time of the "now" options, with its public holiday flags
+    private NearbyCarParkResult nearbyResult = NearbyCarParkResult.empty();
 
     // UI Events
     private final SingleLiveEvent<BookmarkChangeEvent> bookmarkLiveData = new SingleLiveEvent<>();
@@ -86,8 +98,15 @@ public class MapViewModel extends AndroidViewModel {
         super(application);
 
         carParkRepo = CarParkRepository.getCarParkRepo(application);
+        nearbyQuery = carParkRepo.createNearbyQuery();
+        filterOptionsLiveData = carParkRepo.getFilterOptionsLive();
+        publicHolidayStore = PublicHolidayStore.getPublicHolidayStore(application);
+
+        // Build the filter bitsets in the background, so filtering and chip counts do not check car parks one by one
+        carParkRepo.getFilterEngineLive();
         locationRepo = LocationRepository.getLocationRepo(application);
         settingsManager = SettingsManager.getSettingsManager(application);
+        bookmarkStore = BookmarkStore.getBookmarkStore(application);
 
         carParkApiLookupLive = carParkRepo.getCarParkApiLookupLive();
 
@@ -98,9 +117,10 @@ public class MapViewModel extends AndroidViewModel {
         // Obtain the location LiveData once
         locationLiveData = locationRepo.getLocationLiveData();
 
-        // Initialise radius from settings (default of 1000m)
-        float savedRadius = settingsManager.getRadiusValue();
-        radiusLiveData.setValue(savedRadius);
+        // Radius is shared with the other screens through settings (default of 1000m)
+        radiusLiveData = settingsManager.getRadiusLiveData();
+        vehicleClearanceLiveData = settingsManager.getVehicleClearanceLiveData();
+        unknownGantryIncludedLiveData = settingsManager.getUnknownGantryIncludedLiveData();
 
         // Initialise nearbyCarParks MediatorLiveData
         nearbyCarParksLiveData = new MediatorLiveData<>();
@@ -158,32 +178,33 @@ public class MapViewModel extends AndroidViewModel {
      * Combine active location and radius and switch LiveData sources manually
      */
     private void setupNearbyCarParksWithManualSwitching() {
-        nearbySearchParamsLiveData.addSource(activeLocationLiveData, location -> {
-            Float radius = radiusLiveData.getValue();
+        nearbySearchParamsLiveData.addSource(activeLocationLiveData, location -> updateNearbySearchParams());
+        nearbySearchParamsLiveData.addSource(radiusLiveData, radius -> updateNearbySearchParams());
 
-            if (location != null && radius != null) {
-                NearbySearchParams params = new NearbySearchParams(location, radius);
-                nearbySearchParamsLiveData.setValue(params);
-            } else {
-                nearbySearchParamsLiveData.setValue(null);
-            }
-        });
-
-        nearbySearchParamsLiveData.addSource(radiusLiveData, radius -> {
-            Location location = activeLocationLiveData.getValue();
-
-            if (location != null && radius != null) {
-                NearbySearchParams params = new NearbySearchParams(location, radius);
-                nearbySearchParamsLiveData.setValue(params);
-            } else {
-                nearbySearchParamsLiveData.setValue(null);
-            }
-        });
+        // Car parks too low for the vehicle are left out of the search itself
+        nearbySearchParamsLiveData.addSource(vehicleClearanceLiveData, clearance -> updateNearbySearchParams());
+        nearbySearchParamsLiveData.addSource(unknownGantryIncludedLiveData, isIncluded -> updateNearbySearchParams());
 
         // Set up nearbyCarParksLiveData to observe nearbySearchParamsLiveData
         nearbyCarParksLiveData.addSource(nearbySearchParamsLiveData, params -> {
-            switchToNewNearbyCarParksSource(params);
+            submitNearbySearch(params);
         });
+
+        // Results of the nearby search, markers need every car park but not their order so the result is never sorted here
+        nearbyCarParksLiveData.addSource(nearbyQuery.getResultLiveData(), result -> {
+            nearbyResult = result != null ? result : NearbyCarParkResult.empty();
+            publishNearbyCarParks();
+        });
+
+        // A filter change only re-filters the latest result
+        nearbyCarParksLiveData.addSource(filterOptionsLiveData, options -> publishNearbyCarParks());
+    }
+
+    /**
+     * Publish the car parks of the latest nearby result that pass the selected filter options
+     */
+    private void publishNearbyCarParks() {
+        nearbyCarParksLiveData.setValue(carParkRepo.applyFilter(getFilter(), nearbyResult).getUnsorted());
     }
 
     /**
@@ -219,29 +240,49 @@ public class MapViewModel extends AndroidViewModel {
     }
 
     /**
-     * Switch the LiveData source for nearby car parks based on parameters
-     *
-     * Detaches previous source and attaches new LiveData from repository
+     * Combine the active location, radius and vehicle clearance into the nearby search parameters
      */
-    private void switchToNewNearbyCarParksSource(NearbySearchParams params) {
+    private void updateNearbySearchParams() {
+        Location location = activeLocationLiveData.getValue();
+        Float radius = radiusLiveData.getValue();
 
-        // Remove the previous source if it exists
-        if (currentNearbyCarParksSource != null) {
-            nearbyCarParksLiveData.removeSource(currentNearbyCarParksSource);
+        if (location != null && radius != null) {
+            NearbySearchParams params = new NearbySearchParams(location, radius, createClearanceFilter());
+            nearbySearchParamsLiveData.setValue(params);
+        } else {
+            nearbySearchParamsLiveData.setValue(null);
         }
+    }
 
+    /**
+     * Build the filter of car parks whose gantry is high enough for the vehicle clearance in settings
+     *
+     * @return the clearance filter, {@link CarParkFilter#NONE} if no clearance is set
+     */
+    private CarParkFilter createClearanceFilter() {
+        Float clearance = vehicleClearanceLiveData.getValue();
+        Boolean isUnknownIncluded = unknownGantryIncludedLiveData.getValue();
+        if (clearance == null || clearance <= SettingsManager.CLEARANCE_NONE) {
+            return CarParkFilter.NONE;
+        }
+        return new CarParkFilter.Builder()
+                .minGantryHeight(clearance, isUnknownIncluded == null || isUnknownIncluded)
+                .build();
+    }
+
+    /**
+     * Submit a nearby search for the given parameters
+     *
+     * Searches are latest-wins, so rapid changes such as dragging the radius slider do not queue stale searches
+     */
+    private void submitNearbySearch(NearbySearchParams params) {
         if (params == null || params.getLocation() == null) {
-            nearbyCarParksLiveData.setValue(new ArrayList<>());
-            currentNearbyCarParksSource = null;
+            nearbyQuery.clear();
+            nearbyResult = NearbyCarParkResult.empty();
+            publishNearbyCarParks();
             return;
         }
-        // Obtain new LiveData source from repository
-        currentNearbyCarParksSource = carParkRepo.getNearbyCarParks(params.getLocation(), params.getRadiusMeters());
-
-        // Add the new source
-        nearbyCarParksLiveData.addSource(currentNearbyCarParksSource, carParks -> {
-            nearbyCarParksLiveData.setValue(carParks);
-        });
+        nearbyQuery.submit(params.getLocation(), params.getRadiusMeters(), params.getFilter());
     }
 
     // -------------------------
@@ -334,13 +375,6 @@ public class MapViewModel extends AndroidViewModel {
         return carParkRepo.getCarParkDataForId(carParkId);
     }
 
-    // -------------------------
-    // DB
-    // -------------------------
-    public void getCarParkByNumber(String carParkNumber, Consumer<CarPark> callback) {
-        carParkRepo.getCarParkByNumber(carParkNumber, callback);
-    }
-
     // -------------------------
     // Location Permission
     // -------------------------
@@ -406,16 +440,33 @@ public class MapViewModel extends AndroidViewModel {
     }
 
     /**
-     * Request the location repository to start updates with default interval and distance
+     * Hold location updates while the lifecycle of {@code owner} is started, they linger briefly after it stops so the
+     * other tab can take them over without a restart
+     *
+     * @param owner the fragment's view lifecycle owner
+     */
+    public void holdLocationUpdates(LifecycleOwner owner) {
+        locationRepo.holdLocationUpdates(owner);
+    }
+
+    /**
+     * Request the location repository to start updates, their interval follows the user's motion and the screen
      *
      * @return true if updates started or already active, false if permission not given
      */
     public boolean startLocationService() {
-        return locationRepo.startLocationUpdates(5000L, 10.0f);
+        return locationRepo.startLocationUpdates();
     }
 
     /**
-     * Stop location updates via location repository
+     * Tell the location repository that the map shows the location, so it adapts how often it asks for updates
+     */
+    public void setLocationScreen() {
+        locationRepo.setScreen(LocationUpdatePolicy.SCREEN_MAP);
+    }
+
+    /**
+     * Stop location updates via location repository right away, e.g. when the permission is revoked
      */
     public void stopLocationService() {
         locationRepo.stopUpdates();
@@ -462,6 +513,58 @@ public class MapViewModel extends AndroidViewModel {
         return settingsManager.getVehicleTypeLiveData();
     }
 
+    // -------------------------
+    // Attribute Filter
+    // -------------------------
+
+    /**
+     * Expose the filter options selected on the chips, the selection is shared with the list
+     *
+     * @return LiveData of a bitmask of {@link CarParkFilterOptions} constants
+     */
+    public LiveData<Integer> getFilterOptionsLiveData() {
+        return filterOptionsLiveData;
+    }
+
+    /**
+     * Return the attribute filter applied to the markers
+     *
+     * @return the filter of the selected options, {@link CarParkFilter#NONE} if nothing is filtered
+     */
+    public CarParkFilter getFilter() {
+        Integer options = filterOptionsLiveData.getValue();
+        return toFilter(options != null ? options : CarParkFilterOptions.NONE);
+    }
+
+    /**
+     * Select the filter options applied to the markers, the latest nearby result is filtered again without a new search
+     *
+     * @param options bitmask of {@link CarParkFilterOptions} constants, {@link CarParkFilterOptions#NONE} to show every car park
+     */
+    public void setFilterOptions(int options) {
+        carParkRepo.setFilterOptions(options);
+    }
+
+    /**
+     * Count the nearby car parks a selection of filter options would keep, e.g. to label an option before it is applied
+     *
+     * @param options bitmask of {@link CarParkFilterOptions} constants
+     * @return number of car parks of the latest nearby result matching the options
+     */
+    public int countMatching(int options) {
+        return carParkRepo.countMatching(toFilter(options), nearbyResult);
+    }
+
+    /**
+     * Build the filter of a selection, "now" options are checked at the current time
+     *
+     * @param options bitmask of {@link CarParkFilterOptions} constants
+     * @return the filter of the options
+     */
+    private CarParkFilter toFilter(int options) {
+        return CarParkFilterOptions.toFilter(options, publicHolidayStore.getParkingTimeNow());
+    }
+
     // -------------------------
     // Radius
     // -------------------------
@@ -481,7 +584,6 @@ public class MapViewModel extends AndroidViewModel {
      * @param radius radius in metres
      */
     public void setRadiusValue(float radius) {
-        radiusLiveData.setValue(radius);
         settingsManager.setRadiusValue(radius);
     }
 
@@ -537,7 +639,7 @@ public class MapViewModel extends AndroidViewModel {
      * @return true if bookmarked false otherwise
      */
     public boolean isBookmarked(String carParkNumber) {
-        return settingsManager.isBookmarked(carParkNumber);
+        return bookmarkStore.contains(carParkNumber);
     }
 
     /**
@@ -546,8 +648,7 @@ public class MapViewModel extends AndroidViewModel {
      * @param carParkNumber car park id to toggle
      */
     public void toggleBookmark(String carParkNumber) {
-        settingsManager.toggleBookmark(carParkNumber);
-        boolean isNowBookmarked = settingsManager.isBookmarked(carParkNumber);
+        boolean isNowBookmarked = bookmarkStore.toggle(carParkNumber);
 
         BookmarkChangeEvent event = new BookmarkChangeEvent(carParkNumber, isNowBookmarked);
         bookmarkLiveData.setValue(event);
@@ -718,43 +819,19 @@ public class MapViewModel extends AndroidViewModel {
     // -------------------------
 
     /**
-     * Format API timestamp string into a short human friendly relative time string
+     * Format the API update time into a short human friendly relative time string
      *
-     * @param timestamp ISO style timestamp in pattern yyyy-MM-dd'T'HH:mm:ss in Asia/Singapore timezone
+     * @param updateTimeMillis update time in epoch milliseconds as parsed at ingest
      * @return human readable relative update string
      */
-    public String formatUpdateTime(String timestamp) {
-        try {
-            // Parse the timestamp as local Singapore time
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
-            LocalDateTime localUpdateTime = LocalDateTime.parse(timestamp, formatter);
-
-            // Attach GMT+8 zone (Asia/Singapore)
-            ZonedDateTime updateTime = localUpdateTime.atZone(ZoneId.of("Asia/Singapore"));
-
-            // Get current time in GMT+8
-            ZonedDateTime now = ZonedDateTime.now(ZoneId.of("Asia/Singapore"));
-
-            Duration duration = Duration.between(updateTime, now);
-
-            long minutes = duration.toMinutes();
-            long hours = duration.toHours();
-            long days = duration.toDays();
-
-            // Return formatted "Updated x ago"
-            if (minutes < 1) {
-                return "Updated just now";
-            } else if (minutes < 60) {
-                return String.format("Updated %d minute%s ago", minutes, minutes > 1 ? "s" : "");
-            } else if (hours < 24) {
-                return String.format("Updated %d hour%s ago", hours, hours > 1 ? "s" : "");
-            } else {
-                return String.format("Updated %d day%s ago", days, days > 1 ? "s" : "");
-            }
+    public String formatUpdateTime(long updateTimeMillis) {
+        return RelativeTimeFormatter.getInstance().format(updateTimeMillis);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "Updated recently";
-        }
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        // Drop any nearby search still running for this screen
+        nearbyQuery.clear();
     }
-}
\ No newline at end of file
+}
@@ -21,7 +21,7 @@ import com.jianan.parkwhere.ui.map.MapViewModel;
 
 /**
  * Fragment that handles application settings
- * Provides UI for selecting vehicle type, theme mode and displaying device info
+ * Provides UI for selecting vehicle type, vehicle clearance, nearby ranking, theme mode and displaying device info
  */
 public class SettingsFragment extends CustomFragment {
 
@@ -29,6 +29,11 @@ public class SettingsFragment extends CustomFragment {
     private FragmentSettingsBinding binding;
     private SettingsViewModel settingsViewModel;
 
+    // Clearance options in metres, in the order of the clearance toggle group buttons
+    private static final float CLEARANCE_2_0 = 2.0f;
+    private static final float CLEARANCE_2_2 = 2.2f;
+    private static final float CLEARANCE_2_5 = 2.5f;
+
     // Change onCreateView with inflateFragmentLayout or vice versa
     @Override
     public View inflateFragmentLayout(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -68,10 +73,12 @@ public class SettingsFragment extends CustomFragment {
     }
 
     /**
-     * Sets the initial toggle states for vehicle type and theme based on saved preferences
+     * Sets the initial toggle states for vehicle type, clearance, ranking and theme based on saved preferences
      */
     private void setupInitialButtonToggleGroupStates () {
         int currentVehicleType = settingsViewModel.getCurrentVehicleType();
+        float currentClearance = settingsViewModel.getCurrentVehicleClearance();
+        int currentRanking = settingsViewModel.getCurrentRanking();
         int currentThemeMode = settingsViewModel.getCurrentThemeMode();
 
         switch (currentVehicleType) {
@@ -86,6 +93,30 @@ public class SettingsFragment extends CustomFragment {
                 break;
         }
 
+        if (currentClearance >= CLEARANCE_2_5) {
+            binding.clearanceToggleGroup.check(R.id.button_clearance_2_5);
+        } else if (currentClearance >= CLEARANCE_2_2) {
+            binding.clearanceToggleGroup.check(R.id.button_clearance_2_2);
+        } else if (currentClearance >= CLEARANCE_2_0) {
+            binding.clearanceToggleGroup.check(R.id.button_clearance_2_0);
+        } else {
+            binding.clearanceToggleGroup.check(R.id.button_clearance_any);
+        }
+        binding.switchUnknownGantry.setChecked(settingsViewModel.isUnknownGantryIncluded());
+        binding.switchUnknownGantry.setEnabled(currentClearance > SettingsViewModel.CLEARANCE_NONE);
+
+        switch (currentRanking) {
+            case SettingsViewModel.RANKING_MOST_AVAILABLE:
+                binding.rankingToggleGroup.check(R.id.button_ranking_available);
+                break;
+            case SettingsViewModel.RANKING_CHEAPEST:
+                binding.rankingToggleGroup.check(R.id.button_ranking_cheapest);
+                break;
+            default:
+                binding.rankingToggleGroup.check(R.id.button_ranking_closest);
+                break;
+        }
+
         switch(currentThemeMode) {
             case SettingsViewModel.THEME_LIGHT:
                 binding.appearanceToggleGroup.check(R.id.button_light);
@@ -100,7 +131,7 @@ public class SettingsFragment extends CustomFragment {
     }
 
     /**
-     * Sets up listeners for vehicle type and theme toggle groups
+     * Sets up listeners for vehicle type, clearance, ranking and theme toggle groups
      * Updates the ViewModel when the user makes a selection
      */
     private void setupOnClickListeners() {
@@ -119,6 +150,44 @@ public class SettingsFragment extends CustomFragment {
             }
         });
 
+        // Vehicle clearance button toggle group
+        binding.clearanceToggleGroup.addOnButtonCheckedListener((group, checkedId, isChecked) -> {
+            if (isChecked) {
+                float clearance;
+                if (checkedId == R.id.button_clearance_2_0) {
+                    clearance = CLEARANCE_2_0;
+                } else if (checkedId == R.id.button_clearance_2_2) {
+                    clearance = CLEARANCE_2_2;
+                } else if (checkedId == R.id.button_clearance_2_5) {
+                    clearance = CLEARANCE_2_5;
+                } else {
+                    clearance = SettingsViewModel.CLEARANCE_NONE;
+                }
+                settingsViewModel.setVehicleClearance(clearance);
+
+                // Unknown heights only matter once a clearance is set
+                binding.switchUnknownGantry.setEnabled(clearance > SettingsViewModel.CLEARANCE_NONE);
+            }
+        });
+
+        binding.switchUnknownGantry.setOnCheckedChangeListener((button, isChecked) ->
+                settingsViewModel.setUnknownGantryIncluded(isChecked));
+
+        // Nearby ranking button toggle group
+        binding.rankingToggleGroup.addOnButtonCheckedListener((group, checkedId, isChecked) -> {
+            if (isChecked) {
+                int ranking;
+                if (checkedId == R.id.button_ranking_available) {
+                    ranking = SettingsViewModel.RANKING_MOST_AVAILABLE;
+                } else if (checkedId == R.id.button_ranking_cheapest) {
+                    ranking = SettingsViewModel.RANKING_CHEAPEST;
+                } else {
+                    ranking = SettingsViewModel.RANKING_CLOSEST;
+                }
+                settingsViewModel.setRanking(ranking);
+            }
+        });
+
         // Appearance button toggle group
         binding.appearanceToggleGroup.addOnButtonCheckedListener((group, checkedId, isChecked) -> {
             if (isChecked) {
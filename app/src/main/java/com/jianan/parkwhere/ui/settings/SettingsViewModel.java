@@ -24,6 +24,12 @@ public class SettingsViewModel extends AndroidViewModel {
     public static final int VEHICLE_CAR = SettingsManager.VEHICLE_CAR;
     public static final int VEHICLE_MOTORCYCLE = SettingsManager.VEHICLE_MOTORCYCLE;
 
+    public static final float CLEARANCE_NONE = SettingsManager.CLEARANCE_NONE;
+
+    public static final int RANKING_CLOSEST = SettingsManager.RANKING_CLOSEST;
+    public static final int RANKING_MOST_AVAILABLE = SettingsManager.RANKING_MOST_AVAILABLE;
+    public static final int RANKING_CHEAPEST = SettingsManager.RANKING_CHEAPEST;
+
     public static final int THEME_SYSTEM = SettingsManager.THEME_SYSTEM;
     public static final int THEME_LIGHT = SettingsManager.THEME_LIGHT;
     public static final int THEME_DARK = SettingsManager.THEME_DARK;
@@ -47,6 +53,48 @@ public class SettingsViewModel extends AndroidViewModel {
         settingsManager.setVehicleType(vehicleType);
     }
 
+    /**
+     * Returns the currently saved vehicle clearance in metres
+     */
+    public float getCurrentVehicleClearance() {
+        return settingsManager.getVehicleClearance();
+    }
+
+    /**
+     * Saves the selected vehicle clearance in metres
+     */
+    public void setVehicleClearance(float vehicleClearance) {
+        settingsManager.setVehicleClearance(vehicleClearance);
+    }
+
+    /**
+     * Returns whether car parks of unknown gantry height are kept when a clearance is set
+     */
+    public boolean isUnknownGantryIncluded() {
+        return settingsManager.isUnknownGantryIncluded();
+    }
+
+    /**
+     * Saves whether car parks of unknown gantry height are kept when a clearance is set
+     */
+    public void setUnknownGantryIncluded(boolean isUnknownGantryIncluded) {
+        settingsManager.setUnknownGantryIncluded(isUnknownGantryIncluded);
+    }
+
+    /**
+     * Returns the currently saved ranking of the nearby list
+     */
+    public int getCurrentRanking() {
+        return settingsManager.getRanking();
+    }
+
+    /**
+     * Saves the selected ranking of the nearby list
+     */
+    public void setRanking(int ranking) {
+        settingsManager.setRanking(ranking);
+    }
+
     /**
      * Returns the currently saved theme mode
      */
@@ -1,44 +1,60 @@
 package com.jianan.parkwhere.util;
 
 import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.jianan.parkwhere.R;
 import com.jianan.parkwhere.data.local.CarPark;
 import com.jianan.parkwhere.data.model.CarParkApiData;
-import com.jianan.parkwhere.data.model.CarParkInfo;
 import com.jianan.parkwhere.data.preferences.SettingsManager;
 import com.jianan.parkwhere.databinding.ItemCarParkBinding;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * Adapter for displaying a list of {@link CarPark} items in a RecyclerView
  *
- * Provides partial bind updates using payloads to minimise UI work on updates
- * - PAYLOAD_API_DATA indicates an API data only update
- * - PAYLOAD_LOCATION indicates a location only update
- * - PAYLOAD_BOOKMARK indicates a bookmark state update
- * - PAYLOAD_VEHICLE_TYPE indicates a vehicle type filter update
+ * Every change of input (the car park list, API data, user location or the bookmarks) updates the immutable
+ * {@link CarParkRow} models on a background thread and submits them to an {@link AsyncListDiffer}. Rows whose inputs
+ * did not change are carried over as they are, so only affected rows are rebuilt. The diff also runs in the
+ * background and reports which parts of each row changed, so rows are rebound partially with payloads
+ * - CHANGE_DISTANCE indicates a location only update
+ * - CHANGE_AVAILABILITY indicates an API data only update
+ * - CHANGE_BOOKMARK indicates a bookmark state update
+ * - CHANGE_COST indicates a new cost estimate, e.g. after the length of the stay changed
+ * - PAYLOAD_VEHICLE_TYPE indicates a vehicle type filter update, the filter is applied at bind time
+ * - PAYLOAD_UPDATE_TIME refreshes the "Updated N minutes ago" label on every minute tick of {@link RelativeTimeFormatter}
  *
  * The adapter supports optional distance display that is used by bookmarks and a listener interface for bookmark interactions
+ *
+ * Two kinds of lists can be shown
+ * - A plain list via {@link #submitList(List)}
+ * - A {@link NearbyPagedList} via {@link #submitPagedList(NearbyPagedList)}, rows are loaded as they are bound and only
+ *   loaded car parks get a row, so without placeholders the diff covers the rows scrolled through instead of the radius
  */
-public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkViewHolder>{
+public class CarParkAdapter extends RecyclerView.Adapter<CarParkAdapter.CarParkViewHolder> {
 
     // private static final String TAG = "CarParkAdapter";
     private Map<String, CarParkApiData> carParkApiData;
@@ -46,21 +62,54 @@ public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkV
     private OnCarParkClickListener clickListener;
     private boolean showDistance = true; // Used to control distance visibility
     private int currentVehicleType = SettingsManager.VEHICLE_BOTH; // Default value
+    private Set<String> bookmarkedNumbers = Collections.emptySet(); // Immutable snapshot, safe to read in the background
+    private ParkingCostEstimator.Estimates costEstimates = ParkingCostEstimator.Estimates.EMPTY;
 
-    private static final String PAYLOAD_API_DATA = "api_data";
-    private static final String PAYLOAD_LOCATION = "location";
-    private static final String PAYLOAD_BOOKMARK = "bookmark";
     private static final String PAYLOAD_VEHICLE_TYPE = "vehicle_type";
+    private static final String PAYLOAD_UPDATE_TIME = "update_time";
+
+    // Rows are built and diffed in order on one background thread shared by every adapter
+    private static final Executor ROW_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final AsyncListDiffer<CarParkRow> differ = new AsyncListDiffer<>(
+            new AdapterListUpdateCallback(this),
+            new AsyncDifferConfig.Builder<>(ROW_DIFF_CALLBACK).setBackgroundThreadExecutor(ROW_EXECUTOR).build());
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Source of the rows, either a plain list or a paged list
+    private List<CarPark> sourceList = Collections.emptyList();
+    private NearbyPagedList pagedList;
+    private final NearbyPagedList.Callback pagedListCallback = new NearbyPagedList.Callback() {
+        @Override
+        public void onChanged(int position, int count) {
+            refreshRows();
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            refreshRows();
+        }
+    };
+
+    // Incremented on every rebuild so that an older rebuild is never submitted after a newer one
+    private int rowGeneration = 0;
+
+    // Rows and location of the last rebuild, only touched on ROW_EXECUTOR
+    private List<CarParkRow> builtRows = Collections.emptyList();
+    private Location builtLocation;
+
+    // Rebinds only the update time labels, RecyclerView skips rows that are not attached
+    private final Runnable minuteTickListener = () -> notifyItemRangeChanged(0, getItemCount(), PAYLOAD_UPDATE_TIME);
 
     /**
-     * Listener interface to handle bookmark click events and bookmark state checks
+     * Listener interface to handle bookmark click events
      *
-     * Implementations should handle bookmark toggling and return whether a car park is bookmarked
+     * Implementations should handle bookmark toggling, the new bookmarks are passed back through
+     * {@link #updateBookmarks(Set)}
      */
     public interface OnCarParkClickListener {
 
         void onBookmarkClick(CarPark carPark);
-        boolean isCarParkBookmarked(String carParkNumber);
     }
 
     /**
@@ -69,19 +118,24 @@ public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkV
      * @param showDistance if true distance will be displayed for each item if a user location is available
      */
     public CarParkAdapter(boolean showDistance) {
-        super(DIFF_CALLBACK);
         this.showDistance = showDistance;
     }
 
-    private static final DiffUtil.ItemCallback<CarPark> DIFF_CALLBACK = new DiffUtil.ItemCallback<CarPark>() {
+    private static final DiffUtil.ItemCallback<CarParkRow> ROW_DIFF_CALLBACK = new DiffUtil.ItemCallback<CarParkRow>() {
         @Override
-        public boolean areItemsTheSame(@NonNull CarPark oldItem, @NonNull CarPark newItem) {
-            return oldItem.getCarParkNumber().equals(newItem.getCarParkNumber());
+        public boolean areItemsTheSame(@NonNull CarParkRow oldItem, @NonNull CarParkRow newItem) {
+            return oldItem.isSameItem(newItem);
         }
 
         @Override
-        public boolean areContentsTheSame(@NonNull CarPark oldItem, @NonNull CarPark newItem) {
-            return oldItem.equals(newItem);
+        public boolean areContentsTheSame(@NonNull CarParkRow oldItem, @NonNull CarParkRow newItem) {
+            return oldItem.isSameContent(newItem);
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(@NonNull CarParkRow oldItem, @NonNull CarParkRow newItem) {
+            return newItem.getChangedParts(oldItem);
         }
     };
 
@@ -95,8 +149,16 @@ public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkV
 
     @Override
     public void onBindViewHolder(@NonNull CarParkViewHolder holder, int position) {
-        CarPark carPark = getItem(position);
-        holder.bind(carPark);
+        if (pagedList != null) {
+            pagedList.loadAround(position);
+        }
+
+        CarParkRow row = getItem(position);
+        if (row == null) {
+            holder.bindPlaceholder();
+            return;
+        }
+        holder.bind(row);
     }
 
     @Override
@@ -107,52 +169,207 @@ public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkV
         }
 
         // Partial update based on payload
-        CarPark carPark = getItem(position);
+        CarParkRow row = getItem(position);
+        if (row == null) {
+            return;
+        }
         for (Object payload : payloads) {
-            if (PAYLOAD_LOCATION.equals(payload)) {
-                holder.updateDistance(carPark);
-            } else if (PAYLOAD_API_DATA.equals(payload)) {
-                holder.updateApiData(carPark);
-            } else if (PAYLOAD_BOOKMARK.equals(payload)) {
-                holder.updateBookmarkIcon(carPark);
+            if (payload instanceof Integer) {
+                int changes = (Integer) payload;
+                if ((changes & CarParkRow.CHANGE_DISTANCE) != 0) {
+                    holder.updateDistance(row);
+                }
+                if ((changes & CarParkRow.CHANGE_AVAILABILITY) != 0) {
+                    holder.updateApiData(row);
+                }
+                if ((changes & CarParkRow.CHANGE_BOOKMARK) != 0) {
+                    holder.updateBookmarkIcon(row);
+                }
+                if ((changes & CarParkRow.CHANGE_COST) != 0) {
+                    holder.updateCost(row);
+                }
             } else if (PAYLOAD_VEHICLE_TYPE.equals(payload)) {
-                holder.updateApiData(carPark);
+                holder.updateApiData(row);
+            } else if (PAYLOAD_UPDATE_TIME.equals(payload)) {
+                holder.displayLastUpdatedTime(row);
             }
         }
     }
 
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        RelativeTimeFormatter.getInstance().addTickListener(minuteTickListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        RelativeTimeFormatter.getInstance().removeTickListener(minuteTickListener);
+    }
+
     /**
-     * Update the adapter with a new API data map and notify only changed items
+     * Return the row at the given position without triggering a page load
      *
-     * @param apiData map of car park number to {@link CarParkApiData}
+     * @param position adapter position
+     * @return the {@link CarParkRow}, or null if the row is a placeholder of a paged list
      */
-    public void updateApiData(Map<String, CarParkApiData> apiData) {
-        Map<String, CarParkApiData> oldApiData = this.carParkApiData;
-        this.carParkApiData = apiData;
+    private CarParkRow getItem(int position) {
+        return differ.getCurrentList().get(position);
+    }
+
+    // -------------------------
+    // List Submission
+    // -------------------------
+
+    /**
+     * Submit a plain list of car parks
+     *
+     * @param list the car parks to display
+     */
+    public void submitList(List<CarPark> list) {
+        releasePagedList();
+        sourceList = list != null ? new ArrayList<>(list) : Collections.emptyList();
+        refreshRows();
+    }
 
-        // If this is the first time API data is received, update everything
-        if (oldApiData == null) {
-            // PAYLOAD_API_DATA is used to indicate that this is an API only update
-            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_API_DATA);
+    /**
+     * Submit a paged list that replaces the current one
+     *
+     * Rows are rebuilt for the loaded car parks whenever the paged list loads another page
+     *
+     * @param newList the {@link NearbyPagedList} to display
+     */
+    public void submitPagedList(NearbyPagedList newList) {
+        if (newList == pagedList) {
             return;
         }
 
-        // Only update items whose API data actually changed
-        for (int i = 0; i < getItemCount(); i++) {
-            CarPark carPark = getItem(i);
-            String carParkId = carPark.getCarParkNumber();
+        releasePagedList();
+        sourceList = Collections.emptyList();
+        pagedList = newList;
+        pagedList.addCallback(pagedListCallback);
+        refreshRows();
+    }
 
-            CarParkApiData oldData = oldApiData.get(carParkId);
-            CarParkApiData newData = apiData.get(carParkId);
+    private void releasePagedList() {
+        if (pagedList != null) {
+            pagedList.removeCallback(pagedListCallback);
+            pagedList.detach();
+            pagedList = null;
+        }
+    }
 
-            if (!isApiDataEqual(oldData, newData)) {
-                notifyItemChanged(i, PAYLOAD_API_DATA);
+    /**
+     * Update the rows to the current inputs on the background thread and diff them against the displayed rows
+     *
+     * This is the only path that updates rows. Each row of the last rebuild is carried over with
+     * {@link CarParkRow#update}, which only builds a new row if its distance bucket, update time, bookmark or cost
+     * changed. Whatever input changed, only rows whose content differs are rebound and only for the parts that changed
+     */
+    private void refreshRows() {
+        int generation = ++rowGeneration;
+
+        // Snapshot the inputs on the main thread, the background thread only reads these copies
+        CarPark[] carParks;
+        int placeholderCount = 0;
+        if (pagedList != null) {
+            carParks = new CarPark[pagedList.getLoadedCount()];
+            for (int i = 0; i < carParks.length; i++) {
+                carParks[i] = pagedList.get(i);
+            }
+            placeholderCount = pagedList.size() - carParks.length;
+        } else {
+            carParks = sourceList.toArray(new CarPark[0]);
+        }
+        Map<String, CarParkApiData> apiData = carParkApiData;
+        Location location = showDistance ? userLocation : null;
+        double latitude = location != null ? location.getLatitude() : Double.NaN;
+        double longitude = location != null ? location.getLongitude() : Double.NaN;
+        Set<String> bookmarks = bookmarkedNumbers;
+        ParkingCostEstimator.Estimates estimates = costEstimates;
+        int placeholders = placeholderCount;
+
+        ROW_EXECUTOR.execute(() -> {
+            List<CarParkRow> previousRows = builtRows;
+            boolean isLocationChanged = location != builtLocation;
+            Map<String, CarParkRow> previousByNumber = null;
+
+            List<CarParkRow> rows = new ArrayList<>(carParks.length + placeholders);
+            for (int i = 0; i < carParks.length; i++) {
+                CarPark carPark = carParks[i];
+                String carParkNumber = carPark.getCarParkNumber();
+                CarParkApiData data = apiData != null ? apiData.get(carParkNumber) : null;
+                boolean isBookmarked = bookmarks.contains(carParkNumber);
+                int estimate = estimates.indexOf(carParkNumber);
+                float cost = estimate >= 0 ? estimates.getCostCents(estimate) : CarParkRow.NO_COST;
+                int duration = estimates.getDurationMinutes();
+
+                // Rows usually keep their position, a reordered or new list falls back to a lookup by number
+                CarParkRow previous = i < previousRows.size() ? previousRows.get(i) : null;
+                if (previous == null || previous.getCarPark() != carPark) {
+                    if (previousByNumber == null) {
+                        previousByNumber = indexByNumber(previousRows);
+                    }
+                    previous = previousByNumber.get(carParkNumber);
+                }
+
+                if (previous != null && previous.getCarPark() == carPark) {
+                    rows.add(previous.update(latitude, longitude, isLocationChanged, data, isBookmarked, cost,
+                            duration));
+                } else {
+                    rows.add(CarParkRow.create(carPark, latitude, longitude, data, isBookmarked, cost,
+                            duration));
+                }
+            }
+            if (placeholders > 0) {
+                rows.addAll(Arrays.asList(new CarParkRow[placeholders]));
             }
+            builtRows = rows;
+            builtLocation = location;
+
+            mainHandler.post(() -> {
+                if (generation == rowGeneration) {
+                    differ.submitList(rows);
+                }
+            });
+        });
+    }
+
+    private static Map<String, CarParkRow> indexByNumber(List<CarParkRow> rows) {
+        Map<String, CarParkRow> byNumber = new HashMap<>();
+        for (CarParkRow row : rows) {
+            if (row != null) {
+                byNumber.put(row.getCarParkNumber(), row);
+            }
+        }
+        return byNumber;
+    }
+
+    // -------------------------
+    // Display State
+    // -------------------------
+
+    /**
+     * Update the adapter with a new API data map, rows whose availability changed are rebound
+     *
+     * @param apiData map of car park number to {@link CarParkApiData}
+     */
+    public void updateApiData(Map<String, CarParkApiData> apiData) {
+        if (apiData == carParkApiData) {
+            return;
         }
+        this.carParkApiData = apiData;
+        refreshRows();
     }
 
     /**
-     * Update the stored user location and notify visible items of distance changes when appropriate
+     * Update the stored user location, rows whose displayed distance changed are rebound
      *
      * @param location the new user {@link Location} or null to clear location
      */
@@ -160,25 +377,38 @@ public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkV
         boolean locationChanged = !isLocationEqual(this.userLocation, location);
         this.userLocation = location;
 
-        if (locationChanged && getItemCount() > 0 && showDistance) {
-            // PAYLOAD_LOCATION is used to indicate that this is a location only update
-            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_LOCATION);
+        if (locationChanged && showDistance) {
+            refreshRows();
         }
     }
 
     /**
-     * Notify the adapter that a specific car park's bookmark state changed
+     * Update the bookmarked car parks, rows whose bookmark state changed are rebound
      *
-     * @param carParkNumber the car park number whose bookmark state changed
+     * @param bookmarks unmodifiable snapshot of the bookmarked car park numbers that is never mutated afterwards, such
+     *                  as {@link com.jianan.parkwhere.data.repository.BookmarkStore#getSnapshot()}
      */
-    public void updateBookmarkStatus(String carParkNumber) {
-        for (int i = 0; i < getItemCount(); i++) {
-            CarPark carPark = getItem(i);
-            if (carPark.getCarParkNumber().equals(carParkNumber)) {
-                notifyItemChanged(i, PAYLOAD_BOOKMARK);
-                break;
-            }
+    public void updateBookmarks(Set<String> bookmarks) {
+        Set<String> snapshot = bookmarks != null ? bookmarks : Collections.emptySet();
+        if (snapshot == bookmarkedNumbers) {
+            return;
+        }
+        this.bookmarkedNumbers = snapshot;
+        refreshRows();
+    }
+
+    /**
+     * Update the estimated parking costs, rows whose cost changed are rebound
+     *
+     * @param estimates the estimates of the listed car parks, {@link ParkingCostEstimator.Estimates#EMPTY} to hide costs
+     */
+    public void updateCostEstimates(ParkingCostEstimator.Estimates estimates) {
+        ParkingCostEstimator.Estimates snapshot = estimates != null ? estimates : ParkingCostEstimator.Estimates.EMPTY;
+        if (snapshot == costEstimates) {
+            return;
         }
+        this.costEstimates = snapshot;
+        refreshRows();
     }
 
     /**
@@ -199,80 +429,85 @@ public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkV
 
             binding.iconBookmark.setOnClickListener(v -> {
                 if (clickListener != null && getBindingAdapterPosition() != RecyclerView.NO_POSITION) {
-                    clickListener.onBookmarkClick(getItem(getBindingAdapterPosition()));
+                    CarParkRow row = getItem(getBindingAdapterPosition());
+                    if (row != null) {
+                        clickListener.onBookmarkClick(row.getCarPark());
+                    }
                 }
             });
         }
 
         /**
-         * Bind a {@link CarPark} to the item view and update distance API data and bookmark icon
+         * Bind a {@link CarParkRow} to the item view and update distance API data and bookmark icon
          *
-         * @param carPark the CarPark to bind
+         * @param row the row to bind
          */
-        public void bind(CarPark carPark) {
+        public void bind(CarParkRow row) {
             // Set basic car park information
+            CarPark carPark = row.getCarPark();
             binding.textCarParkAddress.setText(carPark.getAddress());
             binding.textCarParkNumber.setText(String.format("Car Park %s", carPark.getCarParkNumber()));
 
-            updateDistance(carPark); // Calculate and display distance
-            updateApiData(carPark);
-            updateBookmarkIcon(carPark);
+            updateDistance(row);
+            updateApiData(row);
+            updateBookmarkIcon(row);
+            updateCost(row);
         }
 
         /**
-         * Update the distance text visibility and value for a bound car park
+         * Bind an empty row for a placeholder of a paged list that has not been loaded yet
+         */
+        public void bindPlaceholder() {
+            binding.textCarParkAddress.setText("");
+            binding.textCarParkNumber.setText("");
+            binding.textDistance.setVisibility(View.GONE);
+            binding.carAvailabilityContainer.setVisibility(View.GONE);
+            binding.motorcycleAvailabilityContainer.setVisibility(View.GONE);
+            binding.noInformationContainer.setVisibility(View.GONE);
+            binding.textLastUpdated.setVisibility(View.GONE);
+            binding.textCostEstimate.setVisibility(View.GONE);
+        }
+
+        /**
+         * Update the distance text visibility and value for a bound row
          *
-         * @param carPark the CarPark to calculate distance to
+         * @param row the row holding the distance bucket
          */
-        private void updateDistance(CarPark carPark) {
-            if (!showDistance) {
+        private void updateDistance(CarParkRow row) {
+            if (!showDistance || !row.hasDistance()) {
                 binding.textDistance.setVisibility(View.GONE);
                 return;
             }
 
-            if (userLocation != null) {
-                double distanceMeters = GeoUtils.calculateHaversineDistance(
-                        userLocation.getLatitude(), userLocation.getLongitude(),
-                        carPark.getLatitude(), carPark.getLongitude()
-                );
-
-                String distanceText;
-                if (distanceMeters < 1000) {
-                    distanceText = String.format(Locale.getDefault(), "%.0f m", distanceMeters);
-                } else {
-                    distanceText = String.format(Locale.getDefault(), "%.1f km", distanceMeters / 1000);
-                }
-                binding.textDistance.setText(distanceText);
-                binding.textDistance.setVisibility(View.VISIBLE);
+            int distanceMeters = row.getDistanceBucket();
+            String distanceText;
+            if (distanceMeters < 1000) {
+                distanceText = String.format(Locale.getDefault(), "%d m", distanceMeters);
             } else {
-                binding.textDistance.setVisibility(View.GONE);
+                distanceText = String.format(Locale.getDefault(), "%.1f km", distanceMeters / 1000.0);
             }
+            binding.textDistance.setText(distanceText);
+            binding.textDistance.setVisibility(View.VISIBLE);
         }
 
         /**
-         * Update availability UI and last updated time using API data
+         * Update availability UI and last updated time using the row's API data
          *
-         * @param carPark the CarPark associated with the api data
+         * @param row the row holding the availability counts
          */
-        public void updateApiData(CarPark carPark) {
-            CarParkApiData apiData = carParkApiData != null ?
-                    carParkApiData.get(carPark.getCarParkNumber()) : null;
-
-            handleAvailabilityDisplay(apiData);
-            displayLastUpdatedTime(apiData);
+        public void updateApiData(CarParkRow row) {
+            handleAvailabilityDisplay(row);
+            displayLastUpdatedTime(row);
         }
 
         /**
-         * Update the bookmark icon based on listener bookmark state
+         * Update the bookmark icon based on the row's bookmark state
          *
-         * @param carPark the CarPark whose bookmark icon should be refreshed
+         * @param row the row whose bookmark icon should be refreshed
          */
-        public void updateBookmarkIcon(CarPark carPark) {
-            boolean isBookmarked = false;
+        public void updateBookmarkIcon(CarParkRow row) {
             if (clickListener != null) {
-                isBookmarked = clickListener.isCarParkBookmarked(carPark.getCarParkNumber());
-
-                if (isBookmarked) {
+                if (row.isBookmarked()) {
                     binding.iconBookmark.setImageResource(R.drawable.ic_baseline_bookmark_black_24dp);
                 } else {
                     binding.iconBookmark.setImageResource(R.drawable.ic_outline_bookmark_border_black_24dp);
@@ -281,15 +516,30 @@ public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkV
         }
 
         /**
-         * Compute and bind availability information to the UI based on API data and vehicle filter
+         * Update the estimated cost of the stay, hidden for car parks without an estimate
+         *
+         * @param row the row holding the estimated cost
+         */
+        public void updateCost(CarParkRow row) {
+            if (!row.hasCost()) {
+                binding.textCostEstimate.setVisibility(View.GONE);
+                return;
+            }
+            binding.textCostEstimate.setText(
+                    ParkingCostFormatter.formatCost(row.getCostCents(), row.getCostDurationMinutes()));
+            binding.textCostEstimate.setVisibility(View.VISIBLE);
+        }
+
+        /**
+         * Bind availability information to the UI based on the row's counts and vehicle filter
          *
-         * @param apiData the {@link CarParkApiData} for this car park or null if not available
+         * @param row the row holding the availability counts
          */
-        private void handleAvailabilityDisplay(CarParkApiData apiData) {
+        private void handleAvailabilityDisplay(CarParkRow row) {
             int vehicleType = currentVehicleType;
 
             // If no API data is available, hide the appropriate UI and return
-            if (apiData == null || apiData.getCarParkInfo() == null || apiData.getCarParkInfo().isEmpty()) {
+            if (!row.hasApiData()) {
                 binding.carAvailabilityContainer.setVisibility(View.GONE);
                 binding.motorcycleAvailabilityContainer.setVisibility(View.GONE);
                 binding.textLastUpdated.setVisibility(View.GONE);
@@ -299,38 +549,20 @@ public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkV
                 return;
             }
 
-            // Default value
-            String carAvailability = "-/-";
-            String motorcycleAvailability = "-/-";
-            boolean hasCarLots = false;
-            boolean hasMotorcycleLots = false;
+            boolean hasCarLots = row.hasCarLots();
+            boolean hasMotorcycleLots = row.hasMotorcycleLots();
 
             // Obtain vehicle type filter
             boolean isCarLotIncluded = vehicleType == SettingsManager.VEHICLE_BOTH || vehicleType == SettingsManager.VEHICLE_CAR;
             boolean isMotorcycleLotIncluded = vehicleType == SettingsManager.VEHICLE_BOTH || vehicleType == SettingsManager.VEHICLE_MOTORCYCLE;
 
-            // Obtain the type(s) of parking lot available in the car park
-            for (CarParkInfo carParkInfo : apiData.getCarParkInfo()) {
-                String lotType = carParkInfo.getLotType();
-                String available = carParkInfo.getLotsAvailable();
-                String total = carParkInfo.getTotalLots();
-                String availabilityText = available + "/" + total;
-
-                if ("C".equals(lotType)) { // Car parking lots
-                    carAvailability = availabilityText;
-                    hasCarLots = true;
-                } else if ("M".equals(lotType) || "Y".equals(lotType)) { // Motorcycle parking lots (M or Y)
-                    motorcycleAvailability = availabilityText;
-                    hasMotorcycleLots = true;
-                }
-            }
             // Show/hide availability text based on vehicle type filter and available lot types
             if (hasCarLots && isCarLotIncluded) {
-                binding.textCarAvailability.setText(carAvailability);
+                binding.textCarAvailability.setText(formatAvailability(row.getCarLotsAvailable(), row.getCarLotsTotal()));
             }
 
             if (hasMotorcycleLots && isMotorcycleLotIncluded) {
-                binding.textMotorcycleAvailability.setText(motorcycleAvailability);
+                binding.textMotorcycleAvailability.setText(formatAvailability(row.getMotorcycleLotsAvailable(), row.getMotorcycleLotsTotal()));
             }
 
             // Show/hide availability containers based on vehicle type filter and available lot types
@@ -360,59 +592,26 @@ public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkV
         }
 
         /**
-         * Display the formatted last updated time based on API timestamp
-         *
-         * @param apiData the {@link CarParkApiData} containing the update timestamp
+         * Format lot counts the same way as the API strings, e.g. 12/340
          */
-        private void displayLastUpdatedTime(CarParkApiData apiData) {
-            if (apiData != null && apiData.getUpdateDateTime() != null) {
-                String updateTime = formatUpdateTime(apiData.getUpdateDateTime());
-                // Log.d(TAG, "Update Time is: " + apiData.getUpdateDateTime());
-                binding.textLastUpdated.setText(updateTime);
-                binding.textLastUpdated.setVisibility(View.VISIBLE);
-            } else {
-                binding.textLastUpdated.setVisibility(View.GONE);
-            }
+        private String formatAvailability(int available, int total) {
+            String availableText = available != CarParkRow.NO_COUNT ? String.valueOf(available) : "-";
+            return availableText + "/" + total;
         }
 
         /**
-         * Parse and format the API timestamp into a human readable relative time string
+         * Display the relative last updated time from the row's parsed update time
          *
-         * @param timestamp ISO style timestamp in pattern yyyy-MM-dd'T'HH:mm:ss in Asia/Singapore timezone
-         * @return a short relative time string such as Updated just now or Updated 5 minutes ago
+         * @param row the row holding the update time
          */
-        private String formatUpdateTime(String timestamp) {
-            try {
-                // Parse the timestamp as local Singapore time
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
-                LocalDateTime localUpdateTime = LocalDateTime.parse(timestamp, formatter);
-
-                // Attach GMT+8 zone (Asia/Singapore)
-                ZonedDateTime updateTime = localUpdateTime.atZone(ZoneId.of("Asia/Singapore"));
-
-                // Get current time in GMT+8
-                ZonedDateTime now = ZonedDateTime.now(ZoneId.of("Asia/Singapore"));
-
-                Duration duration = Duration.between(updateTime, now);
-
-                long minutes = duration.toMinutes();
-                long hours = duration.toHours();
-                long days = duration.toDays();
-
-                // Return formatted "Updated x ago"
-                if (minutes < 1) {
-                    return "Updated just now";
-                } else if (minutes < 60) {
-                    return String.format("Updated %d minute%s ago", minutes, minutes > 1 ? "s" : "");
-                } else if (hours < 24) {
-                    return String.format("Updated %d hour%s ago", hours, hours > 1 ? "s" : "");
-                } else {
-                    return String.format("Updated %d day%s ago", days, days > 1 ? "s" : "");
-                }
-
-            } catch (Exception e) {
-                e.printStackTrace();
-                return "Updated recently";
+        private void displayLastUpdatedTime(CarParkRow row) {
+            if (row.hasApiData()) {
+                String updateTime = RelativeTimeFormatter.getInstance().format(row.getUpdateTimeMillis());
+                // Log.d(TAG, "Update Time is: " + row.getUpdateTimeMillis());
+                binding.textLastUpdated.setText(updateTime);
+                binding.textLastUpdated.setVisibility(View.VISIBLE);
+            } else {
+                binding.textLastUpdated.setVisibility(View.GONE);
             }
         }
     }
@@ -429,47 +628,6 @@ public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkV
         }
     }
 
-    /**
-     * Compare two CarParkApiData objects to determine if they represent the same availability state
-     *
-     * @param data1 first {@link CarParkApiData} or null
-     * @param data2 second {@link CarParkApiData} or null
-     * @return true if both are null or if update time and all CarParkInfo entries match false otherwise
-     */
-    private boolean isApiDataEqual(CarParkApiData data1, CarParkApiData data2) {
-        if (data1 == null && data2 == null) {
-            return true;
-        }
-
-        if (data1 == null || data2 == null) {
-            return false;
-        }
-
-        // Compare update time and car park info
-        if (!data1.getUpdateDateTime().equals(data2.getUpdateDateTime())) {
-            return false;
-        }
-
-        List<CarParkInfo> info1 = data1.getCarParkInfo();
-        List<CarParkInfo> info2 = data2.getCarParkInfo();
-
-        if (info1.size() != info2.size()) {
-            return false;
-        }
-
-        // Simple comparison
-        for (int i = 0; i < info1.size(); i++) {
-            CarParkInfo cp1 = info1.get(i);
-            CarParkInfo cp2 = info2.get(i);
-            if (!cp1.getLotType().equals(cp2.getLotType()) ||
-                    !cp1.getLotsAvailable().equals(cp2.getLotsAvailable()) ||
-                    !cp1.getTotalLots().equals(cp2.getTotalLots())) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     /**
      * Helper method to compare locations for near equality
      *
@@ -486,7 +644,8 @@ public class CarParkAdapter extends ListAdapter<CarPark, CarParkAdapter.CarParkV
         }
 
         // Consider locations equal if they're very close (within 1 meter)
-        double distance = GeoUtils.calculateHaversineDistance(
+        // Only used as a filter, hence the cheaper equirectangular approximation is sufficient
+        double distance = GeoUtils.calculateEquirectangularDistance(
                 loc1.getLatitude(), loc1.getLongitude(),
                 loc2.getLatitude(), loc2.getLongitude());
         return distance < 1.0; // Less than 1 meter difference
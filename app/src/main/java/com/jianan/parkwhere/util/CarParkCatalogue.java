@@ -0,0 +1,237 @@
+package com.jianan.parkwhere.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view of the binary car park catalogue generated at build time by {@link CarParkCatalogueWriter}
+ *
+ * The catalogue is laid out as fixed-width little-endian arrays indexed by car park ordinal, so it can be memory
+ * mapped and read in place without parsing
+ * - Coordinates: {@code double} latitude and longitude, {@code float} SVY21 x and y
+ * - Gantry height in centimetres ({@code short}) and number of decks ({@code byte})
+ * - Categorical columns as {@code byte} codes of {@link CarParkDictionary}, followed by a copy of its dictionaries
+ * - Car park numbers, addresses and dictionary values in a single UTF-8 string table
+ *
+ * Car parks are stored in car park number order. The catalogue only seeds the {@code car_park} table, nearby
+ * searches query the table by SVY21 coordinates
+ *
+ * Only the dictionaries are decoded when the catalogue is opened, strings of car parks are decoded on access
+ *
+ * Layout, all offsets are absolute and 8 byte aligned
+ * - Header: magic, version, count, then the offset of every section in the order they are listed above followed by
+ *   the dictionary bases
+ */
+public class CarParkCatalogue {
+    public static final String ASSET_NAME = "carpark_catalogue.bin";
+
+    static final int MAGIC = 0x50574343; // "PWCC"
+    static final int VERSION = 2;
+
+    // Header fields
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_COUNT = 8;
+    static final int HEADER_LATITUDE = 12;
+    static final int HEADER_LONGITUDE = 16;
+    static final int HEADER_X = 20;
+    static final int HEADER_Y = 24;
+    static final int HEADER_GANTRY_HEIGHT = 28;
+    static final int HEADER_DECKS = 32;
+    static final int HEADER_CODES = 36;
+    static final int HEADER_STRINGS = 40;
+    static final int HEADER_DICTIONARY_BASES = 44;
+    static final int HEADER_SIZE = 48;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int latitudeOffset;
+    private final int longitudeOffset;
+    private final int xOffset;
+    private final int yOffset;
+    private final int gantryHeightOffset;
+    private final int decksOffset;
+    private final int codesOffset;
+    private final int stringOffsetsOffset;
+    private final int stringDataOffset;
+    private final String[][] dictionaries = new String[CarParkDictionary.COLUMN_COUNT][];
+
+    private CarParkCatalogue(ByteBuffer source) {
+        buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(HEADER_MAGIC) != MAGIC) {
+            throw new IllegalArgumentException("Not a car park catalogue");
+        }
+        if (buffer.getInt(HEADER_VERSION) != VERSION) {
+            throw new IllegalArgumentException("Unsupported car park catalogue version " + buffer.getInt(HEADER_VERSION));
+        }
+
+        count = buffer.getInt(HEADER_COUNT);
+        latitudeOffset = buffer.getInt(HEADER_LATITUDE);
+        longitudeOffset = buffer.getInt(HEADER_LONGITUDE);
+        xOffset = buffer.getInt(HEADER_X);
+        yOffset = buffer.getInt(HEADER_Y);
+        gantryHeightOffset = buffer.getInt(HEADER_GANTRY_HEIGHT);
+        decksOffset = buffer.getInt(HEADER_DECKS);
+        codesOffset = buffer.getInt(HEADER_CODES);
+
+        // The string section holds the number of strings, the start offset of every string plus the end of the last
+        // one, then the UTF-8 data
+        int stringsOffset = buffer.getInt(HEADER_STRINGS);
+        int stringCount = buffer.getInt(stringsOffset);
+        stringOffsetsOffset = stringsOffset + 4;
+        stringDataOffset = stringOffsetsOffset + 4 * (stringCount + 1);
+
+        int basesOffset = buffer.getInt(HEADER_DICTIONARY_BASES);
+        for (int column = 0; column < CarParkDictionary.COLUMN_COUNT; column++) {
+            int base = buffer.getInt(basesOffset + 4 * column);
+            int end = buffer.getInt(basesOffset + 4 * (column + 1));
+            String[] values = new String[end - base];
+            for (int code = 0; code < values.length; code++) {
+                values[code] = getString(base + code).intern();
+            }
+            dictionaries[column] = values;
+        }
+    }
+
+    /**
+     * Open a catalogue held in a buffer, the buffer is read in place and must not be modified afterwards
+     *
+     * @param buffer buffer holding the whole catalogue
+     * @return the {@link CarParkCatalogue}
+     * @throws IllegalArgumentException if the buffer does not hold a supported catalogue
+     */
+    public static CarParkCatalogue wrap(ByteBuffer buffer) {
+        return new CarParkCatalogue(buffer);
+    }
+
+    /**
+     * Memory map a catalogue stored in part of a file, e.g. an uncompressed asset inside the APK
+     *
+     * @param channel channel of the file, it can be closed once this returns
+     * @param offset  position of the catalogue within the file
+     * @param length  length of the catalogue in bytes
+     * @return the {@link CarParkCatalogue}
+     * @throws IOException if the file cannot be mapped
+     */
+    public static CarParkCatalogue map(FileChannel channel, long offset, long length) throws IOException {
+        return new CarParkCatalogue(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    // -------------------------
+    // Car parks
+    // -------------------------
+
+    /**
+     * Return the number of car parks, ordinals range from 0 to {@code size() - 1}
+     *
+     * @return number of car parks
+     */
+    public int size() {
+        return count;
+    }
+
+    public String getCarParkNumber(int ordinal) {
+        return getString(checkOrdinal(ordinal));
+    }
+
+    public String getAddress(int ordinal) {
+        return getString(count + checkOrdinal(ordinal));
+    }
+
+    public double getLatitude(int ordinal) {
+        return buffer.getDouble(latitudeOffset + 8 * checkOrdinal(ordinal));
+    }
+
+    public double getLongitude(int ordinal) {
+        return buffer.getDouble(longitudeOffset + 8 * checkOrdinal(ordinal));
+    }
+
+    public float getXCoord(int ordinal) {
+        return buffer.getFloat(xOffset + 4 * checkOrdinal(ordinal));
+    }
+
+    public float getYCoord(int ordinal) {
+        return buffer.getFloat(yOffset + 4 * checkOrdinal(ordinal));
+    }
+
+    /**
+     * Return the gantry height of a car park
+     *
+     * @param ordinal car park ordinal
+     * @return gantry height in metres
+     */
+    public double getGantryHeight(int ordinal) {
+        return buffer.getShort(gantryHeightOffset + 2 * checkOrdinal(ordinal)) / 100.0;
+    }
+
+    public int getCarParkDecks(int ordinal) {
+        return buffer.get(decksOffset + checkOrdinal(ordinal)) & 0xFF;
+    }
+
+    /**
+     * Return the dictionary code of a categorical column of a car park
+     *
+     * @param column  one of the {@code CarParkDictionary.COLUMN_*} constants
+     * @param ordinal car park ordinal
+     * @return code between 0 and {@code getDictionarySize(column) - 1}, the same code as {@link CarParkDictionary}
+     */
+    public int getCode(int column, int ordinal) {
+        return buffer.get(codesOffset + column * count + checkOrdinal(ordinal)) & 0xFF;
+    }
+
+    /**
+     * Return the decoded value of a categorical column of a car park
+     *
+     * @param column  one of the {@code CarParkDictionary.COLUMN_*} constants
+     * @param ordinal car park ordinal
+     * @return the interned value shared by every car park with the same code
+     */
+    public String getValue(int column, int ordinal) {
+        return dictionaries[column][getCode(column, ordinal)];
+    }
+
+    // -------------------------
+    // Dictionaries
+    // -------------------------
+
+    public int getDictionarySize(int column) {
+        return dictionaries[column].length;
+    }
+
+    /**
+     * Return the value a code of a categorical column stands for
+     *
+     * @param column one of the {@code CarParkDictionary.COLUMN_*} constants
+     * @param code   code between 0 and {@code getDictionarySize(column) - 1}
+     * @return the interned value
+     */
+    public String getDictionaryValue(int column, int code) {
+        return dictionaries[column][code];
+    }
+
+    // -------------------------
+    // Strings
+    // -------------------------
+
+    private String getString(int index) {
+        int start = buffer.getInt(stringOffsetsOffset + 4 * index);
+        int end = buffer.getInt(stringOffsetsOffset + 4 * (index + 1));
+        byte[] bytes = new byte[end - start];
+
+        // Absolute bulk reads are not available before Java 13, read through a private view instead
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringDataOffset + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int checkOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= count) {
+            throw new IndexOutOfBoundsException("Car park ordinal " + ordinal + " out of " + count);
+        }
+        return ordinal;
+    }
+}
@@ -0,0 +1,236 @@
+package com.jianan.parkwhere.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Converts the HDB car park information CSV into the binary format read by {@link CarParkCatalogue}
+ *
+ * Runs at build time from the {@code generateCarParkCatalogue} Gradle task, so it must only use the JDK. The SVY21
+ * coordinates are computed with {@link Svy21Projection}, the same projection the app applies to the user location
+ */
+public class CarParkCatalogueWriter {
+    // Columns of the source CSV
+    private static final String[] CSV_HEADER = {"car_park_no", "address", "latitude", "longitude", "car_park_type",
+            "type_of_parking_system", "short_term_parking", "free_parking", "night_parking", "car_park_decks",
+            "gantry_height", "car_park_basement"};
+
+    /**
+     * One car park of the source data
+     */
+    public static class Row {
+        final String carParkNumber;
+        final String address;
+        final double latitude;
+        final double longitude;
+        final float xCoord;
+        final float yCoord;
+        final String[] values; // Indexed by CarParkDictionary.COLUMN_*
+        final int carParkDecks;
+        final double gantryHeight;
+
+        public Row(String carParkNumber, String address, double latitude, double longitude, String[] values,
+                   int carParkDecks, double gantryHeight) {
+            if (values.length != CarParkDictionary.COLUMN_COUNT) {
+                throw new IllegalArgumentException("Expected " + CarParkDictionary.COLUMN_COUNT + " categorical values");
+            }
+            Svy21Projection.Point point = Svy21Projection.fromLatLng(latitude, longitude);
+            this.carParkNumber = carParkNumber;
+            this.address = address;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.xCoord = point.getX();
+            this.yCoord = point.getY();
+            this.values = values;
+            this.carParkDecks = carParkDecks;
+            this.gantryHeight = gantryHeight;
+        }
+    }
+
+    // -------------------------
+    // CSV
+    // -------------------------
+
+    /**
+     * Read the car parks of the latitude longitude CSV
+     *
+     * @param reader reader of the CSV including its header line
+     * @return the car parks in file order
+     * @throws IOException              if the CSV cannot be read
+     * @throws IllegalArgumentException if the header or a line does not match the expected columns
+     */
+    public static List<Row> readCsv(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        String header = lines.readLine();
+        if (header == null || !Arrays.equals(splitCsvLine(header.replace("\uFEFF", "")).toArray(), CSV_HEADER)) {
+            throw new IllegalArgumentException("Unexpected car park CSV header: " + header);
+        }
+
+        List<Row> rows = new ArrayList<>();
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            List<String> fields = splitCsvLine(line);
+            if (fields.size() != CSV_HEADER.length) {
+                throw new IllegalArgumentException("Unexpected number of fields: " + line);
+            }
+            rows.add(new Row(fields.get(0), fields.get(1),
+                    Double.parseDouble(fields.get(2)), Double.parseDouble(fields.get(3)),
+                    new String[]{fields.get(4), fields.get(5), fields.get(6), fields.get(7), fields.get(8), fields.get(11)},
+                    Integer.parseInt(fields.get(9)), Double.parseDouble(fields.get(10))));
+        }
+        return rows;
+    }
+
+    /**
+     * Split one CSV line, fields may be quoted and quoted fields may contain commas and doubled quotes
+     */
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean isQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (isQuoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    isQuoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                isQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // -------------------------
+    // Binary
+    // -------------------------
+
+    /**
+     * Write the catalogue, the car parks are ordered by car park number so the output only depends on the data
+     *
+     * @param rows         the car parks
+     * @param outputStream stream the catalogue is written to, it is not closed
+     * @throws IOException if the stream cannot be written
+     */
+    public static void write(List<Row> rows, OutputStream outputStream) throws IOException {
+        int count = rows.size();
+        List<Row> ordered = new ArrayList<>(rows);
+        Collections.sort(ordered, (a, b) -> a.carParkNumber.compareTo(b.carParkNumber));
+
+        // Codes are those of the shared dictionaries, which are copied into the catalogue
+        for (Row row : ordered) {
+            for (int column = 0; column < CarParkDictionary.COLUMN_COUNT; column++) {
+                if (CarParkDictionary.encode(column, row.values[column]) == CarParkDictionary.UNKNOWN) {
+                    throw new IllegalArgumentException("Car park " + row.carParkNumber + " has value \""
+                            + row.values[column] + "\" missing from CarParkDictionary column " + column);
+                }
+            }
+        }
+
+        // String table: car park numbers, addresses, then the values of each dictionary
+        List<byte[]> strings = new ArrayList<>();
+        for (Row row : ordered) {
+            strings.add(row.carParkNumber.getBytes(StandardCharsets.UTF_8));
+        }
+        for (Row row : ordered) {
+            strings.add(row.address.getBytes(StandardCharsets.UTF_8));
+        }
+        int[] dictionaryBases = new int[CarParkDictionary.COLUMN_COUNT + 1];
+        for (int column = 0; column < CarParkDictionary.COLUMN_COUNT; column++) {
+            dictionaryBases[column] = strings.size();
+            for (int code = 0; code < CarParkDictionary.size(column); code++) {
+                strings.add(CarParkDictionary.decode(column, code).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        dictionaryBases[CarParkDictionary.COLUMN_COUNT] = strings.size();
+        int stringBytes = 0;
+        for (byte[] string : strings) {
+            stringBytes += string.length;
+        }
+
+        // Section offsets
+        int latitudeOffset = align(CarParkCatalogue.HEADER_SIZE);
+        int longitudeOffset = align(latitudeOffset + 8 * count);
+        int xOffset = align(longitudeOffset + 8 * count);
+        int yOffset = align(xOffset + 4 * count);
+        int gantryHeightOffset = align(yOffset + 4 * count);
+        int decksOffset = align(gantryHeightOffset + 2 * count);
+        int codesOffset = align(decksOffset + count);
+        int basesOffset = align(codesOffset + CarParkDictionary.COLUMN_COUNT * count);
+        int stringsOffset = align(basesOffset + 4 * dictionaryBases.length);
+        int size = align(stringsOffset + 4 + 4 * (strings.size() + 1) + stringBytes);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(CarParkCatalogue.HEADER_MAGIC, CarParkCatalogue.MAGIC);
+        buffer.putInt(CarParkCatalogue.HEADER_VERSION, CarParkCatalogue.VERSION);
+        buffer.putInt(CarParkCatalogue.HEADER_COUNT, count);
+        buffer.putInt(CarParkCatalogue.HEADER_LATITUDE, latitudeOffset);
+        buffer.putInt(CarParkCatalogue.HEADER_LONGITUDE, longitudeOffset);
+        buffer.putInt(CarParkCatalogue.HEADER_X, xOffset);
+        buffer.putInt(CarParkCatalogue.HEADER_Y, yOffset);
+        buffer.putInt(CarParkCatalogue.HEADER_GANTRY_HEIGHT, gantryHeightOffset);
+        buffer.putInt(CarParkCatalogue.HEADER_DECKS, decksOffset);
+        buffer.putInt(CarParkCatalogue.HEADER_CODES, codesOffset);
+        buffer.putInt(CarParkCatalogue.HEADER_STRINGS, stringsOffset);
+        buffer.putInt(CarParkCatalogue.HEADER_DICTIONARY_BASES, basesOffset);
+
+        for (int i = 0; i < count; i++) {
+            Row row = ordered.get(i);
+            buffer.putDouble(latitudeOffset + 8 * i, row.latitude);
+            buffer.putDouble(longitudeOffset + 8 * i, row.longitude);
+            buffer.putFloat(xOffset + 4 * i, row.xCoord);
+            buffer.putFloat(yOffset + 4 * i, row.yCoord);
+            buffer.putShort(gantryHeightOffset + 2 * i, (short) Math.round(row.gantryHeight * 100));
+            buffer.put(decksOffset + i, (byte) row.carParkDecks);
+            for (int column = 0; column < CarParkDictionary.COLUMN_COUNT; column++) {
+                int code = CarParkDictionary.encode(column, row.values[column]);
+                buffer.put(codesOffset + column * count + i, (byte) code);
+            }
+        }
+        for (int i = 0; i < dictionaryBases.length; i++) {
+            buffer.putInt(basesOffset + 4 * i, dictionaryBases[i]);
+        }
+
+        buffer.putInt(stringsOffset, strings.size());
+        int dataOffset = stringsOffset + 4 + 4 * (strings.size() + 1);
+        int position = 0;
+        for (int i = 0; i < strings.size(); i++) {
+            buffer.putInt(stringsOffset + 4 + 4 * i, position);
+            byte[] string = strings.get(i);
+            for (int j = 0; j < string.length; j++) {
+                buffer.put(dataOffset + position + j, string[j]);
+            }
+            position += string.length;
+        }
+        buffer.putInt(stringsOffset + 4 + 4 * strings.size(), position);
+
+        outputStream.write(buffer.array());
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+}
@@ -0,0 +1,112 @@
+package com.jianan.parkwhere.util;
+
+/**
+ * Shared dictionaries of the categorical car park columns
+ *
+ * The HDB data set only uses a few distinct values per column, so {@link com.jianan.parkwhere.data.local.CarPark},
+ * the {@code car_park} table and the {@link CarParkCatalogue} store a small int code instead of a string per car
+ * park. Decoding returns the single interned string held here, so car parks never hold their own copies
+ *
+ * Codes are persisted, values must only ever be appended to a column and never reordered or removed. A value
+ * missing from a dictionary is encoded as {@link #UNKNOWN} and decodes to {@code null}
+ */
+public final class CarParkDictionary {
+    // Categorical columns
+    public static final int COLUMN_CAR_PARK_TYPE = 0;
+    public static final int COLUMN_PARKING_SYSTEM_TYPE = 1;
+    public static final int COLUMN_SHORT_TERM_PARKING = 2;
+    public static final int COLUMN_FREE_PARKING = 3;
+    public static final int COLUMN_NIGHT_PARKING = 4;
+    public static final int COLUMN_CAR_PARK_BASEMENT = 5;
+    public static final int COLUMN_COUNT = 6;
+
+    public static final int UNKNOWN = -1;
+
+    // Car park type codes
+    public static final int CAR_PARK_TYPE_BASEMENT = 0;
+    public static final int CAR_PARK_TYPE_COVERED = 1;
+    public static final int CAR_PARK_TYPE_MECHANISED_AND_SURFACE = 2;
+    public static final int CAR_PARK_TYPE_MECHANISED = 3;
+    public static final int CAR_PARK_TYPE_MULTI_STOREY = 4;
+    public static final int CAR_PARK_TYPE_SURFACE = 5;
+    public static final int CAR_PARK_TYPE_SURFACE_MULTI_STOREY = 6;
+
+    // Parking system codes
+    public static final int PARKING_SYSTEM_COUPON = 0;
+    public static final int PARKING_SYSTEM_ELECTRONIC = 1;
+
+    // Short-term parking codes
+    public static final int SHORT_TERM_PARKING_7AM_1030PM = 0;
+    public static final int SHORT_TERM_PARKING_7AM_7PM = 1;
+    public static final int SHORT_TERM_PARKING_NO = 2;
+    public static final int SHORT_TERM_PARKING_WHOLE_DAY = 3;
+
+    // Free parking codes
+    public static final int FREE_PARKING_NO = 0;
+    public static final int FREE_PARKING_SUN_PH_1PM_1030PM = 1;
+    public static final int FREE_PARKING_SUN_PH_7AM_1030PM = 2;
+
+    // Night parking codes
+    public static final int NIGHT_PARKING_NO = 0;
+    public static final int NIGHT_PARKING_YES = 1;
+
+    // Basement codes
+    public static final int BASEMENT_NO = 0;
+    public static final int BASEMENT_YES = 1;
+
+    // Values indexed by column then code
+    private static final String[][] VALUES = {
+            {"BASEMENT CAR PARK", "COVERED CAR PARK", "MECHANISED AND SURFACE CAR PARK", "MECHANISED CAR PARK",
+                    "MULTI-STOREY CAR PARK", "SURFACE CAR PARK", "SURFACE/MULTI-STOREY CAR PARK"},
+            {"COUPON PARKING", "ELECTRONIC PARKING"},
+            {"7AM-10.30PM", "7AM-7PM", "NO", "WHOLE DAY"},
+            {"NO", "SUN & PH FR 1PM-10.30PM", "SUN & PH FR 7AM-10.30PM"},
+            {"NO", "YES"},
+            {"N", "Y"}
+    };
+
+    private CarParkDictionary() {
+    }
+
+    /**
+     * Return the number of known values of a column, codes range from 0 to {@code size(column) - 1}
+     *
+     * @param column one of the {@code COLUMN_*} constants
+     * @return number of values
+     */
+    public static int size(int column) {
+        return VALUES[column].length;
+    }
+
+    /**
+     * Return the code of a value
+     *
+     * @param column one of the {@code COLUMN_*} constants
+     * @param value  the value as it appears in the HDB data set, may be null
+     * @return the code, or {@link #UNKNOWN} if the value is not in the dictionary
+     */
+    public static int encode(int column, String value) {
+        if (value == null) {
+            return UNKNOWN;
+        }
+        String[] values = VALUES[column];
+        for (int code = 0; code < values.length; code++) {
+            if (values[code].equals(value)) {
+                return code;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Return the value of a code
+     *
+     * @param column one of the {@code COLUMN_*} constants
+     * @param code   the code
+     * @return the shared value, or {@code null} for {@link #UNKNOWN} or any other code outside the dictionary
+     */
+    public static String decode(int column, int code) {
+        String[] values = VALUES[column];
+        return code >= 0 && code < values.length ? values[code] : null;
+    }
+}
@@ -0,0 +1,250 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of attribute filters for car park search
+ *
+ * - Within one categorical column the allowed codes are combined with OR, e.g. multi-storey or basement
+ * - Across columns and with the minimum gantry height the filters are combined with AND
+ * - A column that was never restricted is not filtered, a column restricted to no codes matches no car park
+ * - Car parks whose gantry height is unknown only pass a minimum gantry height if the filter includes them
+ *
+ * Filters are resolved against precomputed bitsets by {@link CarParkFilterEngine}, {@link #matches(CarPark)} checks a
+ * single car park directly. Time dependent conditions such as "free parking now" become code masks through
+ * {@link ParkingRuleCompiler}, so they resolve against the same bitsets
+ */
+public final class CarParkFilter {
+    public static final CarParkFilter NONE = new Builder().build();
+
+    // Bit i of a mask allows code i of the column, only for the columns whose bit is set in filteredColumns
+    private final int[] codeMasks;
+    private final int filteredColumns;
+    private final double minGantryHeight;
+    private final boolean includesUnknownGantry;
+
+    private CarParkFilter(int[] codeMasks, int filteredColumns, double minGantryHeight, boolean includesUnknownGantry) {
+        this.codeMasks = codeMasks;
+        this.filteredColumns = filteredColumns;
+        this.minGantryHeight = minGantryHeight;
+        this.includesUnknownGantry = includesUnknownGantry;
+    }
+
+    /**
+     * Return whether nothing is filtered
+     *
+     * @return true if every car park matches
+     */
+    public boolean isEmpty() {
+        return minGantryHeight <= 0 && filteredColumns == 0;
+    }
+
+    /**
+     * Return whether a categorical column is filtered
+     *
+     * @param column one of the {@code CarParkDictionary.COLUMN_*} constants
+     * @return true if only the codes of {@link #getCodeMask(int)} are allowed
+     */
+    public boolean isFiltered(int column) {
+        return (filteredColumns & (1 << column)) != 0;
+    }
+
+    /**
+     * Return the allowed codes of a categorical column
+     *
+     * @param column one of the {@code CarParkDictionary.COLUMN_*} constants
+     * @return bit {@code i} is set if code {@code i} is allowed, 0 if the column is not filtered or allows no code
+     */
+    public int getCodeMask(int column) {
+        return codeMasks[column];
+    }
+
+    /**
+     * Return the minimum gantry height
+     *
+     * @return height in metres, 0 if the gantry height is not filtered
+     */
+    public double getMinGantryHeight() {
+        return minGantryHeight;
+    }
+
+    /**
+     * Return whether car parks of unknown gantry height pass the minimum gantry height
+     *
+     * @return true if they are kept, only relevant when {@link #getMinGantryHeight()} is set
+     */
+    public boolean includesUnknownGantry() {
+        return includesUnknownGantry;
+    }
+
+    /**
+     * Check a single car park against the filter
+     *
+     * @param carPark the car park
+     * @return true if the car park passes every filter
+     */
+    public boolean matches(CarPark carPark) {
+        if (minGantryHeight > 0 && (carPark.hasGantryHeight()
+                ? carPark.getGantryHeight() < minGantryHeight : !includesUnknownGantry)) {
+            return false;
+        }
+        return allows(CarParkDictionary.COLUMN_CAR_PARK_TYPE, carPark.getCarParkTypeCode())
+                && allows(CarParkDictionary.COLUMN_PARKING_SYSTEM_TYPE, carPark.getParkingSystemTypeCode())
+                && allows(CarParkDictionary.COLUMN_SHORT_TERM_PARKING, carPark.getShortTermParkingCode())
+                && allows(CarParkDictionary.COLUMN_FREE_PARKING, carPark.getFreeParkingCode())
+                && allows(CarParkDictionary.COLUMN_NIGHT_PARKING, carPark.getNightParkingCode())
+                && allows(CarParkDictionary.COLUMN_CAR_PARK_BASEMENT, carPark.getCarParkBasementCode());
+    }
+
+    private boolean allows(int column, int code) {
+        return !isFiltered(column) || (code >= 0 && (codeMasks[column] & (1 << code)) != 0);
+    }
+
+    /**
+     * Return a builder starting from this filter, e.g. to toggle one option
+     *
+     * @return a new {@link Builder}
+     */
+    public Builder toBuilder() {
+        return new Builder(codeMasks.clone(), filteredColumns, minGantryHeight, includesUnknownGantry);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        CarParkFilter other = (CarParkFilter) obj;
+        return Double.compare(minGantryHeight, other.minGantryHeight) == 0
+                && includesUnknownGantry == other.includesUnknownGantry
+                && filteredColumns == other.filteredColumns
+                && Arrays.equals(codeMasks, other.codeMasks);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * Arrays.hashCode(codeMasks) + filteredColumns) + Double.hashCode(minGantryHeight))
+                + Boolean.hashCode(includesUnknownGantry);
+    }
+
+    /**
+     * Builder of {@link CarParkFilter}
+     */
+    public static final class Builder {
+        private final int[] codeMasks;
+        private int filteredColumns;
+        private double minGantryHeight;
+        private boolean includesUnknownGantry;
+
+        public Builder() {
+            this(new int[CarParkDictionary.COLUMN_COUNT], 0, 0, false);
+        }
+
+        private Builder(int[] codeMasks, int filteredColumns, double minGantryHeight, boolean includesUnknownGantry) {
+            this.codeMasks = codeMasks;
+            this.filteredColumns = filteredColumns;
+            this.minGantryHeight = minGantryHeight;
+            this.includesUnknownGantry = includesUnknownGantry;
+        }
+
+        /**
+         * Allow a code of a categorical column, allowing several codes of a column matches any of them
+         *
+         * @param column one of the {@code CarParkDictionary.COLUMN_*} constants
+         * @param code   a code of that column
+         * @return this builder
+         */
+        public Builder allow(int column, int code) {
+            if (code < 0 || code >= CarParkDictionary.size(column)) {
+                throw new IllegalArgumentException("Unknown code " + code + " for column " + column);
+            }
+            codeMasks[column] |= 1 << code;
+            filteredColumns |= 1 << column;
+            return this;
+        }
+
+        /**
+         * Restrict a categorical column to a set of codes, replacing the codes allowed so far
+         *
+         * @param column   one of the {@code CarParkDictionary.COLUMN_*} constants
+         * @param codeMask bit {@code i} allows code {@code i}, 0 leaves no car park
+         * @return this builder
+         */
+        public Builder allowOnly(int column, int codeMask) {
+            codeMasks[column] = codeMask & ((1 << CarParkDictionary.size(column)) - 1);
+            filteredColumns |= 1 << column;
+            return this;
+        }
+
+        /**
+         * Only keep car parks where parking is free at a time
+         *
+         * @param time the time
+         * @return this builder
+         */
+        public Builder freeParkingAt(ParkingTime time) {
+            int column = CarParkDictionary.COLUMN_FREE_PARKING;
+            return allowOnly(column, ParkingRuleCompiler.activeCodeMask(column, time));
+        }
+
+        /**
+         * Only keep car parks that allow short-term parking at a time
+         *
+         * @param time the time
+         * @return this builder
+         */
+        public Builder shortTermParkingAt(ParkingTime time) {
+            int column = CarParkDictionary.COLUMN_SHORT_TERM_PARKING;
+            return allowOnly(column, ParkingRuleCompiler.activeCodeMask(column, time));
+        }
+
+        /**
+         * Stop allowing a code, the column is no longer filtered once no code is allowed
+         *
+         * @param column one of the {@code CarParkDictionary.COLUMN_*} constants
+         * @param code   a code of that column
+         * @return this builder
+         */
+        public Builder disallow(int column, int code) {
+            codeMasks[column] &= ~(1 << code);
+            if (codeMasks[column] == 0) {
+                filteredColumns &= ~(1 << column);
+            }
+            return this;
+        }
+
+        /**
+         * Only keep car parks whose gantry is known to be at least this high
+         *
+         * @param height height in metres, 0 to not filter the gantry height
+         * @return this builder
+         */
+        public Builder minGantryHeight(double height) {
+            return minGantryHeight(height, false);
+        }
+
+        /**
+         * Only keep car parks whose gantry is at least this high
+         *
+         * @param height         height in metres, 0 to not filter the gantry height
+         * @param includeUnknown whether car parks of unknown gantry height are kept
+         * @return this builder
+         */
+        public Builder minGantryHeight(double height, boolean includeUnknown) {
+            minGantryHeight = Math.max(0, height);
+            includesUnknownGantry = includeUnknown;
+            return this;
+        }
+
+        public CarParkFilter build() {
+            // Without a minimum height every car park passes, so equal filters compare equal
+            return new CarParkFilter(codeMasks.clone(), filteredColumns, minGantryHeight,
+                    minGantryHeight > 0 && includesUnknownGantry);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves {@link CarParkFilter}s over every car park with precomputed bitsets
+ *
+ * Each car park gets an ordinal, its index in the list the engine is built from. A bitset is a {@code long[]} with
+ * bit {@code i} standing for the car park with ordinal {@code i}
+ * - One bitset per code of every categorical column of {@link CarParkDictionary}
+ * - One bitset per distinct known gantry height holding every car park at least that high, a minimum height is a
+ *   binary search over the sorted heights. Car parks of unknown height are in a bitset of their own, added to the
+ *   result only when the filter includes them
+ * A filter then resolves one 64-bit word at a time: the codes allowed within a column are ORed, the columns and the
+ * gantry height are ANDed. Counting the matches of a filter among the car parks of a nearby result is a single pass
+ * over about 40 words, so result counts can be refreshed on every filter change without touching the car parks
+ *
+ * The car parks are never modified after construction, the engine is safe to share between threads
+ */
+public class CarParkFilterEngine {
+    private final int size;
+    private final int wordCount;
+    private final Map<String, Integer> ordinals;
+    private final long[][][] codeSets; // Indexed by column, code, word
+    private final double[] gantryHeights; // Distinct known heights, ascending
+    private final long[][] gantryAtLeastSets; // Indexed like gantryHeights
+    private final long[][] gantryAtLeastOrUnknownSets; // As above, plus the car parks of unknown height
+    private final long[] unknownGantrySet;
+    private final long[] allSet; // Every car park, without the unused bits of the last word
+
+    // Bitset of the last nearby result that was counted, results are immutable so it can be reused until it changes
+    private NearbyCarParkResult spatialResult;
+    private long[] spatialSet;
+
+    /**
+     * Build the bitsets
+     *
+     * @param carParks every car park, the index of a car park becomes its ordinal
+     */
+    public CarParkFilterEngine(List<CarPark> carParks) {
+        size = carParks.size();
+        wordCount = (size + 63) >>> 6;
+        ordinals = new HashMap<>(size * 2);
+
+        codeSets = new long[CarParkDictionary.COLUMN_COUNT][][];
+        for (int column = 0; column < CarParkDictionary.COLUMN_COUNT; column++) {
+            codeSets[column] = new long[CarParkDictionary.size(column)][wordCount];
+        }
+
+        double[] heights = new double[size];
+        int knownCount = 0;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            CarPark carPark = carParks.get(ordinal);
+            ordinals.put(carPark.getCarParkNumber(), ordinal);
+            setCode(CarParkDictionary.COLUMN_CAR_PARK_TYPE, carPark.getCarParkTypeCode(), ordinal);
+            setCode(CarParkDictionary.COLUMN_PARKING_SYSTEM_TYPE, carPark.getParkingSystemTypeCode(), ordinal);
+            setCode(CarParkDictionary.COLUMN_SHORT_TERM_PARKING, carPark.getShortTermParkingCode(), ordinal);
+            setCode(CarParkDictionary.COLUMN_FREE_PARKING, carPark.getFreeParkingCode(), ordinal);
+            setCode(CarParkDictionary.COLUMN_NIGHT_PARKING, carPark.getNightParkingCode(), ordinal);
+            setCode(CarParkDictionary.COLUMN_CAR_PARK_BASEMENT, carPark.getCarParkBasementCode(), ordinal);
+            heights[ordinal] = carPark.getGantryHeight();
+            if (carPark.hasGantryHeight()) {
+                knownCount++;
+            }
+        }
+
+        // Walk the distinct heights from the highest down, each set adds the car parks of its height to the one above
+        double[] sorted = heights.clone();
+        Arrays.sort(sorted);
+        sorted = Arrays.copyOfRange(sorted, size - knownCount, size);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        gantryHeights = Arrays.copyOf(sorted, distinct);
+        allSet = new long[wordCount];
+        unknownGantrySet = new long[wordCount];
+        gantryAtLeastSets = new long[distinct][wordCount];
+        gantryAtLeastOrUnknownSets = new long[distinct][];
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            setBit(allSet, ordinal);
+            if (heights[ordinal] > CarPark.GANTRY_HEIGHT_UNKNOWN) {
+                setBit(gantryAtLeastSets[Arrays.binarySearch(gantryHeights, heights[ordinal])], ordinal);
+            } else {
+                setBit(unknownGantrySet, ordinal);
+            }
+        }
+        for (int index = distinct - 1; index >= 0; index--) {
+            long[] set = gantryAtLeastSets[index];
+            if (index < distinct - 1) {
+                for (int word = 0; word < wordCount; word++) {
+                    set[word] |= gantryAtLeastSets[index + 1][word];
+                }
+            }
+            gantryAtLeastOrUnknownSets[index] = set.clone();
+            for (int word = 0; word < wordCount; word++) {
+                gantryAtLeastOrUnknownSets[index][word] |= unknownGantrySet[word];
+            }
+        }
+    }
+
+    private void setCode(int column, int code, int ordinal) {
+        // Unknown codes are in no set, so they only match columns that are not filtered
+        if (code >= 0 && code < codeSets[column].length) {
+            setBit(codeSets[column][code], ordinal);
+        }
+    }
+
+    private static void setBit(long[] set, int ordinal) {
+        set[ordinal >>> 6] |= 1L << ordinal;
+    }
+
+    private static boolean getBit(long[] set, int ordinal) {
+        return (set[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Return the number of car parks
+     *
+     * @return number of car parks the engine was built from
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the ordinal of a car park
+     *
+     * @param carParkNumber the car park number
+     * @return the ordinal, or -1 if the car park is unknown
+     */
+    public int getOrdinal(String carParkNumber) {
+        Integer ordinal = ordinals.get(carParkNumber);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    // -------------------------
+    // Resolving
+    // -------------------------
+
+    /**
+     * Resolve a filter over every car park
+     *
+     * @param filter the filter
+     * @return a new bitset of the matching ordinals
+     */
+    public long[] resolve(CarParkFilter filter) {
+        long[] gantrySet = getGantrySet(filter);
+        long[] result = new long[wordCount];
+        for (int word = 0; word < wordCount; word++) {
+            result[word] = resolveWord(filter, gantrySet, word);
+        }
+        return result;
+    }
+
+    /**
+     * Count the car parks matching a filter
+     *
+     * @param filter the filter
+     * @return number of matching car parks
+     */
+    public int count(CarParkFilter filter) {
+        long[] gantrySet = getGantrySet(filter);
+        int count = 0;
+        for (int word = 0; word < wordCount; word++) {
+            count += Long.bitCount(resolveWord(filter, gantrySet, word));
+        }
+        return count;
+    }
+
+    /**
+     * Count the car parks of a nearby result matching a filter, e.g. to show how many results a filter option leaves
+     *
+     * The bitset of the result is built on the first call for it, further calls for the same result only cost the
+     * word operations
+     *
+     * @param filter the filter
+     * @param result the nearby result
+     * @return number of car parks of {@code result} that match
+     */
+    public int countWithin(CarParkFilter filter, NearbyCarParkResult result) {
+        long[] within = getSpatialSet(result);
+        long[] gantrySet = getGantrySet(filter);
+        int count = 0;
+        for (int word = 0; word < wordCount; word++) {
+            if (within[word] != 0) {
+                count += Long.bitCount(within[word] & resolveWord(filter, gantrySet, word));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Keep the car parks of a nearby result that match a filter, in the same distance order
+     *
+     * @param filter the filter
+     * @param result the nearby result
+     * @return the filtered result, {@code result} itself if the filter is empty
+     */
+    public NearbyCarParkResult apply(CarParkFilter filter, NearbyCarParkResult result) {
+        if (filter.isEmpty()) {
+            return result;
+        }
+        long[] matching = resolve(filter);
+        return result.filter(carPark -> {
+            int ordinal = getOrdinal(carPark.getCarParkNumber());
+            // A car park added after the engine was built is checked directly
+            return ordinal < 0 ? filter.matches(carPark) : getBit(matching, ordinal);
+        });
+    }
+
+    private long resolveWord(CarParkFilter filter, long[] gantrySet, int word) {
+        long bits = gantrySet[word];
+        for (int column = 0; column < CarParkDictionary.COLUMN_COUNT && bits != 0; column++) {
+            if (!filter.isFiltered(column)) {
+                continue;
+            }
+            int mask = filter.getCodeMask(column);
+            long allowed = 0;
+            long[][] sets = codeSets[column];
+            for (int code = 0; code < sets.length; code++) {
+                if ((mask & (1 << code)) != 0) {
+                    allowed |= sets[code][word];
+                }
+            }
+            bits &= allowed;
+        }
+        return bits;
+    }
+
+    /**
+     * Return the set of car parks passing the gantry height of a filter, every car park if the height is not filtered
+     */
+    private long[] getGantrySet(CarParkFilter filter) {
+        double minHeight = filter.getMinGantryHeight();
+        if (minHeight <= 0) {
+            return allSet;
+        }
+        int index = Arrays.binarySearch(gantryHeights, minHeight);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index < gantryHeights.length) {
+            return filter.includesUnknownGantry() ? gantryAtLeastOrUnknownSets[index] : gantryAtLeastSets[index];
+        }
+        return filter.includesUnknownGantry() ? unknownGantrySet : new long[wordCount];
+    }
+
+    private synchronized long[] getSpatialSet(NearbyCarParkResult result) {
+        if (result != spatialResult) {
+            long[] set = new long[wordCount];
+            for (CarPark carPark : result.getUnsorted()) {
+                int ordinal = getOrdinal(carPark.getCarParkNumber());
+                if (ordinal >= 0) {
+                    setBit(set, ordinal);
+                }
+            }
+            spatialResult = result;
+            spatialSet = set;
+        }
+        return spatialSet;
+    }
+}
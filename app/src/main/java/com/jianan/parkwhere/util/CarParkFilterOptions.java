@@ -0,0 +1,95 @@
+package com.jianan.parkwhere.util;
+
+/**
+ * Filter options offered as chips on the list and map, combined into a {@link CarParkFilter}
+ *
+ * A selection is a bitmask of options
+ * - Options of the same column are combined with OR, e.g. multi-storey or basement
+ * - Options of different columns are combined with AND, like the columns of {@link CarParkFilter}
+ *
+ * "Free now" and "Short-term now" depend on the time, so a selection is turned into a filter at a {@link ParkingTime}
+ */
+public final class CarParkFilterOptions {
+    public static final int NONE = 0;
+    public static final int MULTI_STOREY = 1;
+    public static final int SURFACE = 1 << 1;
+    public static final int BASEMENT = 1 << 2;
+    public static final int ELECTRONIC_PARKING = 1 << 3;
+    public static final int NIGHT_PARKING = 1 << 4;
+    public static final int FREE_NOW = 1 << 5;
+    public static final int SHORT_TERM_NOW = 1 << 6;
+
+    // Options in the order their chips are shown
+    public static final int[] ALL = {FREE_NOW, SHORT_TERM_NOW, MULTI_STOREY, SURFACE, BASEMENT, ELECTRONIC_PARKING,
+            NIGHT_PARKING};
+
+    private CarParkFilterOptions() {
+    }
+
+    /**
+     * Return the chip label of an option
+     *
+     * @param option one of the option constants
+     * @return the label
+     */
+    public static String getLabel(int option) {
+        switch (option) {
+            case MULTI_STOREY:
+                return "Multi-storey";
+            case SURFACE:
+                return "Surface";
+            case BASEMENT:
+                return "Basement";
+            case ELECTRONIC_PARKING:
+                return "Electronic parking";
+            case NIGHT_PARKING:
+                return "Night parking";
+            case FREE_NOW:
+                return "Free now";
+            case SHORT_TERM_NOW:
+                return "Short-term now";
+            default:
+                throw new IllegalArgumentException("Unknown filter option " + option);
+        }
+    }
+
+    /**
+     * Build the filter of a selection
+     *
+     * @param options bitmask of option constants
+     * @param time    the time {@link #FREE_NOW} and {@link #SHORT_TERM_NOW} are checked at
+     * @return the filter, {@link CarParkFilter#NONE} if no option is selected
+     */
+    public static CarParkFilter toFilter(int options, ParkingTime time) {
+        if (options == NONE) {
+            return CarParkFilter.NONE;
+        }
+        CarParkFilter.Builder builder = new CarParkFilter.Builder();
+        int type = CarParkDictionary.COLUMN_CAR_PARK_TYPE;
+        if ((options & MULTI_STOREY) != 0) {
+            builder.allow(type, CarParkDictionary.CAR_PARK_TYPE_MULTI_STOREY)
+                    .allow(type, CarParkDictionary.CAR_PARK_TYPE_SURFACE_MULTI_STOREY);
+        }
+        if ((options & SURFACE) != 0) {
+            builder.allow(type, CarParkDictionary.CAR_PARK_TYPE_SURFACE)
+                    .allow(type, CarParkDictionary.CAR_PARK_TYPE_SURFACE_MULTI_STOREY)
+                    .allow(type, CarParkDictionary.CAR_PARK_TYPE_MECHANISED_AND_SURFACE);
+        }
+        if ((options & BASEMENT) != 0) {
+            builder.allow(type, CarParkDictionary.CAR_PARK_TYPE_BASEMENT);
+        }
+        if ((options & ELECTRONIC_PARKING) != 0) {
+            builder.allow(CarParkDictionary.COLUMN_PARKING_SYSTEM_TYPE, CarParkDictionary.PARKING_SYSTEM_ELECTRONIC);
+        }
+        if ((options & NIGHT_PARKING) != 0) {
+            builder.allow(CarParkDictionary.COLUMN_NIGHT_PARKING, CarParkDictionary.NIGHT_PARKING_YES);
+        }
+        if ((options & FREE_NOW) != 0) {
+            builder.freeParkingAt(time);
+        }
+        if ((options & SHORT_TERM_NOW) != 0) {
+            builder.shortTermParkingAt(time);
+        }
+        return builder.build();
+    }
+}
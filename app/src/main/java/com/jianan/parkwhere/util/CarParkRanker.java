@@ -0,0 +1,281 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+import com.jianan.parkwhere.data.model.CarParkApiData;
+import com.jianan.parkwhere.data.model.CarParkInfo;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranks nearby car parks on a weighted combination of distance, availability, estimated cost and clearance
+ *
+ * Each criterion is reduced to a penalty from 0 (best) to 1 (worst) over primitive columns aligned with
+ * {@link NearbyCarParkResult#getUnsorted()}
+ * - Distance: distance over the largest distance of the set
+ * - Availability: share of lots taken, 1 without availability data
+ * - Cost: estimated cost over the largest estimate of the set, 1 where parking is not allowed
+ * - Clearance: how little room the gantry leaves above the vehicle clearance, 1 for unknown heights, 0 if no
+ *   clearance is set
+ *
+ * The score is the weighted sum of the penalties. Scores are packed with the index of their car park into
+ * {@code long}s the same way {@link NearbyCarParkResult} packs distances, so a bounded heap keeps the best {@code k}
+ * without boxing and car parks with equal scores keep their order
+ *
+ * An instance keeps its columns and heap between calls and writes the ranked indices into an array of the caller, so
+ * re-ranking the same list on every availability poll allocates no arrays once they have grown. An instance is meant
+ * to be used from one thread
+ */
+public final class CarParkRanker {
+    // Gantry room above the vehicle clearance that counts as comfortable
+    private static final float CLEARANCE_MARGIN_METERS = 0.5f;
+
+    // Presets of the rankings that can be chosen in settings
+    public static final Weights CLOSEST = new Weights(1f, 0f, 0f, 0f);
+    public static final Weights MOST_AVAILABLE = new Weights(0.25f, 1f, 0f, 0.1f);
+    // The distance only breaks ties between car parks of the same cost, nearest first
+    public static final Weights CHEAPEST = new Weights(0.01f, 0f, 1f, 0f);
+
+    private float[] distances = new float[0];
+    private float[] availability = new float[0];
+    private float[] costs = new float[0];
+    private float[] clearance = new float[0];
+    private long[] heap = new long[0];
+
+    // -------------------------
+    // Ranking
+    // -------------------------
+
+    /**
+     * Rank the car parks of a nearby result
+     *
+     * @param weights          weights of the criteria
+     * @param result           the nearby result
+     * @param apiLookup        latest availability keyed by car park number
+     * @param isMotorcycle     whether availability is counted over motorcycle lots instead of car lots
+     * @param estimates        cost estimates aligned with {@code result}, or {@link ParkingCostEstimator.Estimates#EMPTY}
+     * @param vehicleClearance vehicle clearance in metres, 0 if none is set
+     * @param ranked           array the indices into {@link NearbyCarParkResult#getUnsorted()} of the best car parks
+     *                         are written to, best first, its length is the number of car parks to rank
+     * @return number of indices written, {@code min(ranked.length, result.size())}
+     */
+    public int rank(Weights weights, NearbyCarParkResult result, Map<String, CarParkApiData> apiLookup,
+                    boolean isMotorcycle, ParkingCostEstimator.Estimates estimates, float vehicleClearance,
+                    int[] ranked) {
+        int size = result.size();
+        ensureCapacity(size);
+        if (heap.length < ranked.length) {
+            heap = new long[ranked.length];
+        }
+        List<CarPark> carParks = result.getUnsorted();
+        result.getDistancesMeters(distances);
+        boolean hasCosts = estimates.size() == size;
+
+        for (int i = 0; i < size; i++) {
+            CarPark carPark = carParks.get(i);
+            availability[i] = weights.availability > 0
+                    ? availabilityRatio(apiLookup.get(carPark.getCarParkNumber()), isMotorcycle) : Float.NaN;
+            costs[i] = hasCosts ? estimates.getCostCents(i) : Float.NaN;
+            clearance[i] = carPark.hasGantryHeight()
+                    ? (float) carPark.getGantryHeight() - vehicleClearance : Float.NaN;
+        }
+        return rank(weights, distances, availability, costs, vehicleClearance > 0 ? clearance : null, size, heap,
+                ranked);
+    }
+
+    /**
+     * Rank car parks given as columns
+     *
+     * @param weights          weights of the criteria
+     * @param distancesMeters  distance of each car park
+     * @param availableRatios  share of lots available from 0 to 1, {@code NaN} without data
+     * @param costCents        estimated cost, {@code NaN} where parking is not allowed
+     * @param clearanceMargins gantry height minus vehicle clearance in metres, {@code NaN} for unknown heights, or
+     *                         null if no clearance is set
+     * @param size             number of car parks, columns may be longer
+     * @param k                number of car parks to rank
+     * @return indices of the best {@code min(k, size)} car parks, best first
+     */
+    public static int[] rank(Weights weights, float[] distancesMeters, float[] availableRatios, float[] costCents,
+                             float[] clearanceMargins, int size, int k) {
+        int count = Math.min(k, size);
+        int[] ranked = new int[count];
+        rank(weights, distancesMeters, availableRatios, costCents, clearanceMargins, size, new long[count], ranked);
+        return ranked;
+    }
+
+    private static int rank(Weights weights, float[] distancesMeters, float[] availableRatios, float[] costCents,
+                            float[] clearanceMargins, int size, long[] heap, int[] ranked) {
+        float maxDistance = 0;
+        float maxCost = 0;
+        for (int i = 0; i < size; i++) {
+            maxDistance = Math.max(maxDistance, distancesMeters[i]);
+            if (!Float.isNaN(costCents[i])) {
+                maxCost = Math.max(maxCost, costCents[i]);
+            }
+        }
+
+        int count = Math.min(ranked.length, size);
+        int heapSize = 0;
+        for (int i = 0; i < size; i++) {
+            float score = 0;
+            if (weights.distance > 0 && maxDistance > 0) {
+                score += weights.distance * distancesMeters[i] / maxDistance;
+            }
+            if (weights.availability > 0) {
+                float ratio = availableRatios[i];
+                score += weights.availability * (Float.isNaN(ratio) ? 1f : 1f - ratio);
+            }
+            if (weights.cost > 0) {
+                float cost = costCents[i];
+                score += weights.cost * (Float.isNaN(cost) ? 1f : maxCost > 0 ? cost / maxCost : 0f);
+            }
+            if (weights.clearance > 0 && clearanceMargins != null) {
+                float margin = clearanceMargins[i];
+                score += weights.clearance * (Float.isNaN(margin) ? 1f
+                        : Math.max(0f, 1f - margin / CLEARANCE_MARGIN_METERS));
+            }
+
+            // Scores are never negative, so their bits order like the values and ties fall back to the index
+            long entry = ((long) Float.floatToIntBits(score) << 32) | i;
+            if (heapSize < count) {
+                heap[heapSize] = entry;
+                siftUp(heap, heapSize++);
+            } else if (count > 0 && entry < heap[0]) {
+                heap[0] = entry;
+                siftDown(heap, count);
+            }
+        }
+
+        Arrays.sort(heap, 0, heapSize);
+        for (int i = 0; i < heapSize; i++) {
+            ranked[i] = (int) heap[i];
+        }
+        return heapSize;
+    }
+
+    /**
+     * Return the share of lots available in a car park
+     *
+     * @param apiData      latest API data of the car park, or null
+     * @param isMotorcycle whether to count motorcycle lots instead of car lots
+     * @return available lots over total lots from 0 to 1, {@code NaN} without data for the lot type
+     */
+    public static float availabilityRatio(CarParkApiData apiData, boolean isMotorcycle) {
+        List<CarParkInfo> infoList = apiData != null ? apiData.getCarParkInfo() : null;
+        if (infoList == null) {
+            return Float.NaN;
+        }
+        for (CarParkInfo info : infoList) {
+            String lotType = info.getLotType();
+            boolean isMatch = isMotorcycle ? "M".equals(lotType) || "Y".equals(lotType) : "C".equals(lotType);
+            if (isMatch) {
+                try {
+                    int available = Integer.parseInt(info.getLotsAvailable());
+                    int total = Integer.parseInt(info.getTotalLots());
+                    return total > 0 ? Math.max(0f, Math.min(1f, (float) available / total)) : Float.NaN;
+                } catch (NumberFormatException e) {
+                    return Float.NaN;
+                }
+            }
+        }
+        return Float.NaN;
+    }
+
+    private void ensureCapacity(int size) {
+        if (distances.length < size) {
+            int capacity = Math.max(size, distances.length * 2);
+            distances = new float[capacity];
+            availability = new float[capacity];
+            costs = new float[capacity];
+            clearance = new float[capacity];
+        }
+    }
+
+    // -------------------------
+    // Max heap over packed entries
+    // -------------------------
+
+    private static void siftUp(long[] heap, int index) {
+        long entry = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= entry) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = entry;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        long entry = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (entry >= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = entry;
+    }
+
+    // -------------------------
+    // Weights
+    // -------------------------
+
+    /**
+     * Weights of the ranking criteria, a criterion with a weight of 0 is not looked at
+     */
+    public static final class Weights {
+        private final float distance;
+        private final float availability;
+        private final float cost;
+        private final float clearance;
+
+        /**
+         * Construct weights
+         *
+         * @param distance     weight of the distance
+         * @param availability weight of the share of lots taken
+         * @param cost         weight of the estimated cost
+         * @param clearance    weight of the gantry clearance
+         * @throws IllegalArgumentException if a weight is negative or not a number
+         */
+        public Weights(float distance, float availability, float cost, float clearance) {
+            if (!(distance >= 0 && availability >= 0 && cost >= 0 && clearance >= 0)) {
+                throw new IllegalArgumentException("Weights must not be negative");
+            }
+            this.distance = distance;
+            this.availability = availability;
+            this.cost = cost;
+            this.clearance = clearance;
+        }
+
+        public float getDistance() {
+            return distance;
+        }
+
+        public float getAvailability() {
+            return availability;
+        }
+
+        public float getCost() {
+            return cost;
+        }
+
+        public float getClearance() {
+            return clearance;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+import com.jianan.parkwhere.data.model.CarParkApiData;
+import com.jianan.parkwhere.data.model.CarParkInfo;
+
+import java.util.List;
+
+/**
+ * Immutable row model displayed by {@link CarParkAdapter}
+ *
+ * Holds only what a row shows, already reduced to the resolution it is shown at
+ * - Identity: the car park number
+ * - Distance bucket: metres rounded the same way the distance text is, so moving a few metres does not rebind
+ * - Availability: tier plus car and motorcycle counts parsed once from the API strings
+ * - Bookmark bit
+ * - Estimated cost of the stay chosen on the list, with its length
+ *
+ * A content hash over these fields is computed once in the constructor, so the diff rejects changed rows with a
+ * single int comparison and only falls back to comparing fields when the hashes match
+ *
+ * {@link #update(double, double, boolean, CarParkApiData, boolean, float, int)} carries a row over to new inputs and
+ * returns the same instance when nothing it shows changed, so a rebuild only allocates and parses the rows that are
+ * affected
+ */
+public final class CarParkRow {
+    // Distance bucket when there is no location to measure from
+    public static final int NO_DISTANCE = -1;
+
+    // Count when a lot type is absent or not a number
+    public static final int NO_COUNT = -1;
+
+    // Cost when the car park has no estimate, NaN is kept for stays where parking is not allowed
+    public static final float NO_COST = -1f;
+
+    // Availability tiers
+    public static final int TIER_NO_DATA = 0;
+    public static final int TIER_FULL = 1;
+    public static final int TIER_LOW = 2;
+    public static final int TIER_AVAILABLE = 3;
+
+    // A car park with fewer free lots than this across all lot types is considered low
+    private static final int LOW_AVAILABILITY_LOTS = 10;
+
+    // Bits returned by getChangedParts
+    public static final int CHANGE_DISTANCE = 1;
+    public static final int CHANGE_AVAILABILITY = 1 << 1;
+    public static final int CHANGE_BOOKMARK = 1 << 2;
+    public static final int CHANGE_COST = 1 << 3;
+
+    private final CarPark carPark;
+    private final String carParkNumber;
+    private final int distanceBucket;
+    private final int tier;
+    private final int carLotsAvailable;
+    private final int carLotsTotal;
+    private final int motorcycleLotsAvailable;
+    private final int motorcycleLotsTotal;
+    private final long updateTimeMillis;
+    private final boolean isBookmarked;
+    private final float costCents;
+    private final int costDurationMinutes;
+    private final int contentHash;
+
+    private CarParkRow(CarPark carPark, int distanceBucket, int carLotsAvailable, int carLotsTotal,
+                       int motorcycleLotsAvailable, int motorcycleLotsTotal, long updateTimeMillis,
+                       boolean hasApiData, boolean isBookmarked, float costCents, int costDurationMinutes) {
+        this.carPark = carPark;
+        this.carParkNumber = carPark.getCarParkNumber();
+        this.distanceBucket = distanceBucket;
+        this.carLotsAvailable = carLotsAvailable;
+        this.carLotsTotal = carLotsTotal;
+        this.motorcycleLotsAvailable = motorcycleLotsAvailable;
+        this.motorcycleLotsTotal = motorcycleLotsTotal;
+        this.updateTimeMillis = updateTimeMillis;
+        this.isBookmarked = isBookmarked;
+        this.costCents = costCents;
+        this.costDurationMinutes = costDurationMinutes;
+        this.tier = hasApiData ? calculateTier(carLotsAvailable, motorcycleLotsAvailable) : TIER_NO_DATA;
+
+        int hash = carParkNumber.hashCode();
+        hash = 31 * hash + distanceBucket;
+        hash = 31 * hash + tier;
+        hash = 31 * hash + carLotsAvailable;
+        hash = 31 * hash + carLotsTotal;
+        hash = 31 * hash + motorcycleLotsAvailable;
+        hash = 31 * hash + motorcycleLotsTotal;
+        hash = 31 * hash + Long.hashCode(updateTimeMillis);
+        hash = 31 * hash + (isBookmarked ? 1 : 0);
+        hash = 31 * hash + Float.floatToIntBits(costCents);
+        hash = 31 * hash + costDurationMinutes;
+        this.contentHash = hash;
+    }
+
+    /**
+     * Build a row from a car park and the current display state
+     *
+     * @param carPark             the car park
+     * @param userLatitude        latitude to measure the distance from, {@code NaN} to omit the distance
+     * @param userLongitude       longitude to measure the distance from
+     * @param apiData             latest API data of the car park, or null if there is none
+     * @param isBookmarked        whether the car park is bookmarked
+     * @param costCents           estimated cost of the stay, {@code NaN} if parking is not allowed, or {@link #NO_COST}
+     * @param costDurationMinutes length of the stay the cost was estimated for
+     * @return the row
+     */
+    public static CarParkRow create(CarPark carPark, double userLatitude, double userLongitude, CarParkApiData apiData,
+                                    boolean isBookmarked, float costCents, int costDurationMinutes) {
+        return create(carPark, distanceBucketOf(carPark, userLatitude, userLongitude), apiData, isBookmarked, costCents,
+                costDurationMinutes);
+    }
+
+    private static CarParkRow create(CarPark carPark, int distanceBucket, CarParkApiData apiData, boolean isBookmarked,
+                                     float costCents, int costDurationMinutes) {
+        int carAvailable = NO_COUNT;
+        int carTotal = NO_COUNT;
+        int motorcycleAvailable = NO_COUNT;
+        int motorcycleTotal = NO_COUNT;
+        long updateTimeMillis = RelativeTimeFormatter.UNKNOWN_TIME;
+        List<CarParkInfo> infoList = apiData != null ? apiData.getCarParkInfo() : null;
+        boolean hasApiData = infoList != null && !infoList.isEmpty();
+
+        if (hasApiData) {
+            updateTimeMillis = apiData.getUpdateTimeMillis();
+            for (CarParkInfo info : infoList) {
+                String lotType = info.getLotType();
+                if ("C".equals(lotType)) { // Car parking lots
+                    carAvailable = parseCount(info.getLotsAvailable());
+                    carTotal = parseCount(info.getTotalLots());
+                } else if ("M".equals(lotType) || "Y".equals(lotType)) { // Motorcycle parking lots (M or Y)
+                    motorcycleAvailable = parseCount(info.getLotsAvailable());
+                    motorcycleTotal = parseCount(info.getTotalLots());
+                }
+            }
+        }
+
+        return new CarParkRow(carPark, distanceBucket, carAvailable, carTotal, motorcycleAvailable, motorcycleTotal,
+                updateTimeMillis, hasApiData, isBookmarked, costCents, costDurationMinutes);
+    }
+
+    /**
+     * Return this row for new inputs, reusing what did not change
+     *
+     * Availability is only parsed again when the update time of the API data differs from the row's, as the API
+     * changes a car park's update time whenever it changes its counts
+     *
+     * @param userLatitude        latitude to measure the distance from, {@code NaN} to omit the distance
+     * @param userLongitude       longitude to measure the distance from
+     * @param isLocationChanged   whether the location differs from the one the row was built with
+     * @param apiData             latest API data of the car park, or null if there is none
+     * @param isBookmarked        whether the car park is bookmarked
+     * @param costCents           estimated cost of the stay, {@code NaN} if parking is not allowed, or {@link #NO_COST}
+     * @param costDurationMinutes length of the stay the cost was estimated for
+     * @return this row if nothing it shows changed, otherwise a new row
+     */
+    public CarParkRow update(double userLatitude, double userLongitude, boolean isLocationChanged,
+                             CarParkApiData apiData, boolean isBookmarked, float costCents, int costDurationMinutes) {
+        int bucket = isLocationChanged ? distanceBucketOf(carPark, userLatitude, userLongitude) : distanceBucket;
+        if (!isSameUpdate(apiData)) {
+            return create(carPark, bucket, apiData, isBookmarked, costCents, costDurationMinutes);
+        }
+        if (bucket == distanceBucket && isBookmarked == this.isBookmarked
+                && isSameCost(costCents, costDurationMinutes)) {
+            return this;
+        }
+        return new CarParkRow(carPark, bucket, carLotsAvailable, carLotsTotal, motorcycleLotsAvailable,
+                motorcycleLotsTotal, updateTimeMillis, hasApiData(), isBookmarked, costCents, costDurationMinutes);
+    }
+
+    private boolean isSameCost(float costCents, int costDurationMinutes) {
+        // Float.compare treats NaN as equal to itself
+        return Float.compare(costCents, this.costCents) == 0 && costDurationMinutes == this.costDurationMinutes;
+    }
+
+    private boolean isSameUpdate(CarParkApiData apiData) {
+        List<CarParkInfo> infoList = apiData != null ? apiData.getCarParkInfo() : null;
+        if (infoList == null || infoList.isEmpty()) {
+            return !hasApiData();
+        }
+        long time = apiData.getUpdateTimeMillis();
+        return hasApiData() && time != RelativeTimeFormatter.UNKNOWN_TIME && time == updateTimeMillis;
+    }
+
+    private static int distanceBucketOf(CarPark carPark, double userLatitude, double userLongitude) {
+        if (Double.isNaN(userLatitude)) {
+            return NO_DISTANCE;
+        }
+        return toDistanceBucket(GeoUtils.calculateHaversineDistance(
+                userLatitude, userLongitude, carPark.getLatitude(), carPark.getLongitude()));
+    }
+
+    /**
+     * Round a distance to the resolution it is displayed at, whole metres below 1 km and 100 m above
+     *
+     * @param distanceMeters distance in metres
+     * @return the distance bucket in metres
+     */
+    static int toDistanceBucket(double distanceMeters) {
+        if (distanceMeters < 1000) {
+            return (int) Math.round(distanceMeters);
+        }
+        return (int) Math.round(distanceMeters / 100) * 100;
+    }
+
+    private static int calculateTier(int carAvailable, int motorcycleAvailable) {
+        int available = Math.max(carAvailable, 0) + Math.max(motorcycleAvailable, 0);
+        if (available == 0) {
+            return TIER_FULL;
+        }
+        return available < LOW_AVAILABILITY_LOTS ? TIER_LOW : TIER_AVAILABLE;
+    }
+
+    private static int parseCount(String value) {
+        if (value == null) {
+            return NO_COUNT;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return NO_COUNT;
+        }
+    }
+
+    // -------------------------
+    // Diff Support
+    // -------------------------
+
+    /**
+     * Return whether both rows show the same car park
+     */
+    public boolean isSameItem(CarParkRow other) {
+        return carParkNumber.equals(other.carParkNumber);
+    }
+
+    /**
+     * Return whether both rows would be displayed identically
+     */
+    public boolean isSameContent(CarParkRow other) {
+        return contentHash == other.contentHash && getChangedParts(other) == 0;
+    }
+
+    /**
+     * Return which parts of the row differ from another row of the same car park
+     *
+     * @param other the previous row
+     * @return a combination of {@link #CHANGE_DISTANCE}, {@link #CHANGE_AVAILABILITY}, {@link #CHANGE_BOOKMARK} and
+     *         {@link #CHANGE_COST}
+     */
+    public int getChangedParts(CarParkRow other) {
+        int changes = 0;
+        if (distanceBucket != other.distanceBucket) {
+            changes |= CHANGE_DISTANCE;
+        }
+        if (tier != other.tier
+                || carLotsAvailable != other.carLotsAvailable || carLotsTotal != other.carLotsTotal
+                || motorcycleLotsAvailable != other.motorcycleLotsAvailable
+                || motorcycleLotsTotal != other.motorcycleLotsTotal
+                || updateTimeMillis != other.updateTimeMillis) {
+            changes |= CHANGE_AVAILABILITY;
+        }
+        if (isBookmarked != other.isBookmarked) {
+            changes |= CHANGE_BOOKMARK;
+        }
+        if (!isSameCost(other.costCents, other.costDurationMinutes)) {
+            changes |= CHANGE_COST;
+        }
+        return changes;
+    }
+
+    // -------------------------
+    // Getters
+    // -------------------------
+
+    public CarPark getCarPark() {
+        return carPark;
+    }
+
+    public String getCarParkNumber() {
+        return carParkNumber;
+    }
+
+    public int getDistanceBucket() {
+        return distanceBucket;
+    }
+
+    public boolean hasDistance() {
+        return distanceBucket != NO_DISTANCE;
+    }
+
+    public int getTier() {
+        return tier;
+    }
+
+    public boolean hasApiData() {
+        return tier != TIER_NO_DATA;
+    }
+
+    public boolean hasCarLots() {
+        return carLotsTotal != NO_COUNT;
+    }
+
+    public boolean hasMotorcycleLots() {
+        return motorcycleLotsTotal != NO_COUNT;
+    }
+
+    public int getCarLotsAvailable() {
+        return carLotsAvailable;
+    }
+
+    public int getCarLotsTotal() {
+        return carLotsTotal;
+    }
+
+    public int getMotorcycleLotsAvailable() {
+        return motorcycleLotsAvailable;
+    }
+
+    public int getMotorcycleLotsTotal() {
+        return motorcycleLotsTotal;
+    }
+
+    public long getUpdateTimeMillis() {
+        return updateTimeMillis;
+    }
+
+    public boolean isBookmarked() {
+        return isBookmarked;
+    }
+
+    public boolean hasCost() {
+        return costCents != NO_COST;
+    }
+
+    public float getCostCents() {
+        return costCents;
+    }
+
+    public int getCostDurationMinutes() {
+        return costDurationMinutes;
+    }
+
+    public int getContentHash() {
+        return contentHash;
+    }
+}
@@ -0,0 +1,238 @@
+package com.jianan.parkwhere.util;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared background executors for database work
+ *
+ * - Reads run on a small bounded pool. The database uses write-ahead logging, so SQLite serves readers on several
+ *   connections concurrently and one slow query no longer holds up every other lookup
+ * - Read tasks carry a priority, a queued {@link #PRIORITY_USER} read (e.g. the nearby search after a radius drag)
+ *   starts before queued {@link #PRIORITY_BACKGROUND} work such as loading the whole table. Tasks of equal priority
+ *   run in submission order
+ * - Writes run one at a time in submission order on a dedicated thread, so a task queued after a write always sees it
+ *
+ * Queue depth and the time tasks spend waiting for a thread are tracked per executor, see {@link Metrics}. The
+ * repository logs them once the startup reads are done
+ */
+public class DatabaseExecutors {
+    // Read priorities, lower values run first
+    public static final int PRIORITY_USER = 0;
+    public static final int PRIORITY_BACKGROUND = 1;
+
+    private static final int MAX_READ_THREADS = 4;
+
+    private static volatile DatabaseExecutors instance;
+
+    private final ThreadPoolExecutor readPool;
+    private final ThreadPoolExecutor writer;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Metrics readMetrics = new Metrics();
+    private final Metrics writeMetrics = new Metrics();
+
+    DatabaseExecutors(int readThreads) {
+        readPool = new ThreadPoolExecutor(readThreads, readThreads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), namedThreads("db-read-"));
+        writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("db-write-"));
+    }
+
+    /**
+     * Return the singleton DatabaseExecutors instance
+     *
+     * The read pool has between 2 and {@link #MAX_READ_THREADS} threads depending on the number of cores
+     *
+     * @return the singleton DatabaseExecutors instance
+     */
+    public static DatabaseExecutors getInstance() {
+        if (instance == null) {
+            synchronized (DatabaseExecutors.class) {
+                if (instance == null) {
+                    int cores = Runtime.getRuntime().availableProcessors();
+                    instance = new DatabaseExecutors(Math.max(2, Math.min(MAX_READ_THREADS, cores / 2)));
+                }
+            }
+        }
+        return instance;
+    }
+
+    // -------------------------
+    // Reads
+    // -------------------------
+
+    /**
+     * Run a read-only task on the read pool
+     *
+     * @param priority {@link #PRIORITY_USER} or {@link #PRIORITY_BACKGROUND}
+     * @param task     the task, must not write to the database
+     */
+    public void executeRead(int priority, Runnable task) {
+        readMetrics.onQueued();
+        readPool.execute(new PrioritisedTask(task, priority, sequence.getAndIncrement(), readMetrics));
+    }
+
+    /**
+     * Return an {@link Executor} view of the read pool that submits every task with the given priority
+     *
+     * @param priority {@link #PRIORITY_USER} or {@link #PRIORITY_BACKGROUND}
+     * @return an executor for read-only tasks
+     */
+    public Executor reads(int priority) {
+        return task -> executeRead(priority, task);
+    }
+
+    // -------------------------
+    // Writes
+    // -------------------------
+
+    /**
+     * Run a task on the serial writer, after every task submitted to it before
+     *
+     * @param task the task
+     */
+    public void executeWrite(Runnable task) {
+        writeMetrics.onQueued();
+        // The writer queue is first in first out, the priority is not used
+        writer.execute(new PrioritisedTask(task, PRIORITY_USER, sequence.getAndIncrement(), writeMetrics));
+    }
+
+    /**
+     * Return an {@link Executor} view of the serial writer
+     *
+     * @return an executor that runs tasks one at a time in submission order
+     */
+    public Executor writes() {
+        return this::executeWrite;
+    }
+
+    // -------------------------
+    // Metrics
+    // -------------------------
+
+    /**
+     * Return the metrics of the read pool
+     */
+    public Metrics getReadMetrics() {
+        return readMetrics;
+    }
+
+    /**
+     * Return the metrics of the serial writer
+     */
+    public Metrics getWriteMetrics() {
+        return writeMetrics;
+    }
+
+    /**
+     * Queue depth and wait time of one executor
+     */
+    public static class Metrics {
+        private final AtomicInteger queueDepth = new AtomicInteger();
+        private final AtomicLong startedCount = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        void onQueued() {
+            queueDepth.incrementAndGet();
+        }
+
+        void onStarted(long waitNanos) {
+            queueDepth.decrementAndGet();
+            startedCount.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+
+        /**
+         * Return the number of tasks waiting for a thread
+         */
+        public int getQueueDepth() {
+            return queueDepth.get();
+        }
+
+        /**
+         * Return the number of tasks that have started
+         */
+        public long getStartedCount() {
+            return startedCount.get();
+        }
+
+        /**
+         * Return the average time started tasks waited for a thread
+         *
+         * @return average wait in milliseconds, 0 if no task has started
+         */
+        public double getAverageWaitMillis() {
+            long started = startedCount.get();
+            return started == 0 ? 0 : totalWaitNanos.get() / (started * 1_000_000.0);
+        }
+
+        /**
+         * Return the longest time a started task waited for a thread
+         *
+         * @return maximum wait in milliseconds
+         */
+        public double getMaxWaitMillis() {
+            return maxWaitNanos.get() / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "queued=%d started=%d avgWait=%.1fms maxWait=%.1fms",
+                    getQueueDepth(), getStartedCount(), getAverageWaitMillis(), getMaxWaitMillis());
+        }
+    }
+
+    // -------------------------
+    // Tasks
+    // -------------------------
+
+    /**
+     * Task ordered by priority then submission order, records its wait time when it starts
+     */
+    private static final class PrioritisedTask implements Runnable, Comparable<PrioritisedTask> {
+        private final Runnable task;
+        private final int priority;
+        private final long sequence;
+        private final Metrics metrics;
+        private final long queuedAtNanos = System.nanoTime();
+
+        PrioritisedTask(Runnable task, int priority, long sequence, Metrics metrics) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void run() {
+            metrics.onStarted(System.nanoTime() - queuedAtNanos);
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritisedTask other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
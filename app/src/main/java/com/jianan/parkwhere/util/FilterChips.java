@@ -0,0 +1,67 @@
+package com.jianan.parkwhere.util;
+
+import android.view.LayoutInflater;
+
+import com.google.android.material.chip.Chip;
+import com.google.android.material.chip.ChipGroup;
+import com.jianan.parkwhere.R;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Binds a {@link ChipGroup} to the {@link CarParkFilterOptions}, one checkable chip per option
+ *
+ * Chips only report taps, their checked state and counts are set from the view model by {@link #bind}, so the list
+ * and the map always show the shared selection
+ */
+public final class FilterChips {
+
+    private FilterChips() {
+    }
+
+    /**
+     * Add a chip for every filter option
+     *
+     * @param group     the chip group, its current chips are removed
+     * @param onChanged receives the new selection whenever a chip is tapped
+     */
+    public static void setup(ChipGroup group, IntConsumer onChanged) {
+        group.removeAllViews();
+        LayoutInflater inflater = LayoutInflater.from(group.getContext());
+        for (int option : CarParkFilterOptions.ALL) {
+            Chip chip = (Chip) inflater.inflate(R.layout.item_filter_chip, group, false);
+            chip.setTag(option);
+            chip.setText(CarParkFilterOptions.getLabel(option));
+            chip.setOnClickListener(v -> onChanged.accept(getSelection(group)));
+            group.addView(chip);
+        }
+    }
+
+    /**
+     * Show a selection and the number of car parks each option keeps
+     *
+     * @param group     the chip group set up with {@link #setup}
+     * @param selection bitmask of the selected options
+     * @param countOf   number of nearby car parks an option keeps on its own
+     */
+    public static void bind(ChipGroup group, int selection, IntUnaryOperator countOf) {
+        for (int i = 0; i < group.getChildCount(); i++) {
+            Chip chip = (Chip) group.getChildAt(i);
+            int option = (Integer) chip.getTag();
+            chip.setChecked((selection & option) != 0);
+            chip.setText(CarParkFilterOptions.getLabel(option) + " (" + countOf.applyAsInt(option) + ")");
+        }
+    }
+
+    private static int getSelection(ChipGroup group) {
+        int selection = CarParkFilterOptions.NONE;
+        for (int i = 0; i < group.getChildCount(); i++) {
+            Chip chip = (Chip) group.getChildAt(i);
+            if (chip.isChecked()) {
+                selection |= (Integer) chip.getTag();
+            }
+        }
+        return selection;
+    }
+}
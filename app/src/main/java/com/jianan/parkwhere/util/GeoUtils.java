@@ -4,13 +4,28 @@ package com.jianan.parkwhere.util;
  * Utility class for geographic calculations related to car park locations
  *
  * Includes a Haversine formula implementation to calculate great circle distance in meters
+ * and a cheaper equirectangular (flat-earth) approximation for Singapore-scale distances
+ *
+ * Choosing between the two
+ * - Display: use {@link #calculateHaversineDistance(double, double, double, double)} when the value is shown to the user
+ * - Filtering and sorting: use {@link EquirectangularCalculator} when many candidates are compared against a single
+ *   reference point, e.g. the nearby car park query loop
+ *
+ * Over Singapore's roughly 50 km extent the equirectangular approximation stays within a few centimetres of
+ * Haversine for search radii of a few kilometres, see {@code GeoUtilsTest} for the measured bounds
  *
  * Usage example
  * double meters = GeoUtils.calculateHaversineDistance(lat1, lon1, lat2, lon2)
+ *
+ * GeoUtils.EquirectangularCalculator calculator = new GeoUtils.EquirectangularCalculator(centreLat)
+ * boolean isInside = calculator.calculateSquaredDistance(centreLat, centreLon, lat, lon) <= radius * radius
  */
 public class GeoUtils {
     private static final double EARTH_RADIUS_M = 6371000;
 
+    // Metres per degree of latitude on the same sphere used by the Haversine formula
+    private static final double METERS_PER_DEGREE = EARTH_RADIUS_M * Math.PI / 180.0;
+
     /**
      * Calculate the Haversine distance between two latitude longitude points in meters
      *
@@ -31,4 +46,75 @@ public class GeoUtils {
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
         return EARTH_RADIUS_M * c; // distance in meters
     }
+
+    /**
+     * Calculate the approximate distance between two latitude longitude points in meters using
+     * an equirectangular projection centred on the mean latitude of both points
+     *
+     * This costs a single cosine and square root, use {@link EquirectangularCalculator} instead when
+     * comparing many points against the same reference so that the cosine is only computed once
+     *
+     * @param lat1 latitude of first point in decimal degrees
+     * @param lon1 longitude of first point in decimal degrees
+     * @param lat2 latitude of second point in decimal degrees
+     * @param lon2 longitude of second point in decimal degrees
+     * @return approximate distance in meters between the two points
+     */
+    public static double calculateEquirectangularDistance(double lat1, double lon1, double lat2, double lon2) {
+        double cosMeanLat = Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double dx = (lon2 - lon1) * cosMeanLat * METERS_PER_DEGREE;
+        double dy = (lat2 - lat1) * METERS_PER_DEGREE;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Equirectangular distance calculator with a precomputed {@code cos(lat0)} for a fixed reference latitude
+     *
+     * Intended for hot loops such as filtering car parks against a search radius. Each distance only needs
+     * a handful of multiplications, {@link #calculateSquaredDistance(double, double, double, double)} also
+     * avoids the square root so it can be compared directly against {@code radius * radius}
+     *
+     * Accuracy degrades as points move away from the reference latitude, so the reference should be the
+     * centre of the query (e.g. the user's location)
+     */
+    public static final class EquirectangularCalculator {
+        private final double metersPerDegreeLon;
+
+        /**
+         * Construct a calculator for the given reference latitude
+         *
+         * @param referenceLatitude latitude in decimal degrees, usually the centre of the query
+         */
+        public EquirectangularCalculator(double referenceLatitude) {
+            this.metersPerDegreeLon = Math.cos(Math.toRadians(referenceLatitude)) * METERS_PER_DEGREE;
+        }
+
+        /**
+         * Calculate the squared approximate distance between two points in square meters
+         *
+         * @param lat1 latitude of first point in decimal degrees
+         * @param lon1 longitude of first point in decimal degrees
+         * @param lat2 latitude of second point in decimal degrees
+         * @param lon2 longitude of second point in decimal degrees
+         * @return squared distance in square meters
+         */
+        public double calculateSquaredDistance(double lat1, double lon1, double lat2, double lon2) {
+            double dx = (lon2 - lon1) * metersPerDegreeLon;
+            double dy = (lat2 - lat1) * METERS_PER_DEGREE;
+            return dx * dx + dy * dy;
+        }
+
+        /**
+         * Calculate the approximate distance between two points in meters
+         *
+         * @param lat1 latitude of first point in decimal degrees
+         * @param lon1 longitude of first point in decimal degrees
+         * @param lat2 latitude of second point in decimal degrees
+         * @param lon2 longitude of second point in decimal degrees
+         * @return distance in meters
+         */
+        public double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
+            return Math.sqrt(calculateSquaredDistance(lat1, lon1, lat2, lon2));
+        }
+    }
 }
@@ -0,0 +1,122 @@
+package com.jianan.parkwhere.util;
+
+/**
+ * Reference count that keeps a resource running for a while after its last holder lets go
+ *
+ * {@code onFirstAcquire} runs whenever the count goes from 0 to 1 and {@code onLastRelease} runs once the count has
+ * stayed at 0 for the linger period. A holder coming back within the linger period, such as the next tab when
+ * switching tabs, cancels the pending release, so the resource is never stopped and restarted in between.
+ * {@code onFirstAcquire} is also run in that case and is expected to do nothing if the resource is still running
+ */
+public final class LingeringRefCount {
+
+    /**
+     * Runs delayed tasks, e.g. on a {@link android.os.Handler}
+     */
+    public interface Scheduler {
+        /**
+         * Schedule a task
+         *
+         * @param task    the task
+         * @param delayMs delay in milliseconds
+         * @return action that cancels the task if it has not run yet
+         */
+        Runnable schedule(Runnable task, long delayMs);
+    }
+
+    private final long lingerMs;
+    private final Scheduler scheduler;
+    private final Runnable onFirstAcquire;
+    private final Runnable onLastRelease;
+
+    private int count = 0;
+    private Runnable pendingRelease; // Task scheduled for the last release, null if none
+    private Runnable cancelPendingRelease;
+
+    /**
+     * Construct a reference count
+     *
+     * @param lingerMs       how long the count has to stay at 0 before {@code onLastRelease} runs
+     * @param scheduler      runs the delayed release
+     * @param onFirstAcquire runs when the count goes from 0 to 1
+     * @param onLastRelease  runs once the count has stayed at 0 for {@code lingerMs}
+     */
+    public LingeringRefCount(long lingerMs, Scheduler scheduler, Runnable onFirstAcquire, Runnable onLastRelease) {
+        this.lingerMs = lingerMs;
+        this.scheduler = scheduler;
+        this.onFirstAcquire = onFirstAcquire;
+        this.onLastRelease = onLastRelease;
+    }
+
+    /**
+     * Add a holder
+     */
+    public void acquire() {
+        boolean isFirst;
+        synchronized (this) {
+            isFirst = count++ == 0;
+            if (isFirst && pendingRelease != null) {
+                cancelPendingRelease.run();
+                pendingRelease = null;
+                cancelPendingRelease = null;
+            }
+        }
+        if (isFirst) {
+            onFirstAcquire.run();
+        }
+    }
+
+    /**
+     * Remove a holder, the last one schedules the release
+     *
+     * @throws IllegalStateException if there is no holder
+     */
+    public void release() {
+        synchronized (this) {
+            if (count == 0) {
+                throw new IllegalStateException("Released more often than acquired");
+            }
+            if (--count > 0) {
+                return;
+            }
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    runRelease(this);
+                }
+            };
+            pendingRelease = task;
+            cancelPendingRelease = scheduler.schedule(task, lingerMs);
+        }
+    }
+
+    private void runRelease(Runnable task) {
+        synchronized (this) {
+            // A cancelled task may still run if cancelling raced with it
+            if (pendingRelease != task) {
+                return;
+            }
+            pendingRelease = null;
+            cancelPendingRelease = null;
+        }
+        onLastRelease.run();
+    }
+
+    /**
+     * Return the number of holders
+     *
+     * @return holders that acquired and did not release yet
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Return whether the last release is waiting for the linger period to pass
+     *
+     * @return true if a release is pending
+     */
+    public synchronized boolean isLingering() {
+        return pendingRelease != null;
+    }
+}
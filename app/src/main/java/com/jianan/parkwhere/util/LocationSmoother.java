@@ -0,0 +1,121 @@
+package com.jianan.parkwhere.util;
+
+/**
+ * Smooths location fixes and holds back the ones that do not show real movement
+ *
+ * Fixes are combined by a simple Kalman filter over latitude and longitude with a single variance in square metres
+ * - The estimate's variance grows with the time since the last fix, by how far the user could have moved
+ * - A fix pulls the estimate towards itself by its weight {@code variance / (variance + accuracy * accuracy)}, so a
+ *   50 m network fix barely moves an estimate built from 5 m GPS fixes while a walk still shows up within a few fixes
+ *
+ * The smoothed estimate is only forwarded once it has moved from the last forwarded position by more than both the
+ * minimum distance and the accuracy of the fix, so jitter within the accuracy radius (common between HDB blocks)
+ * never reaches observers
+ *
+ * Not thread safe, fixes are expected on one thread such as the main looper
+ */
+public final class LocationSmoother {
+    // Assumed speed of the user when growing the variance between fixes, about a car in an estate
+    private static final double PROCESS_NOISE_METERS_PER_SECOND = 3;
+
+    // Fixes without a usable accuracy are treated as this accurate
+    private static final float DEFAULT_ACCURACY_METERS = 50f;
+
+    private final float minDistanceMeters;
+
+    private double latitude;
+    private double longitude;
+    private double variance = -1; // Square metres, negative until the first fix
+    private long timeMillis;
+
+    private double forwardedLatitude;
+    private double forwardedLongitude;
+    private boolean hasForwarded = false;
+
+    /**
+     * Construct a smoother
+     *
+     * @param minDistanceMeters movement below this distance is never forwarded, whatever the accuracy
+     */
+    public LocationSmoother(float minDistanceMeters) {
+        this.minDistanceMeters = minDistanceMeters;
+    }
+
+    /**
+     * Add a fix
+     *
+     * @param fixLatitude    latitude of the fix
+     * @param fixLongitude   longitude of the fix
+     * @param accuracyMeters horizontal accuracy of the fix (68% radius), 0 or less if unknown
+     * @param fixTimeMillis  time of the fix in milliseconds
+     * @return true if the smoothed position moved enough to be forwarded, see {@link #getLatitude()}
+     */
+    public boolean update(double fixLatitude, double fixLongitude, float accuracyMeters, long fixTimeMillis) {
+        float accuracy = accuracyMeters > 0 ? accuracyMeters : DEFAULT_ACCURACY_METERS;
+        double fixVariance = (double) accuracy * accuracy;
+
+        if (variance < 0) {
+            latitude = fixLatitude;
+            longitude = fixLongitude;
+            variance = fixVariance;
+        } else {
+            long elapsedMillis = fixTimeMillis - timeMillis;
+            if (elapsedMillis > 0) {
+                double spread = elapsedMillis / 1000.0 * PROCESS_NOISE_METERS_PER_SECOND;
+                variance += spread * spread;
+            }
+            double gain = variance / (variance + fixVariance);
+            latitude += gain * (fixLatitude - latitude);
+            longitude += gain * (fixLongitude - longitude);
+            variance = (1 - gain) * variance;
+        }
+        timeMillis = Math.max(timeMillis, fixTimeMillis);
+
+        if (hasForwarded) {
+            double moved = GeoUtils.calculateHaversineDistance(forwardedLatitude, forwardedLongitude, latitude, longitude);
+            if (moved <= Math.max(minDistanceMeters, accuracy)) {
+                return false;
+            }
+        }
+        forwardedLatitude = latitude;
+        forwardedLongitude = longitude;
+        hasForwarded = true;
+        return true;
+    }
+
+    /**
+     * Forget every fix, e.g. when location updates stop
+     */
+    public void reset() {
+        variance = -1;
+        timeMillis = 0;
+        hasForwarded = false;
+    }
+
+    /**
+     * Return the latitude of the smoothed position
+     *
+     * @return latitude in degrees
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * Return the longitude of the smoothed position
+     *
+     * @return longitude in degrees
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Return the accuracy of the smoothed position
+     *
+     * @return estimated accuracy in metres
+     */
+    public float getAccuracyMeters() {
+        return (float) Math.sqrt(Math.max(variance, 0));
+    }
+}
@@ -0,0 +1,282 @@
+package com.jianan.parkwhere.util;
+
+/**
+ * Chooses how often and how precisely to ask for location updates, from how fast the user moves and which screen
+ * shows the location
+ *
+ * Motion is read from the speed of the fixes, with separate thresholds to enter and leave a state so that it does not
+ * flip back and forth at a boundary
+ * - Stationary: balanced power, long intervals
+ * - Walking: on the map, high accuracy every few seconds
+ * - Driving: on the map, high accuracy at the shortest interval
+ * The list only shows distances, so it stays on balanced power with longer intervals whatever the motion
+ *
+ * Fixes without a speed of their own, such as balanced power fixes, are compared with the oldest fix of the last 30 s
+ * - Movement beyond the accuracy of both fixes counts as speed over the whole baseline, so walking at a short interval
+ *   is not lost to the accuracy of each step
+ * - No such movement over at least 20 s counts as standing still, so the jitter of 20 to 100 m network fixes never
+ *   reads as walking
+ * - Anything shorter does not tell and leaves the motion as it is
+ *
+ * Updates start out as walking, so the first fixes arrive quickly and the policy relaxes once they show the user is
+ * standing still. Whenever the chosen {@link Request} changes it is handed to the {@link Client}, which re-requests
+ * updates from the location provider
+ *
+ * Not thread safe, fixes and screen changes are expected on one thread such as the main looper
+ */
+public final class LocationUpdatePolicy {
+    // Screens showing the location
+    public static final int SCREEN_LIST = 0;
+    public static final int SCREEN_MAP = 1;
+
+    // Motion states
+    public static final int MOTION_STATIONARY = 0;
+    public static final int MOTION_WALKING = 1;
+    public static final int MOTION_DRIVING = 2;
+
+    // Speed thresholds in m/s to enter and to leave walking and driving
+    private static final float WALKING_ENTER_SPEED = 1.0f;
+    private static final float WALKING_EXIT_SPEED = 0.4f;
+    private static final float DRIVING_ENTER_SPEED = 6.0f;
+    private static final float DRIVING_EXIT_SPEED = 4.0f;
+
+    // Fixes without a speed are compared with the oldest fix this recent, and need this long a baseline to show the
+    // user is standing still
+    private static final long BASELINE_MS = 30_000L;
+    private static final long MIN_STATIONARY_BASELINE_MS = 20_000L;
+
+    // Fixes kept for the baseline, at the shortest interval the oldest ones drop out before the baseline is full
+    private static final int MAX_FIXES = 32;
+
+    // Requests indexed by screen then motion. While moving every fix is delivered so that a stop is noticed, jitter is
+    // left to LocationSmoother, while stationary only real movement wakes the policy up
+    private static final Request[][] REQUESTS = {
+            {
+                    new Request(false, 30_000L, 25f),
+                    new Request(false, 10_000L, 0f),
+                    new Request(false, 5_000L, 0f)
+            },
+            {
+                    new Request(false, 15_000L, 10f),
+                    new Request(true, 5_000L, 0f),
+                    new Request(true, 2_000L, 0f)
+            }
+    };
+
+    /**
+     * Receives the request to use whenever it changes
+     */
+    public interface Client {
+        void requestUpdates(Request request);
+    }
+
+    private final Client client;
+
+    private int screen = SCREEN_MAP;
+    private int motion = MOTION_WALKING;
+
+    // Fixes of the last baseline in a ring, oldest at firstFix, for fixes without a speed of their own
+    private final double[] fixLatitudes = new double[MAX_FIXES];
+    private final double[] fixLongitudes = new double[MAX_FIXES];
+    private final float[] fixAccuracies = new float[MAX_FIXES];
+    private final long[] fixTimes = new long[MAX_FIXES];
+    private int firstFix = 0;
+    private int fixCount = 0;
+
+    /**
+     * Construct a policy
+     *
+     * @param client receives the request whenever it changes
+     */
+    public LocationUpdatePolicy(Client client) {
+        this.client = client;
+    }
+
+    /**
+     * Return the request for the current screen and motion
+     *
+     * @return the {@link Request}
+     */
+    public Request getRequest() {
+        return REQUESTS[screen][motion];
+    }
+
+    /**
+     * Return the current motion state
+     *
+     * @return one of {@link #MOTION_STATIONARY}, {@link #MOTION_WALKING} or {@link #MOTION_DRIVING}
+     */
+    public int getMotion() {
+        return motion;
+    }
+
+    /**
+     * Set the screen that shows the location
+     *
+     * @param screen {@link #SCREEN_LIST} or {@link #SCREEN_MAP}
+     */
+    public void setScreen(int screen) {
+        if (screen != SCREEN_LIST && screen != SCREEN_MAP) {
+            throw new IllegalArgumentException("Unknown screen: " + screen);
+        }
+        if (this.screen != screen) {
+            Request previous = getRequest();
+            this.screen = screen;
+            notifyIfChanged(previous);
+        }
+    }
+
+    /**
+     * Add a fix
+     *
+     * @param latitude       latitude of the fix
+     * @param longitude      longitude of the fix
+     * @param accuracyMeters horizontal accuracy of the fix, 0 or less if unknown
+     * @param speedMps       speed reported with the fix in m/s, {@code NaN} if none, then it is derived from the
+     *                       fixes of the last baseline
+     * @param timeMillis     time of the fix in milliseconds
+     */
+    public void onFix(double latitude, double longitude, float accuracyMeters, float speedMps, long timeMillis) {
+        while (fixCount > 0 && timeMillis - fixTimes[firstFix] > BASELINE_MS) {
+            firstFix = (firstFix + 1) % MAX_FIXES;
+            fixCount--;
+        }
+        float fixSpeed = Float.isNaN(speedMps) ? baselineSpeed(latitude, longitude, accuracyMeters, timeMillis)
+                : speedMps;
+
+        // Fixes arriving out of order are left out of the baseline
+        if (fixCount == 0 || timeMillis > fixTimes[(firstFix + fixCount - 1) % MAX_FIXES]) {
+            addFix(latitude, longitude, accuracyMeters, timeMillis);
+        }
+
+        if (Float.isNaN(fixSpeed)) {
+            return;
+        }
+        Request previous = getRequest();
+        motion = nextMotion(motion, fixSpeed);
+        notifyIfChanged(previous);
+    }
+
+    /**
+     * Forget every fix and start out as walking again, e.g. when location updates stop
+     */
+    public void reset() {
+        motion = MOTION_WALKING;
+        firstFix = 0;
+        fixCount = 0;
+    }
+
+    /**
+     * Derive the speed of a fix from the oldest fix of the baseline
+     *
+     * @return speed in m/s, or {@code NaN} if the baseline is too short to tell
+     */
+    private float baselineSpeed(double latitude, double longitude, float accuracyMeters, long timeMillis) {
+        if (fixCount == 0 || timeMillis <= fixTimes[firstFix]) {
+            return Float.NaN;
+        }
+        long elapsedMillis = timeMillis - fixTimes[firstFix];
+        double distance = GeoUtils.calculateHaversineDistance(fixLatitudes[firstFix], fixLongitudes[firstFix],
+                latitude, longitude);
+
+        // Each fix may be off by up to its accuracy, so only movement beyond both is real
+        double uncertainty = Math.max(accuracyMeters, 0) + Math.max(fixAccuracies[firstFix], 0);
+        if (distance > uncertainty) {
+            return (float) (distance * 1000 / elapsedMillis);
+        }
+        return elapsedMillis >= MIN_STATIONARY_BASELINE_MS ? 0f : Float.NaN;
+    }
+
+    private void addFix(double latitude, double longitude, float accuracyMeters, long timeMillis) {
+        if (fixCount == MAX_FIXES) {
+            firstFix = (firstFix + 1) % MAX_FIXES;
+            fixCount--;
+        }
+        int index = (firstFix + fixCount) % MAX_FIXES;
+        fixLatitudes[index] = latitude;
+        fixLongitudes[index] = longitude;
+        fixAccuracies[index] = accuracyMeters;
+        fixTimes[index] = timeMillis;
+        fixCount++;
+    }
+
+    private static int nextMotion(int motion, float speed) {
+        if (speed >= DRIVING_ENTER_SPEED || (motion == MOTION_DRIVING && speed >= DRIVING_EXIT_SPEED)) {
+            return MOTION_DRIVING;
+        }
+        if (speed >= WALKING_ENTER_SPEED || (motion != MOTION_STATIONARY && speed >= WALKING_EXIT_SPEED)) {
+            return MOTION_WALKING;
+        }
+        return MOTION_STATIONARY;
+    }
+
+    private void notifyIfChanged(Request previous) {
+        Request request = getRequest();
+        if (!request.equals(previous)) {
+            client.requestUpdates(request);
+        }
+    }
+
+    // -------------------------
+    // Request
+    // -------------------------
+
+    /**
+     * Parameters of a location request
+     */
+    public static final class Request {
+        private final boolean isHighAccuracy;
+        private final long intervalMs;
+        private final float minDistanceMeters;
+
+        public Request(boolean isHighAccuracy, long intervalMs, float minDistanceMeters) {
+            this.isHighAccuracy = isHighAccuracy;
+            this.intervalMs = intervalMs;
+            this.minDistanceMeters = minDistanceMeters;
+        }
+
+        /**
+         * Return whether to ask for high accuracy rather than balanced power
+         *
+         * @return true for high accuracy
+         */
+        public boolean isHighAccuracy() {
+            return isHighAccuracy;
+        }
+
+        public long getIntervalMs() {
+            return intervalMs;
+        }
+
+        public float getMinDistanceMeters() {
+            return minDistanceMeters;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Request other = (Request) obj;
+            return isHighAccuracy == other.isHighAccuracy && intervalMs == other.intervalMs
+                    && Float.compare(minDistanceMeters, other.minDistanceMeters) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = isHighAccuracy ? 1 : 0;
+            hash = 31 * hash + Long.hashCode(intervalMs);
+            hash = 31 * hash + Float.floatToIntBits(minDistanceMeters);
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "Request{" + (isHighAccuracy ? "high accuracy" : "balanced") + ", " + intervalMs + " ms, "
+                    + minDistanceMeters + " m}";
+        }
+    }
+}
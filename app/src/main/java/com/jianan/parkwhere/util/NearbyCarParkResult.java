@@ -0,0 +1,444 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Result of a nearby car park query that is only sorted by distance on demand
+ *
+ * Every car park within the radius is kept in a plain array together with its squared distance. Ordering is
+ * tracked in a primitive {@code long[]} where each entry packs the squared distance (upper 32 bits) with the
+ * index of the car park (lower 32 bits). As squared distances are never negative, their IEEE 754 bits sort in
+ * the same order as the values, so the packed entries can be selected and sorted without boxing or comparators
+ *
+ * The sorted prefix grows lazily with {@link #ensureSorted(int)}
+ * - An introselect (quickselect that falls back to a full sort when it recurses too deep) moves the next
+ *   {@code k} closest entries to the front of the unsorted tail in linear time
+ * - Only those {@code k} entries are then sorted
+ * Showing the first screenful of a large radius therefore costs O(n + k log k) instead of O(n log n)
+ *
+ * A result can also answer nearby queries with the same centre and a different radius
+ * - {@link #withinRadius(float)} answers a smaller radius with a binary search over the fully sorted entries
+ * - {@link Builder#Builder(NearbyCarParkResult, int)} starts a larger radius from this result, so only car parks
+ *   between the two radii have to be added
+ * - {@link #filter(Predicate)} keeps a subset without losing the sorting already done
+ *
+ * {@link #reorder(int[])} puts car parks ranked by other criteria first (see {@link CarParkRanker}), the rest still
+ * follows by distance. Such a result no longer has a distance ordered prefix and cannot answer smaller radii
+ *
+ * Instances are built on a background thread and handed over through LiveData, all accessors are synchronised
+ * so that the sorted prefix can be extended safely from the main thread afterwards
+ */
+public class NearbyCarParkResult {
+    // Below this size a range is sorted directly instead of partitioned further
+    private static final int SORT_THRESHOLD = 16;
+
+    private static final NearbyCarParkResult EMPTY = new NearbyCarParkResult(new CarPark[0], new long[0], 0, 0, false);
+
+    private final CarPark[] carParks;
+    private final long[] order;
+    private final int size;
+    private int sortedCount;
+
+    // Whether the sorted prefix was put first by reorder rather than sorted by distance
+    private final boolean isReordered;
+
+    private NearbyCarParkResult(CarPark[] carParks, long[] order, int size, int sortedCount, boolean isReordered) {
+        this.carParks = carParks;
+        this.order = order;
+        this.size = size;
+        this.sortedCount = sortedCount;
+        this.isReordered = isReordered;
+    }
+
+    /**
+     * Return a shared result without any car park
+     *
+     * @return an empty {@link NearbyCarParkResult}
+     */
+    public static NearbyCarParkResult empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Return the number of car parks within the radius
+     *
+     * @return total number of car parks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether the result has no car parks
+     *
+     * @return true if there are no car parks within the radius
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return the number of car parks that are already sorted by distance
+     *
+     * @return size of the sorted prefix
+     */
+    public synchronized int getSortedCount() {
+        return sortedCount;
+    }
+
+    /**
+     * Return the closest {@code count} car parks sorted by ascending distance
+     *
+     * @param count number of car parks to return, clamped to {@link #size()}
+     * @return a new list holding the sorted prefix
+     */
+    public synchronized List<CarPark> getSortedPrefix(int count) {
+        int end = Math.min(count, size);
+        ensureSorted(end);
+
+        List<CarPark> prefix = new ArrayList<>(end);
+        for (int i = 0; i < end; i++) {
+            prefix.add(carParks[indexAt(i)]);
+        }
+        return prefix;
+    }
+
+    /**
+     * Return the car park at the given position of the distance order
+     *
+     * @param position zero based position, closest first
+     * @return the {@link CarPark} at that position
+     */
+    public synchronized CarPark getSorted(int position) {
+        ensureSorted(position + 1);
+        return carParks[indexAt(position)];
+    }
+
+    /**
+     * Return the distance of the car park at the given position of the distance order
+     *
+     * @param position zero based position, closest first
+     * @return distance in metres
+     */
+    public synchronized float getDistanceMeters(int position) {
+        ensureSorted(position + 1);
+        return (float) Math.sqrt(Float.intBitsToFloat((int) (order[position] >>> 32)));
+    }
+
+    /**
+     * Return every car park within the radius in no particular order
+     *
+     * Used by callers such as map markers that need the full set but not its ordering
+     *
+     * @return an unmodifiable list of all car parks
+     */
+    public List<CarPark> getUnsorted() {
+        return Collections.unmodifiableList(Arrays.asList(carParks).subList(0, size));
+    }
+
+    /**
+     * Return the distance of every car park, aligned with {@link #getUnsorted()}
+     *
+     * @return a new array of distances in metres
+     */
+    public float[] getDistancesMeters() {
+        return getDistancesMeters(new float[size]);
+    }
+
+    /**
+     * Write the distance of every car park into an array, aligned with {@link #getUnsorted()}
+     *
+     * Lets callers that run on every availability poll reuse their array
+     *
+     * @param distances array of at least {@link #size()} elements, entries past the size are left untouched
+     * @return {@code distances}
+     */
+    public synchronized float[] getDistancesMeters(float[] distances) {
+        for (int position = 0; position < size; position++) {
+            distances[indexAt(position)] = (float) Math.sqrt(Float.intBitsToFloat((int) (order[position] >>> 32)));
+        }
+        return distances;
+    }
+
+    /**
+     * Extend the sorted prefix so that at least {@code count} car parks are sorted
+     *
+     * @param count required length of the sorted prefix, clamped to {@link #size()}
+     */
+    public synchronized void ensureSorted(int count) {
+        int end = Math.min(count, size);
+        if (end <= sortedCount) {
+            return;
+        }
+
+        // Move the closest entries of the unsorted tail to [sortedCount, end) then sort only that range
+        if (end < size) {
+            select(order, sortedCount, size - 1, end - 1, maxDepth(size - sortedCount));
+        }
+        Arrays.sort(order, sortedCount, end);
+        sortedCount = end;
+    }
+
+    /**
+     * Return the car parks of this result that also lie within a smaller radius around the same centre
+     *
+     * The first call sorts the whole result once, every call then only costs a binary search and a copy of the
+     * kept car parks. The returned result is already fully sorted
+     *
+     * @param radiusMeters the smaller radius in metres
+     * @return a new {@link NearbyCarParkResult}, or this result if every car park is kept
+     * @throws IllegalStateException if this result was reordered
+     */
+    public synchronized NearbyCarParkResult withinRadius(float radiusMeters) {
+        if (isReordered) {
+            throw new IllegalStateException("A reordered result is not sorted by distance");
+        }
+        ensureSorted(size);
+
+        // Entries are sorted by their upper 32 bits first, find the first one beyond the radius
+        long limit = Float.floatToIntBits(radiusMeters * radiusMeters);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if ((order[mid] >>> 32) <= limit) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        if (low == size) {
+            return this;
+        }
+        if (low == 0) {
+            return EMPTY;
+        }
+
+        CarPark[] keptCarParks = new CarPark[low];
+        long[] keptOrder = new long[low];
+        for (int i = 0; i < low; i++) {
+            keptCarParks[i] = carParks[indexAt(i)];
+            keptOrder[i] = (order[i] & 0xFFFFFFFF00000000L) | i;
+        }
+        return new NearbyCarParkResult(keptCarParks, keptOrder, low, low, false);
+    }
+
+    /**
+     * Return the car parks of this result that pass a test, with their distances
+     *
+     * The kept part of the sorted prefix is still sorted, so it carries over to the returned result
+     *
+     * @param predicate test of each car park, e.g. an attribute filter
+     * @return a new {@link NearbyCarParkResult}, or this result if every car park is kept
+     */
+    public synchronized NearbyCarParkResult filter(Predicate<CarPark> predicate) {
+        CarPark[] keptCarParks = new CarPark[size];
+        long[] keptOrder = new long[size];
+        int keptCount = 0;
+        int keptSortedCount = 0;
+        for (int position = 0; position < size; position++) {
+            CarPark carPark = carParks[indexAt(position)];
+            if (predicate.test(carPark)) {
+                keptCarParks[keptCount] = carPark;
+                keptOrder[keptCount] = (order[position] & 0xFFFFFFFF00000000L) | keptCount;
+                keptCount++;
+                if (position < sortedCount) {
+                    keptSortedCount = keptCount;
+                }
+            }
+        }
+
+        if (keptCount == size) {
+            return this;
+        }
+        if (keptCount == 0) {
+            return EMPTY;
+        }
+        return new NearbyCarParkResult(keptCarParks, keptOrder, keptCount, keptSortedCount, isReordered);
+    }
+
+    /**
+     * Return a result that lists the given car parks first, in the given order, followed by the others by distance
+     *
+     * @param first indices into {@link #getUnsorted()} of the car parks to list first, without duplicates
+     * @return a new {@link NearbyCarParkResult} sharing the car parks of this result
+     */
+    public NearbyCarParkResult reorder(int[] first) {
+        return reorder(first, first.length);
+    }
+
+    /**
+     * Return a result that lists the first {@code count} given car parks first, followed by the others by distance
+     *
+     * @param first indices into {@link #getUnsorted()} of the car parks to list first, without duplicates
+     * @param count number of leading entries of {@code first} to use, the array is not kept
+     * @return a new {@link NearbyCarParkResult} sharing the car parks of this result
+     */
+    public synchronized NearbyCarParkResult reorder(int[] first, int count) {
+        // Entries by car park index, the distance bits travel with them
+        long[] entries = new long[size];
+        for (int position = 0; position < size; position++) {
+            entries[indexAt(position)] = order[position];
+        }
+
+        long[] reordered = new long[size];
+        boolean[] isFirst = new boolean[size];
+        for (int i = 0; i < count; i++) {
+            reordered[i] = entries[first[i]];
+            isFirst[first[i]] = true;
+        }
+        int next = count;
+        for (int position = 0; position < size; position++) {
+            int index = indexAt(position);
+            if (!isFirst[index]) {
+                reordered[next++] = order[position];
+            }
+        }
+        return new NearbyCarParkResult(carParks, reordered, size, count, true);
+    }
+
+    private int indexAt(int position) {
+        return (int) order[position];
+    }
+
+    // -------------------------
+    // Introselect over packed entries
+    // -------------------------
+
+    /**
+     * Partially order {@code a[left..right]} so that {@code a[k]} holds the value it would have if the range was
+     * sorted, every entry before it is smaller or equal and every entry after it is larger or equal
+     */
+    private static void select(long[] a, int left, int right, int k, int depth) {
+        while (right - left > SORT_THRESHOLD) {
+            if (depth-- == 0) {
+                // Quickselect is degenerating, fall back to a guaranteed O(n log n) sort of the range
+                Arrays.sort(a, left, right + 1);
+                return;
+            }
+
+            int pivotIndex = partition(a, left, right, medianOfThree(a, left, (left + right) >>> 1, right));
+            if (k == pivotIndex) {
+                return;
+            } else if (k < pivotIndex) {
+                right = pivotIndex - 1;
+            } else {
+                left = pivotIndex + 1;
+            }
+        }
+        Arrays.sort(a, left, right + 1);
+    }
+
+    private static int partition(long[] a, int left, int right, int pivotIndex) {
+        long pivot = a[pivotIndex];
+        swap(a, pivotIndex, right);
+        int store = left;
+        for (int i = left; i < right; i++) {
+            if (a[i] < pivot) {
+                swap(a, i, store++);
+            }
+        }
+        swap(a, store, right);
+        return store;
+    }
+
+    private static int medianOfThree(long[] a, int i, int j, int k) {
+        if (a[i] < a[j]) {
+            return a[j] < a[k] ? j : (a[i] < a[k] ? k : i);
+        }
+        return a[i] < a[k] ? i : (a[j] < a[k] ? k : j);
+    }
+
+    private static void swap(long[] a, int i, int j) {
+        long temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+
+    private static int maxDepth(int length) {
+        return 2 * (32 - Integer.numberOfLeadingZeros(Math.max(1, length)));
+    }
+
+    // -------------------------
+    // Builder
+    // -------------------------
+
+    /**
+     * Collects car parks and their squared distances while scanning query candidates
+     */
+    public static class Builder {
+        private CarPark[] carParks;
+        private long[] order;
+        private int size = 0;
+        private int sortedCount = 0;
+
+        /**
+         * Construct a builder
+         *
+         * @param expectedSize expected number of car parks, usually the number of bounding box candidates
+         */
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 4);
+            carParks = new CarPark[capacity];
+            order = new long[capacity];
+        }
+
+        /**
+         * Construct a builder that starts with every car park of a result for a smaller radius around the same centre
+         *
+         * Car parks added afterwards must be farther than every car park of {@code base}, so the sorted prefix of
+         * {@code base} stays sorted and is carried over
+         *
+         * @param base          result for the smaller radius
+         * @param expectedExtra expected number of car parks that will be added
+         * @throws IllegalStateException if {@code base} was reordered
+         */
+        public Builder(NearbyCarParkResult base, int expectedExtra) {
+            synchronized (base) {
+                if (base.isReordered) {
+                    throw new IllegalStateException("A reordered result is not sorted by distance");
+                }
+                int capacity = Math.max(base.size + expectedExtra, 4);
+                carParks = Arrays.copyOf(base.carParks, capacity);
+                order = Arrays.copyOf(base.order, capacity);
+                size = base.size;
+                sortedCount = base.sortedCount;
+            }
+        }
+
+        /**
+         * Add a car park that lies within the radius
+         *
+         * @param carPark         the car park to add
+         * @param squaredDistance squared distance from the query centre in square metres, must not be negative
+         */
+        public void add(CarPark carPark, float squaredDistance) {
+            if (size == carParks.length) {
+                carParks = Arrays.copyOf(carParks, size * 2);
+                order = Arrays.copyOf(order, size * 2);
+            }
+            carParks[size] = carPark;
+            order[size] = ((long) Float.floatToIntBits(squaredDistance) << 32) | size;
+            size++;
+        }
+
+        /**
+         * Build the result, the builder must not be used afterwards
+         *
+         * @return the {@link NearbyCarParkResult}
+         */
+        public NearbyCarParkResult build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new NearbyCarParkResult(carParks, order, size, sortedCount, false);
+        }
+    }
+}
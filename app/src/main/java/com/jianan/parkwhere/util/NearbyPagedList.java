@@ -0,0 +1,223 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Read only list over a {@link NearbyCarParkResult} that loads the closest car parks page by page as rows are bound
+ *
+ * Modelled after the Paging library's {@code PagedList}
+ * - {@link #get(int)} never loads, with placeholders enabled it returns null for rows that are not loaded yet
+ * - {@link #loadAround(int)} is called by the adapter when a row is bound, once the row is within
+ *   {@link Config#prefetchDistance} of the end of the loaded range the next pages are sorted and loaded
+ * - Loads are posted to the notify executor (main thread) as RecyclerView does not allow adapter changes while
+ *   binding, registered {@link Callback}s are then told which rows changed or were inserted
+ *
+ * With placeholders the list reports the full size of the result up front, so the scroll bar is stable and loads
+ * turn placeholders into rows. Without placeholders the list only grows as pages are loaded
+ *
+ * The list must only be accessed from the thread behind the notify executor
+ */
+public class NearbyPagedList extends AbstractList<CarPark> {
+
+    /**
+     * Paging configuration
+     */
+    public static class Config {
+        private final int pageSize;
+        private final int prefetchDistance;
+        private final int initialLoadSize;
+        private final boolean enablePlaceholders;
+
+        /**
+         * Construct a paging configuration
+         *
+         * @param pageSize           number of car parks loaded per page
+         * @param prefetchDistance   load the next page once a bound row is this close to the end of the loaded range
+         * @param initialLoadSize    number of car parks loaded when the list is created
+         * @param enablePlaceholders if true rows that are not loaded yet are represented by null
+         */
+        public Config(int pageSize, int prefetchDistance, int initialLoadSize, boolean enablePlaceholders) {
+            if (pageSize < 1) {
+                throw new IllegalArgumentException("Page size must be at least 1");
+            }
+            this.pageSize = pageSize;
+            this.prefetchDistance = Math.max(0, prefetchDistance);
+            this.initialLoadSize = Math.max(pageSize, initialLoadSize);
+            this.enablePlaceholders = enablePlaceholders;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public int getPrefetchDistance() {
+            return prefetchDistance;
+        }
+
+        public int getInitialLoadSize() {
+            return initialLoadSize;
+        }
+
+        public boolean isEnablePlaceholders() {
+            return enablePlaceholders;
+        }
+    }
+
+    /**
+     * Notified on the notify executor when loaded rows change
+     */
+    public interface Callback {
+        /**
+         * Placeholders in the given range have been replaced by loaded car parks
+         */
+        void onChanged(int position, int count);
+
+        /**
+         * Loaded car parks have been appended to the list, only used when placeholders are disabled
+         */
+        void onInserted(int position, int count);
+    }
+
+    private final NearbyCarParkResult result;
+    private final Config config;
+    private final Executor notifyExecutor;
+    private final List<Callback> callbacks = new ArrayList<>();
+    private int loadedCount;
+    private int requestedCount;
+    private boolean isLoadScheduled = false;
+    private boolean isDetached = false;
+
+    /**
+     * Construct a paged list and load its initial page synchronously
+     *
+     * @param result         the nearby query result to page through
+     * @param config         paging configuration
+     * @param notifyExecutor executor that runs loads and callbacks, usually the main thread
+     */
+    public NearbyPagedList(NearbyCarParkResult result, Config config, Executor notifyExecutor) {
+        this.result = result;
+        this.config = config;
+        this.notifyExecutor = notifyExecutor;
+
+        loadedCount = Math.min(config.getInitialLoadSize(), result.size());
+        requestedCount = loadedCount;
+        result.ensureSorted(loadedCount);
+    }
+
+    /**
+     * Return the car park at the given position without triggering a load
+     *
+     * @param position row position
+     * @return the loaded {@link CarPark}, or null if it is a placeholder
+     */
+    @Override
+    public CarPark get(int position) {
+        if (position < 0 || position >= size()) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of " + size());
+        }
+        return position < loadedCount ? result.getSorted(position) : null;
+    }
+
+    /**
+     * Return the number of rows, which includes placeholders when they are enabled
+     *
+     * @return number of rows
+     */
+    @Override
+    public int size() {
+        return config.isEnablePlaceholders() ? result.size() : loadedCount;
+    }
+
+    /**
+     * Return the number of car parks that are loaded
+     *
+     * @return length of the loaded range starting from position 0
+     */
+    public int getLoadedCount() {
+        return loadedCount;
+    }
+
+    /**
+     * Return the total number of car parks in the underlying result
+     *
+     * @return total number of car parks within the radius
+     */
+    public int getTotalCount() {
+        return result.size();
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Signal that the row at the given position is being displayed so that further pages can be prefetched
+     *
+     * @param position row position being bound
+     */
+    public void loadAround(int position) {
+        if (isDetached) {
+            return;
+        }
+
+        // Round the requested range up to whole pages
+        int required = Math.min(position + config.getPrefetchDistance() + 1, result.size());
+        if (required <= requestedCount) {
+            return;
+        }
+        int pageSize = config.getPageSize();
+        requestedCount = Math.min(((required + pageSize - 1) / pageSize) * pageSize, result.size());
+
+        if (!isLoadScheduled) {
+            isLoadScheduled = true;
+            notifyExecutor.execute(this::loadRequested);
+        }
+    }
+
+    /**
+     * Stop loading further pages, called when the list is replaced by a newer one
+     */
+    public void detach() {
+        isDetached = true;
+        callbacks.clear();
+    }
+
+    public boolean isDetached() {
+        return isDetached;
+    }
+
+    public void addCallback(Callback callback) {
+        if (!callbacks.contains(callback)) {
+            callbacks.add(callback);
+        }
+    }
+
+    public void removeCallback(Callback callback) {
+        callbacks.remove(callback);
+    }
+
+    private void loadRequested() {
+        isLoadScheduled = false;
+        if (isDetached || requestedCount <= loadedCount) {
+            return;
+        }
+
+        int start = loadedCount;
+        int count = requestedCount - start;
+        result.ensureSorted(requestedCount);
+        loadedCount = requestedCount;
+
+        for (Callback callback : new ArrayList<>(callbacks)) {
+            if (config.isEnablePlaceholders()) {
+                callback.onChanged(start, count);
+            } else {
+                callback.onInserted(start, count);
+            }
+        }
+    }
+}
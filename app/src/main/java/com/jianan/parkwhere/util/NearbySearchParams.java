@@ -7,7 +7,8 @@ import java.util.Objects;
 /**
  * Immutable container for nearby search parameters used to query nearby car parks
  *
- * Holds a {@link android.location.Location} and a search radius in metres
+ * Holds a {@link android.location.Location}, a search radius in metres and the {@link CarParkFilter} applied to the
+ * search, e.g. the vehicle clearance
  *
  * Commonly used as the value type for LiveData that applies distinctUntilChanged to avoid
  * redundant searches when parameters have not changed
@@ -15,10 +16,16 @@ import java.util.Objects;
 public class NearbySearchParams {
     private final Location location;
     private final float radiusMeters;
+    private final CarParkFilter filter;
 
     public NearbySearchParams(Location location, float radiusMeters) {
+        this(location, radiusMeters, CarParkFilter.NONE);
+    }
+
+    public NearbySearchParams(Location location, float radiusMeters, CarParkFilter filter) {
         this.location = location;
         this.radiusMeters = radiusMeters;
+        this.filter = filter;
     }
 
     public Location getLocation() {
@@ -29,6 +36,10 @@ public class NearbySearchParams {
         return radiusMeters;
     }
 
+    public CarParkFilter getFilter() {
+        return filter;
+    }
+
     // Internally used by LiveData.distinctUntilChanged()
     @Override
     public boolean equals(Object o) {
@@ -40,12 +51,13 @@ public class NearbySearchParams {
         }
         NearbySearchParams that = (NearbySearchParams) o;
         return Float.compare(that.radiusMeters, radiusMeters) == 0 &&
-                Objects.equals(location, that.location);
+                Objects.equals(location, that.location) &&
+                Objects.equals(filter, that.filter);
     }
 
     // Though not used, this method has been overridden to maintain the equals-hashCode contract
     @Override
     public int hashCode() {
-        return Objects.hash(location, radiusMeters);
+        return Objects.hash(location, radiusMeters, filter);
     }
 }
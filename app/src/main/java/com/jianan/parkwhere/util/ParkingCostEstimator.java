@@ -0,0 +1,241 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates what a car pays to park at HDB car parks for a stay starting at an arrival time
+ *
+ * A stay is charged minute by minute
+ * - Minutes within the free parking rule of the car park are free
+ * - Other minutes are charged at the {@link ParkingRates} of the car park's tier while short-term parking is allowed,
+ *   night parking minutes are added up per night and capped at {@link ParkingRates#getNightCapCents()}
+ * - A stay with a minute where neither short-term nor night parking is allowed has no estimate ({@code NaN})
+ *
+ * The cost only depends on the tier and the short-term, free and night parking codes of a car park, which make up at
+ * most a hundred or so classes. {@link #estimate(List, LocalDateTime, int)} simulates a stay once per class seen in the
+ * list and fills the costs of the whole list with table lookups, so pricing every nearby car park costs about the same
+ * as pricing a handful
+ */
+public final class ParkingCostEstimator {
+    // Number of codes per rule column, plus one for UNKNOWN
+    private static final int SHORT_TERM_CODES = CarParkDictionary.size(CarParkDictionary.COLUMN_SHORT_TERM_PARKING) + 1;
+    private static final int FREE_CODES = CarParkDictionary.size(CarParkDictionary.COLUMN_FREE_PARKING) + 1;
+    private static final int NIGHT_CODES = CarParkDictionary.size(CarParkDictionary.COLUMN_NIGHT_PARKING) + 1;
+    private static final int CLASS_COUNT = ParkingRates.TIER_COUNT * SHORT_TERM_CODES * FREE_CODES * NIGHT_CODES;
+
+    private final ParkingRates rates;
+    private final PublicHolidayCalendar calendar;
+
+    /**
+     * Construct an estimator
+     *
+     * @param rates    the parking rates
+     * @param calendar public holidays, for free parking and rates on "PH"
+     */
+    public ParkingCostEstimator(ParkingRates rates, PublicHolidayCalendar calendar) {
+        this.rates = rates;
+        this.calendar = calendar;
+    }
+
+    /**
+     * Estimate the cost of a stay at one car park
+     *
+     * @param carPark         the car park
+     * @param arrival         local Singapore date and time of arrival
+     * @param durationMinutes length of the stay
+     * @return cost in cents, 0 for a free stay, {@code NaN} if the car park cannot be used for the whole stay
+     */
+    public double estimateCents(CarPark carPark, LocalDateTime arrival, int durationMinutes) {
+        return simulate(rates.getTier(carPark.getCarParkNumber()), carPark.getShortTermParkingCode(),
+                carPark.getFreeParkingCode(), carPark.getNightParkingCode(), dayBits(arrival, durationMinutes),
+                arrival.getHour() * 60 + arrival.getMinute(), durationMinutes);
+    }
+
+    /**
+     * Estimate the cost of the same stay at every car park of a list
+     *
+     * @param carParks        the car parks, e.g. {@link NearbyCarParkResult#getUnsorted()}
+     * @param arrival         local Singapore date and time of arrival
+     * @param durationMinutes length of the stay
+     * @return the estimates, in the order of {@code carParks}
+     */
+    public Estimates estimate(List<CarPark> carParks, LocalDateTime arrival, int durationMinutes) {
+        float[] classCosts = new float[CLASS_COUNT];
+        boolean[] isComputed = new boolean[CLASS_COUNT];
+        float[] costs = new float[carParks.size()];
+        int[] days = dayBits(arrival, durationMinutes);
+        int minute = arrival.getHour() * 60 + arrival.getMinute();
+
+        for (int i = 0; i < costs.length; i++) {
+            CarPark carPark = carParks.get(i);
+            int tier = rates.getTier(carPark.getCarParkNumber());
+            int shortTerm = carPark.getShortTermParkingCode();
+            int free = carPark.getFreeParkingCode();
+            int night = carPark.getNightParkingCode();
+
+            int index = ((tier * SHORT_TERM_CODES + shortTerm + 1) * FREE_CODES + free + 1) * NIGHT_CODES + night + 1;
+            if (!isComputed[index]) {
+                classCosts[index] = (float) simulate(tier, shortTerm, free, night, days, minute, durationMinutes);
+                isComputed[index] = true;
+            }
+            costs[i] = classCosts[index];
+        }
+        return new Estimates(new ArrayList<>(carParks), costs, durationMinutes);
+    }
+
+    /**
+     * Return the day bits of the days a stay runs over, starting with the day before arrival
+     *
+     * The flags come from {@link PublicHolidayCalendar#getParkingTime(LocalDateTime)}, once per day rather than once
+     * per simulated class
+     */
+    private int[] dayBits(LocalDateTime arrival, int durationMinutes) {
+        ParkingTime start = calendar.getParkingTime(arrival);
+        int dayCount = (start.getMinuteOfDay() + durationMinutes) / ParkingRule.MINUTES_PER_DAY + 1;
+        int[] days = new int[dayCount + 1];
+        days[0] = start.getPreviousDayBits();
+        days[1] = start.getDayBits();
+        for (int day = 2; day < days.length; day++) {
+            days[day] = calendar.getParkingTime(arrival.toLocalDate().plusDays(day - 1).atStartOfDay()).getDayBits();
+        }
+        return days;
+    }
+
+    /**
+     * Charge a stay minute by minute for one combination of tier and rule codes
+     *
+     * @param days   day bits from {@link #dayBits(LocalDateTime, int)}
+     * @param minute minute of the day of arrival
+     */
+    private double simulate(int tier, int shortTermCode, int freeCode, int nightCode, int[] days, int minute,
+                            int durationMinutes) {
+        ParkingRule shortTermRule = ParkingRuleCompiler.getRule(CarParkDictionary.COLUMN_SHORT_TERM_PARKING, shortTermCode);
+        ParkingRule freeRule = ParkingRuleCompiler.getRule(CarParkDictionary.COLUMN_FREE_PARKING, freeCode);
+        ParkingRule nightRule = ParkingRuleCompiler.getRule(CarParkDictionary.COLUMN_NIGHT_PARKING, nightCode);
+
+        int day = 1;
+        int dayBits = days[day];
+        int previousDayBits = days[day - 1];
+
+        double total = 0;
+        double night = 0; // Charges of the current night, capped when the night ends
+        for (int elapsed = 0; elapsed < durationMinutes; elapsed++) {
+            boolean isNight = nightRule.isActive(dayBits, previousDayBits, minute);
+            if (!isNight && night > 0) {
+                total += Math.min(night, rates.getNightCapCents());
+                night = 0;
+            }
+
+            if (!freeRule.isActive(dayBits, previousDayBits, minute)) {
+                boolean isShortTerm = shortTermRule.isActive(dayBits, previousDayBits, minute);
+                if (!isShortTerm && !isNight) {
+                    return Double.NaN;
+                }
+                double cents = rates.getRateCents(tier, dayBits, previousDayBits, minute) / 30.0;
+                if (isNight) {
+                    night += cents;
+                } else {
+                    total += cents;
+                }
+            }
+
+            if (++minute == ParkingRule.MINUTES_PER_DAY) {
+                minute = 0;
+                previousDayBits = dayBits;
+                dayBits = days[++day];
+            }
+        }
+        return total + Math.min(night, rates.getNightCapCents());
+    }
+
+    /**
+     * Estimated costs of one stay, a column aligned with the list of car parks it was computed for
+     */
+    public static final class Estimates {
+        public static final Estimates EMPTY = new Estimates(Collections.emptyList(), new float[0], 0);
+
+        private final List<CarPark> carParks;
+        private final float[] costCents;
+        private final int durationMinutes;
+
+        // Order by cost and index of each car park number, built on first use
+        private int[] sortedOrder;
+        private Map<String, Integer> indexByNumber;
+
+        private Estimates(List<CarPark> carParks, float[] costCents, int durationMinutes) {
+            this.carParks = carParks;
+            this.costCents = costCents;
+            this.durationMinutes = durationMinutes;
+        }
+
+        public int size() {
+            return costCents.length;
+        }
+
+        public CarPark getCarPark(int index) {
+            return carParks.get(index);
+        }
+
+        /**
+         * Return the index of a car park in the list the estimates were computed for
+         *
+         * @param carParkNumber number of the car park
+         * @return the index, -1 if the car park was not estimated
+         */
+        public synchronized int indexOf(String carParkNumber) {
+            if (indexByNumber == null) {
+                indexByNumber = new HashMap<>(carParks.size() * 2);
+                for (int i = 0; i < carParks.size(); i++) {
+                    indexByNumber.put(carParks.get(i).getCarParkNumber(), i);
+                }
+            }
+            Integer index = indexByNumber.get(carParkNumber);
+            return index != null ? index : -1;
+        }
+
+        public int getDurationMinutes() {
+            return durationMinutes;
+        }
+
+        /**
+         * Return the estimated cost at a car park
+         *
+         * @param index index of the car park in the list the estimates were computed for
+         * @return cost in cents, {@code NaN} if the car park cannot be used for the whole stay
+         */
+        public float getCostCents(int index) {
+            return costCents[index];
+        }
+
+        /**
+         * Return the indices of the car parks from cheapest to most expensive
+         *
+         * Car parks with the same cost keep their order in the list and car parks without an estimate come last
+         *
+         * @return indices into the list, not to be modified
+         */
+        public synchronized int[] getSortedOrder() {
+            if (sortedOrder == null) {
+                Integer[] order = new Integer[costCents.length];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                // Float.compare puts NaN after every number, and the sort is stable
+                Arrays.sort(order, (a, b) -> Float.compare(costCents[a], costCents[b]));
+                sortedOrder = new int[order.length];
+                for (int i = 0; i < order.length; i++) {
+                    sortedOrder[i] = order[i];
+                }
+            }
+            return sortedOrder;
+        }
+    }
+}
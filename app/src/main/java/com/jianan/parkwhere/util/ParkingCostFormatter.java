@@ -0,0 +1,50 @@
+package com.jianan.parkwhere.util;
+
+import java.util.Locale;
+
+/**
+ * Labels of the estimated parking costs shown on the list, and the stay lengths users can pick from
+ *
+ * - Costs are shown in dollars with the length of the stay, e.g. "Est. $2.40 for 2 h"
+ * - A free stay reads "Free for 2 h", a stay where parking is not allowed "No parking for 2 h"
+ */
+public final class ParkingCostFormatter {
+    // Stay lengths offered on the list, in minutes
+    public static final int[] DURATIONS_MINUTES = {30, 60, 120, 180, 240, 360, 480};
+
+    private ParkingCostFormatter() {
+    }
+
+    /**
+     * Format the length of a stay, e.g. "30 min", "2 h" or "1 h 30 min"
+     *
+     * @param durationMinutes length of the stay in minutes
+     * @return the label
+     */
+    public static String formatDuration(int durationMinutes) {
+        int hours = durationMinutes / 60;
+        int minutes = durationMinutes % 60;
+        if (hours == 0) {
+            return minutes + " min";
+        }
+        return minutes == 0 ? hours + " h" : hours + " h " + minutes + " min";
+    }
+
+    /**
+     * Format the estimated cost of a stay
+     *
+     * @param costCents       cost in cents, {@code NaN} if parking is not allowed for the whole stay
+     * @param durationMinutes length of the stay in minutes
+     * @return the label
+     */
+    public static String formatCost(float costCents, int durationMinutes) {
+        String duration = formatDuration(durationMinutes);
+        if (Float.isNaN(costCents)) {
+            return "No parking for " + duration;
+        }
+        if (costCents <= 0) {
+            return "Free for " + duration;
+        }
+        return String.format(Locale.getDefault(), "Est. $%.2f for %s", costCents / 100.0, duration);
+    }
+}
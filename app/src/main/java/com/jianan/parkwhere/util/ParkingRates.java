@@ -0,0 +1,169 @@
+package com.jianan.parkwhere.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * HDB short-term parking rates for cars, read once from the table bundled with the app
+ *
+ * Car parks are in one of two tiers, the Central Area car parks listed in the table or every other car park. Each
+ * tier has a list of rates in cents per half hour with the days and hours they apply, in the format of the parking
+ * rules of the data set (see {@link ParkingRuleCompiler}), and the first rate that applies at a time is used
+ *
+ * Table format, blank lines and lines starting with {@code #} are ignored
+ * - {@code version N}, required
+ * - {@code rate CENTRAL|NON_CENTRAL <cents per half hour> <days and hours>}
+ * - {@code night_cap <cents>}, most charged for one night of night parking
+ * - {@code central <car park number>...}, may be repeated
+ */
+public final class ParkingRates {
+    public static final int TIER_NON_CENTRAL = 0;
+    public static final int TIER_CENTRAL = 1;
+    public static final int TIER_COUNT = 2;
+
+    private static final String[] TIER_NAMES = {"NON_CENTRAL", "CENTRAL"};
+
+    private final int version;
+    private final ParkingRule[][] rateRules; // Indexed by tier then rate
+    private final int[][] rateCents; // Indexed like rateRules
+    private final int nightCapCents;
+    private final Set<String> centralCarParks;
+
+    private ParkingRates(int version, ParkingRule[][] rateRules, int[][] rateCents, int nightCapCents,
+                         Set<String> centralCarParks) {
+        this.version = version;
+        this.rateRules = rateRules;
+        this.rateCents = rateCents;
+        this.nightCapCents = nightCapCents;
+        this.centralCarParks = centralCarParks;
+    }
+
+    /**
+     * Read a rate table
+     *
+     * @param reader reader over the table, not closed
+     * @return the rates
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if the table is malformed or a tier has no rate
+     */
+    public static ParkingRates read(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        int version = -1;
+        int nightCap = Integer.MAX_VALUE;
+        Set<String> central = new HashSet<>();
+        List<List<ParkingRule>> rules = new ArrayList<>();
+        List<List<Integer>> cents = new ArrayList<>();
+        for (int tier = 0; tier < TIER_COUNT; tier++) {
+            rules.add(new ArrayList<>());
+            cents.add(new ArrayList<>());
+        }
+
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+", 4);
+            try {
+                switch (parts[0]) {
+                    case "version":
+                        version = Integer.parseInt(parts[1]);
+                        break;
+                    case "night_cap":
+                        nightCap = Integer.parseInt(parts[1]);
+                        break;
+                    case "central":
+                        String[] numbers = line.split("\\s+");
+                        central.addAll(Arrays.asList(numbers).subList(1, numbers.length));
+                        break;
+                    case "rate":
+                        int tier = Arrays.asList(TIER_NAMES).indexOf(parts[1]);
+                        if (tier < 0 || parts.length < 4) {
+                            throw new IllegalArgumentException("Malformed rate");
+                        }
+                        cents.get(tier).add(Integer.parseInt(parts[2]));
+                        rules.get(tier).add(ParkingRuleCompiler.compile(parts[3], ParkingRule.ALWAYS));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown entry");
+                }
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Malformed line " + lineNumber + ": " + line, e);
+            }
+        }
+        if (version < 0) {
+            throw new IllegalArgumentException("Rate table has no version");
+        }
+
+        ParkingRule[][] rateRules = new ParkingRule[TIER_COUNT][];
+        int[][] rateCents = new int[TIER_COUNT][];
+        for (int tier = 0; tier < TIER_COUNT; tier++) {
+            if (rules.get(tier).isEmpty()) {
+                throw new IllegalArgumentException("No rate for tier " + TIER_NAMES[tier]);
+            }
+            rateRules[tier] = rules.get(tier).toArray(new ParkingRule[0]);
+            rateCents[tier] = new int[rateRules[tier].length];
+            for (int i = 0; i < rateCents[tier].length; i++) {
+                rateCents[tier][i] = cents.get(tier).get(i);
+            }
+        }
+        return new ParkingRates(version, rateRules, rateCents, nightCap, Collections.unmodifiableSet(central));
+    }
+
+    /**
+     * Return the version of the table
+     *
+     * @return version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Return the tier of a car park
+     *
+     * @param carParkNumber the car park number
+     * @return {@link #TIER_CENTRAL} or {@link #TIER_NON_CENTRAL}
+     */
+    public int getTier(String carParkNumber) {
+        return centralCarParks.contains(carParkNumber) ? TIER_CENTRAL : TIER_NON_CENTRAL;
+    }
+
+    /**
+     * Return the rate of a tier at a time
+     *
+     * @param tier            {@link #TIER_CENTRAL} or {@link #TIER_NON_CENTRAL}
+     * @param dayBits         day bits of the day, see {@link ParkingTime#getDayBits()}
+     * @param previousDayBits day bits of the previous day
+     * @param minute          minute of the day
+     * @return cents per half hour, 0 if no rate of the tier applies
+     */
+    public int getRateCents(int tier, int dayBits, int previousDayBits, int minute) {
+        ParkingRule[] rules = rateRules[tier];
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i].isActive(dayBits, previousDayBits, minute)) {
+                return rateCents[tier][i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Return the most charged for one night of night parking
+     *
+     * @return cap in cents, {@link Integer#MAX_VALUE} if the table has none
+     */
+    public int getNightCapCents() {
+        return nightCapCents;
+    }
+}
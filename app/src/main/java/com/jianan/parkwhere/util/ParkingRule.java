@@ -0,0 +1,125 @@
+package com.jianan.parkwhere.util;
+
+import java.time.DayOfWeek;
+
+/**
+ * Compiled form of a parking rule such as "SUN & PH FR 7AM-10.30PM", see {@link ParkingRuleCompiler}
+ *
+ * A rule is a bitmask of the days it applies on and a range of minutes of the day
+ * - The range starts at {@code startMinute} and ends before {@code endMinute}, a range whose end is not after its
+ *   start runs past midnight (e.g. night parking from 10.30PM to 7AM) and its early morning part belongs to the
+ *   previous day
+ * - Public holidays have a day bit of their own, so "SUN & PH" is a single mask
+ *
+ * Checking a rule at a {@link ParkingTime} is a mask test and two comparisons
+ */
+public final class ParkingRule {
+    // Day bits, Monday is bit 0
+    public static final int MONDAY = 1;
+    public static final int TUESDAY = 1 << 1;
+    public static final int WEDNESDAY = 1 << 2;
+    public static final int THURSDAY = 1 << 3;
+    public static final int FRIDAY = 1 << 4;
+    public static final int SATURDAY = 1 << 5;
+    public static final int SUNDAY = 1 << 6;
+    public static final int PUBLIC_HOLIDAY = 1 << 7;
+    public static final int EVERY_DAY = (1 << 7) - 1;
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    public static final ParkingRule NEVER = new ParkingRule(0, 0, 0);
+    public static final ParkingRule ALWAYS = new ParkingRule(EVERY_DAY, 0, MINUTES_PER_DAY);
+
+    private final int dayMask;
+    private final int startMinute;
+    private final int endMinute;
+
+    /**
+     * Construct a rule
+     *
+     * @param dayMask     day bits the rule applies on, 0 for a rule that never applies
+     * @param startMinute first minute of the day the rule applies, from 0 to 1439
+     * @param endMinute   minute of the day the rule stops applying, from 0 to 1440
+     */
+    public ParkingRule(int dayMask, int startMinute, int endMinute) {
+        if (startMinute < 0 || startMinute >= MINUTES_PER_DAY || endMinute < 0 || endMinute > MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Minutes out of range: " + startMinute + "-" + endMinute);
+        }
+        this.dayMask = dayMask;
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+    }
+
+    /**
+     * Return the day bit of a day of the week
+     *
+     * @param day the day of the week
+     * @return one of {@link #MONDAY} to {@link #SUNDAY}
+     */
+    public static int dayBit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
+    public int getDayMask() {
+        return dayMask;
+    }
+
+    public int getStartMinute() {
+        return startMinute;
+    }
+
+    public int getEndMinute() {
+        return endMinute;
+    }
+
+    /**
+     * Return whether the rule applies at a time
+     *
+     * @param time the time
+     * @return true if the time falls within the rule
+     */
+    public boolean isActive(ParkingTime time) {
+        return isActive(time.getDayBits(), time.getPreviousDayBits(), time.getMinuteOfDay());
+    }
+
+    /**
+     * Return whether the rule applies at a time given by its parts, for loops stepping through many minutes
+     *
+     * @param dayBits         day bits of the day, see {@link ParkingTime#getDayBits()}
+     * @param previousDayBits day bits of the previous day
+     * @param minute          minute of the day
+     * @return true if the time falls within the rule
+     */
+    public boolean isActive(int dayBits, int previousDayBits, int minute) {
+        if (startMinute < endMinute) {
+            return (dayMask & dayBits) != 0 && minute >= startMinute && minute < endMinute;
+        }
+        // Runs past midnight, the part after midnight was started on the previous day
+        if (minute >= startMinute) {
+            return (dayMask & dayBits) != 0;
+        }
+        return minute < endMinute && (dayMask & previousDayBits) != 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        ParkingRule other = (ParkingRule) obj;
+        return dayMask == other.dayMask && startMinute == other.startMinute && endMinute == other.endMinute;
+    }
+
+    @Override
+    public int hashCode() {
+        return (dayMask * 31 + startMinute) * 31 + endMinute;
+    }
+
+    @Override
+    public String toString() {
+        return "ParkingRule{days=" + Integer.toBinaryString(dayMask) + ", " + startMinute + "-" + endMinute + "}";
+    }
+}
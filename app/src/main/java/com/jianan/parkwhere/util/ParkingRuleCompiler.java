@@ -0,0 +1,178 @@
+package com.jianan.parkwhere.util;
+
+import java.util.Locale;
+
+/**
+ * Compiles the short-term, free and night parking values of the HDB data set into {@link ParkingRule}s
+ *
+ * Accepted values
+ * - "NO", never
+ * - "YES", the default hours of the column, e.g. 10.30PM to 7AM for night parking
+ * - "WHOLE DAY", every day at any time
+ * - "7AM-10.30PM", every day within the hours
+ * - "SUN & PH FR 7AM-10.30PM", on the listed days (MON to SUN, PH for public holidays) from the hours
+ *
+ * "PH" rules rely on the public holiday flags of the {@link ParkingTime}, create times through
+ * {@link PublicHolidayCalendar#getParkingTime(java.time.LocalDateTime)} so that holidays are taken into account
+ *
+ * These columns are {@link CarParkDictionary} codes, so every value is compiled once into a table indexed by code.
+ * Checking a car park at a {@link ParkingTime} is then a table lookup and a {@link ParkingRule#isActive} call, and the
+ * codes whose rule is active at a time give a code mask for {@link CarParkFilter}
+ */
+public final class ParkingRuleCompiler {
+    // Night parking in HDB car parks runs from 10.30PM to 7AM
+    public static final ParkingRule NIGHT_PARKING_HOURS = new ParkingRule(ParkingRule.EVERY_DAY, 22 * 60 + 30, 7 * 60);
+
+    private static final String[] DAY_NAMES = {"MON", "TUE", "WED", "THU", "FRI", "SAT", "SUN"};
+
+    // Compiled rules indexed by column then code, null for columns that are not rules
+    private static final ParkingRule[][] RULES = new ParkingRule[CarParkDictionary.COLUMN_COUNT][];
+
+    static {
+        compileColumn(CarParkDictionary.COLUMN_SHORT_TERM_PARKING, ParkingRule.ALWAYS);
+        compileColumn(CarParkDictionary.COLUMN_FREE_PARKING, ParkingRule.ALWAYS);
+        compileColumn(CarParkDictionary.COLUMN_NIGHT_PARKING, NIGHT_PARKING_HOURS);
+    }
+
+    private ParkingRuleCompiler() {
+    }
+
+    private static void compileColumn(int column, ParkingRule yesRule) {
+        ParkingRule[] rules = new ParkingRule[CarParkDictionary.size(column)];
+        for (int code = 0; code < rules.length; code++) {
+            rules[code] = compile(CarParkDictionary.decode(column, code), yesRule);
+        }
+        RULES[column] = rules;
+    }
+
+    // -------------------------
+    // Compiling
+    // -------------------------
+
+    /**
+     * Compile a rule value
+     *
+     * @param value   the value as it appears in the HDB data set
+     * @param yesRule rule that "YES" stands for in the value's column
+     * @return the compiled {@link ParkingRule}
+     * @throws IllegalArgumentException if the value cannot be parsed
+     */
+    public static ParkingRule compile(String value, ParkingRule yesRule) {
+        String rule = value.trim().toUpperCase(Locale.ROOT);
+        switch (rule) {
+            case "NO":
+                return ParkingRule.NEVER;
+            case "YES":
+                return yesRule;
+            case "WHOLE DAY":
+                return ParkingRule.ALWAYS;
+        }
+
+        int dayMask = ParkingRule.EVERY_DAY;
+        String hours = rule;
+        int from = rule.indexOf(" FR ");
+        if (from >= 0) {
+            dayMask = parseDays(rule.substring(0, from), value);
+            hours = rule.substring(from + 4);
+        }
+
+        int dash = hours.indexOf('-');
+        if (dash < 0) {
+            throw new IllegalArgumentException("Missing hours in parking rule: " + value);
+        }
+        int start = parseTime(hours.substring(0, dash), value);
+        int end = parseTime(hours.substring(dash + 1), value);
+        // An end of midnight closes the day
+        return new ParkingRule(dayMask, start, end == 0 ? ParkingRule.MINUTES_PER_DAY : end);
+    }
+
+    private static int parseDays(String days, String value) {
+        int mask = 0;
+        for (String token : days.split("[&,]")) {
+            String day = token.trim();
+            if (day.equals("PH")) {
+                mask |= ParkingRule.PUBLIC_HOLIDAY;
+                continue;
+            }
+            int index = indexOfDay(day);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown day '" + day + "' in parking rule: " + value);
+            }
+            mask |= 1 << index;
+        }
+        return mask;
+    }
+
+    private static int indexOfDay(String day) {
+        for (int i = 0; i < DAY_NAMES.length; i++) {
+            if (DAY_NAMES[i].equals(day)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parse a time such as "7AM", "10.30PM" or "12NOON" into minutes of the day
+     */
+    private static int parseTime(String time, String value) {
+        String text = time.trim();
+        if (text.equals("12NOON") || text.equals("NOON")) {
+            return 12 * 60;
+        }
+        boolean isPm = text.endsWith("PM");
+        if (!isPm && !text.endsWith("AM")) {
+            throw new IllegalArgumentException("Unknown time '" + text + "' in parking rule: " + value);
+        }
+        String clock = text.substring(0, text.length() - 2);
+        int dot = clock.indexOf('.') >= 0 ? clock.indexOf('.') : clock.indexOf(':');
+        try {
+            int hour = Integer.parseInt(dot >= 0 ? clock.substring(0, dot) : clock);
+            int minute = dot >= 0 ? Integer.parseInt(clock.substring(dot + 1)) : 0;
+            if (hour < 1 || hour > 12 || minute < 0 || minute > 59) {
+                throw new IllegalArgumentException("Time out of range '" + text + "' in parking rule: " + value);
+            }
+            return ((hour % 12) + (isPm ? 12 : 0)) * 60 + minute;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown time '" + text + "' in parking rule: " + value, e);
+        }
+    }
+
+    // -------------------------
+    // Compiled Rules
+    // -------------------------
+
+    /**
+     * Return the compiled rule of a code
+     *
+     * @param column {@link CarParkDictionary#COLUMN_SHORT_TERM_PARKING}, {@link CarParkDictionary#COLUMN_FREE_PARKING}
+     *               or {@link CarParkDictionary#COLUMN_NIGHT_PARKING}
+     * @param code   a code of that column
+     * @return the rule, {@link ParkingRule#NEVER} for {@link CarParkDictionary#UNKNOWN} or any other code outside the
+     *         dictionary
+     */
+    public static ParkingRule getRule(int column, int code) {
+        ParkingRule[] rules = RULES[column];
+        if (rules == null) {
+            throw new IllegalArgumentException("Column " + column + " does not hold parking rules");
+        }
+        return code >= 0 && code < rules.length ? rules[code] : ParkingRule.NEVER;
+    }
+
+    /**
+     * Return the codes of a column whose rule is active at a time
+     *
+     * @param column a column holding parking rules, see {@link #getRule(int, int)}
+     * @param time   the time
+     * @return bit {@code i} is set if the rule of code {@code i} is active
+     */
+    public static int activeCodeMask(int column, ParkingTime time) {
+        int mask = 0;
+        for (int code = 0; code < CarParkDictionary.size(column); code++) {
+            if (getRule(column, code).isActive(time)) {
+                mask |= 1 << code;
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,74 @@
+package com.jianan.parkwhere.util;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * A moment in Singapore time reduced to what {@link ParkingRule}s are evaluated against
+ *
+ * - Day bits of the day, one bit per day of the week plus {@link ParkingRule#PUBLIC_HOLIDAY} on public holidays
+ * - Day bits of the previous day, for rules running past midnight such as night parking
+ * - Minute of the day
+ *
+ * Computing these once per evaluation time keeps each rule check down to a few integer comparisons
+ */
+public final class ParkingTime {
+    public static final ZoneId ZONE = ZoneId.of("Asia/Singapore");
+
+    private final int dayBits;
+    private final int previousDayBits;
+    private final int minuteOfDay;
+
+    private ParkingTime(int dayBits, int previousDayBits, int minuteOfDay) {
+        this.dayBits = dayBits;
+        this.previousDayBits = previousDayBits;
+        this.minuteOfDay = minuteOfDay;
+    }
+
+    /**
+     * Create a parking time
+     *
+     * @param dateTime                   local Singapore date and time
+     * @param isPublicHoliday            whether the date is a public holiday
+     * @param isPreviousDayPublicHoliday whether the day before is a public holiday
+     * @return the {@link ParkingTime}
+     */
+    public static ParkingTime of(LocalDateTime dateTime, boolean isPublicHoliday, boolean isPreviousDayPublicHoliday) {
+        DayOfWeek day = dateTime.getDayOfWeek();
+        return new ParkingTime(dayBits(day, isPublicHoliday), dayBits(day.minus(1), isPreviousDayPublicHoliday),
+                dateTime.getHour() * 60 + dateTime.getMinute());
+    }
+
+    private static int dayBits(DayOfWeek day, boolean isPublicHoliday) {
+        int bits = ParkingRule.dayBit(day);
+        return isPublicHoliday ? bits | ParkingRule.PUBLIC_HOLIDAY : bits;
+    }
+
+    /**
+     * Return the day bits of the day
+     *
+     * @return bit of the day of the week, with {@link ParkingRule#PUBLIC_HOLIDAY} on public holidays
+     */
+    public int getDayBits() {
+        return dayBits;
+    }
+
+    /**
+     * Return the day bits of the previous day
+     *
+     * @return bit of the previous day of the week, with {@link ParkingRule#PUBLIC_HOLIDAY} if it was a public holiday
+     */
+    public int getPreviousDayBits() {
+        return previousDayBits;
+    }
+
+    /**
+     * Return the minute of the day
+     *
+     * @return minutes since midnight, from 0 to 1439
+     */
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+}
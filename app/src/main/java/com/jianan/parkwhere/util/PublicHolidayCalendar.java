@@ -0,0 +1,189 @@
+package com.jianan.parkwhere.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Singapore public holidays, read once from the table bundled with the app
+ *
+ * Holidays are kept as a sorted {@code int[]} of epoch days, so a lookup is a binary search over a few dozen ints.
+ * {@link #getParkingTime(LocalDateTime)} also remembers the holiday flags of the last day it was asked about, so
+ * evaluating parking rules for many car parks or many times of the same day does not search again
+ *
+ * Table format, blank lines and lines starting with {@code #} are ignored
+ * - {@code version N}, required, bumped whenever dates change
+ * - {@code yyyy-MM-dd [name]}, one line per holiday, days observed in lieu are listed as holidays of their own
+ *
+ * Dates outside the years of the table are never holidays, {@link #covers(LocalDate)} tells whether a date is within
+ */
+public final class PublicHolidayCalendar {
+    public static final PublicHolidayCalendar EMPTY = new PublicHolidayCalendar(0, new int[0]);
+
+    private final int version;
+    private final int[] epochDays; // Sorted, without duplicates
+
+    // Holiday flags of the last day a parking time was created for
+    private volatile DayFlags lastDay;
+
+    private PublicHolidayCalendar(int version, int[] epochDays) {
+        this.version = version;
+        this.epochDays = epochDays;
+    }
+
+    /**
+     * Read a holiday table
+     *
+     * @param reader reader over the table, not closed
+     * @return the calendar
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if the table is malformed
+     */
+    public static PublicHolidayCalendar read(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        int version = -1;
+        int[] epochDays = new int[32];
+        int count = 0;
+
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("version")) {
+                try {
+                    version = Integer.parseInt(line.substring("version".length()).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Malformed version on line " + lineNumber + ": " + line, e);
+                }
+                continue;
+            }
+
+            int end = line.indexOf(' ');
+            String date = end < 0 ? line : line.substring(0, end);
+            try {
+                if (count == epochDays.length) {
+                    epochDays = Arrays.copyOf(epochDays, count * 2);
+                }
+                epochDays[count++] = (int) LocalDate.parse(date).toEpochDay();
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Malformed date on line " + lineNumber + ": " + line, e);
+            }
+        }
+        if (version < 0) {
+            throw new IllegalArgumentException("Holiday table has no version");
+        }
+
+        Arrays.sort(epochDays, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || epochDays[i] != epochDays[i - 1]) {
+                epochDays[distinct++] = epochDays[i];
+            }
+        }
+        return new PublicHolidayCalendar(version, Arrays.copyOf(epochDays, distinct));
+    }
+
+    /**
+     * Return the version of the table
+     *
+     * @return version, 0 for {@link #EMPTY}
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Return the number of holidays in the table
+     *
+     * @return number of distinct holiday dates
+     */
+    public int size() {
+        return epochDays.length;
+    }
+
+    /**
+     * Return whether a date is within the years listed in the table
+     *
+     * @param date the date
+     * @return true if the table lists holidays for the year of the date
+     */
+    public boolean covers(LocalDate date) {
+        if (epochDays.length == 0) {
+            return false;
+        }
+        int year = date.getYear();
+        return year >= LocalDate.ofEpochDay(epochDays[0]).getYear()
+                && year <= LocalDate.ofEpochDay(epochDays[epochDays.length - 1]).getYear();
+    }
+
+    /**
+     * Return whether a day is a public holiday
+     *
+     * @param epochDay days since 1970-01-01
+     * @return true if the day is a public holiday
+     */
+    public boolean isPublicHoliday(long epochDay) {
+        return epochDay >= Integer.MIN_VALUE && epochDay <= Integer.MAX_VALUE
+                && Arrays.binarySearch(epochDays, (int) epochDay) >= 0;
+    }
+
+    /**
+     * Return whether a date is a public holiday
+     *
+     * @param date the date
+     * @return true if the date is a public holiday
+     */
+    public boolean isPublicHoliday(LocalDate date) {
+        return isPublicHoliday(date.toEpochDay());
+    }
+
+    /**
+     * Create the {@link ParkingTime} of a local Singapore date and time, with its public holiday flags
+     *
+     * @param dateTime local Singapore date and time
+     * @return the parking time
+     */
+    public ParkingTime getParkingTime(LocalDateTime dateTime) {
+        long epochDay = dateTime.toLocalDate().toEpochDay();
+        DayFlags day = lastDay;
+        if (day == null || day.epochDay != epochDay) {
+            day = new DayFlags(epochDay, isPublicHoliday(epochDay), isPublicHoliday(epochDay - 1));
+            lastDay = day;
+        }
+        return ParkingTime.of(dateTime, day.isPublicHoliday, day.isPreviousDayPublicHoliday);
+    }
+
+    /**
+     * Create the {@link ParkingTime} of an instant, with its public holiday flags
+     *
+     * @param epochMillis milliseconds since the epoch, e.g. {@link System#currentTimeMillis()}
+     * @return the parking time in Singapore
+     */
+    public ParkingTime getParkingTime(long epochMillis) {
+        return getParkingTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ParkingTime.ZONE));
+    }
+
+    /**
+     * Holiday flags of one day, replaced as a whole so readers never see flags of two different days
+     */
+    private static final class DayFlags {
+        final long epochDay;
+        final boolean isPublicHoliday;
+        final boolean isPreviousDayPublicHoliday;
+
+        DayFlags(long epochDay, boolean isPublicHoliday, boolean isPreviousDayPublicHoliday) {
+            this.epochDay = epochDay;
+            this.isPublicHoliday = isPublicHoliday;
+            this.isPreviousDayPublicHoliday = isPreviousDayPublicHoliday;
+        }
+    }
+}
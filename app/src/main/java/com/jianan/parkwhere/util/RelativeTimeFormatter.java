@@ -0,0 +1,208 @@
+package com.jianan.parkwhere.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared formatter for "Updated N minutes ago" labels of the car park availability API
+ *
+ * - API timestamps are parsed once at ingest with {@link #parseApiTimestamp(String)} into epoch milliseconds
+ * - Labels only change once a minute, so the current time is read once per minute tick instead of on every bind,
+ *   and the label for each elapsed minute is formatted once and cached
+ * - Listeners registered with {@link #addTickListener(Runnable)} are called on the main thread at every minute
+ *   boundary so that they can refresh the labels they show. The ticker only runs while there are listeners
+ *
+ * All methods other than {@link #parseApiTimestamp(String)} must be called on the main thread
+ */
+public class RelativeTimeFormatter {
+    // Returned by parseApiTimestamp when the timestamp is missing or malformed
+    public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+    private static final DateTimeFormatter API_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private static final ZoneId SINGAPORE_ZONE = ZoneId.of("Asia/Singapore");
+
+    private static final long MINUTE_MILLIS = 60 * 1000;
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int MINUTES_PER_DAY = 24 * MINUTES_PER_HOUR;
+    private static final int MAX_CACHED_DAYS = 31;
+
+    private static RelativeTimeFormatter instance;
+
+    // Labels below a day are cached per elapsed minute, older ones per elapsed day
+    private final String[] minuteLabels = new String[MINUTES_PER_DAY];
+    private final String[] dayLabels = new String[MAX_CACHED_DAYS];
+
+    private Handler mainHandler; // Created with the first tick listener
+    private final List<Runnable> tickListeners = new ArrayList<>();
+    private final Runnable tickRunnable = this::tick;
+    private long nowMillis;
+
+    private RelativeTimeFormatter() {
+        nowMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Return the singleton RelativeTimeFormatter instance
+     *
+     * @return the singleton RelativeTimeFormatter instance
+     */
+    public static synchronized RelativeTimeFormatter getInstance() {
+        if (instance == null) {
+            instance = new RelativeTimeFormatter();
+        }
+        return instance;
+    }
+
+    // -------------------------
+    // Parsing
+    // -------------------------
+
+    /**
+     * Parse an API timestamp into epoch milliseconds, safe to call from any thread
+     *
+     * @param timestamp ISO style timestamp in pattern yyyy-MM-dd'T'HH:mm:ss in Asia/Singapore timezone
+     * @return epoch milliseconds, or {@link #UNKNOWN_TIME} if the timestamp cannot be parsed
+     */
+    public static long parseApiTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return UNKNOWN_TIME;
+        }
+        try {
+            return LocalDateTime.parse(timestamp, API_FORMATTER).atZone(SINGAPORE_ZONE).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return UNKNOWN_TIME;
+        }
+    }
+
+    // -------------------------
+    // Formatting
+    // -------------------------
+
+    /**
+     * Format the time since an update as a short relative string
+     *
+     * @param updateTimeMillis epoch milliseconds of the update, or {@link #UNKNOWN_TIME}
+     * @return a string such as Updated just now or Updated 5 minutes ago
+     */
+    public String format(long updateTimeMillis) {
+        if (updateTimeMillis == UNKNOWN_TIME) {
+            return "Updated recently";
+        }
+
+        // Without a running ticker nothing keeps the clock current, so read it for this call
+        if (tickListeners.isEmpty()) {
+            refreshClock();
+        }
+        return formatElapsedMinutes(Math.max(0, (nowMillis - updateTimeMillis) / MINUTE_MILLIS));
+    }
+
+    /**
+     * Return the cached label for the given number of elapsed minutes
+     */
+    String formatElapsedMinutes(long minutes) {
+        if (minutes < MINUTES_PER_DAY) {
+            int index = (int) minutes;
+            String label = minuteLabels[index];
+            if (label == null) {
+                label = buildLabel(minutes);
+                minuteLabels[index] = label;
+            }
+            return label;
+        }
+
+        long days = minutes / MINUTES_PER_DAY;
+        if (days < MAX_CACHED_DAYS) {
+            int index = (int) days;
+            String label = dayLabels[index];
+            if (label == null) {
+                label = buildLabel(minutes);
+                dayLabels[index] = label;
+            }
+            return label;
+        }
+        return buildLabel(minutes);
+    }
+
+    private static String buildLabel(long minutes) {
+        long hours = minutes / MINUTES_PER_HOUR;
+        long days = minutes / MINUTES_PER_DAY;
+
+        // Return formatted "Updated x ago"
+        if (minutes < 1) {
+            return "Updated just now";
+        } else if (minutes < 60) {
+            return "Updated " + minutes + (minutes > 1 ? " minutes ago" : " minute ago");
+        } else if (hours < 24) {
+            return "Updated " + hours + (hours > 1 ? " hours ago" : " hour ago");
+        } else {
+            return "Updated " + days + (days > 1 ? " days ago" : " day ago");
+        }
+    }
+
+    /**
+     * Read the clock again, used when fresh API data arrives between ticks
+     */
+    public void refreshClock() {
+        nowMillis = System.currentTimeMillis();
+    }
+
+    // -------------------------
+    // Minute Ticker
+    // -------------------------
+
+    /**
+     * Register a listener that is called at every minute boundary, starts the ticker for the first listener
+     *
+     * @param listener runnable called on the main thread after the clock is advanced
+     */
+    public void addTickListener(Runnable listener) {
+        if (tickListeners.contains(listener)) {
+            return;
+        }
+        tickListeners.add(listener);
+
+        if (tickListeners.size() == 1) {
+            if (mainHandler == null) {
+                mainHandler = new Handler(Looper.getMainLooper());
+            }
+            refreshClock();
+            scheduleNextTick();
+        }
+    }
+
+    /**
+     * Unregister a listener, stops the ticker once no listener is left
+     *
+     * @param listener the previously registered runnable
+     */
+    public void removeTickListener(Runnable listener) {
+        tickListeners.remove(listener);
+
+        if (tickListeners.isEmpty() && mainHandler != null) {
+            mainHandler.removeCallbacks(tickRunnable);
+        }
+    }
+
+    private void tick() {
+        refreshClock();
+        for (Runnable listener : new ArrayList<>(tickListeners)) {
+            listener.run();
+        }
+        scheduleNextTick();
+    }
+
+    private void scheduleNextTick() {
+        mainHandler.removeCallbacks(tickRunnable);
+        if (!tickListeners.isEmpty()) {
+            // Align ticks to wall clock minutes so every label rolls over together
+            mainHandler.postDelayed(tickRunnable, MINUTE_MILLIS - (nowMillis % MINUTE_MILLIS));
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.jianan.parkwhere.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs application start up work as a graph of named stages
+ *
+ * - A stage starts on the executor as soon as every stage it depends on has finished, so independent stages run
+ *   in parallel and the time to be ready is the longest chain of dependencies instead of the sum of all stages
+ * - Deferred stages are not run by {@link #start()}, they run the first time they are requested with
+ *   {@link #request(String)}, {@link #whenFinished(String, Executor, Runnable)} or {@link #await(String)}
+ * - A stage that fails also fails every stage depending on it, the failure is rethrown by {@link #await(String)}
+ *
+ * The main thread should use {@link #whenFinished(String, Executor, Runnable)} rather than block in
+ * {@link #await(String)}
+ *
+ * The start offset, duration and thread of every finished stage are recorded, together with named milestones such as
+ * the first frame and the time callers spent blocked in {@link #await(String)}, see {@link #getTimings()}
+ */
+public class StartupOrchestrator {
+    private final Executor executor;
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+    private final List<StageTiming> timings = new ArrayList<>();
+    private final Map<String, Long> milestones = new LinkedHashMap<>();
+    private long startNanos;
+    private boolean isStarted = false;
+
+    /**
+     * Construct an orchestrator
+     *
+     * @param executor executor the stages run on, stages only run in parallel if it has several threads
+     */
+    public StartupOrchestrator(Executor executor) {
+        this.executor = executor;
+    }
+
+    // -------------------------
+    // Graph
+    // -------------------------
+
+    /**
+     * Add a stage that runs when {@link #start()} is called
+     *
+     * @param name      unique name of the stage
+     * @param task      work of the stage
+     * @param dependsOn names of the stages that must finish first
+     * @return this orchestrator
+     */
+    public synchronized StartupOrchestrator addStage(String name, Runnable task, String... dependsOn) {
+        return add(new Stage(name, task, dependsOn, false));
+    }
+
+    /**
+     * Add a stage that only runs once it is requested
+     *
+     * @param name      unique name of the stage
+     * @param task      work of the stage
+     * @param dependsOn names of the stages that must finish first, they are requested along with this stage
+     * @return this orchestrator
+     */
+    public synchronized StartupOrchestrator addDeferredStage(String name, Runnable task, String... dependsOn) {
+        return add(new Stage(name, task, dependsOn, true));
+    }
+
+    private StartupOrchestrator add(Stage stage) {
+        if (isStarted) {
+            throw new IllegalStateException("Stages cannot be added after start");
+        }
+        if (stages.containsKey(stage.name)) {
+            throw new IllegalArgumentException("Duplicate startup stage " + stage.name);
+        }
+        stages.put(stage.name, stage);
+        return this;
+    }
+
+    /**
+     * Check the graph and start every stage that is not deferred
+     *
+     * @throws IllegalArgumentException if a stage depends on an unknown stage or the stages depend on each other in a cycle
+     */
+    public synchronized void start() {
+        if (isStarted) {
+            return;
+        }
+        validate();
+        isStarted = true;
+        startNanos = System.nanoTime();
+
+        for (Stage stage : stages.values()) {
+            if (!stage.isDeferred) {
+                futureOf(stage.name);
+            }
+        }
+    }
+
+    /**
+     * Start a stage and its dependencies in the background if they have not started yet
+     *
+     * @param name name of the stage
+     */
+    public synchronized void request(String name) {
+        checkStarted(name);
+        futureOf(name);
+    }
+
+    /**
+     * Start a stage and its dependencies if they have not started yet and run a callback once it has finished
+     *
+     * The callback is not run if the stage fails
+     *
+     * @param name             name of the stage
+     * @param callbackExecutor executor the callback runs on, e.g. the main thread executor
+     * @param callback         callback to run
+     */
+    public void whenFinished(String name, Executor callbackExecutor, Runnable callback) {
+        CompletableFuture<Void> future;
+        synchronized (this) {
+            checkStarted(name);
+            future = futureOf(name);
+        }
+        future.thenRunAsync(callback, callbackExecutor);
+    }
+
+    /**
+     * Start a stage if needed and block until it has finished
+     *
+     * @param name name of the stage
+     * @throws IllegalStateException if the stage or one of its dependencies failed
+     */
+    public void await(String name) {
+        CompletableFuture<Void> future;
+        synchronized (this) {
+            checkStarted(name);
+            future = futureOf(name);
+        }
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            return;
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Startup stage " + name + " failed", e.getCause());
+        } finally {
+            synchronized (this) {
+                milestones.put("await:" + name, System.nanoTime() - waitStart);
+            }
+        }
+    }
+
+    private void checkStarted(String name) {
+        if (!isStarted) {
+            throw new IllegalStateException("Startup has not been started");
+        }
+        if (!stages.containsKey(name)) {
+            throw new IllegalArgumentException("Unknown startup stage " + name);
+        }
+    }
+
+    /**
+     * Return the future of a stage, creating it and the futures of its dependencies on first use. Caller holds the lock
+     */
+    private CompletableFuture<Void> futureOf(String name) {
+        CompletableFuture<Void> future = futures.get(name);
+        if (future != null) {
+            return future;
+        }
+
+        Stage stage = stages.get(name);
+        CompletableFuture<?>[] dependencies = new CompletableFuture<?>[stage.dependsOn.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            dependencies[i] = futureOf(stage.dependsOn[i]);
+        }
+
+        future = CompletableFuture.allOf(dependencies).thenRunAsync(() -> run(stage), executor);
+        futures.put(name, future);
+        return future;
+    }
+
+    private void run(Stage stage) {
+        long begin = System.nanoTime();
+        try {
+            stage.task.run();
+        } finally {
+            long end = System.nanoTime();
+            synchronized (this) {
+                timings.add(new StageTiming(stage.name, toMillis(begin - startNanos), toMillis(end - begin),
+                        Thread.currentThread().getName()));
+            }
+        }
+    }
+
+    private void validate() {
+        Set<String> visited = new HashSet<>();
+        Set<String> visiting = new HashSet<>();
+        for (String name : stages.keySet()) {
+            visit(name, visited, visiting);
+        }
+    }
+
+    private void visit(String name, Set<String> visited, Set<String> visiting) {
+        if (visited.contains(name)) {
+            return;
+        }
+        if (!visiting.add(name)) {
+            throw new IllegalArgumentException("Startup stages depend on each other in a cycle through " + name);
+        }
+        for (String dependency : stages.get(name).dependsOn) {
+            if (!stages.containsKey(dependency)) {
+                throw new IllegalArgumentException("Startup stage " + name + " depends on unknown stage " + dependency);
+            }
+            visit(dependency, visited, visiting);
+        }
+        visiting.remove(name);
+        visited.add(name);
+    }
+
+    // -------------------------
+    // Timings
+    // -------------------------
+
+    /**
+     * Record the time since {@link #start()} under a name, e.g. when the first frame is drawn
+     *
+     * @param name name of the milestone, recording the same name again replaces it
+     */
+    public synchronized void mark(String name) {
+        if (isStarted) {
+            milestones.put(name, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Return the time recorded for a milestone with {@link #mark(String)}
+     *
+     * @param name name of the milestone
+     * @return milliseconds since start, or -1 if the milestone has not been recorded
+     */
+    public synchronized double getMilestoneMillis(String name) {
+        Long nanos = milestones.get(name);
+        return nanos == null ? -1 : toMillis(nanos);
+    }
+
+    /**
+     * Return the timings of the stages that have finished, in the order they finished
+     *
+     * @return an unmodifiable copy of the stage timings
+     */
+    public synchronized List<StageTiming> getTimings() {
+        return Collections.unmodifiableList(new ArrayList<>(timings));
+    }
+
+    /**
+     * Return a one line summary of the stage timings and milestones for logging
+     *
+     * @return stages as {@code name start+duration ms} followed by milestones as {@code name ms}
+     */
+    public synchronized String describeTimings() {
+        StringBuilder builder = new StringBuilder("Startup");
+        for (StageTiming timing : timings) {
+            builder.append(String.format(" %s %.1f+%.1fms", timing.name, timing.startMillis, timing.durationMillis));
+        }
+        for (Map.Entry<String, Long> milestone : milestones.entrySet()) {
+            builder.append(String.format(" %s %.1fms", milestone.getKey(), toMillis(milestone.getValue())));
+        }
+        return builder.toString();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * When and where a finished stage ran
+     */
+    public static class StageTiming {
+        public final String name;
+        public final double startMillis; // Since start()
+        public final double durationMillis;
+        public final String threadName;
+
+        StageTiming(String name, double startMillis, double durationMillis, String threadName) {
+            this.name = name;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+            this.threadName = threadName;
+        }
+
+        public double getEndMillis() {
+            return startMillis + durationMillis;
+        }
+    }
+
+    private static final class Stage {
+        final String name;
+        final Runnable task;
+        final String[] dependsOn;
+        final boolean isDeferred;
+
+        Stage(String name, Runnable task, String[] dependsOn, boolean isDeferred) {
+            this.name = name;
+            this.task = task;
+            this.dependsOn = dependsOn;
+            this.isDeferred = isDeferred;
+        }
+    }
+}
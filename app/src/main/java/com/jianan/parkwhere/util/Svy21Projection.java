@@ -0,0 +1,119 @@
+package com.jianan.parkwhere.util;
+
+/**
+ * Utility class to convert WGS84 latitude longitude into SVY21 projected coordinates
+ *
+ * SVY21 is the transverse Mercator projection used by the HDB car park data set, its {@code x_coord} (easting)
+ * and {@code y_coord} (northing) are in metres. Once both the car parks and the query centre are in SVY21,
+ * distances are plain Euclidean distances and radius checks need no trigonometry
+ *
+ * The series is truncated after the fourth order terms in longitude difference. Over Singapore's extent the
+ * dropped terms are below a millimetre, and all terms that only depend on the projection origin are precomputed
+ *
+ * Usage example
+ * Svy21Projection.Point point = Svy21Projection.fromLatLng(1.3521, 103.8198)
+ * float dx = carPark.getXCoord() - point.getX()
+ */
+public class Svy21Projection {
+    // WGS84 ellipsoid
+    private static final double SEMI_MAJOR_AXIS = 6378137.0;
+    private static final double FLATTENING = 1.0 / 298.257223563;
+    private static final double E2 = 2 * FLATTENING - FLATTENING * FLATTENING;
+    private static final double E4 = E2 * E2;
+    private static final double E6 = E4 * E2;
+
+    // SVY21 projection origin
+    private static final double ORIGIN_LAT = Math.toRadians(1.366666);
+    private static final double ORIGIN_LON = Math.toRadians(103.833333);
+    private static final double FALSE_NORTHING = 38744.572;
+    private static final double FALSE_EASTING = 28001.642;
+    private static final double SCALE_FACTOR = 1.0;
+
+    // Meridian distance coefficients
+    private static final double A0 = 1 - (E2 / 4) - (3 * E4 / 64) - (5 * E6 / 256);
+    private static final double A2 = (3.0 / 8) * (E2 + (E4 / 4) + (15 * E6 / 128));
+    private static final double A4 = (15.0 / 256) * (E4 + (3 * E6 / 4));
+    private static final double A6 = 35 * E6 / 3072;
+
+    // Meridian distance of the origin latitude
+    private static final double ORIGIN_MERIDIAN_DISTANCE = calculateMeridianDistance(ORIGIN_LAT);
+
+    /**
+     * Immutable SVY21 coordinate in metres
+     */
+    public static final class Point {
+        private final float x;
+        private final float y;
+
+        public Point(float x, float y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        /**
+         * @return easting in metres, matches {@code x_coord} of the HDB data set
+         */
+        public float getX() {
+            return x;
+        }
+
+        /**
+         * @return northing in metres, matches {@code y_coord} of the HDB data set
+         */
+        public float getY() {
+            return y;
+        }
+    }
+
+    /**
+     * Convert a WGS84 latitude longitude into SVY21 easting and northing
+     *
+     * @param latitude  latitude in decimal degrees
+     * @param longitude longitude in decimal degrees
+     * @return the projected {@link Point} in metres
+     */
+    public static Point fromLatLng(double latitude, double longitude) {
+        double lat = Math.toRadians(latitude);
+        double sinLat = Math.sin(lat);
+        double cosLat = Math.cos(lat);
+        double cos2 = cosLat * cosLat;
+        double cos4 = cos2 * cos2;
+
+        double tanLat = sinLat / cosLat;
+        double t2 = tanLat * tanLat;
+        double t4 = t2 * t2;
+
+        // Radii of curvature in the meridian (rho) and prime vertical (v)
+        double denominator = 1 - E2 * sinLat * sinLat;
+        double v = SEMI_MAJOR_AXIS / Math.sqrt(denominator);
+        double rho = SEMI_MAJOR_AXIS * (1 - E2) / (denominator * Math.sqrt(denominator));
+        double psi = v / rho;
+        double psi2 = psi * psi;
+        double psi3 = psi2 * psi;
+
+        double w = Math.toRadians(longitude) - ORIGIN_LON;
+        double w2 = w * w;
+        double w4 = w2 * w2;
+
+        double northingTerm1 = w2 / 2 * v * sinLat * cosLat;
+        double northingTerm2 = w4 / 24 * v * sinLat * cosLat * cos2 * (4 * psi2 + psi - t2);
+        double northing = FALSE_NORTHING + SCALE_FACTOR
+                * (calculateMeridianDistance(lat) - ORIGIN_MERIDIAN_DISTANCE + northingTerm1 + northingTerm2);
+
+        double eastingTerm1 = w2 / 6 * cos2 * (psi - t2);
+        double eastingTerm2 = w4 / 120 * cos4 * ((4 * psi3) * (1 - 6 * t2) + psi2 * (1 + 8 * t2) - psi * 2 * t2 + t4);
+        double easting = FALSE_EASTING + SCALE_FACTOR * v * w * cosLat * (1 + eastingTerm1 + eastingTerm2);
+
+        return new Point((float) easting, (float) northing);
+    }
+
+    /**
+     * Calculate the meridian distance from the equator to the given latitude
+     *
+     * @param lat latitude in radians
+     * @return meridian distance in metres
+     */
+    private static double calculateMeridianDistance(double lat) {
+        return SEMI_MAJOR_AXIS * ((A0 * lat) - (A2 * Math.sin(2 * lat)) + (A4 * Math.sin(4 * lat)) - (A6 * Math.sin(6 * lat)));
+    }
+}
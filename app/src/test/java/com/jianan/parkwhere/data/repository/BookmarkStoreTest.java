@@ -0,0 +1,221 @@
+package com.jianan.parkwhere.data.repository;
+
+import com.jianan.parkwhere.data.local.Bookmark;
+import com.jianan.parkwhere.data.local.BookmarkDao;
+import com.jianan.parkwhere.data.local.CarPark;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BookmarkStore}
+ *
+ * Checks that loading imports legacy preference bookmarks in alphabetical order before clearing them, that toggles
+ * made before the table is loaded are replayed over it, and that every toggle is persisted with the final state of
+ * its car park
+ */
+public class BookmarkStoreTest {
+
+    /**
+     * Serial executor whose tasks run when the test says so, like the database writer
+     */
+    private static final class QueueExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * In-memory bookmark table that records each write in order
+     */
+    private static final class FakeBookmarkDao implements BookmarkDao {
+        private final Map<String, Integer> rows = new LinkedHashMap<>(); // Car park number to sort order
+        private final List<String> writes;
+
+        FakeBookmarkDao(List<String> writes) {
+            this.writes = writes;
+        }
+
+        @Override
+        public void appendBookmark(String carParkNumber, long createdAt) {
+            writes.add("append " + carParkNumber);
+            if (!rows.containsKey(carParkNumber)) {
+                rows.put(carParkNumber, rows.isEmpty() ? 0 : Collections.max(rows.values()) + 1);
+            }
+        }
+
+        @Override
+        public void insertBookmarks(List<Bookmark> bookmarks) {
+            for (Bookmark bookmark : bookmarks) {
+                writes.add("insert " + bookmark.getCarParkNumber() + " " + bookmark.getSortOrder());
+                if (!rows.containsKey(bookmark.getCarParkNumber())) {
+                    rows.put(bookmark.getCarParkNumber(), bookmark.getSortOrder());
+                }
+            }
+        }
+
+        @Override
+        public int deleteBookmark(String carParkNumber) {
+            writes.add("delete " + carParkNumber);
+            return rows.remove(carParkNumber) != null ? 1 : 0;
+        }
+
+        @Override
+        public List<String> getBookmarkedCarParkNumbers() {
+            return new ArrayList<>(rows.keySet());
+        }
+
+        @Override
+        public List<CarPark> getBookmarkedCarParks() {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Preference bookmarks left by an earlier version of the app
+     */
+    private static final class FakeLegacyBookmarks implements BookmarkStore.LegacyBookmarks {
+        private Set<String> bookmarks;
+        private final List<String> writes;
+
+        FakeLegacyBookmarks(List<String> writes, String... bookmarks) {
+            this.writes = writes;
+            this.bookmarks = new HashSet<>(Arrays.asList(bookmarks));
+        }
+
+        @Override
+        public Set<String> get() {
+            return Collections.unmodifiableSet(bookmarks);
+        }
+
+        @Override
+        public void clear() {
+            writes.add("clear legacy");
+            bookmarks = Collections.emptySet();
+        }
+    }
+
+    /**
+     * Store that records its published snapshots instead of posting them to the main thread
+     */
+    private static final class TestBookmarkStore extends BookmarkStore {
+        private final List<Set<String>> published = new ArrayList<>();
+
+        TestBookmarkStore(BookmarkDao bookmarkDao, LegacyBookmarks legacyBookmarks, Executor executor) {
+            super(bookmarkDao, legacyBookmarks, executor);
+        }
+
+        @Override
+        void publish(Set<String> bookmarks) {
+            published.add(bookmarks);
+        }
+    }
+
+    private final List<String> writes = new ArrayList<>();
+    private final FakeBookmarkDao dao = new FakeBookmarkDao(writes);
+    private final QueueExecutor executor = new QueueExecutor();
+
+    @Test
+    public void load_importsLegacyBookmarksAlphabeticallyThenClearsThem() {
+        FakeLegacyBookmarks legacy = new FakeLegacyBookmarks(writes, "TM3", "AM14", "BE28");
+        TestBookmarkStore store = new TestBookmarkStore(dao, legacy, executor);
+
+        assertTrue(store.getSnapshot().isEmpty());
+        executor.runAll();
+
+        // The preference is only cleared once every row is written
+        assertEquals(Arrays.asList("insert AM14 0", "insert BE28 1", "insert TM3 2", "clear legacy"), writes);
+        assertTrue(legacy.get().isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("AM14", "BE28", "TM3")), store.getSnapshot());
+        assertEquals(1, store.published.size());
+        assertSame(store.getSnapshot(), store.published.get(0));
+    }
+
+    @Test
+    public void load_withoutLegacyBookmarks_onlyReadsTable() {
+        dao.appendBookmark("BE28", 0);
+        writes.clear();
+        TestBookmarkStore store = new TestBookmarkStore(dao, new FakeLegacyBookmarks(writes), executor);
+
+        executor.runAll();
+
+        assertTrue(writes.isEmpty());
+        assertTrue(store.contains("BE28"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void toggle_beforeLoad_isReplayedOverLoadedBookmarks() {
+        dao.appendBookmark("AM14", 0);
+        dao.appendBookmark("BE28", 0);
+        writes.clear();
+        TestBookmarkStore store = new TestBookmarkStore(dao, new FakeLegacyBookmarks(writes), executor);
+
+        // The table has not been read yet, so both toggles add
+        assertTrue(store.toggle("TM3"));
+        assertTrue(store.toggle("BE28"));
+        assertTrue(store.contains("TM3"));
+        executor.runAll();
+
+        assertEquals(new HashSet<>(Arrays.asList("AM14", "BE28", "TM3")), store.getSnapshot());
+        assertEquals(new HashSet<>(store.getSnapshot()), new HashSet<>(dao.getBookmarkedCarParkNumbers()));
+    }
+
+    @Test
+    public void toggle_persistsFinalStateOfEachCarPark() {
+        TestBookmarkStore store = new TestBookmarkStore(dao, new FakeLegacyBookmarks(writes), executor);
+        executor.runAll();
+
+        assertTrue(store.toggle("BE28"));
+        assertTrue(store.toggle("AM14"));
+        assertFalse(store.toggle("BE28"));
+        executor.runAll();
+
+        // Both queued writes of BE28 see it removed, so it is never written back after the second toggle
+        assertEquals(Arrays.asList("delete BE28", "append AM14", "delete BE28"), writes);
+        assertEquals(Collections.singletonList("AM14"), dao.getBookmarkedCarParkNumbers());
+        assertEquals(Collections.singleton("AM14"), store.getSnapshot());
+    }
+
+    @Test
+    public void toggle_publishesNewSnapshotAndKeepsOldOneUnchanged() {
+        TestBookmarkStore store = new TestBookmarkStore(dao, new FakeLegacyBookmarks(writes), executor);
+        executor.runAll();
+        Set<String> before = store.getSnapshot();
+
+        store.toggle("BE28");
+
+        assertTrue(before.isEmpty());
+        assertNotSame(before, store.getSnapshot());
+        assertSame(store.getSnapshot(), store.published.get(store.published.size() - 1));
+        try {
+            store.getSnapshot().add("AM14");
+            fail("Expected the snapshot to be unmodifiable");
+        } catch (UnsupportedOperationException expected) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.jianan.parkwhere.data.repository;
+
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.Priority;
+import com.jianan.parkwhere.util.LocationUpdatePolicy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LocationRepository}
+ *
+ * Checks that the request of the {@link LocationUpdatePolicy} is mapped to the priority, interval and distance asked
+ * of the provider, that a change of request re-requests with the same callback and that stopping removes it
+ */
+public class LocationRepositoryTest {
+
+    /**
+     * Provider that records every request and removal
+     */
+    private static final class FakeProvider implements LocationRepository.Provider {
+        private final List<Integer> priorities = new ArrayList<>();
+        private final List<Long> intervals = new ArrayList<>();
+        private final List<Float> minDistances = new ArrayList<>();
+        private final List<LocationCallback> callbacks = new ArrayList<>();
+        private final List<LocationCallback> removed = new ArrayList<>();
+
+        @Override
+        public void requestLocationUpdates(int priority, long intervalMs, float minDistanceMeters,
+                                           LocationCallback callback) {
+            priorities.add(priority);
+            intervals.add(intervalMs);
+            minDistances.add(minDistanceMeters);
+            callbacks.add(callback);
+        }
+
+        @Override
+        public void removeLocationUpdates(LocationCallback callback) {
+            removed.add(callback);
+        }
+    }
+
+    private final FakeProvider provider = new FakeProvider();
+    // The delayed stop is never reached, no holder is used
+    private final LocationRepository repository = new LocationRepository(null, provider, (task, delayMs) -> () -> { });
+
+    @Test
+    public void start_requestsWalkingOnTheMapAtHighAccuracy() {
+        repository.startUpdates();
+
+        assertEquals(1, provider.priorities.size());
+        assertEquals(Priority.PRIORITY_HIGH_ACCURACY, (int) provider.priorities.get(0));
+        assertEquals(5_000L, (long) provider.intervals.get(0));
+        assertEquals(0f, provider.minDistances.get(0), 0f);
+        assertTrue(repository.isLocationServiceActive());
+    }
+
+    @Test
+    public void screenChange_reRequestsBalancedPowerWithSameCallback() {
+        repository.startUpdates();
+        repository.setScreen(LocationUpdatePolicy.SCREEN_LIST);
+
+        assertEquals(2, provider.priorities.size());
+        assertEquals(Priority.PRIORITY_BALANCED_POWER_ACCURACY, (int) provider.priorities.get(1));
+        assertEquals(10_000L, (long) provider.intervals.get(1));
+        assertSame(provider.callbacks.get(0), provider.callbacks.get(1));
+        assertTrue(provider.removed.isEmpty());
+    }
+
+    @Test
+    public void screenChange_beforeStart_requestsNothing() {
+        repository.setScreen(LocationUpdatePolicy.SCREEN_LIST);
+
+        assertTrue(provider.priorities.isEmpty());
+
+        // Updates then start with the request of the list
+        repository.startUpdates();
+        assertEquals(Priority.PRIORITY_BALANCED_POWER_ACCURACY, (int) provider.priorities.get(0));
+        assertEquals(10_000L, (long) provider.intervals.get(0));
+    }
+
+    @Test
+    public void stop_removesTheRequestedCallback() {
+        repository.startUpdates();
+        repository.stopUpdates();
+
+        assertEquals(provider.callbacks, provider.removed);
+        assertFalse(repository.isLocationServiceActive());
+
+        // Later request changes are not sent for a stopped repository
+        repository.setScreen(LocationUpdatePolicy.SCREEN_LIST);
+        assertEquals(1, provider.priorities.size());
+    }
+}
@@ -0,0 +1,245 @@
+package com.jianan.parkwhere.data.repository;
+
+import android.location.Location;
+
+import com.jianan.parkwhere.data.local.CarPark;
+import com.jianan.parkwhere.util.CarParkFilter;
+import com.jianan.parkwhere.util.NearbyCarParkResult;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link NearbyCarParkQuery}
+ *
+ * Checks that superseded parameters are never computed, that results keep being published during a drag while they are
+ * at most a frame stale, and that the result of a computation more than a frame stale or cleared is never published
+ */
+public class NearbyCarParkQueryTest {
+
+    /**
+     * Executor whose tasks run when the test says so
+     */
+    private static final class QueueExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Main thread with a hand driven clock, tasks run once the clock passes their time
+     */
+    private static final class FakeMainThread implements NearbyCarParkQuery.MainThread {
+        private final List<Runnable> tasks = new ArrayList<>();
+        private final List<Long> times = new ArrayList<>();
+        private long now = 1_000;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            tasks.add(task);
+            times.add(now + delayMs);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            int index;
+            while ((index = tasks.indexOf(task)) >= 0) {
+                tasks.remove(index);
+                times.remove(index);
+            }
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        void advance(long ms) {
+            now += ms;
+            for (int i = 0; i < tasks.size(); ) {
+                if (times.get(i) <= now) {
+                    Runnable task = tasks.remove(i);
+                    times.remove(i);
+                    task.run();
+                    i = 0;
+                } else {
+                    i++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Search that records the radius of each computation and whether it had been cancelled by the time it finished
+     */
+    private static final class FakeSearch implements NearbyCarParkQuery.Search {
+        private final List<Float> radii = new ArrayList<>();
+        private final List<Boolean> cancelled = new ArrayList<>();
+        private final Map<NearbyCarParkResult, Float> resultRadii = new IdentityHashMap<>();
+
+        @Override
+        public NearbyCarParkResult query(Location location, float radiusMeters, CarParkFilter filter,
+                                         NearbyResultCache cache, BooleanSupplier isCancelled) {
+            radii.add(radiusMeters);
+            cancelled.add(isCancelled.getAsBoolean());
+            // Ignores the cancellation so the query has to drop the result itself. One car park keeps each result a
+            // distinct instance, the empty result is shared
+            NearbyCarParkResult.Builder builder = new NearbyCarParkResult.Builder(1);
+            builder.add(new CarPark(), 0);
+            NearbyCarParkResult result = builder.build();
+            resultRadii.put(result, radiusMeters);
+            return result;
+        }
+    }
+
+    /**
+     * Query that records its published results instead of setting them on the LiveData
+     */
+    private static final class TestNearbyCarParkQuery extends NearbyCarParkQuery {
+        private final List<NearbyCarParkResult> published = new ArrayList<>();
+
+        TestNearbyCarParkQuery(Search search, Executor executor, MainThread mainThread) {
+            super(search, executor, mainThread);
+        }
+
+        @Override
+        void publish(NearbyCarParkResult result) {
+            published.add(result);
+        }
+    }
+
+    private final FakeSearch search = new FakeSearch();
+    private final QueueExecutor executor = new QueueExecutor();
+    private final FakeMainThread mainThread = new FakeMainThread();
+    private final TestNearbyCarParkQuery query = new TestNearbyCarParkQuery(search, executor, mainThread);
+    // The fake search ignores the location, android.location.Location cannot be built in local unit tests
+    private final Location location = null;
+
+    private List<Float> publishedRadii() {
+        List<Float> radii = new ArrayList<>();
+        for (NearbyCarParkResult result : query.published) {
+            radii.add(search.resultRadii.get(result));
+        }
+        return radii;
+    }
+
+    @Test
+    public void submit_beforeDispatch_computesOnlyLatestParameters() {
+        query.submit(location, 500, CarParkFilter.NONE);
+        query.submit(location, 600, CarParkFilter.NONE);
+        query.submit(location, 700, CarParkFilter.NONE);
+
+        mainThread.advance(0);
+        executor.runAll();
+        mainThread.advance(0);
+
+        assertEquals(Arrays.asList(700f), search.radii);
+        assertEquals(Arrays.asList(700f), publishedRadii());
+    }
+
+    @Test
+    public void submit_whileRunning_publishesResultAtMostAFrameStale() {
+        query.submit(location, 500, CarParkFilter.NONE);
+        mainThread.advance(0);
+
+        // 500 m is running when 800 m comes in, and returns within the frame
+        query.submit(location, 800, CarParkFilter.NONE);
+        executor.runAll();
+        mainThread.advance(0);
+
+        assertEquals(Arrays.asList(false), search.cancelled);
+        assertEquals(Arrays.asList(500f), publishedRadii());
+
+        // The latest parameters start no earlier than a frame after the previous computation
+        mainThread.advance(16);
+        executor.runAll();
+        mainThread.advance(0);
+
+        assertEquals(Arrays.asList(500f, 800f), search.radii);
+        assertEquals(Arrays.asList(500f, 800f), publishedRadii());
+    }
+
+    @Test
+    public void submit_whileRunning_cancelsComputationMoreThanAFrameStaleAndDropsItsResult() {
+        query.submit(location, 500, CarParkFilter.NONE);
+        mainThread.advance(0);
+
+        // 500 m is running when 800 m comes in, and is still running more than a frame later
+        query.submit(location, 800, CarParkFilter.NONE);
+        mainThread.advance(17);
+        executor.runAll();
+        mainThread.advance(0);
+
+        assertEquals(Arrays.asList(true), search.cancelled);
+        assertTrue(query.published.isEmpty());
+
+        // The latest parameters start as soon as the cancelled computation returns
+        executor.runAll();
+        mainThread.advance(0);
+
+        assertEquals(Arrays.asList(500f, 800f), search.radii);
+        assertEquals(Arrays.asList(true, false), search.cancelled);
+        assertEquals(Arrays.asList(800f), publishedRadii());
+    }
+
+    @Test
+    public void drag_publishesIntermediateResultsAndEndsOnFinalParameters() {
+        // A new radius every frame, each computation takes a frame so it is always superseded while running
+        List<Float> submitted = new ArrayList<>();
+        float radius = 100;
+        for (int frame = 0; frame < 10; frame++) {
+            query.submit(location, radius, CarParkFilter.NONE);
+            submitted.add(radius);
+            radius += 100;
+            mainThread.advance(16);
+            executor.runAll();
+        }
+        for (int i = 0; i < 5; i++) {
+            mainThread.advance(16);
+            executor.runAll();
+        }
+
+        // Every radius was computed and shown in turn rather than only the one the drag ended on
+        assertEquals(submitted, search.radii);
+        assertEquals(submitted, publishedRadii());
+        assertFalse(search.cancelled.contains(true));
+    }
+
+    @Test
+    public void clear_dropsRunningResultAndPendingParameters() {
+        query.submit(location, 500, CarParkFilter.NONE);
+        mainThread.advance(0);
+        query.clear();
+        query.submit(location, 600, CarParkFilter.NONE);
+        query.clear();
+
+        executor.runAll();
+        mainThread.advance(100);
+        executor.runAll();
+        mainThread.advance(100);
+
+        assertEquals(Arrays.asList(500f), search.radii);
+        assertTrue(query.published.isEmpty());
+    }
+}
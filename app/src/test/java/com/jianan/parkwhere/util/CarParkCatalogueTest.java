@@ -0,0 +1,127 @@
+package com.jianan.parkwhere.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CarParkCatalogue} and {@link CarParkCatalogueWriter}
+ *
+ * Writes catalogues in memory and checks that every field and dictionary reads back as written, in car park number
+ * order
+ */
+public class CarParkCatalogueTest {
+    private static final String CSV = "car_park_no,address,latitude,longitude,car_park_type,type_of_parking_system,"
+            + "short_term_parking,free_parking,night_parking,car_park_decks,gantry_height,car_park_basement\n"
+            + "ACB,BLK 270/271 ALBERT CENTRE BASEMENT CAR PARK,1.301063272,103.854118,BASEMENT CAR PARK,"
+            + "ELECTRONIC PARKING,WHOLE DAY,NO,YES,1,1.8,Y\n"
+            + "BE28,\"BLK 213-215,218-227 BISHAN STREET 23\",1.357937,103.846215,SURFACE CAR PARK,"
+            + "ELECTRONIC PARKING,7AM-7PM,SUN & PH FR 7AM-10.30PM,NO,0,4.5,N\n"
+            + "ACM,BLK 98A ALJUNIED CRESCENT,1.32100429,103.8850609,MULTI-STOREY CAR PARK,"
+            + "ELECTRONIC PARKING,WHOLE DAY,SUN & PH FR 7AM-10.30PM,YES,5,2.1,N\n";
+
+    @Test
+    public void csvRoundTrip_readsBackEveryField() throws IOException {
+        CarParkCatalogue catalogue = write(CarParkCatalogueWriter.readCsv(new StringReader(CSV)));
+        assertEquals(3, catalogue.size());
+
+        int bishan = ordinalOf(catalogue, "BE28");
+        assertEquals("BLK 213-215,218-227 BISHAN STREET 23", catalogue.getAddress(bishan));
+        assertEquals(1.357937, catalogue.getLatitude(bishan), 0);
+        assertEquals(103.846215, catalogue.getLongitude(bishan), 0);
+        assertEquals(4.5, catalogue.getGantryHeight(bishan), 0);
+        assertEquals(0, catalogue.getCarParkDecks(bishan));
+        assertEquals("SURFACE CAR PARK", catalogue.getValue(CarParkDictionary.COLUMN_CAR_PARK_TYPE, bishan));
+        assertEquals("7AM-7PM", catalogue.getValue(CarParkDictionary.COLUMN_SHORT_TERM_PARKING, bishan));
+        assertEquals("NO", catalogue.getValue(CarParkDictionary.COLUMN_NIGHT_PARKING, bishan));
+        assertEquals("N", catalogue.getValue(CarParkDictionary.COLUMN_CAR_PARK_BASEMENT, bishan));
+
+        Svy21Projection.Point point = Svy21Projection.fromLatLng(1.357937, 103.846215);
+        assertEquals(point.getX(), catalogue.getXCoord(bishan), 0);
+        assertEquals(point.getY(), catalogue.getYCoord(bishan), 0);
+
+        int albert = ordinalOf(catalogue, "ACB");
+        assertEquals(1.8, catalogue.getGantryHeight(albert), 0);
+        assertEquals(1, catalogue.getCarParkDecks(albert));
+    }
+
+    @Test
+    public void dictionaries_matchTheSharedDictionaries() throws IOException {
+        CarParkCatalogue catalogue = write(CarParkCatalogueWriter.readCsv(new StringReader(CSV)));
+
+        int column = CarParkDictionary.COLUMN_FREE_PARKING;
+        assertEquals(Arrays.asList("NO", "SUN & PH FR 1PM-10.30PM", "SUN & PH FR 7AM-10.30PM"),
+                dictionary(catalogue, column));
+        assertEquals(2, catalogue.getDictionarySize(CarParkDictionary.COLUMN_PARKING_SYSTEM_TYPE));
+
+        int aljunied = ordinalOf(catalogue, "ACM");
+        int bishan = ordinalOf(catalogue, "BE28");
+        assertEquals(catalogue.getCode(column, aljunied), catalogue.getCode(column, bishan));
+        assertEquals(CarParkDictionary.FREE_PARKING_SUN_PH_7AM_1030PM, catalogue.getCode(column, bishan));
+        assertSame(CarParkDictionary.decode(column, CarParkDictionary.FREE_PARKING_SUN_PH_7AM_1030PM),
+                catalogue.getValue(column, bishan));
+    }
+
+    @Test
+    public void write_rejectsValuesMissingFromTheDictionaries() throws IOException {
+        String csv = CSV.replace("SURFACE CAR PARK", "ROOFTOP CAR PARK");
+        try {
+            write(CarParkCatalogueWriter.readCsv(new StringReader(csv)));
+            fail("Expected the unknown car park type to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void write_ordersCarParksByNumber() throws IOException {
+        CarParkCatalogue catalogue = write(CarParkCatalogueWriter.readCsv(new StringReader(CSV)));
+
+        List<String> numbers = new ArrayList<>();
+        for (int ordinal = 0; ordinal < catalogue.size(); ordinal++) {
+            numbers.add(catalogue.getCarParkNumber(ordinal));
+        }
+        assertEquals(Arrays.asList("ACB", "ACM", "BE28"), numbers);
+    }
+
+    @Test
+    public void wrap_rejectsOtherData() {
+        try {
+            CarParkCatalogue.wrap(ByteBuffer.allocate(128));
+            fail("Expected the buffer to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    private static CarParkCatalogue write(List<CarParkCatalogueWriter.Row> rows) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CarParkCatalogueWriter.write(rows, output);
+        return CarParkCatalogue.wrap(ByteBuffer.wrap(output.toByteArray()));
+    }
+
+    private static int ordinalOf(CarParkCatalogue catalogue, String carParkNumber) {
+        for (int ordinal = 0; ordinal < catalogue.size(); ordinal++) {
+            if (catalogue.getCarParkNumber(ordinal).equals(carParkNumber)) {
+                return ordinal;
+            }
+        }
+        throw new AssertionError("Missing " + carParkNumber);
+    }
+
+    private static List<String> dictionary(CarParkCatalogue catalogue, int column) {
+        List<String> values = new ArrayList<>();
+        for (int code = 0; code < catalogue.getDictionarySize(column); code++) {
+            values.add(catalogue.getDictionaryValue(column, code));
+        }
+        return values;
+    }
+}
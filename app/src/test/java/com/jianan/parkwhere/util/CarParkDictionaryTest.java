@@ -0,0 +1,41 @@
+package com.jianan.parkwhere.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CarParkDictionary}
+ *
+ * Checks that codes round trip and that the persisted codes of known values do not change
+ */
+public class CarParkDictionaryTest {
+
+    @Test
+    public void everyCode_roundTrips() {
+        for (int column = 0; column < CarParkDictionary.COLUMN_COUNT; column++) {
+            for (int code = 0; code < CarParkDictionary.size(column); code++) {
+                assertEquals(code, CarParkDictionary.encode(column, CarParkDictionary.decode(column, code)));
+            }
+        }
+    }
+
+    @Test
+    public void knownValues_keepTheirPersistedCodes() {
+        assertEquals(CarParkDictionary.CAR_PARK_TYPE_MULTI_STOREY,
+                CarParkDictionary.encode(CarParkDictionary.COLUMN_CAR_PARK_TYPE, "MULTI-STOREY CAR PARK"));
+        assertEquals(CarParkDictionary.FREE_PARKING_SUN_PH_7AM_1030PM,
+                CarParkDictionary.encode(CarParkDictionary.COLUMN_FREE_PARKING, "SUN & PH FR 7AM-10.30PM"));
+        assertEquals(CarParkDictionary.NIGHT_PARKING_YES,
+                CarParkDictionary.encode(CarParkDictionary.COLUMN_NIGHT_PARKING, "YES"));
+        assertEquals(CarParkDictionary.BASEMENT_NO,
+                CarParkDictionary.encode(CarParkDictionary.COLUMN_CAR_PARK_BASEMENT, "N"));
+    }
+
+    @Test
+    public void unknownValues_decodeToNull() {
+        assertEquals(CarParkDictionary.UNKNOWN, CarParkDictionary.encode(CarParkDictionary.COLUMN_NIGHT_PARKING, "MAYBE"));
+        assertEquals(CarParkDictionary.UNKNOWN, CarParkDictionary.encode(CarParkDictionary.COLUMN_NIGHT_PARKING, null));
+        assertNull(CarParkDictionary.decode(CarParkDictionary.COLUMN_NIGHT_PARKING, CarParkDictionary.UNKNOWN));
+    }
+}
@@ -0,0 +1,181 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CarParkFilterEngine} and {@link CarParkFilter}
+ *
+ * Checks that the bitset counts and filtered results match checking every car park with the filter
+ */
+public class CarParkFilterEngineTest {
+    private static final double[] GANTRY_HEIGHTS = {0, 1.8, 1.9, 2.1, 2.15, 4.5};
+
+    @Test
+    public void count_matchesBruteForce() {
+        Random random = new Random(42);
+        List<CarPark> carParks = randomCarParks(random, 2248);
+        CarParkFilterEngine engine = new CarParkFilterEngine(carParks);
+
+        for (int query = 0; query < 200; query++) {
+            CarParkFilter filter = randomFilter(random);
+            assertEquals(bruteForceCount(carParks, filter), engine.count(filter));
+        }
+        assertEquals(carParks.size(), engine.count(CarParkFilter.NONE));
+    }
+
+    @Test
+    public void countWithinAndApply_matchBruteForceOnNearbyResult() {
+        Random random = new Random(43);
+        List<CarPark> carParks = randomCarParks(random, 1000);
+        CarParkFilterEngine engine = new CarParkFilterEngine(carParks);
+
+        NearbyCarParkResult.Builder builder = new NearbyCarParkResult.Builder(400);
+        List<CarPark> nearby = new ArrayList<>();
+        for (CarPark carPark : carParks) {
+            if (random.nextInt(3) == 0) {
+                builder.add(carPark, random.nextFloat() * 1_000_000f);
+                nearby.add(carPark);
+            }
+        }
+        NearbyCarParkResult result = builder.build();
+
+        for (int query = 0; query < 100; query++) {
+            CarParkFilter filter = randomFilter(random);
+            int expected = bruteForceCount(nearby, filter);
+            assertEquals(expected, engine.countWithin(filter, result));
+
+            NearbyCarParkResult filtered = engine.apply(filter, result);
+            assertEquals(expected, filtered.size());
+            float previous = 0;
+            for (int position = 0; position < filtered.size(); position++) {
+                CarPark carPark = filtered.getSorted(position);
+                assertTrue(filter.matches(carPark));
+                assertTrue(filtered.getDistanceMeters(position) >= previous);
+                previous = filtered.getDistanceMeters(position);
+            }
+        }
+    }
+
+    @Test
+    public void filter_combinesCodesWithOrAndColumnsWithAnd() {
+        CarPark basement = carPark("A", CarParkDictionary.CAR_PARK_TYPE_BASEMENT, CarParkDictionary.NIGHT_PARKING_YES, 1.8);
+        CarPark multiStorey = carPark("B", CarParkDictionary.CAR_PARK_TYPE_MULTI_STOREY, CarParkDictionary.NIGHT_PARKING_NO, 2.1);
+        CarPark surface = carPark("C", CarParkDictionary.CAR_PARK_TYPE_SURFACE, CarParkDictionary.NIGHT_PARKING_YES, 4.5);
+        CarParkFilterEngine engine = new CarParkFilterEngine(Arrays.asList(basement, multiStorey, surface));
+
+        CarParkFilter covered = new CarParkFilter.Builder()
+                .allow(CarParkDictionary.COLUMN_CAR_PARK_TYPE, CarParkDictionary.CAR_PARK_TYPE_BASEMENT)
+                .allow(CarParkDictionary.COLUMN_CAR_PARK_TYPE, CarParkDictionary.CAR_PARK_TYPE_MULTI_STOREY)
+                .build();
+        assertEquals(2, engine.count(covered));
+
+        CarParkFilter coveredAtNight = covered.toBuilder()
+                .allow(CarParkDictionary.COLUMN_NIGHT_PARKING, CarParkDictionary.NIGHT_PARKING_YES)
+                .build();
+        assertEquals(1, engine.count(coveredAtNight));
+        assertTrue(coveredAtNight.matches(basement));
+
+        assertEquals(2, engine.count(new CarParkFilter.Builder().minGantryHeight(2.0).build()));
+        assertEquals(0, engine.count(new CarParkFilter.Builder().minGantryHeight(5.0).build()));
+        assertEquals(covered, coveredAtNight.toBuilder()
+                .disallow(CarParkDictionary.COLUMN_NIGHT_PARKING, CarParkDictionary.NIGHT_PARKING_YES)
+                .build());
+    }
+
+    @Test
+    public void minGantryHeight_handlesUnknownHeightExplicitly() {
+        CarPark unknown = carPark("A", CarParkDictionary.CAR_PARK_TYPE_SURFACE, CarParkDictionary.NIGHT_PARKING_YES,
+                CarPark.GANTRY_HEIGHT_UNKNOWN);
+        CarPark low = carPark("B", CarParkDictionary.CAR_PARK_TYPE_MULTI_STOREY, CarParkDictionary.NIGHT_PARKING_YES, 1.9);
+        CarPark high = carPark("C", CarParkDictionary.CAR_PARK_TYPE_MULTI_STOREY, CarParkDictionary.NIGHT_PARKING_YES, 2.15);
+        CarParkFilterEngine engine = new CarParkFilterEngine(Arrays.asList(unknown, low, high));
+
+        CarParkFilter knownOnly = new CarParkFilter.Builder().minGantryHeight(2.0, false).build();
+        CarParkFilter withUnknown = new CarParkFilter.Builder().minGantryHeight(2.0, true).build();
+        assertEquals(1, engine.count(knownOnly));
+        assertEquals(2, engine.count(withUnknown));
+        assertFalse(knownOnly.matches(unknown));
+        assertTrue(withUnknown.matches(unknown));
+
+        // Above every known height only the unknown ones can be left
+        assertEquals(1, engine.count(new CarParkFilter.Builder().minGantryHeight(9.0, true).build()));
+
+        // Without a minimum height the unknown option has no effect
+        assertEquals(CarParkFilter.NONE, new CarParkFilter.Builder().minGantryHeight(0, true).build());
+    }
+
+    @Test
+    public void builder_rejectsUnknownCodes() {
+        try {
+            new CarParkFilter.Builder().allow(CarParkDictionary.COLUMN_NIGHT_PARKING, 2);
+            fail("Expected the unknown code to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    private static List<CarPark> randomCarParks(Random random, int count) {
+        List<CarPark> carParks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CarPark carPark = new CarPark();
+            carPark.setCarParkNumber("CP" + i);
+            carPark.setCarParkTypeCode(randomCode(random, CarParkDictionary.COLUMN_CAR_PARK_TYPE));
+            carPark.setParkingSystemTypeCode(randomCode(random, CarParkDictionary.COLUMN_PARKING_SYSTEM_TYPE));
+            carPark.setShortTermParkingCode(randomCode(random, CarParkDictionary.COLUMN_SHORT_TERM_PARKING));
+            carPark.setFreeParkingCode(randomCode(random, CarParkDictionary.COLUMN_FREE_PARKING));
+            carPark.setNightParkingCode(randomCode(random, CarParkDictionary.COLUMN_NIGHT_PARKING));
+            carPark.setCarParkBasementCode(randomCode(random, CarParkDictionary.COLUMN_CAR_PARK_BASEMENT));
+            carPark.setGantryHeight(GANTRY_HEIGHTS[random.nextInt(GANTRY_HEIGHTS.length)]);
+            carParks.add(carPark);
+        }
+        return carParks;
+    }
+
+    private static int randomCode(Random random, int column) {
+        // Include some unknown codes
+        return random.nextInt(CarParkDictionary.size(column) + 1) - 1;
+    }
+
+    private static CarParkFilter randomFilter(Random random) {
+        CarParkFilter.Builder builder = new CarParkFilter.Builder();
+        for (int column = 0; column < CarParkDictionary.COLUMN_COUNT; column++) {
+            for (int code = 0; code < CarParkDictionary.size(column); code++) {
+                if (random.nextInt(4) == 0) {
+                    builder.allow(column, code);
+                }
+            }
+        }
+        if (random.nextBoolean()) {
+            builder.minGantryHeight(random.nextDouble() * 5, random.nextBoolean());
+        }
+        return builder.build();
+    }
+
+    private static int bruteForceCount(List<CarPark> carParks, CarParkFilter filter) {
+        int count = 0;
+        for (CarPark carPark : carParks) {
+            if (filter.matches(carPark)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static CarPark carPark(String number, int type, int nightParking, double gantryHeight) {
+        CarPark carPark = new CarPark();
+        carPark.setCarParkNumber(number);
+        carPark.setCarParkTypeCode(type);
+        carPark.setNightParkingCode(nightParking);
+        carPark.setGantryHeight(gantryHeight);
+        return carPark;
+    }
+}
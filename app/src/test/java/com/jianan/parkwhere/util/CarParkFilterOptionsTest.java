@@ -0,0 +1,92 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CarParkFilterOptions}
+ *
+ * Checks that options of one column are combined with OR, options of different columns with AND, that the "now"
+ * options follow the time, and that every option has a label
+ */
+public class CarParkFilterOptionsTest {
+    // 2024-06-02 is a Sunday
+    private static final ParkingTime SUNDAY_AFTERNOON =
+            ParkingTime.of(LocalDateTime.of(2024, 6, 2, 14, 0), false, false);
+    private static final ParkingTime MONDAY_AFTERNOON =
+            ParkingTime.of(LocalDateTime.of(2024, 6, 3, 14, 0), false, false);
+
+    @Test
+    public void toFilter_combinesOptionsOfOneColumnWithOr() {
+        CarPark basement = carPark(CarParkDictionary.CAR_PARK_TYPE_BASEMENT, CarParkDictionary.PARKING_SYSTEM_COUPON);
+        CarPark multiStorey = carPark(CarParkDictionary.CAR_PARK_TYPE_MULTI_STOREY,
+                CarParkDictionary.PARKING_SYSTEM_ELECTRONIC);
+        CarPark surface = carPark(CarParkDictionary.CAR_PARK_TYPE_SURFACE, CarParkDictionary.PARKING_SYSTEM_ELECTRONIC);
+
+        CarParkFilter covered = CarParkFilterOptions.toFilter(
+                CarParkFilterOptions.MULTI_STOREY | CarParkFilterOptions.BASEMENT, SUNDAY_AFTERNOON);
+        assertTrue(covered.matches(basement));
+        assertTrue(covered.matches(multiStorey));
+        assertFalse(covered.matches(surface));
+    }
+
+    @Test
+    public void toFilter_combinesOptionsOfDifferentColumnsWithAnd() {
+        CarPark coupon = carPark(CarParkDictionary.CAR_PARK_TYPE_MULTI_STOREY, CarParkDictionary.PARKING_SYSTEM_COUPON);
+        CarPark electronic = carPark(CarParkDictionary.CAR_PARK_TYPE_MULTI_STOREY,
+                CarParkDictionary.PARKING_SYSTEM_ELECTRONIC);
+
+        CarParkFilter filter = CarParkFilterOptions.toFilter(
+                CarParkFilterOptions.MULTI_STOREY | CarParkFilterOptions.ELECTRONIC_PARKING, SUNDAY_AFTERNOON);
+        assertFalse(filter.matches(coupon));
+        assertTrue(filter.matches(electronic));
+    }
+
+    @Test
+    public void toFilter_checksNowOptionsAtTheTime() {
+        CarPark free = carPark(CarParkDictionary.CAR_PARK_TYPE_SURFACE, CarParkDictionary.PARKING_SYSTEM_ELECTRONIC);
+        free.setFreeParkingCode(CarParkDictionary.FREE_PARKING_SUN_PH_7AM_1030PM);
+        free.setShortTermParkingCode(CarParkDictionary.SHORT_TERM_PARKING_WHOLE_DAY);
+        CarPark paid = carPark(CarParkDictionary.CAR_PARK_TYPE_SURFACE, CarParkDictionary.PARKING_SYSTEM_ELECTRONIC);
+        paid.setFreeParkingCode(CarParkDictionary.FREE_PARKING_NO);
+        paid.setShortTermParkingCode(CarParkDictionary.SHORT_TERM_PARKING_NO);
+
+        int options = CarParkFilterOptions.FREE_NOW | CarParkFilterOptions.SHORT_TERM_NOW;
+        CarParkFilter sunday = CarParkFilterOptions.toFilter(options, SUNDAY_AFTERNOON);
+        assertTrue(sunday.matches(free));
+        assertFalse(sunday.matches(paid));
+
+        // Free parking only applies on Sundays and public holidays
+        assertFalse(CarParkFilterOptions.toFilter(options, MONDAY_AFTERNOON).matches(free));
+        assertTrue(CarParkFilterOptions.toFilter(CarParkFilterOptions.SHORT_TERM_NOW, MONDAY_AFTERNOON).matches(free));
+    }
+
+    @Test
+    public void toFilter_ofNoOptionFiltersNothing() {
+        assertSame(CarParkFilter.NONE, CarParkFilterOptions.toFilter(CarParkFilterOptions.NONE, SUNDAY_AFTERNOON));
+    }
+
+    @Test
+    public void everyOption_hasLabelAndFilter() {
+        int all = 0;
+        for (int option : CarParkFilterOptions.ALL) {
+            assertEquals(0, all & option);
+            all |= option;
+            assertFalse(CarParkFilterOptions.getLabel(option).isEmpty());
+            assertFalse(CarParkFilterOptions.toFilter(option, SUNDAY_AFTERNOON).isEmpty());
+        }
+    }
+
+    private static CarPark carPark(int type, int parkingSystem) {
+        CarPark carPark = new CarPark();
+        carPark.setCarParkNumber("CP");
+        carPark.setCarParkTypeCode(type);
+        carPark.setParkingSystemTypeCode(parkingSystem);
+        return carPark;
+    }
+}
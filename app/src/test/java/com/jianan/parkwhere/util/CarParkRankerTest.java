@@ -0,0 +1,147 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CarParkRanker}
+ *
+ * Checks each criterion, how missing data is ranked, that ties keep their order, that the top {@code k} matches a
+ * full sort and that ranking a nearby result reuses the caller's array
+ */
+public class CarParkRankerTest {
+    private static final float[] DISTANCES = {400f, 100f, 300f, 200f};
+    private static final float[] AVAILABLE = {0.9f, Float.NaN, 0.1f, 0.5f};
+    private static final float[] COSTS = {120f, 240f, Float.NaN, 0f};
+
+    @Test
+    public void closest_ranksByDistance() {
+        int[] ranked = CarParkRanker.rank(CarParkRanker.CLOSEST, DISTANCES, AVAILABLE, COSTS, null, 4, 4);
+
+        assertArrayEquals(new int[]{1, 3, 2, 0}, ranked);
+    }
+
+    @Test
+    public void mostAvailable_weighsAvailabilityOverDistance() {
+        int[] ranked = CarParkRanker.rank(CarParkRanker.MOST_AVAILABLE, DISTANCES, AVAILABLE, COSTS, null, 4, 4);
+
+        // Missing availability counts as full, the closest car park then only edges out a nearly full one further away
+        assertArrayEquals(new int[]{0, 3, 1, 2}, ranked);
+    }
+
+    @Test
+    public void cost_ranksFreeFirstAndNotAllowedLast() {
+        CarParkRanker.Weights weights = new CarParkRanker.Weights(0.25f, 0f, 1f, 0.1f);
+
+        int[] ranked = CarParkRanker.rank(weights, DISTANCES, AVAILABLE, COSTS, null, 4, 4);
+
+        assertArrayEquals(new int[]{3, 0, 1, 2}, ranked);
+    }
+
+    @Test
+    public void cheapest_ranksByCostThenDistance() {
+        float[] costs = {120f, 120f, 0f, 240f};
+
+        int[] ranked = CarParkRanker.rank(CarParkRanker.CHEAPEST, DISTANCES, AVAILABLE, costs, null, 4, 4);
+
+        // The two car parks at 120 cents are listed nearest first
+        assertArrayEquals(new int[]{2, 1, 0, 3}, ranked);
+        // Without estimates every cost counts as the worst and the distance decides
+        float[] noCosts = {Float.NaN, Float.NaN, Float.NaN, Float.NaN};
+        assertArrayEquals(new int[]{1, 3, 2, 0},
+                CarParkRanker.rank(CarParkRanker.CHEAPEST, DISTANCES, AVAILABLE, noCosts, null, 4, 4));
+    }
+
+    @Test
+    public void clearance_prefersRoomAboveTheVehicle() {
+        CarParkRanker.Weights weights = new CarParkRanker.Weights(0f, 0f, 0f, 1f);
+        float[] margins = {0.1f, Float.NaN, 0.6f, 0.3f};
+
+        int[] ranked = CarParkRanker.rank(weights, DISTANCES, AVAILABLE, COSTS, margins, 4, 4);
+
+        assertArrayEquals(new int[]{2, 3, 0, 1}, ranked);
+        // Without a clearance set the criterion is ignored and every car park ties
+        assertArrayEquals(new int[]{0, 1, 2, 3}, CarParkRanker.rank(weights, DISTANCES, AVAILABLE, COSTS, null, 4, 4));
+    }
+
+    @Test
+    public void topK_matchesFullSortAndKeepsTiesInOrder() {
+        Random random = new Random(47);
+        int size = 2000;
+        float[] distances = new float[size];
+        float[] available = new float[size];
+        float[] costs = new float[size];
+        for (int i = 0; i < size; i++) {
+            distances[i] = random.nextInt(50) * 100f;
+            available[i] = random.nextInt(5) / 4f;
+            costs[i] = random.nextInt(4) * 60f;
+        }
+        CarParkRanker.Weights weights = CarParkRanker.MOST_AVAILABLE;
+
+        int[] all = CarParkRanker.rank(weights, distances, available, costs, null, size, size);
+        int[] top = CarParkRanker.rank(weights, distances, available, costs, null, size, 50);
+
+        assertEquals(size, all.length);
+        assertArrayEquals(Arrays.copyOf(all, 50), top);
+        // Scores only come from a few values, so there are many ties and they keep the input order
+        for (int i = 1; i < all.length; i++) {
+            float previous = score(weights, distances, available, all[i - 1]);
+            float current = score(weights, distances, available, all[i]);
+            assertTrue(previous <= current);
+            if (previous == current) {
+                assertTrue(all[i - 1] < all[i]);
+            }
+        }
+    }
+
+    @Test
+    public void rankResult_writesIntoCallerArrayAndMatchesColumns() {
+        NearbyCarParkResult.Builder builder = new NearbyCarParkResult.Builder(DISTANCES.length);
+        for (int i = 0; i < DISTANCES.length; i++) {
+            CarPark carPark = new CarPark();
+            carPark.setCarParkNumber("CP" + i);
+            builder.add(carPark, DISTANCES[i] * DISTANCES[i]);
+        }
+        NearbyCarParkResult result = builder.build();
+        CarParkRanker ranker = new CarParkRanker();
+        CarParkRanker.Weights weights = new CarParkRanker.Weights(1f, 0f, 0f, 0f);
+        int[] ranked = {-1, -1, -1, -1, -1, -1};
+
+        // Polls rank the same result again into the same array
+        for (int poll = 0; poll < 2; poll++) {
+            int count = ranker.rank(weights, result, Collections.emptyMap(), false,
+                    ParkingCostEstimator.Estimates.EMPTY, 0f, ranked);
+
+            assertEquals(DISTANCES.length, count);
+            assertArrayEquals(CarParkRanker.rank(weights, DISTANCES, AVAILABLE, COSTS, null, 4, 4),
+                    Arrays.copyOf(ranked, count));
+        }
+        assertEquals(-1, ranked[DISTANCES.length]);
+
+        int[] top = new int[2];
+        assertEquals(2, ranker.rank(weights, result, Collections.emptyMap(), false,
+                ParkingCostEstimator.Estimates.EMPTY, 0f, top));
+        assertArrayEquals(new int[]{1, 3}, top);
+    }
+
+    @Test
+    public void weights_rejectNegativeValues() {
+        try {
+            new CarParkRanker.Weights(1f, -1f, 0f, 0f);
+            fail("Expected negative weights to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    private static float score(CarParkRanker.Weights weights, float[] distances, float[] available, int index) {
+        return weights.getDistance() * distances[index] / 4900f + weights.getAvailability() * (1f - available[index]);
+    }
+}
@@ -0,0 +1,129 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+import com.jianan.parkwhere.data.model.CarParkApiData;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CarParkRow}
+ *
+ * Covers the distance buckets, the change detection used by the adapter's diff, carrying rows over to new inputs and
+ * cost estimates
+ */
+public class CarParkRowTest {
+    // Coordinate of a missing location, the row omits its distance
+    private static final double NO_LOCATION = Double.NaN;
+
+    @Test
+    public void distanceBucket_matchesDisplayedResolution() {
+        assertEquals(0, CarParkRow.toDistanceBucket(0.4));
+        assertEquals(999, CarParkRow.toDistanceBucket(999.4));
+        assertEquals(1000, CarParkRow.toDistanceBucket(1020));
+        assertEquals(1100, CarParkRow.toDistanceBucket(1050));
+        assertEquals(4300, CarParkRow.toDistanceBucket(4321));
+    }
+
+    @Test
+    public void sameInputs_haveSameContent() {
+        CarParkRow first = CarParkRow.create(carPark("BE28"), NO_LOCATION, NO_LOCATION, null, true,
+                CarParkRow.NO_COST, 0);
+        CarParkRow second = CarParkRow.create(carPark("BE28"), NO_LOCATION, NO_LOCATION, null, true,
+                CarParkRow.NO_COST, 0);
+
+        assertTrue(first.isSameItem(second));
+        assertTrue(first.isSameContent(second));
+        assertEquals(first.getContentHash(), second.getContentHash());
+        assertEquals(0, second.getChangedParts(first));
+    }
+
+    @Test
+    public void bookmarkChange_isReportedAlone() {
+        CarParkRow before = CarParkRow.create(carPark("BE28"), NO_LOCATION, NO_LOCATION, null, false,
+                CarParkRow.NO_COST, 0);
+        CarParkRow after = CarParkRow.create(carPark("BE28"), NO_LOCATION, NO_LOCATION, null, true,
+                CarParkRow.NO_COST, 0);
+
+        assertTrue(before.isSameItem(after));
+        assertFalse(before.isSameContent(after));
+        assertEquals(CarParkRow.CHANGE_BOOKMARK, after.getChangedParts(before));
+    }
+
+    @Test
+    public void withoutApiDataOrLocation_rowHasNoDataTierAndNoDistance() {
+        CarParkRow row = CarParkRow.create(carPark("BE28"), NO_LOCATION, NO_LOCATION, null, false,
+                CarParkRow.NO_COST, 0);
+
+        assertEquals(CarParkRow.TIER_NO_DATA, row.getTier());
+        assertFalse(row.hasApiData());
+        assertFalse(row.hasDistance());
+        assertFalse(row.hasCarLots());
+        assertFalse(row.hasMotorcycleLots());
+    }
+
+    @Test
+    public void differentCarParks_areDifferentItems() {
+        CarParkRow first = CarParkRow.create(carPark("BE28"), NO_LOCATION, NO_LOCATION, null, false,
+                CarParkRow.NO_COST, 0);
+        CarParkRow second = CarParkRow.create(carPark("BE29"), NO_LOCATION, NO_LOCATION, null, false,
+                CarParkRow.NO_COST, 0);
+
+        assertFalse(first.isSameItem(second));
+    }
+
+    @Test
+    public void update_keepsRowWhenNothingShownChanged() {
+        CarPark carPark = carPark("BE28");
+        CarParkRow row = CarParkRow.create(carPark, 1.3000, 103.8000, null, true, CarParkRow.NO_COST, 0);
+
+        // A few centimetres of movement stays in the same distance bucket
+        assertSame(row, row.update(1.3000, 103.8000001, true, null, true, CarParkRow.NO_COST, 0));
+        assertSame(row, row.update(NO_LOCATION, NO_LOCATION, false, null, true, CarParkRow.NO_COST, 0));
+        // API data without lot information shows the same as no data
+        assertSame(row, row.update(NO_LOCATION, NO_LOCATION, false, new CarParkApiData(), true, CarParkRow.NO_COST, 0));
+    }
+
+    @Test
+    public void update_rebuildsOnlyChangedParts() {
+        CarPark carPark = carPark("BE28");
+        carPark.setLatitude(1.3050);
+        carPark.setLongitude(103.8000);
+        CarParkRow row = CarParkRow.create(carPark, 1.3000, 103.8000, null, false, CarParkRow.NO_COST, 0);
+
+        CarParkRow bookmarked = row.update(NO_LOCATION, NO_LOCATION, false, null, true, CarParkRow.NO_COST, 0);
+        assertNotSame(row, bookmarked);
+        assertEquals(CarParkRow.CHANGE_BOOKMARK, bookmarked.getChangedParts(row));
+        assertEquals(row.getDistanceBucket(), bookmarked.getDistanceBucket());
+
+        CarParkRow moved = row.update(1.3020, 103.8000, true, null, false, CarParkRow.NO_COST, 0);
+        assertEquals(CarParkRow.CHANGE_DISTANCE, moved.getChangedParts(row));
+        assertTrue(moved.isSameContent(
+                CarParkRow.create(carPark, 1.3020, 103.8000, null, false, CarParkRow.NO_COST, 0)));
+    }
+
+    @Test
+    public void costChange_isReportedAlone() {
+        CarPark carPark = carPark("BE28");
+        CarParkRow row = CarParkRow.create(carPark, NO_LOCATION, NO_LOCATION, null, false, CarParkRow.NO_COST, 0);
+        assertFalse(row.hasCost());
+
+        CarParkRow estimated = row.update(NO_LOCATION, NO_LOCATION, false, null, false, 240f, 120);
+        assertTrue(estimated.hasCost());
+        assertEquals(CarParkRow.CHANGE_COST, estimated.getChangedParts(row));
+
+        // A stay where parking is not allowed keeps its row, and a free car park changes with the length of the stay
+        CarParkRow notAllowed = row.update(NO_LOCATION, NO_LOCATION, false, null, false, Float.NaN, 120);
+        assertSame(notAllowed, notAllowed.update(NO_LOCATION, NO_LOCATION, false, null, false, Float.NaN, 120));
+        CarParkRow free = row.update(NO_LOCATION, NO_LOCATION, false, null, false, 0f, 120);
+        assertEquals(CarParkRow.CHANGE_COST, free.update(NO_LOCATION, NO_LOCATION, false, null, false, 0f,
+                60).getChangedParts(free));
+    }
+
+    private static CarPark carPark(String carParkNumber) {
+        CarPark carPark = new CarPark();
+        carPark.setCarParkNumber(carParkNumber);
+        return carPark;
+    }
+}
@@ -0,0 +1,104 @@
+package com.jianan.parkwhere.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link DatabaseExecutors}
+ *
+ * Checks that queued reads start by priority, writes keep their order and metrics follow the queue
+ */
+public class DatabaseExecutorsTest {
+
+    @Test
+    public void queuedReads_startByPriorityThenSubmissionOrder() throws InterruptedException {
+        DatabaseExecutors executors = new DatabaseExecutors(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+        // Occupy the only read thread so that the following tasks queue up
+        executors.executeRead(DatabaseExecutors.PRIORITY_BACKGROUND, () -> await(release));
+
+        executors.executeRead(DatabaseExecutors.PRIORITY_BACKGROUND, record(started, "background", done));
+        executors.executeRead(DatabaseExecutors.PRIORITY_USER, record(started, "user 1", done));
+        executors.executeRead(DatabaseExecutors.PRIORITY_USER, record(started, "user 2", done));
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("user 1", "user 2", "background"), started);
+    }
+
+    @Test
+    public void writes_runInSubmissionOrder() throws InterruptedException {
+        DatabaseExecutors executors = new DatabaseExecutors(2);
+        CountDownLatch done = new CountDownLatch(100);
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add("write " + i);
+            executors.executeWrite(record(started, "write " + i, done));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(expected, started);
+    }
+
+    @Test
+    public void metrics_trackQueueDepthAndWait() throws InterruptedException {
+        DatabaseExecutors executors = new DatabaseExecutors(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        DatabaseExecutors.Metrics metrics = executors.getWriteMetrics();
+
+        // Block the writer, the following writes queue up behind it
+        executors.executeWrite(() -> {
+            started.add("blocking");
+            running.countDown();
+            await(release);
+            done.countDown();
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        executors.executeWrite(record(started, "write 1", done));
+        executors.executeWrite(record(started, "write 2", done));
+
+        assertEquals(2, metrics.getQueueDepth());
+        assertEquals(1, metrics.getStartedCount());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("blocking", "write 1", "write 2"), started);
+        assertEquals(0, metrics.getQueueDepth());
+        assertEquals(3, metrics.getStartedCount());
+        assertTrue(metrics.getAverageWaitMillis() <= metrics.getMaxWaitMillis());
+        assertEquals(0, executors.getReadMetrics().getStartedCount());
+        assertTrue(metrics.toString().startsWith("queued=0 started=3 "));
+    }
+
+    private static Runnable record(List<String> started, String name, CountDownLatch done) {
+        return () -> {
+            started.add(name);
+            done.countDown();
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
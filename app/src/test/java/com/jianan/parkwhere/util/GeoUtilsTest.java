@@ -0,0 +1,153 @@
+package com.jianan.parkwhere.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link GeoUtils}
+ *
+ * Bounds the equirectangular fast path against Haversine across Singapore and checks that both kernels select the
+ * same car parks in a loop shaped like the nearby car park query
+ */
+public class GeoUtilsTest {
+    // Bounding box that covers mainland Singapore
+    private static final double MIN_LAT = 1.20;
+    private static final double MAX_LAT = 1.48;
+    private static final double MIN_LON = 103.60;
+    private static final double MAX_LON = 104.05;
+
+    private static final int SAMPLES = 100_000;
+
+    @Test
+    public void haversine_knownDistance() {
+        // One degree of latitude on a 6371 km sphere
+        assertEquals(111_194.93, GeoUtils.calculateHaversineDistance(1.0, 103.8, 2.0, 103.8), 0.01);
+        assertEquals(0.0, GeoUtils.calculateHaversineDistance(1.3, 103.8, 1.3, 103.8), 0.0);
+    }
+
+    @Test
+    public void calculator_withinSearchRadius_isWithinTwoCentimetres() {
+        Random random = new Random(26);
+        double maxError = 0;
+
+        for (int i = 0; i < SAMPLES; i++) {
+            double lat1 = randomLat(random);
+            double lon1 = randomLon(random);
+            double lat2 = lat1 + (random.nextDouble() - 0.5) * 0.09; // About +/- 5 km
+            double lon2 = lon1 + (random.nextDouble() - 0.5) * 0.09;
+
+            double haversine = GeoUtils.calculateHaversineDistance(lat1, lon1, lat2, lon2);
+            if (haversine > 5000) {
+                continue;
+            }
+
+            GeoUtils.EquirectangularCalculator calculator = new GeoUtils.EquirectangularCalculator(lat1);
+            double fast = calculator.calculateDistance(lat1, lon1, lat2, lon2);
+            maxError = Math.max(maxError, Math.abs(haversine - fast));
+        }
+
+        assertTrue("Max error " + maxError + " m", maxError < 0.02);
+    }
+
+    @Test
+    public void calculator_acrossIsland_isWithinRelativeBound() {
+        Random random = new Random(27);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            double lat1 = randomLat(random);
+            double lon1 = randomLon(random);
+            double lat2 = randomLat(random);
+            double lon2 = randomLon(random);
+
+            double haversine = GeoUtils.calculateHaversineDistance(lat1, lon1, lat2, lon2);
+            GeoUtils.EquirectangularCalculator calculator = new GeoUtils.EquirectangularCalculator(lat1);
+            double fast = calculator.calculateDistance(lat1, lon1, lat2, lon2);
+
+            // Reference latitude at one end of a 50 km line still keeps the error below 3 m (0.006%)
+            assertTrue(Math.abs(haversine - fast) < 3.0);
+            assertTrue(Math.abs(haversine - fast) <= haversine * 6e-5 + 1e-9);
+        }
+    }
+
+    @Test
+    public void equirectangular_meanLatitude_acrossIsland_isWithinTenCentimetres() {
+        Random random = new Random(28);
+        double maxError = 0;
+
+        for (int i = 0; i < SAMPLES; i++) {
+            double lat1 = randomLat(random);
+            double lon1 = randomLon(random);
+            double lat2 = randomLat(random);
+            double lon2 = randomLon(random);
+
+            double haversine = GeoUtils.calculateHaversineDistance(lat1, lon1, lat2, lon2);
+            double fast = GeoUtils.calculateEquirectangularDistance(lat1, lon1, lat2, lon2);
+            maxError = Math.max(maxError, Math.abs(haversine - fast));
+        }
+
+        assertTrue("Max error " + maxError + " m", maxError < 0.1);
+    }
+
+    @Test
+    public void calculator_squaredDistance_matchesDistance() {
+        GeoUtils.EquirectangularCalculator calculator = new GeoUtils.EquirectangularCalculator(1.35);
+        double distance = calculator.calculateDistance(1.35, 103.82, 1.36, 103.83);
+        double squared = calculator.calculateSquaredDistance(1.35, 103.82, 1.36, 103.83);
+        assertEquals(distance * distance, squared, 1e-6);
+    }
+
+    /**
+     * The radius filter of the nearby query over every car park in the bounding box selects the same car parks with
+     * both kernels, barring those that sit within a few centimetres of the radius
+     */
+    @Test
+    public void nearbyQueryLoop_selectsSameCarParks() {
+        Random random = new Random(29);
+        int count = 2248; // Number of HDB car parks in the bundled data set
+        double[] lats = new double[count];
+        double[] lons = new double[count];
+        for (int i = 0; i < count; i++) {
+            lats[i] = randomLat(random);
+            lons[i] = randomLon(random);
+        }
+
+        int haversineCount = countWithHaversine(lats, lons, 1.3521, 103.8198, 5000);
+        int fastCount = countWithCalculator(lats, lons, 1.3521, 103.8198, 5000);
+
+        assertTrue(haversineCount > 0);
+        assertTrue(Math.abs(haversineCount - fastCount) <= 1);
+    }
+
+    private static int countWithHaversine(double[] lats, double[] lons, double centreLat, double centreLon, double radius) {
+        int count = 0;
+        for (int i = 0; i < lats.length; i++) {
+            if (GeoUtils.calculateHaversineDistance(centreLat, centreLon, lats[i], lons[i]) <= radius) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int countWithCalculator(double[] lats, double[] lons, double centreLat, double centreLon, double radius) {
+        GeoUtils.EquirectangularCalculator calculator = new GeoUtils.EquirectangularCalculator(centreLat);
+        double radiusSquared = radius * radius;
+        int count = 0;
+        for (int i = 0; i < lats.length; i++) {
+            if (calculator.calculateSquaredDistance(centreLat, centreLon, lats[i], lons[i]) <= radiusSquared) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static double randomLat(Random random) {
+        return MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT);
+    }
+
+    private static double randomLon(Random random) {
+        return MIN_LON + random.nextDouble() * (MAX_LON - MIN_LON);
+    }
+}
@@ -0,0 +1,130 @@
+package com.jianan.parkwhere.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LingeringRefCount}
+ *
+ * Checks that the resource starts with the first holder, keeps running while any holder is left, stops only after
+ * the linger period and is not restarted when a holder comes back within it, as when switching tabs
+ */
+public class LingeringRefCountTest {
+    private static final long LINGER_MS = 5_000L;
+
+    /**
+     * Scheduler driven by hand, tasks run once the clock passes their time
+     */
+    private static final class FakeScheduler implements LingeringRefCount.Scheduler {
+        private final List<Runnable> tasks = new ArrayList<>();
+        private final List<Long> times = new ArrayList<>();
+        private long now = 0;
+
+        @Override
+        public Runnable schedule(Runnable task, long delayMs) {
+            tasks.add(task);
+            times.add(now + delayMs);
+            return () -> {
+                int index = tasks.indexOf(task);
+                if (index >= 0) {
+                    tasks.remove(index);
+                    times.remove(index);
+                }
+            };
+        }
+
+        void advance(long ms) {
+            now += ms;
+            for (int i = 0; i < tasks.size(); ) {
+                if (times.get(i) <= now) {
+                    Runnable task = tasks.remove(i);
+                    times.remove(i);
+                    task.run();
+                } else {
+                    i++;
+                }
+            }
+        }
+    }
+
+    private final FakeScheduler scheduler = new FakeScheduler();
+    private int starts = 0;
+    private int stops = 0;
+    private final LingeringRefCount refCount =
+            new LingeringRefCount(LINGER_MS, scheduler, () -> starts++, () -> stops++);
+
+    @Test
+    public void acquire_startsOnlyForFirstHolder() {
+        refCount.acquire();
+        refCount.acquire();
+
+        assertEquals(1, starts);
+        assertEquals(2, refCount.getCount());
+    }
+
+    @Test
+    public void release_stopsOnlyAfterLingerPeriod() {
+        refCount.acquire();
+        refCount.release();
+
+        assertTrue(refCount.isLingering());
+        scheduler.advance(LINGER_MS - 1);
+        assertEquals(0, stops);
+
+        scheduler.advance(1);
+        assertEquals(1, stops);
+        assertFalse(refCount.isLingering());
+    }
+
+    @Test
+    public void release_keepsRunningWhileHoldersAreLeft() {
+        refCount.acquire();
+        refCount.acquire();
+        refCount.release();
+
+        assertFalse(refCount.isLingering());
+        scheduler.advance(LINGER_MS * 2);
+        assertEquals(0, stops);
+    }
+
+    @Test
+    public void acquire_withinLingerPeriodCancelsStop() {
+        // One tab lets go and the next one takes over shortly after
+        refCount.acquire();
+        refCount.release();
+        scheduler.advance(LINGER_MS / 2);
+        refCount.acquire();
+
+        assertFalse(refCount.isLingering());
+        scheduler.advance(LINGER_MS * 2);
+        assertEquals(0, stops);
+
+        // Only the last release counts from then on
+        refCount.release();
+        scheduler.advance(LINGER_MS);
+        assertEquals(1, stops);
+    }
+
+    @Test
+    public void release_withoutHolderThrows() {
+        try {
+            refCount.release();
+            fail("Expected a release without holder to be rejected");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+
+        refCount.acquire();
+        refCount.release();
+        try {
+            refCount.release();
+            fail("Expected a second release to be rejected");
+        } catch (IllegalStateException expected) {
+            assertTrue(refCount.isLingering());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.jianan.parkwhere.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LocationSmoother}
+ *
+ * Checks that jitter within the accuracy radius is held back, that real movement is forwarded and that inaccurate
+ * fixes move the estimate less than accurate ones
+ */
+public class LocationSmootherTest {
+    private static final double LATITUDE = 1.3521;
+    private static final double LONGITUDE = 103.8198;
+
+    // Roughly one metre in degrees of latitude
+    private static final double METRE = 1.0 / 111_320;
+
+    @Test
+    public void firstFix_isForwarded() {
+        LocationSmoother smoother = new LocationSmoother(10f);
+
+        assertTrue(smoother.update(LATITUDE, LONGITUDE, 8f, 0));
+        assertEquals(LATITUDE, smoother.getLatitude(), 1e-9);
+        assertEquals(LONGITUDE, smoother.getLongitude(), 1e-9);
+        assertEquals(8f, smoother.getAccuracyMeters(), 1e-3);
+    }
+
+    @Test
+    public void jitterWithinAccuracy_isHeldBack() {
+        LocationSmoother smoother = new LocationSmoother(10f);
+        Random random = new Random(48);
+        smoother.update(LATITUDE, LONGITUDE, 15f, 0);
+
+        int forwarded = 0;
+        int beyondTenMetres = 0;
+        for (int i = 1; i <= 120; i++) {
+            // Standing still while fixes of 15 to 30 m accuracy scatter within their accuracy radius
+            float accuracy = 15f + random.nextInt(16);
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double radius = random.nextDouble() * accuracy;
+            double north = Math.sin(angle) * radius * METRE;
+            double east = Math.cos(angle) * radius * METRE;
+            if (smoother.update(LATITUDE + north, LONGITUDE + east, accuracy, i * 5000L)) {
+                forwarded++;
+            }
+            if (radius > 10) {
+                beyondTenMetres++;
+            }
+        }
+
+        // A plain 10 m threshold would have forwarded most of these fixes
+        assertTrue(beyondTenMetres > 60);
+        assertTrue("Expected jitter to be held back, forwarded " + forwarded, forwarded <= 2);
+    }
+
+    @Test
+    public void steadyMovement_isForwarded() {
+        LocationSmoother smoother = new LocationSmoother(10f);
+        smoother.update(LATITUDE, LONGITUDE, 5f, 0);
+
+        // Walking north at about 1.4 m/s with 5 m fixes every 5 s
+        int forwarded = 0;
+        for (int i = 1; i <= 24; i++) {
+            if (smoother.update(LATITUDE + i * 7 * METRE, LONGITUDE, 5f, i * 5000L)) {
+                forwarded++;
+            }
+        }
+
+        assertTrue("Expected most of the walk to be forwarded, got " + forwarded, forwarded >= 8);
+        double distance = GeoUtils.calculateHaversineDistance(LATITUDE + 24 * 7 * METRE, LONGITUDE,
+                smoother.getLatitude(), smoother.getLongitude());
+        assertTrue("Estimate lags too far behind: " + distance, distance < 15);
+    }
+
+    @Test
+    public void inaccurateFix_movesEstimateLessThanAccurateFix() {
+        LocationSmoother accurate = new LocationSmoother(10f);
+        LocationSmoother inaccurate = new LocationSmoother(10f);
+        accurate.update(LATITUDE, LONGITUDE, 5f, 0);
+        inaccurate.update(LATITUDE, LONGITUDE, 5f, 0);
+
+        accurate.update(LATITUDE + 100 * METRE, LONGITUDE, 5f, 5000);
+        inaccurate.update(LATITUDE + 100 * METRE, LONGITUDE, 200f, 5000);
+
+        double accurateMove = (accurate.getLatitude() - LATITUDE) / METRE;
+        double inaccurateMove = (inaccurate.getLatitude() - LATITUDE) / METRE;
+        assertTrue(accurateMove > 80);
+        assertTrue(inaccurateMove < 10);
+    }
+
+    @Test
+    public void reset_forwardsTheNextFix() {
+        LocationSmoother smoother = new LocationSmoother(10f);
+        smoother.update(LATITUDE, LONGITUDE, 5f, 0);
+        assertFalse(smoother.update(LATITUDE + 2 * METRE, LONGITUDE, 5f, 5000));
+
+        smoother.reset();
+
+        assertTrue(smoother.update(LATITUDE + 2 * METRE, LONGITUDE, 5f, 10000));
+        assertEquals(LATITUDE + 2 * METRE, smoother.getLatitude(), 1e-9);
+    }
+}
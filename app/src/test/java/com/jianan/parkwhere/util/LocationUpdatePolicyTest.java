@@ -0,0 +1,202 @@
+package com.jianan.parkwhere.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LocationUpdatePolicy}
+ *
+ * Replays scripted fix traces against a fake client and checks the requests it receives as the user stands still,
+ * walks, drives and switches screens, and that fixes without a speed do not flip the motion at a short interval or on
+ * balanced power accuracy
+ */
+public class LocationUpdatePolicyTest {
+    private static final double LATITUDE = 1.3521;
+    private static final double LONGITUDE = 103.8198;
+
+    // Roughly one metre in degrees of latitude
+    private static final double METRE = 1.0 / 111_320;
+
+    /**
+     * Stands in for the fused location provider, recording every request
+     */
+    private static final class FakeClient implements LocationUpdatePolicy.Client {
+        final List<LocationUpdatePolicy.Request> requests = new ArrayList<>();
+
+        @Override
+        public void requestUpdates(LocationUpdatePolicy.Request request) {
+            requests.add(request);
+        }
+
+        LocationUpdatePolicy.Request last() {
+            return requests.get(requests.size() - 1);
+        }
+    }
+
+    /**
+     * Feed fixes moving north at a constant speed, without a reported speed so it is derived from the positions
+     *
+     * @return time of the last fix
+     */
+    private static long moveNorth(LocationUpdatePolicy policy, double[] position, float speedMps, long intervalMs,
+                                  int count, long startMillis) {
+        long time = startMillis;
+        for (int i = 0; i < count; i++) {
+            time += intervalMs;
+            position[0] += speedMps * intervalMs / 1000.0 * METRE;
+            policy.onFix(position[0], LONGITUDE, 5f, Float.NaN, time);
+        }
+        return time;
+    }
+
+    /**
+     * Return a north and east offset in metres within the accuracy of a fix
+     */
+    private static double[] scatter(Random random, float accuracyMeters) {
+        double angle = random.nextDouble() * 2 * Math.PI;
+        double radius = random.nextDouble() * accuracyMeters * 0.9;
+        return new double[]{radius * Math.cos(angle), radius * Math.sin(angle)};
+    }
+
+    @Test
+    public void stationaryUser_relaxesToBalancedPower() {
+        FakeClient client = new FakeClient();
+        LocationUpdatePolicy policy = new LocationUpdatePolicy(client);
+        assertTrue(policy.getRequest().isHighAccuracy());
+
+        // Fixes scatter by a few metres, within their accuracy
+        for (int i = 0; i < 6; i++) {
+            policy.onFix(LATITUDE + (i % 2) * 4 * METRE, LONGITUDE, 5f, Float.NaN, i * 5000L);
+        }
+
+        assertEquals(LocationUpdatePolicy.MOTION_STATIONARY, policy.getMotion());
+        assertEquals(1, client.requests.size());
+        assertFalse(client.last().isHighAccuracy());
+        assertTrue(client.last().getIntervalMs() > 5000L);
+    }
+
+    @Test
+    public void walkingThenDriving_tightensIntervalsOnTheMap() {
+        FakeClient client = new FakeClient();
+        LocationUpdatePolicy policy = new LocationUpdatePolicy(client);
+        double[] position = {LATITUDE};
+
+        long time = moveNorth(policy, position, 0f, 5000L, 5, 0);
+        assertEquals(LocationUpdatePolicy.MOTION_STATIONARY, policy.getMotion());
+        LocationUpdatePolicy.Request stationary = client.last();
+
+        // Walking pace, the stationary request only delivers fixes after 10 m so they come in slower
+        time = moveNorth(policy, position, 1.4f, 15_000L, 6, time);
+        assertEquals(LocationUpdatePolicy.MOTION_WALKING, policy.getMotion());
+        LocationUpdatePolicy.Request walking = client.last();
+        assertTrue(walking.isHighAccuracy());
+        assertTrue(walking.getIntervalMs() < stationary.getIntervalMs());
+
+        time = moveNorth(policy, position, 12f, 5000L, 4, time);
+        assertEquals(LocationUpdatePolicy.MOTION_DRIVING, policy.getMotion());
+        LocationUpdatePolicy.Request driving = client.last();
+        assertTrue(driving.isHighAccuracy());
+        assertTrue(driving.getIntervalMs() < walking.getIntervalMs());
+
+        // Slowing for a junction does not drop out of driving, stopping does once the baseline no longer reaches back
+        // to the drive
+        moveNorth(policy, position, 4.5f, 2000L, 2, time);
+        assertEquals(LocationUpdatePolicy.MOTION_DRIVING, policy.getMotion());
+        moveNorth(policy, position, 0f, 2000L, 15, time + 4000L);
+        assertEquals(LocationUpdatePolicy.MOTION_STATIONARY, policy.getMotion());
+        assertEquals(stationary, client.last());
+    }
+
+    @Test
+    public void walkingAtShortInterval_staysWalking() {
+        FakeClient client = new FakeClient();
+        LocationUpdatePolicy policy = new LocationUpdatePolicy(client);
+        Random random = new Random(49);
+
+        // Five minutes at walking pace every 5 s, each step is barely more than the accuracy and the fixes scatter
+        for (int i = 1; i <= 60; i++) {
+            float accuracy = 4f + random.nextFloat() * 4f;
+            double[] offset = scatter(random, accuracy);
+            policy.onFix(LATITUDE + (1.4 * 5 * i + offset[0]) * METRE, LONGITUDE + offset[1] * METRE, accuracy,
+                    Float.NaN, i * 5000L);
+            assertEquals(LocationUpdatePolicy.MOTION_WALKING, policy.getMotion());
+        }
+        assertTrue(client.requests.isEmpty());
+    }
+
+    @Test
+    public void balancedPowerJitter_staysStationary() {
+        FakeClient client = new FakeClient();
+        LocationUpdatePolicy policy = new LocationUpdatePolicy(client);
+        Random random = new Random(49);
+
+        // Half an hour of network fixes from 20 to 100 m accuracy every 15 to 30 s, without a speed
+        long time = 0;
+        for (int i = 0; i < 80; i++) {
+            time += random.nextBoolean() ? 15_000L : 30_000L;
+            float accuracy = 20f + random.nextFloat() * 80f;
+            double[] offset = scatter(random, accuracy);
+            policy.onFix(LATITUDE + offset[0] * METRE, LONGITUDE + offset[1] * METRE, accuracy, Float.NaN, time);
+            if (i >= 2) {
+                assertEquals(LocationUpdatePolicy.MOTION_STATIONARY, policy.getMotion());
+            }
+        }
+        assertEquals(1, client.requests.size());
+        assertFalse(client.last().isHighAccuracy());
+    }
+
+    @Test
+    public void listScreen_staysOnBalancedPowerWhileMoving() {
+        FakeClient client = new FakeClient();
+        LocationUpdatePolicy policy = new LocationUpdatePolicy(client);
+        double[] position = {LATITUDE};
+
+        moveNorth(policy, position, 12f, 2000L, 4, 0);
+        LocationUpdatePolicy.Request mapDriving = client.last();
+        policy.setScreen(LocationUpdatePolicy.SCREEN_LIST);
+
+        LocationUpdatePolicy.Request listDriving = client.last();
+        assertFalse(listDriving.isHighAccuracy());
+        assertTrue(listDriving.getIntervalMs() > mapDriving.getIntervalMs());
+
+        // Switching to the same screen again does not re-request
+        int requestCount = client.requests.size();
+        policy.setScreen(LocationUpdatePolicy.SCREEN_LIST);
+        assertEquals(requestCount, client.requests.size());
+
+        policy.setScreen(LocationUpdatePolicy.SCREEN_MAP);
+        assertEquals(mapDriving, client.last());
+    }
+
+    @Test
+    public void reportedSpeed_isUsedWhenPresent() {
+        FakeClient client = new FakeClient();
+        LocationUpdatePolicy policy = new LocationUpdatePolicy(client);
+
+        // Same position every time, but the provider reports driving speed
+        for (int i = 0; i < 3; i++) {
+            policy.onFix(LATITUDE, LONGITUDE, 5f, 15f, i * 2000L);
+        }
+
+        assertEquals(LocationUpdatePolicy.MOTION_DRIVING, policy.getMotion());
+    }
+
+    @Test
+    public void reset_startsOutWalkingAgain() {
+        FakeClient client = new FakeClient();
+        LocationUpdatePolicy policy = new LocationUpdatePolicy(client);
+        double[] position = {LATITUDE};
+        moveNorth(policy, position, 0f, 5000L, 5, 0);
+        assertEquals(LocationUpdatePolicy.MOTION_STATIONARY, policy.getMotion());
+
+        policy.reset();
+
+        assertEquals(LocationUpdatePolicy.MOTION_WALKING, policy.getMotion());
+        assertTrue(policy.getRequest().isHighAccuracy());
+    }
+}
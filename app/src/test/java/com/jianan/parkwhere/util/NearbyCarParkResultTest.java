@@ -0,0 +1,258 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link NearbyCarParkResult}
+ *
+ * Checks that the lazily sorted prefix always matches a full sort by distance, however it is grown
+ */
+public class NearbyCarParkResultTest {
+
+    @Test
+    public void sortedPrefix_matchesFullSort() {
+        Random random = new Random(28);
+        float[] squaredDistances = randomSquaredDistances(random, 2248);
+        NearbyCarParkResult result = build(squaredDistances);
+
+        float[] expected = squaredDistances.clone();
+        Arrays.sort(expected);
+
+        List<CarPark> prefix = result.getSortedPrefix(20);
+        assertEquals(20, prefix.size());
+        assertEquals(20, result.getSortedCount());
+        for (int i = 0; i < prefix.size(); i++) {
+            assertEquals(expected[i], squaredDistanceOf(prefix.get(i)), 0f);
+        }
+    }
+
+    @Test
+    public void growingPrefixInPages_matchesFullSort() {
+        Random random = new Random(29);
+        float[] squaredDistances = randomSquaredDistances(random, 1000);
+        NearbyCarParkResult result = build(squaredDistances);
+
+        float[] expected = squaredDistances.clone();
+        Arrays.sort(expected);
+
+        for (int loaded = 20; loaded < 1000 + 20; loaded += 20) {
+            result.ensureSorted(loaded);
+        }
+
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], squaredDistanceOf(result.getSorted(i)), 0f);
+            assertEquals(Math.sqrt(expected[i]), result.getDistanceMeters(i), 1e-3);
+        }
+    }
+
+    @Test
+    public void duplicateDistances_keepEveryCarPark() {
+        float[] squaredDistances = new float[500];
+        Arrays.fill(squaredDistances, 250_000f);
+        NearbyCarParkResult result = build(squaredDistances);
+
+        List<CarPark> all = result.getSortedPrefix(Integer.MAX_VALUE);
+        assertEquals(500, all.size());
+        assertEquals(500, new HashSet<>(all).size());
+    }
+
+    @Test
+    public void unsorted_containsEveryCarPark() {
+        float[] squaredDistances = randomSquaredDistances(new Random(30), 100);
+        NearbyCarParkResult result = build(squaredDistances);
+
+        assertEquals(100, result.getUnsorted().size());
+        assertEquals(0, result.getSortedCount());
+    }
+
+    @Test
+    public void withinRadius_matchesFilteredSort() {
+        float[] squaredDistances = randomSquaredDistances(new Random(36), 2248);
+        NearbyCarParkResult result = build(squaredDistances);
+        result.ensureSorted(20);
+
+        float radius = 2500f;
+        NearbyCarParkResult smaller = result.withinRadius(radius);
+
+        float[] expected = sortedWithin(squaredDistances, radius * radius);
+        assertEquals(expected.length, smaller.size());
+        assertEquals(expected.length, smaller.getSortedCount());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], squaredDistanceOf(smaller.getSorted(i)), 0f);
+        }
+
+        assertSame(result, result.withinRadius(6000f));
+        assertTrue(result.withinRadius(0f).isEmpty());
+    }
+
+    @Test
+    public void builderFromSmallerRadius_keepsSortedPrefixAndMatchesFullSort() {
+        float[] squaredDistances = randomSquaredDistances(new Random(37), 1000);
+        float innerSquared = 2000f * 2000f;
+
+        NearbyCarParkResult.Builder innerBuilder = new NearbyCarParkResult.Builder(1);
+        int innerCount = 0;
+        for (int i = 0; i < squaredDistances.length; i++) {
+            if (squaredDistances[i] <= innerSquared) {
+                innerBuilder.add(carParkAt(i, squaredDistances[i]), squaredDistances[i]);
+                innerCount++;
+            }
+        }
+        NearbyCarParkResult inner = innerBuilder.build();
+        inner.ensureSorted(20);
+
+        NearbyCarParkResult.Builder outerBuilder = new NearbyCarParkResult.Builder(inner, 0);
+        for (int i = 0; i < squaredDistances.length; i++) {
+            if (squaredDistances[i] > innerSquared) {
+                outerBuilder.add(carParkAt(i, squaredDistances[i]), squaredDistances[i]);
+            }
+        }
+        NearbyCarParkResult outer = outerBuilder.build();
+
+        assertEquals(squaredDistances.length, outer.size());
+        assertEquals(20, outer.getSortedCount());
+        assertEquals(innerCount, inner.size());
+
+        float[] expected = squaredDistances.clone();
+        Arrays.sort(expected);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], squaredDistanceOf(outer.getSorted(i)), 0f);
+        }
+    }
+
+    @Test
+    public void filter_keepsSortedPrefixAndOrder() {
+        Random random = new Random(32);
+        float[] squaredDistances = randomSquaredDistances(random, 800);
+        NearbyCarParkResult result = build(squaredDistances);
+        result.ensureSorted(100);
+
+        // Keep every third car park, by index so that the kept distances are known
+        NearbyCarParkResult filtered = result.filter(carPark ->
+                Integer.parseInt(carPark.getCarParkNumber().substring(2)) % 3 == 0);
+
+        float[] kept = new float[(squaredDistances.length + 2) / 3];
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] = squaredDistances[i * 3];
+        }
+        Arrays.sort(kept);
+        assertEquals(kept.length, filtered.size());
+        assertTrue(filtered.getSortedCount() > 0);
+        assertTrue(filtered.getSortedCount() <= 100);
+        for (int i = 0; i < kept.length; i++) {
+            assertEquals(kept[i], squaredDistanceOf(filtered.getSorted(i)), 0f);
+        }
+
+        assertSame(result, result.filter(carPark -> true));
+        assertTrue(result.filter(carPark -> false).isEmpty());
+    }
+
+    @Test
+    public void reorder_listsGivenCarParksFirstThenByDistance() {
+        float[] squaredDistances = randomSquaredDistances(new Random(47), 300);
+        NearbyCarParkResult result = build(squaredDistances);
+        result.ensureSorted(50);
+
+        int[] first = {250, 7, 123};
+        NearbyCarParkResult reordered = result.reorder(first);
+
+        assertEquals(result.size(), reordered.size());
+        for (int i = 0; i < first.length; i++) {
+            assertSame(result.getUnsorted().get(first[i]), reordered.getSorted(i));
+            assertEquals(Math.sqrt(squaredDistances[first[i]]), reordered.getDistanceMeters(i), 1e-3);
+        }
+
+        float[] rest = new float[squaredDistances.length - first.length];
+        int count = 0;
+        for (int i = 0; i < squaredDistances.length; i++) {
+            if (i != 250 && i != 7 && i != 123) {
+                rest[count++] = squaredDistances[i];
+            }
+        }
+        Arrays.sort(rest);
+        for (int i = 0; i < rest.length; i++) {
+            assertEquals(rest[i], squaredDistanceOf(reordered.getSorted(first.length + i)), 0f);
+        }
+
+        float[] distances = reordered.getDistancesMeters();
+        for (int i = 0; i < squaredDistances.length; i++) {
+            assertEquals(Math.sqrt(squaredDistances[i]), distances[i], 1e-3);
+        }
+
+        // Only the leading part of a reused buffer is used, and a longer distance array keeps its tail
+        NearbyCarParkResult fromBuffer = result.reorder(new int[]{250, 7, 123, 99, 98}, first.length);
+        for (int i = 0; i < squaredDistances.length; i++) {
+            assertSame(reordered.getSorted(i), fromBuffer.getSorted(i));
+        }
+        float[] buffer = new float[squaredDistances.length + 1];
+        buffer[squaredDistances.length] = -1f;
+        assertSame(buffer, fromBuffer.getDistancesMeters(buffer));
+        assertArrayEquals(distances, Arrays.copyOf(buffer, squaredDistances.length), 0f);
+        assertEquals(-1f, buffer[squaredDistances.length], 0f);
+
+        try {
+            reordered.withinRadius(1000f);
+            fail("A reordered result cannot answer a smaller radius");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void empty_hasNoCarParks() {
+        NearbyCarParkResult result = new NearbyCarParkResult.Builder(0).build();
+
+        assertTrue(result.isEmpty());
+        assertTrue(result.getSortedPrefix(20).isEmpty());
+        assertTrue(result.getUnsorted().isEmpty());
+    }
+
+    private static NearbyCarParkResult build(float[] squaredDistances) {
+        // Start small so that the builder has to grow its arrays
+        NearbyCarParkResult.Builder builder = new NearbyCarParkResult.Builder(1);
+        for (int i = 0; i < squaredDistances.length; i++) {
+            builder.add(carParkAt(i, squaredDistances[i]), squaredDistances[i]);
+        }
+        return builder.build();
+    }
+
+    private static CarPark carParkAt(int index, float squaredDistance) {
+        CarPark carPark = new CarPark();
+        carPark.setCarParkNumber("CP" + index);
+        // The squared distance is kept on the x coordinate so that the test can read it back
+        carPark.setXCoord(squaredDistance);
+        return carPark;
+    }
+
+    private static float[] sortedWithin(float[] squaredDistances, float limit) {
+        float[] sorted = squaredDistances.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        while (count < sorted.length && sorted[count] <= limit) {
+            count++;
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    private static float squaredDistanceOf(CarPark carPark) {
+        return carPark.getXCoord();
+    }
+
+    private static float[] randomSquaredDistances(Random random, int count) {
+        float[] squaredDistances = new float[count];
+        for (int i = 0; i < count; i++) {
+            float distance = random.nextFloat() * 5000;
+            squaredDistances[i] = distance * distance;
+        }
+        return squaredDistances;
+    }
+}
@@ -0,0 +1,151 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link NearbyPagedList}
+ *
+ * Loads are queued on a manual executor so that the tests control when they run, like posts to the main looper
+ */
+public class NearbyPagedListTest {
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private final List<int[]> changes = new ArrayList<>();
+    private final List<int[]> inserts = new ArrayList<>();
+    private NearbyCarParkResult result;
+
+    @Before
+    public void setUp() {
+        pending.clear();
+        changes.clear();
+        inserts.clear();
+
+        // 100 car parks added furthest first so that sorting matters
+        NearbyCarParkResult.Builder builder = new NearbyCarParkResult.Builder(100);
+        for (int i = 99; i >= 0; i--) {
+            CarPark carPark = new CarPark();
+            carPark.setCarParkNumber("CP" + i);
+            builder.add(carPark, i * i);
+        }
+        result = builder.build();
+    }
+
+    @Test
+    public void placeholders_reportFullSizeAndNullTail() {
+        NearbyPagedList list = create(new NearbyPagedList.Config(20, 5, 20, true));
+
+        assertEquals(100, list.size());
+        assertEquals(20, list.getLoadedCount());
+        assertEquals("CP0", list.get(0).getCarParkNumber());
+        assertEquals("CP19", list.get(19).getCarParkNumber());
+        assertNull(list.get(20));
+    }
+
+    @Test
+    public void loadAround_outsidePrefetchDistance_doesNotLoad() {
+        NearbyPagedList list = create(new NearbyPagedList.Config(20, 5, 20, true));
+
+        list.loadAround(10);
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    public void loadAround_withinPrefetchDistance_loadsNextPageOnExecutor() {
+        NearbyPagedList list = create(new NearbyPagedList.Config(20, 5, 20, true));
+
+        list.loadAround(15);
+        // Nothing changes until the posted load runs
+        assertEquals(20, list.getLoadedCount());
+        runPending();
+
+        assertEquals(40, list.getLoadedCount());
+        assertEquals("CP39", list.get(39).getCarParkNumber());
+        assertEquals(1, changes.size());
+        assertArrayEquals(new int[]{20, 20}, changes.get(0));
+        assertTrue(inserts.isEmpty());
+    }
+
+    @Test
+    public void repeatedLoadAround_coalescesIntoOneLoad() {
+        NearbyPagedList list = create(new NearbyPagedList.Config(20, 5, 20, true));
+
+        list.loadAround(15);
+        list.loadAround(16);
+        list.loadAround(17);
+        assertEquals(1, pending.size());
+        runPending();
+
+        assertEquals(40, list.getLoadedCount());
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    public void withoutPlaceholders_growsByInsertion() {
+        NearbyPagedList list = create(new NearbyPagedList.Config(30, 10, 30, false));
+
+        assertEquals(30, list.size());
+        list.loadAround(25);
+        runPending();
+
+        assertEquals(60, list.size());
+        assertArrayEquals(new int[]{30, 30}, inserts.get(0));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void lastPage_isClampedToResultSize() {
+        NearbyPagedList list = create(new NearbyPagedList.Config(40, 10, 40, true));
+
+        list.loadAround(35);
+        runPending();
+        list.loadAround(75);
+        runPending();
+
+        assertEquals(100, list.getLoadedCount());
+        assertEquals("CP99", list.get(99).getCarParkNumber());
+        assertArrayEquals(new int[]{80, 20}, changes.get(1));
+    }
+
+    @Test
+    public void detach_dropsPendingLoad() {
+        NearbyPagedList list = create(new NearbyPagedList.Config(20, 5, 20, true));
+
+        list.loadAround(15);
+        list.detach();
+        runPending();
+
+        assertEquals(20, list.getLoadedCount());
+        assertTrue(changes.isEmpty());
+    }
+
+    private NearbyPagedList create(NearbyPagedList.Config config) {
+        NearbyPagedList list = new NearbyPagedList(result, config, pending::add);
+        list.addCallback(new NearbyPagedList.Callback() {
+            @Override
+            public void onChanged(int position, int count) {
+                changes.add(new int[]{position, count});
+            }
+
+            @Override
+            public void onInserted(int position, int count) {
+                inserts.add(new int[]{position, count});
+            }
+        });
+        return list;
+    }
+
+    private void runPending() {
+        while (!pending.isEmpty()) {
+            pending.poll().run();
+        }
+    }
+}
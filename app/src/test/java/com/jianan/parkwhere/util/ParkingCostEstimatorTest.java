@@ -0,0 +1,143 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ParkingCostEstimator}
+ *
+ * Checks central and non-central rates, free parking on Sundays and public holidays, the night parking cap, stays
+ * where parking is not allowed and that estimating a list matches estimating each car park
+ */
+public class ParkingCostEstimatorTest {
+    private static final String RATES = "version 1\n"
+            + "rate CENTRAL 120 MON,TUE,WED,THU,FRI,SAT FR 7AM-5PM\n"
+            + "rate CENTRAL 60 WHOLE DAY\n"
+            + "rate NON_CENTRAL 60 WHOLE DAY\n"
+            + "night_cap 500\n"
+            + "central ACB\n";
+
+    // 2025-08-04 is a Monday, 2025-08-11 is a public holiday in the test calendar
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2025, 8, 4, 0, 0);
+    private static final LocalDateTime SUNDAY = LocalDateTime.of(2025, 8, 10, 0, 0);
+    private static final LocalDateTime HOLIDAY = LocalDateTime.of(2025, 8, 11, 0, 0);
+
+    private static ParkingCostEstimator createEstimator() throws IOException {
+        ParkingRates rates = ParkingRates.read(new StringReader(RATES));
+        PublicHolidayCalendar calendar = PublicHolidayCalendar.read(new StringReader("version 1\n2025-08-11\n"));
+        return new ParkingCostEstimator(rates, calendar);
+    }
+
+    private static CarPark carPark(String number, int shortTerm, int free, int night) {
+        CarPark carPark = new CarPark();
+        carPark.setCarParkNumber(number);
+        carPark.setShortTermParkingCode(shortTerm);
+        carPark.setFreeParkingCode(free);
+        carPark.setNightParkingCode(night);
+        return carPark;
+    }
+
+    private static CarPark wholeDay(String number, int free) {
+        return carPark(number, CarParkDictionary.SHORT_TERM_PARKING_WHOLE_DAY, free, CarParkDictionary.NIGHT_PARKING_YES);
+    }
+
+    @Test
+    public void estimateCents_chargesCentralRatesDuringPeakHours() throws IOException {
+        ParkingCostEstimator estimator = createEstimator();
+        CarPark central = wholeDay("ACB", CarParkDictionary.FREE_PARKING_NO);
+        CarPark nonCentral = wholeDay("BJ1", CarParkDictionary.FREE_PARKING_NO);
+
+        assertEquals(240, estimator.estimateCents(central, MONDAY.withHour(10), 60), 1e-6);
+        assertEquals(120, estimator.estimateCents(nonCentral, MONDAY.withHour(10), 60), 1e-6);
+        // An hour at the peak rate and an hour after 5PM
+        assertEquals(360, estimator.estimateCents(central, MONDAY.withHour(16), 120), 1e-6);
+        assertEquals(120, estimator.estimateCents(central, SUNDAY.withHour(10), 60), 1e-6);
+    }
+
+    @Test
+    public void estimateCents_skipsFreeParkingOnSundaysAndPublicHolidays() throws IOException {
+        ParkingCostEstimator estimator = createEstimator();
+        CarPark carPark = wholeDay("BJ1", CarParkDictionary.FREE_PARKING_SUN_PH_1PM_1030PM);
+
+        // Only the hour before 1PM is charged
+        assertEquals(120, estimator.estimateCents(carPark, SUNDAY.withHour(12), 120), 1e-6);
+        assertEquals(120, estimator.estimateCents(carPark, HOLIDAY.withHour(12), 120), 1e-6);
+        assertEquals(0, estimator.estimateCents(carPark, HOLIDAY.withHour(14), 120), 1e-6);
+        assertEquals(240, estimator.estimateCents(carPark, MONDAY.withHour(12), 120), 1e-6);
+    }
+
+    @Test
+    public void estimateCents_followsHolidaysIntoTheNextDay() throws IOException {
+        ParkingCostEstimator estimator = createEstimator();
+        CarPark carPark = carPark("BJ1", CarParkDictionary.SHORT_TERM_PARKING_WHOLE_DAY,
+                CarParkDictionary.FREE_PARKING_SUN_PH_7AM_1030PM, CarParkDictionary.NIGHT_PARKING_NO);
+
+        // Sunday 10PM to holiday Monday 8AM, free until 10.30PM and again from 7AM
+        assertEquals(1020, estimator.estimateCents(carPark, SUNDAY.withHour(22), 600), 1e-6);
+        assertEquals(estimator.estimateCents(carPark, SUNDAY.withHour(22), 600),
+                estimator.estimate(Arrays.asList(carPark), SUNDAY.withHour(22), 600).getCostCents(0), 1e-3);
+    }
+
+    @Test
+    public void estimateCents_capsEachNight() throws IOException {
+        ParkingCostEstimator estimator = createEstimator();
+        CarPark carPark = wholeDay("BJ1", CarParkDictionary.FREE_PARKING_NO);
+
+        // 10.30PM to 7AM would be 1020 cents without the cap
+        assertEquals(500, estimator.estimateCents(carPark, MONDAY.withHour(22).withMinute(30), 510), 1e-6);
+        // An hour before the night, the capped night and half an hour after
+        assertEquals(680, estimator.estimateCents(carPark, MONDAY.withHour(21).withMinute(30), 600), 1e-6);
+        // Two nights are capped separately
+        assertEquals(500 + 1860 + 500,
+                estimator.estimateCents(carPark, MONDAY.withHour(22).withMinute(30), 510 + 930 + 510), 1e-6);
+    }
+
+    @Test
+    public void estimateCents_isNaNWhenParkingIsNotAllowed() throws IOException {
+        ParkingCostEstimator estimator = createEstimator();
+        CarPark dayOnly = carPark("BJ1", CarParkDictionary.SHORT_TERM_PARKING_7AM_7PM,
+                CarParkDictionary.FREE_PARKING_NO, CarParkDictionary.NIGHT_PARKING_NO);
+        CarPark withNight = carPark("BJ2", CarParkDictionary.SHORT_TERM_PARKING_7AM_1030PM,
+                CarParkDictionary.FREE_PARKING_NO, CarParkDictionary.NIGHT_PARKING_YES);
+
+        assertTrue(Double.isNaN(estimator.estimateCents(dayOnly, MONDAY.withHour(18), 120)));
+        assertEquals(120, estimator.estimateCents(dayOnly, MONDAY.withHour(17), 60), 1e-6);
+        // Night parking covers the gap after short-term parking ends
+        assertEquals(240, estimator.estimateCents(withNight, MONDAY.withHour(22), 120), 1e-6);
+    }
+
+    @Test
+    public void estimate_matchesEachCarParkAndSortsByCost() throws IOException {
+        ParkingCostEstimator estimator = createEstimator();
+        List<CarPark> carParks = Arrays.asList(
+                wholeDay("ACB", CarParkDictionary.FREE_PARKING_NO),
+                carPark("BJ1", CarParkDictionary.SHORT_TERM_PARKING_NO,
+                        CarParkDictionary.FREE_PARKING_NO, CarParkDictionary.NIGHT_PARKING_NO),
+                wholeDay("BJ2", CarParkDictionary.FREE_PARKING_NO),
+                wholeDay("BJ3", CarParkDictionary.FREE_PARKING_SUN_PH_7AM_1030PM),
+                wholeDay("BJ4", CarParkDictionary.FREE_PARKING_NO));
+        LocalDateTime arrival = HOLIDAY.withHour(10);
+
+        ParkingCostEstimator.Estimates estimates = estimator.estimate(carParks, arrival, 90);
+
+        assertEquals(carParks.size(), estimates.size());
+        for (int i = 0; i < carParks.size(); i++) {
+            assertSame(carParks.get(i), estimates.getCarPark(i));
+            assertEquals(i, estimates.indexOf(carParks.get(i).getCarParkNumber()));
+            assertEquals(estimator.estimateCents(carParks.get(i), arrival, 90), estimates.getCostCents(i), 1e-3);
+        }
+        // Free first, equal costs keep their order, the central car park is at its peak rate on a weekday holiday and
+        // the car park without short-term parking comes last
+        assertArrayEquals(new int[]{3, 2, 4, 0, 1}, estimates.getSortedOrder());
+        assertEquals(-1, estimates.indexOf("TM3"));
+    }
+}
@@ -0,0 +1,34 @@
+package com.jianan.parkwhere.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ParkingCostFormatter}
+ *
+ * Checks the labels of stay lengths and of paid, free and not allowed stays
+ */
+public class ParkingCostFormatterTest {
+
+    @Test
+    public void formatDuration_splitsHoursAndMinutes() {
+        assertEquals("30 min", ParkingCostFormatter.formatDuration(30));
+        assertEquals("2 h", ParkingCostFormatter.formatDuration(120));
+        assertEquals("1 h 30 min", ParkingCostFormatter.formatDuration(90));
+    }
+
+    @Test
+    public void formatCost_labelsPaidFreeAndNotAllowedStays() {
+        assertEquals("Est. $2.40 for 2 h", ParkingCostFormatter.formatCost(240f, 120));
+        assertEquals("Free for 2 h", ParkingCostFormatter.formatCost(0f, 120));
+        assertEquals("No parking for 30 min", ParkingCostFormatter.formatCost(Float.NaN, 30));
+    }
+
+    @Test
+    public void durations_areIncreasing() {
+        for (int i = 1; i < ParkingCostFormatter.DURATIONS_MINUTES.length; i++) {
+            assertTrue(ParkingCostFormatter.DURATIONS_MINUTES[i - 1] < ParkingCostFormatter.DURATIONS_MINUTES[i]);
+        }
+    }
+}
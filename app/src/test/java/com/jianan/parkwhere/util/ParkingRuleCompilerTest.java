@@ -0,0 +1,122 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ParkingRuleCompiler} and {@link ParkingRule}
+ *
+ * Checks parsing of every value of the HDB data set, hours running past midnight, public holidays and code masks
+ */
+public class ParkingRuleCompilerTest {
+    // 2024-06-02 is a Sunday, 2024-06-17 (Hari Raya Haji) a Monday public holiday
+    private static final LocalDateTime SUNDAY = LocalDateTime.of(2024, 6, 2, 0, 0);
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 6, 3, 0, 0);
+    private static final LocalDateTime HOLIDAY_MONDAY = LocalDateTime.of(2024, 6, 17, 0, 0);
+
+    @Test
+    public void compile_parsesEveryDictionaryValue() {
+        for (int column : new int[]{CarParkDictionary.COLUMN_SHORT_TERM_PARKING,
+                CarParkDictionary.COLUMN_FREE_PARKING, CarParkDictionary.COLUMN_NIGHT_PARKING}) {
+            for (int code = 0; code < CarParkDictionary.size(column); code++) {
+                assertNotNull(ParkingRuleCompiler.getRule(column, code));
+            }
+        }
+
+        ParkingRule free = ParkingRuleCompiler.compile("SUN & PH FR 7AM-10.30PM", ParkingRule.ALWAYS);
+        assertEquals(new ParkingRule(ParkingRule.SUNDAY | ParkingRule.PUBLIC_HOLIDAY, 7 * 60, 22 * 60 + 30), free);
+        assertEquals(new ParkingRule(ParkingRule.EVERY_DAY, 7 * 60, 19 * 60),
+                ParkingRuleCompiler.compile("7AM-7PM", ParkingRule.ALWAYS));
+        assertEquals(new ParkingRule(ParkingRule.SATURDAY, 12 * 60, ParkingRule.MINUTES_PER_DAY),
+                ParkingRuleCompiler.compile("SAT FR 12NOON-12AM", ParkingRule.ALWAYS));
+        assertSame(ParkingRule.NEVER, ParkingRuleCompiler.compile("NO", ParkingRule.ALWAYS));
+        assertSame(ParkingRule.ALWAYS, ParkingRuleCompiler.compile("WHOLE DAY", ParkingRule.NEVER));
+    }
+
+    @Test
+    public void compile_rejectsUnknownValues() {
+        for (String value : new String[]{"SOMETIMES", "FUN FR 7AM-7PM", "7AM-25PM", "7-10PM"}) {
+            try {
+                ParkingRuleCompiler.compile(value, ParkingRule.ALWAYS);
+                fail("Expected '" + value + "' to be rejected");
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void freeParking_appliesOnSundaysAndPublicHolidaysWithinHours() {
+        CarPark carPark = new CarPark();
+        carPark.setFreeParkingCode(CarParkDictionary.FREE_PARKING_SUN_PH_7AM_1030PM);
+
+        assertTrue(isFreeParking(carPark, at(SUNDAY, 7, 0, false, false)));
+        assertTrue(isFreeParking(carPark, at(SUNDAY, 22, 29, false, false)));
+        assertFalse(isFreeParking(carPark, at(SUNDAY, 22, 30, false, false)));
+        assertFalse(isFreeParking(carPark, at(SUNDAY, 6, 59, false, false)));
+        assertFalse(isFreeParking(carPark, at(MONDAY, 12, 0, false, false)));
+        assertTrue(isFreeParking(carPark, at(HOLIDAY_MONDAY, 12, 0, true, false)));
+
+        carPark.setFreeParkingCode(CarParkDictionary.UNKNOWN);
+        assertFalse(isFreeParking(carPark, at(SUNDAY, 12, 0, false, false)));
+    }
+
+    @Test
+    public void nightParking_runsPastMidnightFromThePreviousDay() {
+        CarPark carPark = new CarPark();
+        carPark.setNightParkingCode(CarParkDictionary.NIGHT_PARKING_YES);
+
+        assertTrue(allowsNightParking(carPark, at(MONDAY, 23, 0, false, false)));
+        assertTrue(allowsNightParking(carPark, at(MONDAY, 3, 0, false, false)));
+        assertFalse(allowsNightParking(carPark, at(MONDAY, 7, 0, false, false)));
+        assertFalse(allowsNightParking(carPark, at(MONDAY, 12, 0, false, false)));
+
+        // Only on Sundays, so early Monday morning still belongs to Sunday night
+        ParkingRule sundayNight = new ParkingRule(ParkingRule.SUNDAY, 22 * 60, 6 * 60);
+        assertTrue(sundayNight.isActive(at(MONDAY, 5, 0, false, false)));
+        assertFalse(sundayNight.isActive(at(SUNDAY, 5, 0, false, false)));
+    }
+
+    @Test
+    public void activeCodeMask_filtersCarParksForTheTime() {
+        CarPark free = new CarPark();
+        free.setCarParkNumber("A");
+        free.setFreeParkingCode(CarParkDictionary.FREE_PARKING_SUN_PH_1PM_1030PM);
+        CarPark paid = new CarPark();
+        paid.setCarParkNumber("B");
+        paid.setFreeParkingCode(CarParkDictionary.FREE_PARKING_NO);
+
+        CarParkFilter sundayAfternoon = new CarParkFilter.Builder()
+                .freeParkingAt(at(SUNDAY, 14, 0, false, false)).build();
+        assertTrue(sundayAfternoon.matches(free));
+        assertFalse(sundayAfternoon.matches(paid));
+
+        // No free parking anywhere on a Monday, so nothing matches rather than everything
+        CarParkFilter monday = new CarParkFilter.Builder().freeParkingAt(at(MONDAY, 14, 0, false, false)).build();
+        assertEquals(0, ParkingRuleCompiler.activeCodeMask(CarParkDictionary.COLUMN_FREE_PARKING,
+                at(MONDAY, 14, 0, false, false)));
+        assertFalse(monday.isEmpty());
+        assertFalse(monday.matches(free));
+        assertEquals(0, new CarParkFilterEngine(Arrays.asList(free, paid)).count(monday));
+    }
+
+    private static boolean isFreeParking(CarPark carPark, ParkingTime time) {
+        return ParkingRuleCompiler.getRule(CarParkDictionary.COLUMN_FREE_PARKING, carPark.getFreeParkingCode())
+                .isActive(time);
+    }
+
+    private static boolean allowsNightParking(CarPark carPark, ParkingTime time) {
+        return ParkingRuleCompiler.getRule(CarParkDictionary.COLUMN_NIGHT_PARKING, carPark.getNightParkingCode())
+                .isActive(time);
+    }
+
+    private static ParkingTime at(LocalDateTime day, int hour, int minute, boolean isHoliday, boolean wasHoliday) {
+        return ParkingTime.of(day.withHour(hour).withMinute(minute), isHoliday, wasHoliday);
+    }
+}
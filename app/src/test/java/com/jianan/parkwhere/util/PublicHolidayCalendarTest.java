@@ -0,0 +1,94 @@
+package com.jianan.parkwhere.util;
+
+import com.jianan.parkwhere.data.local.CarPark;
+
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PublicHolidayCalendar}
+ *
+ * Checks parsing, lookups, coverage and that free parking rules follow the calendar, including the bundled table
+ */
+public class PublicHolidayCalendarTest {
+    private static final String TABLE = "# Test table\n"
+            + "version 3\n"
+            + "\n"
+            + "2025-12-25 Christmas Day\n"
+            + "2025-01-01 New Year's Day\n"
+            + "2025-01-01 Duplicate\n"
+            + "2026-08-10 National Day (observed)\n";
+
+    @Test
+    public void read_sortsAndLooksUpHolidays() throws IOException {
+        PublicHolidayCalendar calendar = PublicHolidayCalendar.read(new StringReader(TABLE));
+
+        assertEquals(3, calendar.getVersion());
+        assertEquals(3, calendar.size());
+        assertTrue(calendar.isPublicHoliday(LocalDate.of(2025, 1, 1)));
+        assertTrue(calendar.isPublicHoliday(LocalDate.of(2025, 12, 25)));
+        assertTrue(calendar.isPublicHoliday(LocalDate.of(2026, 8, 10)));
+        assertFalse(calendar.isPublicHoliday(LocalDate.of(2025, 12, 24)));
+
+        assertTrue(calendar.covers(LocalDate.of(2026, 12, 31)));
+        assertFalse(calendar.covers(LocalDate.of(2027, 1, 1)));
+        assertFalse(PublicHolidayCalendar.EMPTY.covers(LocalDate.of(2025, 1, 1)));
+    }
+
+    @Test
+    public void read_rejectsMalformedTables() throws IOException {
+        for (String table : new String[]{"2025-01-01\n", "version x\n", "version 1\n2025-13-01\n"}) {
+            try {
+                PublicHolidayCalendar.read(new StringReader(table));
+                fail("Expected the table to be rejected: " + table);
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void parkingTime_appliesFreeParkingOnHolidays() throws IOException {
+        PublicHolidayCalendar calendar = PublicHolidayCalendar.read(new StringReader(TABLE));
+        CarPark carPark = new CarPark();
+        carPark.setFreeParkingCode(CarParkDictionary.FREE_PARKING_SUN_PH_7AM_1030PM);
+
+        // Thursday 2025-12-25 is a holiday, the Wednesday before and the Friday after are not
+        assertTrue(isFreeParking(carPark, calendar.getParkingTime(LocalDateTime.of(2025, 12, 25, 9, 0))));
+        assertTrue(isFreeParking(carPark, calendar.getParkingTime(LocalDateTime.of(2025, 12, 25, 18, 0))));
+        assertFalse(isFreeParking(carPark, calendar.getParkingTime(LocalDateTime.of(2025, 12, 24, 9, 0))));
+        assertFalse(isFreeParking(carPark, calendar.getParkingTime(LocalDateTime.of(2025, 12, 26, 9, 0))));
+
+        // The previous day flag follows the calendar too
+        ParkingTime boxingDay = calendar.getParkingTime(LocalDateTime.of(2025, 12, 26, 1, 0));
+        assertTrue((boxingDay.getPreviousDayBits() & ParkingRule.PUBLIC_HOLIDAY) != 0);
+        assertEquals(0, boxingDay.getDayBits() & ParkingRule.PUBLIC_HOLIDAY);
+    }
+
+    @Test
+    public void bundledTable_isValidAndCoversTheCurrentYears() throws IOException {
+        try (Reader reader = new InputStreamReader(
+                new FileInputStream("src/main/res/raw/sg_public_holidays.txt"), StandardCharsets.UTF_8)) {
+            PublicHolidayCalendar calendar = PublicHolidayCalendar.read(reader);
+
+            assertTrue(calendar.getVersion() > 0);
+            assertTrue(calendar.covers(LocalDate.of(2025, 1, 1)));
+            assertTrue(calendar.isPublicHoliday(LocalDate.of(2025, 8, 9)));
+            assertTrue(calendar.isPublicHoliday(LocalDate.of(2026, 2, 17)));
+        }
+    }
+
+    private static boolean isFreeParking(CarPark carPark, ParkingTime time) {
+        return new CarParkFilter.Builder().freeParkingAt(time).build().matches(carPark);
+    }
+}
@@ -0,0 +1,52 @@
+package com.jianan.parkwhere.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RelativeTimeFormatter}
+ */
+public class RelativeTimeFormatterTest {
+
+    @Test
+    public void parseApiTimestamp_isSingaporeTime() {
+        // 2024-01-01T08:00:00 in Singapore is midnight UTC
+        assertEquals(1704067200000L, RelativeTimeFormatter.parseApiTimestamp("2024-01-01T08:00:00"));
+    }
+
+    @Test
+    public void parseApiTimestamp_malformed_isUnknown() {
+        assertEquals(RelativeTimeFormatter.UNKNOWN_TIME, RelativeTimeFormatter.parseApiTimestamp("2024-01-01 08:00"));
+        assertEquals(RelativeTimeFormatter.UNKNOWN_TIME, RelativeTimeFormatter.parseApiTimestamp(null));
+    }
+
+    @Test
+    public void labels_matchPreviousFormatting() {
+        RelativeTimeFormatter formatter = RelativeTimeFormatter.getInstance();
+
+        assertEquals("Updated just now", formatter.formatElapsedMinutes(0));
+        assertEquals("Updated 1 minute ago", formatter.formatElapsedMinutes(1));
+        assertEquals("Updated 59 minutes ago", formatter.formatElapsedMinutes(59));
+        assertEquals("Updated 1 hour ago", formatter.formatElapsedMinutes(60));
+        assertEquals("Updated 23 hours ago", formatter.formatElapsedMinutes(24 * 60 - 1));
+        assertEquals("Updated 1 day ago", formatter.formatElapsedMinutes(24 * 60));
+        assertEquals("Updated 40 days ago", formatter.formatElapsedMinutes(40 * 24 * 60));
+    }
+
+    @Test
+    public void labels_areCachedPerMinute() {
+        RelativeTimeFormatter formatter = RelativeTimeFormatter.getInstance();
+
+        assertSame(formatter.formatElapsedMinutes(5), formatter.formatElapsedMinutes(5));
+        assertSame(formatter.formatElapsedMinutes(3 * 24 * 60), formatter.formatElapsedMinutes(3 * 24 * 60 + 7));
+    }
+
+    @Test
+    public void format_unknownOrFutureTime() {
+        RelativeTimeFormatter formatter = RelativeTimeFormatter.getInstance();
+
+        assertEquals("Updated recently", formatter.format(RelativeTimeFormatter.UNKNOWN_TIME));
+        assertEquals("Updated just now", formatter.format(System.currentTimeMillis() + 60_000));
+    }
+}
@@ -0,0 +1,243 @@
+package com.jianan.parkwhere.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link StartupOrchestrator}
+ *
+ * Checks dependency ordering, overlap of independent stages, deferred stages, completion callbacks, failures and
+ * recorded timings
+ */
+public class StartupOrchestratorTest {
+
+    @Test
+    public void stage_startsAfterItsDependenciesFinish() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+
+        StartupOrchestrator startup = new StartupOrchestrator(executor)
+                .addStage("bookmarks", record(finished, "bookmarks", 0), "database")
+                .addStage("database", record(finished, "database", 30), "settings")
+                .addStage("settings", record(finished, "settings", 30));
+        startup.start();
+        startup.await("bookmarks");
+
+        assertEquals(Arrays.asList("settings", "database", "bookmarks"), finished);
+        executor.shutdown();
+    }
+
+    @Test
+    public void independentStages_runInParallel() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+
+        // Each stage only finishes once the other one is running too
+        StartupOrchestrator startup = new StartupOrchestrator(executor)
+                .addStage("database", () -> meet(bothRunning))
+                .addStage("location", () -> meet(bothRunning));
+        startup.start();
+        startup.await("database");
+        startup.await("location");
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void coldStart_runsIndependentStageAlongsideTheChain() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch chainAndLocationRunning = new CountDownLatch(2);
+
+        // Same shape as the application graph, location only finishes once the database is running too and the other
+        // way round, so the stages can only finish if location overlaps the settings, database and bookmarks chain
+        StartupOrchestrator startup = new StartupOrchestrator(executor)
+                .addStage("settings", log(events, "settings", () -> { }))
+                .addStage("database", log(events, "database", () -> meet(chainAndLocationRunning)), "settings")
+                .addStage("bookmarks", log(events, "bookmarks", () -> { }), "database")
+                .addStage("location", log(events, "location", () -> meet(chainAndLocationRunning)));
+        startup.start();
+        startup.await("bookmarks");
+        startup.await("location");
+
+        List<String> chain = new ArrayList<>(events);
+        chain.removeIf(event -> event.endsWith("location"));
+        assertEquals(Arrays.asList("start settings", "end settings", "start database", "end database",
+                "start bookmarks", "end bookmarks"), chain);
+        assertTrue(events.indexOf("start location") < events.indexOf("end database"));
+        assertTrue(events.indexOf("start database") < events.indexOf("end location"));
+        assertEquals(4, startup.getTimings().size());
+        executor.shutdown();
+    }
+
+    @Test
+    public void whenFinished_runsCallbackOnItsExecutorOnceStageHasFinished() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch posted = new CountDownLatch(1);
+        List<Runnable> mainThread = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean hasFinished = new AtomicBoolean(false);
+        AtomicBoolean isCalled = new AtomicBoolean(false);
+
+        StartupOrchestrator startup = new StartupOrchestrator(executor)
+                .addDeferredStage("places", () -> {
+                    await(release);
+                    hasFinished.set(true);
+                });
+        startup.start();
+        startup.whenFinished("places", task -> {
+            mainThread.add(task);
+            posted.countDown();
+        }, () -> isCalled.set(true));
+
+        // Nothing reaches the callback executor while the stage is running
+        assertTrue(mainThread.isEmpty());
+        release.countDown();
+        await(posted);
+        assertTrue(hasFinished.get());
+        assertFalse(isCalled.get());
+
+        // The callback runs where its executor runs it
+        mainThread.get(0).run();
+        assertTrue(isCalled.get());
+        assertEquals(1, mainThread.size());
+        executor.shutdown();
+    }
+
+    @Test
+    public void whenFinished_skipsCallbackOfFailedStage() {
+        List<Runnable> mainThread = Collections.synchronizedList(new ArrayList<>());
+        StartupOrchestrator startup = new StartupOrchestrator(Runnable::run)
+                .addDeferredStage("places", () -> {
+                    throw new RuntimeException("no network");
+                });
+        startup.start();
+
+        startup.whenFinished("places", mainThread::add, () -> fail("Callback of a failed stage"));
+
+        assertTrue(mainThread.isEmpty());
+    }
+
+    @Test
+    public void deferredStage_onlyRunsOnceRequested() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicBoolean hasRun = new AtomicBoolean(false);
+
+        StartupOrchestrator startup = new StartupOrchestrator(executor)
+                .addStage("settings", () -> { })
+                .addDeferredStage("places", () -> hasRun.set(true));
+        startup.start();
+        startup.await("settings");
+        Thread.sleep(50);
+        assertFalse(hasRun.get());
+
+        startup.await("places");
+        assertTrue(hasRun.get());
+        assertTrue(startup.getMilestoneMillis("await:places") >= 0);
+        executor.shutdown();
+    }
+
+    @Test
+    public void failedStage_failsItsDependents() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicBoolean hasDependentRun = new AtomicBoolean(false);
+
+        StartupOrchestrator startup = new StartupOrchestrator(executor)
+                .addStage("database", () -> {
+                    throw new RuntimeException("disk full");
+                })
+                .addStage("bookmarks", () -> hasDependentRun.set(true), "database");
+        startup.start();
+
+        try {
+            startup.await("bookmarks");
+            fail("Expected the failure of the database stage");
+        } catch (IllegalStateException e) {
+            assertEquals("disk full", e.getCause().getMessage());
+        }
+        assertFalse(hasDependentRun.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void invalidGraph_isRejectedOnStart() {
+        StartupOrchestrator cycle = new StartupOrchestrator(Runnable::run)
+                .addStage("a", () -> { }, "b")
+                .addStage("b", () -> { }, "a");
+        StartupOrchestrator unknown = new StartupOrchestrator(Runnable::run)
+                .addStage("a", () -> { }, "missing");
+
+        for (StartupOrchestrator startup : Arrays.asList(cycle, unknown)) {
+            try {
+                startup.start();
+                fail("Expected the graph to be rejected");
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void timings_recordEveryFinishedStageInOrder() {
+        StartupOrchestrator startup = new StartupOrchestrator(Runnable::run)
+                .addStage("settings", () -> sleep(10))
+                .addStage("database", () -> sleep(10), "settings");
+        startup.start();
+        startup.mark("first_frame");
+
+        List<StartupOrchestrator.StageTiming> timings = startup.getTimings();
+        assertEquals("settings", timings.get(0).name);
+        assertEquals("database", timings.get(1).name);
+        assertTrue(timings.get(1).startMillis >= timings.get(0).getEndMillis());
+        assertTrue(timings.get(0).durationMillis >= 10);
+        assertTrue(startup.getMilestoneMillis("first_frame") >= timings.get(1).getEndMillis());
+        assertEquals(-1, startup.getMilestoneMillis("unknown"), 0);
+    }
+
+    private static Runnable record(List<String> finished, String name, long millis) {
+        return () -> {
+            sleep(millis);
+            finished.add(name);
+        };
+    }
+
+    private static Runnable log(List<String> events, String name, Runnable task) {
+        return () -> {
+            events.add("start " + name);
+            task.run();
+            events.add("end " + name);
+        };
+    }
+
+    private static void meet(CountDownLatch latch) {
+        latch.countDown();
+        await(latch);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.jianan.parkwhere.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Svy21Projection}
+ *
+ * Reference values are taken from the bundled HDB data set, which publishes both the WGS84 and the
+ * SVY21 coordinates of each car park
+ */
+public class Svy21ProjectionTest {
+    // Within 10 cm of the published coordinates across the whole data set
+    private static final double TOLERANCE_M = 0.1;
+
+    @Test
+    public void fromLatLng_matchesPublishedCoordinates() {
+        assertProjection(1.301063272, 103.854118, 30314.7936, 31490.4942);   // ACB, Albert Centre
+        assertProjection(1.369091216, 103.8349849, 28185.4359, 39012.6664);  // AK19, Ang Mo Kio
+        assertProjection(1.340430194, 103.741574, 17789.8162, 35843.6681);   // J8, Jurong East
+        assertProjection(1.398136844, 103.876383, 32792.4874, 42224.4283);   // S118, Fernvale
+        assertProjection(1.2754814, 103.8422974, 28999.272, 28661.7751);     // TPM, Tanjong Pagar
+    }
+
+    @Test
+    public void fromLatLng_origin_returnsFalseOrigin() {
+        Svy21Projection.Point point = Svy21Projection.fromLatLng(1.366666, 103.833333);
+        assertEquals(28001.642, point.getX(), 0.01);
+        assertEquals(38744.572, point.getY(), 0.01);
+    }
+
+    private static void assertProjection(double lat, double lon, double expectedX, double expectedY) {
+        Svy21Projection.Point point = Svy21Projection.fromLatLng(lat, lon);
+        assertEquals(expectedX, point.getX(), TOLERANCE_M);
+        assertEquals(expectedY, point.getY(), TOLERANCE_M);
+    }
+}
@@ -0,0 +1,29 @@
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+    main {
+        java {
+            // The catalogue writer and the projection it uses are compiled from the app sources, so the build
+            // writes exactly the format the app reads
+            srcDir("../app/src/main/java")
+            include(
+                "com/jianan/parkwhere/build/**",
+                "com/jianan/parkwhere/util/CarParkCatalogue.java",
+                "com/jianan/parkwhere/util/CarParkCatalogueWriter.java",
+                "com/jianan/parkwhere/util/CarParkDictionary.java",
+                "com/jianan/parkwhere/util/Svy21Projection.java"
+            )
+        }
+    }
+}
+
+dependencies {
+    implementation(gradleApi())
+}
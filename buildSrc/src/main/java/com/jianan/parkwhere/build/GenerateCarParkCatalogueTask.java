@@ -0,0 +1,59 @@
+package com.jianan.parkwhere.build;
+
+import com.jianan.parkwhere.util.CarParkCatalogue;
+import com.jianan.parkwhere.util.CarParkCatalogueWriter;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Generates the binary car park catalogue asset from the HDB car park information CSV
+ *
+ * The output directory is added to the assets of every variant, see {@code app/build.gradle.kts}
+ */
+@CacheableTask
+public abstract class GenerateCarParkCatalogueTask extends DefaultTask {
+
+    /**
+     * The HDB car park information CSV with latitude and longitude columns
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getSourceCsv();
+
+    /**
+     * Directory the catalogue asset is written to
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    @TaskAction
+    public void generate() throws IOException {
+        List<CarParkCatalogueWriter.Row> rows;
+        try (Reader reader = Files.newBufferedReader(getSourceCsv().get().getAsFile().toPath(), StandardCharsets.UTF_8)) {
+            rows = CarParkCatalogueWriter.readCsv(reader);
+        }
+
+        File output = getOutputDirectory().file(CarParkCatalogue.ASSET_NAME).get().getAsFile();
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(output.toPath()))) {
+            CarParkCatalogueWriter.write(rows, outputStream);
+        }
+        getLogger().info("Wrote {} car parks to {}", rows.size(), output);
+    }
+}